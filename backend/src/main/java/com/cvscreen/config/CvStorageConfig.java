@@ -0,0 +1,69 @@
+package com.cvscreen.config;
+
+import com.cvscreen.service.storage.FileSystemCvStorage;
+import com.cvscreen.service.storage.S3CvStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.checksums.RequestChecksumCalculation;
+import software.amazon.awssdk.core.checksums.ResponseChecksumValidation;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Paths;
+
+/**
+ * CV storage backends. The filesystem one always exists (it is also the source of a copy to S3);
+ * the S3 one when a bucket is configured. cvscreen.cv-storage.type chooses the one in use.
+ */
+@Configuration
+public class CvStorageConfig {
+    
+    // S3 rejects smaller multipart parts, except the last one
+    private static final int MIN_PART_SIZE_MB = 5;
+    
+    @Bean
+    public FileSystemCvStorage fileSystemCvStorage(
+            @Value("${cvscreen.cv-storage-path:./cvs}") String storagePath) throws IOException {
+        return new FileSystemCvStorage(Paths.get(storagePath));
+    }
+    
+    @Bean
+    @ConditionalOnExpression("!'${cvscreen.cv-storage.s3.bucket:}'.isEmpty()")
+    public S3CvStorage s3CvStorage(
+            @Value("${cvscreen.cv-storage.s3.bucket}") String bucket,
+            @Value("${cvscreen.cv-storage.s3.prefix:}") String prefix,
+            @Value("${cvscreen.cv-storage.s3.endpoint:}") String endpoint,
+            @Value("${cvscreen.cv-storage.s3.region:us-east-1}") String region,
+            @Value("${cvscreen.cv-storage.s3.path-style:false}") boolean pathStyle,
+            @Value("${cvscreen.cv-storage.s3.access-key:}") String accessKey,
+            @Value("${cvscreen.cv-storage.s3.secret-key:}") String secretKey,
+            @Value("${cvscreen.cv-storage.s3.part-size-mb:8}") int partSizeMb) {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .forcePathStyle(pathStyle)
+                // Checksums only where the API requires them: S3-compatible servers differ
+                .requestChecksumCalculation(RequestChecksumCalculation.WHEN_REQUIRED)
+                .responseChecksumValidation(ResponseChecksumValidation.WHEN_REQUIRED);
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        if (accessKey.isEmpty()) {
+            // Environment, profile or instance role
+            builder.credentialsProvider(DefaultCredentialsProvider.builder().build());
+        } else {
+            builder.credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+        }
+        
+        String keyPrefix = prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+        return new S3CvStorage(builder.build(), bucket, keyPrefix,
+                Math.max(partSizeMb, MIN_PART_SIZE_MB) * 1024 * 1024);
+    }
+}
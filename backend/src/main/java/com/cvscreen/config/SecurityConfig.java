@@ -1,6 +1,7 @@
 package com.cvscreen.config;
 
 import com.cvscreen.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -62,6 +63,8 @@ public class SecurityConfig {
                 // IMPORTANT: Ne pas mettre /api/auth/** car context-path ajoute déjà /api
                 .requestMatchers("/auth/**").permitAll()
                 .requestMatchers("/error").permitAll()
+                // Completion of streamed responses (SSE), the request itself was already authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .anyRequest().authenticated()
             )
             .authenticationProvider(authenticationProvider())
@@ -0,0 +1,74 @@
+package com.cvscreen.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Upload size limit of every endpoint but the imports. The spring.servlet.multipart limits
+ * apply to the whole server and are sized for the imports (/api/import/); other multipart
+ * requests are rejected here, from their Content-Length, before their body is read.
+ */
+@Component
+@RequiredArgsConstructor
+public class UploadSizeFilter extends OncePerRequestFilter {
+    
+    private static final String IMPORT_PATH = "/import/";
+    
+    private final ObjectMapper objectMapper;
+    
+    @Value("${cvscreen.upload.max-request-size:20MB}")
+    private DataSize maxRequestSize;
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        
+        long length = request.getContentLengthLong();
+        if (length > maxRequestSize.toBytes()) {
+            reject(response, HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Upload too large: the limit is " + maxRequestSize.toMegabytes() + " MB");
+            return;
+        }
+        if (length < 0) {
+            // A chunked body could exceed the limit
+            reject(response, HttpStatus.LENGTH_REQUIRED, "Uploads must have a Content-Length");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+        String contentType = request.getContentType();
+        return contentType == null
+                || !contentType.toLowerCase().startsWith(MediaType.MULTIPART_FORM_DATA_VALUE)
+                || request.getRequestURI().startsWith(request.getContextPath() + IMPORT_PATH);
+    }
+    
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("timestamp", LocalDateTime.now());
+        errorResponse.put("status", status.value());
+        errorResponse.put("error", status.getReasonPhrase());
+        errorResponse.put("message", message);
+        
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+}
@@ -15,7 +15,7 @@ import java.util.List;
 @RestController
 @RequestMapping("/applications/{applicationId}/comments")
 @RequiredArgsConstructor
-@CrossOrigin(origins = "http://localhost:8082")
+@CrossOrigin(origins = {"http://localhost:8082", "http://127.0.0.1:8082"})
 public class ApplicationCommentController {
     
     private final ApplicationCommentService commentService;
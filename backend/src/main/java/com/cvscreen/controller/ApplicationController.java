@@ -2,19 +2,31 @@ package com.cvscreen.controller;
 
 import com.cvscreen.dto.ApplicationDTO;
 import com.cvscreen.dto.CreateApplicationRequest;
+import com.cvscreen.dto.CursorPageDTO;
 import com.cvscreen.service.ApplicationService;
+import com.cvscreen.service.ApplicationService.CvFile;
+import com.cvscreen.service.ApplicationService.CvSearchPage;
+import com.cvscreen.service.CvPipelineService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,10 +34,11 @@ import java.util.Map;
 @RestController
 @RequestMapping("/applications")
 @RequiredArgsConstructor
-@CrossOrigin(origins = "http://localhost:8082")
+@CrossOrigin(origins = {"http://localhost:8082", "http://127.0.0.1:8082"})
 public class ApplicationController {
     
     private final ApplicationService applicationService;
+    private final CvPipelineService cvPipelineService;
     
     @GetMapping
     public ResponseEntity<Map<String, Object>> getAllApplications(
@@ -80,6 +93,79 @@ public class ApplicationController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Cursor pagination: pass the nextCursor of a page to get the following one,
+     * with the same filters and sort. Deep pages cost the same as the first one.
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<Map<String, Object>> scrollApplications(
+            @RequestParam(required = false) String candidateName,
+            @RequestParam(required = false) String jobReference,
+            @RequestParam(required = false) String companyName,
+            @RequestParam(required = false) String roleCategory,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(defaultValue = "applicationDate") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDirection,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        CursorPageDTO<ApplicationDTO> applicationPage;
+        try {
+            applicationPage = applicationService.scrollApplications(
+                    candidateName, jobReference, companyName, roleCategory, status,
+                    sortBy, !sortDirection.equalsIgnoreCase("desc"), cursor, size, includeTotal);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            // Malformed cursor, cursor issued for another sort, or a sort without cursor support
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        response.put("applications", applicationPage.getItems());
+        response.put("nextCursor", applicationPage.getNextCursor());
+        response.put("hasMore", applicationPage.getNextCursor() != null);
+        if (applicationPage.getTotalItems() != null) {
+            response.put("totalItems", applicationPage.getTotalItems());
+        }
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Full-text search in the CVs (Lucene syntax, e.g. "kubernetes AND java"), best matches
+     * first, with the filters of /search. Each hit carries the application and its score.
+     */
+    @GetMapping("/cv-search")
+    public ResponseEntity<Map<String, Object>> searchCvs(
+            @RequestParam String q,
+            @RequestParam(required = false) String candidateName,
+            @RequestParam(required = false) String jobReference,
+            @RequestParam(required = false) String companyName,
+            @RequestParam(required = false) String roleCategory,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) throws IOException {
+        
+        Map<String, Object> response = new HashMap<>();
+        CvSearchPage result;
+        try {
+            result = applicationService.searchCvs(q, candidateName, jobReference, companyName, roleCategory, status,
+                    PageRequest.of(page, size));
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        response.put("hits", result.getHits().getContent());
+        response.put("currentPage", result.getHits().getNumber());
+        response.put("totalItems", result.getHits().getTotalElements());
+        response.put("totalPages", result.getHits().getTotalPages());
+        response.put("truncated", result.isTruncated());
+        
+        return ResponseEntity.ok(response);
+    }
+    
     @PostMapping
     public ResponseEntity<ApplicationDTO> createApplication(@Valid @RequestBody CreateApplicationRequest request) {
         return ResponseEntity.status(HttpStatus.CREATED)
@@ -105,4 +191,50 @@ public class ApplicationController {
             @RequestParam("file") MultipartFile file) throws IOException {
         return ResponseEntity.ok(applicationService.uploadCV(id, file));
     }
+    
+    /**
+     * The CV file, streamed from its storage. Spring answers Range requests with 206 partial content
+     * (downloads resume) and If-None-Match with 304, the ETag being the SHA-256 of the file.
+     */
+    @GetMapping("/{id}/cv")
+    public ResponseEntity<Resource> downloadCV(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) throws IOException {
+        CvFile cv = applicationService.getCvFile(id);
+        String eTag = "\"" + cv.getSha256() + "\"";
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(cv.getMediaType())
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.inline().filename(cv.getFilename(), StandardCharsets.UTF_8).build().toString());
+        
+        // Spring ignores If-Range: a resume of another version of the file gets the whole new file,
+        // from an InputStreamResource, which Spring never splits into ranges
+        if (ifRange != null && !ifRange.equals(eTag)) {
+            return response.contentLength(cv.getSize())
+                    .body(new InputStreamResource(cv.getResource().getInputStream()));
+        }
+        return response.body(cv.getResource());
+    }
+    
+    /**
+     * Stage of the CV in the processing pipeline, with its page count and language once found
+     */
+    @GetMapping("/{id}/cv/processing")
+    public ResponseEntity<Map<String, Object>> getCvProcessing(@PathVariable Long id) {
+        return ResponseEntity.ok(cvPipelineService.getProcessing(id));
+    }
+    
+    /**
+     * PNG of the first page of the CV, once rendered (PDF only)
+     */
+    @GetMapping("/{id}/cv/preview")
+    public ResponseEntity<Resource> getCvPreview(@PathVariable Long id) throws IOException {
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(cvPipelineService.getPreview(id));
+    }
 }
@@ -16,7 +16,7 @@ import org.springframework.web.bind.annotation.*;
 @RestController
 @RequestMapping("/auth")  // CORRECTION: Retiré /api car context-path ajoute déjà /api
 @RequiredArgsConstructor
-@CrossOrigin(origins = {"http://127.0.0.1:8082", "http://localhost:8082"})
+@CrossOrigin(origins = {"http://localhost:8082", "http://127.0.0.1:8082"})
 public class AuthController {
     
     private final AuthenticationManager authenticationManager;
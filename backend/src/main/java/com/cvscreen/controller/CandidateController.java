@@ -3,15 +3,23 @@ package com.cvscreen.controller;
 import com.cvscreen.dto.CandidateDTO;
 import com.cvscreen.dto.CandidateDuplicateDTO;
 import com.cvscreen.dto.CreateCandidateRequest;
+import com.cvscreen.dto.CursorPageDTO;
+import com.cvscreen.dto.DuplicateJobDTO;
+import com.cvscreen.service.CandidateDuplicateIndexService;
+import com.cvscreen.service.CandidateDuplicateJobService;
 import com.cvscreen.service.CandidateService;
+import com.cvscreen.service.SuggestionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -22,10 +30,16 @@ import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/candidates")
 @RequiredArgsConstructor
-@CrossOrigin(origins = "http://localhost:8082")
+@CrossOrigin(origins = {"http://localhost:8082", "http://127.0.0.1:8082"})
 public class CandidateController {
     
+    /** Seconds a client waits before resubmitting a duplicate job refused because the queue is full */
+    private static final String DUPLICATE_JOB_RETRY_AFTER_SECONDS = "30";
+    
     private final CandidateService candidateService;
+    private final CandidateDuplicateJobService duplicateJobService;
+    private final CandidateDuplicateIndexService duplicateIndexService;
+    private final SuggestionService suggestionService;
     
     @GetMapping
     public ResponseEntity<Map<String, Object>> getAllCandidates(
@@ -48,6 +62,40 @@ public class CandidateController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Cursor pagination: pass the nextCursor of a page to get the following one,
+     * with the same search term and sort. Deep pages cost the same as the first one.
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<Map<String, Object>> scrollCandidates(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(defaultValue = "lastName") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDirection,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        CursorPageDTO<CandidateDTO> candidatePage;
+        try {
+            candidatePage = candidateService.scrollCandidates(
+                    q, sortBy, !sortDirection.equalsIgnoreCase("desc"), cursor, size, includeTotal);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            // Malformed cursor, cursor issued for another sort, or a sort without cursor support
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        response.put("candidates", candidatePage.getItems());
+        response.put("nextCursor", candidatePage.getNextCursor());
+        response.put("hasMore", candidatePage.getNextCursor() != null);
+        if (candidatePage.getTotalItems() != null) {
+            response.put("totalItems", candidatePage.getTotalItems());
+        }
+        
+        return ResponseEntity.ok(response);
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<CandidateDTO> getCandidateById(@PathVariable Long id) {
         return ResponseEntity.ok(candidateService.getCandidateById(id));
@@ -75,13 +123,132 @@ public class CandidateController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Typeahead: best candidate names, company names and job references for q, limit per type.
+     * Answered from memory; ready is false while the suggestions are still loading at startup.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<Map<String, Object>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        Map<String, Object> response = new HashMap<>(suggestionService.suggest(q, limit));
+        response.put("ready", suggestionService.isReady());
+        
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * NEW: Detect potential duplicate candidates based on name similarity
+     * Optionally keeps only the {@code limit} best pairs and splits the scan over
+     * {@code parallelism} workers
      */
     @GetMapping("/duplicates")
     public ResponseEntity<List<CandidateDuplicateDTO>> findPotentialDuplicates(
-            @RequestParam(defaultValue = "0.85") double threshold) {
-        return ResponseEntity.ok(candidateService.findPotentialDuplicates(threshold));
+            @RequestParam(defaultValue = "0.85") double threshold,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "1") int parallelism) {
+        return ResponseEntity.ok(candidateService.findPotentialDuplicates(threshold, limit, parallelism));
+    }
+    
+    /**
+     * Paginated duplicates, read from the precomputed pairs of the duplicate index
+     */
+    @GetMapping("/duplicates/page")
+    public ResponseEntity<Map<String, Object>> findPotentialDuplicatesPaginated(
+            @RequestParam(defaultValue = "0.85") double threshold,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+        
+        Page<CandidateDuplicateDTO> duplicatePage = candidateService.findPotentialDuplicatesPaginated(
+                threshold, PageRequest.of(page, size));
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("duplicates", duplicatePage.getContent());
+        response.put("currentPage", duplicatePage.getNumber());
+        response.put("totalItems", duplicatePage.getTotalElements());
+        response.put("totalPages", duplicatePage.getTotalPages());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Starts a background duplicate scan, poll its progress with GET /duplicates/jobs/{jobId}
+     */
+    @PostMapping("/duplicates/jobs")
+    public ResponseEntity<?> startDuplicateJob(
+            @RequestParam(defaultValue = "0.85") double threshold,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "1") int parallelism) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(duplicateJobService.startJob(threshold, limit, parallelism));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            // Job queue full
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, DUPLICATE_JOB_RETRY_AFTER_SECONDS)
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/duplicates/jobs/{jobId}")
+    public ResponseEntity<DuplicateJobDTO> getDuplicateJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(duplicateJobService.getJob(jobId));
+    }
+    
+    @DeleteMapping("/duplicates/jobs/{jobId}")
+    public ResponseEntity<DuplicateJobDTO> cancelDuplicateJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(duplicateJobService.cancelJob(jobId));
+    }
+    
+    @GetMapping("/duplicates/jobs/{jobId}/results")
+    public ResponseEntity<Map<String, Object>> getDuplicateJobResults(
+            @PathVariable String jobId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+        
+        Page<CandidateDuplicateDTO> duplicatePage;
+        try {
+            duplicatePage = candidateService.getDuplicateJobResults(jobId, PageRequest.of(page, size));
+        } catch (IllegalStateException e) {
+            // Job still queued or running, or cancelled or failed
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("duplicates", duplicatePage.getContent());
+        response.put("currentPage", duplicatePage.getNumber());
+        response.put("totalItems", duplicatePage.getTotalElements());
+        response.put("totalPages", duplicatePage.getTotalPages());
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * State of the duplicate index, and progress of the last rebuild
+     */
+    @GetMapping("/duplicates/index")
+    public ResponseEntity<Map<String, Object>> getDuplicateIndexStatus() {
+        return ResponseEntity.ok(duplicateIndexService.getStatus());
+    }
+    
+    /**
+     * Recomputes every stored duplicate pair in the background, poll GET /duplicates/index for progress
+     */
+    @PostMapping("/duplicates/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildDuplicateIndex(Authentication authentication) {
+        // Only admin can run maintenance tasks
+        if (!"admin".equals(authentication.getName())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(duplicateIndexService.startRebuild());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
     }
     
     @PostMapping
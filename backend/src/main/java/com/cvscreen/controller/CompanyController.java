@@ -1,8 +1,10 @@
 package com.cvscreen.controller;
 
 import com.cvscreen.dto.CompanyDTO;
+import com.cvscreen.dto.CursorPageDTO;
 import com.cvscreen.service.CompanyService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -19,7 +21,7 @@ import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/companies")
 @RequiredArgsConstructor
-@CrossOrigin(origins = "http://localhost:8082")
+@CrossOrigin(origins = {"http://localhost:8082", "http://127.0.0.1:8082"})
 public class CompanyController {
     
     private final CompanyService companyService;
@@ -48,6 +50,40 @@ public class CompanyController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Cursor pagination: pass the nextCursor of a page to get the following one,
+     * with the same search term and sort. Deep pages cost the same as the first one.
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<Map<String, Object>> scrollCompanies(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "applicationCount") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDirection,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        Map<String, Object> response = new HashMap<>();
+        CursorPageDTO<CompanyDTO> companyPage;
+        try {
+            companyPage = companyService.scrollCompanies(
+                    q, sortBy, !sortDirection.equalsIgnoreCase("desc"), cursor, size, includeTotal);
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            // Malformed cursor, cursor issued for another sort, or a sort without cursor support
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        response.put("companies", companyPage.getItems());
+        response.put("nextCursor", companyPage.getNextCursor());
+        response.put("hasMore", companyPage.getNextCursor() != null);
+        if (companyPage.getTotalItems() != null) {
+            response.put("totalItems", companyPage.getTotalItems());
+        }
+        
+        return ResponseEntity.ok(response);
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<CompanyDTO> getCompanyById(@PathVariable Long id) {
         return ResponseEntity.ok(companyService.getCompanyById(id));
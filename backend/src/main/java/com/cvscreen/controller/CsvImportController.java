@@ -0,0 +1,77 @@
+package com.cvscreen.controller;
+
+import com.cvscreen.service.CsvImportService;
+import com.cvscreen.service.CsvImportService.CsvImportResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/import")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = {"http://localhost:8082", "http://127.0.0.1:8082"})
+public class CsvImportController {
+    
+    private final CsvImportService csvImportService;
+    
+    /**
+     * Bulk import of applications from a CSV export, see CsvImportService for the columns
+     */
+    @PostMapping("/csv")
+    public ResponseEntity<Map<String, Object>> importCsv(@RequestParam("file") MultipartFile file,
+                                                         @RequestParam(defaultValue = ",") char separator) {
+        Map<String, Object> response = new HashMap<>();
+        
+        log.info("=== CSV import request received ===");
+        log.info("Filename: {}, Size: {} bytes", file.getOriginalFilename(), file.getSize());
+        
+        if (file.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "File is empty");
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        try {
+            CsvImportResult result = csvImportService.importCsv(file, file.getOriginalFilename(), separator);
+            
+            response.put("success", result.getImportedCount() > 0 || result.getSkippedCount() > 0);
+            response.put("rowsRead", result.getRowsRead());
+            response.put("successCount", result.getImportedCount());
+            response.put("skippedCount", result.getSkippedCount());
+            response.put("failedCount", result.getFailedCount());
+            response.put("candidatesCreated", result.getCandidatesCreated());
+            response.put("companiesCreated", result.getCompaniesCreated());
+            response.put("jobsCreated", result.getJobsCreated());
+            response.put("durationMillis", result.getDurationMillis());
+            response.put("errors", result.getErrors().stream()
+                .map(error -> Map.of(
+                    "lineNumber", error.getLineNumber(),
+                    "message", error.getMessage()
+                ))
+                .collect(Collectors.toList()));
+            response.put("message", String.format(
+                "Import completed. %d new records, %d duplicates skipped, %d failed.",
+                result.getImportedCount(), result.getSkippedCount(), result.getFailedCount()
+            ));
+            return ResponseEntity.ok(response);
+        
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid CSV file {}: {}", file.getOriginalFilename(), e.getMessage());
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("CSV import failed with exception", e);
+            response.put("success", false);
+            response.put("message", "Import failed: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+}
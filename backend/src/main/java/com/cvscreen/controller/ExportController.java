@@ -0,0 +1,90 @@
+package com.cvscreen.controller;
+
+import com.cvscreen.service.ExportService;
+import com.cvscreen.service.ExportService.ExportFormat;
+import com.cvscreen.specification.ApplicationSpecification;
+import com.cvscreen.specification.CandidateSpecification;
+import com.cvscreen.specification.CompanySpecification;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Downloads of whole listings as CSV or NDJSON (format=csv|ndjson), with the filters of
+ * the matching search endpoints. Rows are streamed, use these rather than a search with a huge size.
+ */
+@RestController
+@RequestMapping("/export")
+@RequiredArgsConstructor
+@CrossOrigin(origins = {"http://localhost:8082", "http://127.0.0.1:8082"})
+public class ExportController {
+    
+    private final ExportService exportService;
+    
+    @GetMapping("/applications")
+    public ResponseEntity<StreamingResponseBody> exportApplications(
+            @RequestParam(required = false) String candidateName,
+            @RequestParam(required = false) String jobReference,
+            @RequestParam(required = false) String companyName,
+            @RequestParam(required = false) String roleCategory,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "csv") String format) {
+        
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        if (exportFormat == null) {
+            return unknownFormat(format);
+        }
+        return download("applications", exportFormat, output -> exportService.exportApplications(
+                ApplicationSpecification.searchApplications(candidateName, jobReference, companyName, roleCategory, status),
+                exportFormat, output));
+    }
+    
+    @GetMapping("/candidates")
+    public ResponseEntity<StreamingResponseBody> exportCandidates(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "csv") String format) {
+        
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        if (exportFormat == null) {
+            return unknownFormat(format);
+        }
+        return download("candidates", exportFormat, output -> exportService.exportCandidates(
+                CandidateSpecification.searchByName(q), exportFormat, output));
+    }
+    
+    @GetMapping("/companies")
+    public ResponseEntity<StreamingResponseBody> exportCompanies(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "csv") String format) {
+        
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        if (exportFormat == null) {
+            return unknownFormat(format);
+        }
+        return download("companies", exportFormat, output -> exportService.exportCompanies(
+                CompanySpecification.nameContains(q), exportFormat, output));
+    }
+    
+    private static ResponseEntity<StreamingResponseBody> download(String name, ExportFormat format, StreamingResponseBody body) {
+        String filename = name + "-" + LocalDate.now() + "." + format.getExtension();
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+    
+    // Only StreamingResponseBody can be returned from these methods, so the error is streamed too
+    private static ResponseEntity<StreamingResponseBody> unknownFormat(String format) {
+        byte[] message = ("Unknown export format: " + format + ". Use csv or ndjson.").getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(output -> output.write(message));
+    }
+}
@@ -14,7 +14,7 @@ import java.util.List;
 @RestController
 @RequestMapping("/jobs")
 @RequiredArgsConstructor
-@CrossOrigin(origins = "http://localhost:8082")
+@CrossOrigin(origins = {"http://localhost:8082", "http://127.0.0.1:8082"})
 public class JobController {
     
     private final JobService jobService;
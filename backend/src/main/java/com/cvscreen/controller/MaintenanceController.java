@@ -0,0 +1,158 @@
+package com.cvscreen.controller;
+
+import com.cvscreen.service.CounterService;
+import com.cvscreen.service.CvPipelineService;
+import com.cvscreen.service.CvSearchService;
+import com.cvscreen.service.CvStorageCopyService;
+import com.cvscreen.service.CvStorageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/maintenance")
+@RequiredArgsConstructor
+@CrossOrigin(origins = {"http://localhost:8082", "http://127.0.0.1:8082"})
+public class MaintenanceController {
+    
+    private final CounterService counterService;
+    private final CvSearchService cvSearchService;
+    private final CvStorageService cvStorageService;
+    private final CvStorageCopyService cvStorageCopyService;
+    private final CvPipelineService cvPipelineService;
+    
+    /**
+     * Recomputes the denormalized application, comment and rating counters
+     */
+    @PostMapping("/counters/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuildCounters(Authentication authentication) {
+        // Only admin can run maintenance tasks
+        if (!"admin".equals(authentication.getName())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        return ResponseEntity.ok(counterService.rebuild());
+    }
+    
+    /**
+     * Documents in the CV index, and progress of the last rebuild
+     */
+    @GetMapping("/cv-index")
+    public ResponseEntity<Map<String, Object>> getCvIndexStatus() {
+        return ResponseEntity.ok(cvSearchService.getStatus());
+    }
+    
+    /**
+     * Re-indexes every CV text of cv_texts in this instance's index in the background, poll
+     * GET /cv-index for progress
+     */
+    @PostMapping("/cv-index/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildCvIndex(Authentication authentication) {
+        // Only admin can run maintenance tasks
+        if (!"admin".equals(authentication.getName())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(cvSearchService.startRebuild());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Removes the CV files no application references any more, past the grace period
+     */
+    @PostMapping("/cv-storage/gc")
+    public ResponseEntity<Map<String, Integer>> collectCvGarbage(Authentication authentication) throws IOException {
+        // Only admin can run maintenance tasks
+        if (!"admin".equals(authentication.getName())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        return ResponseEntity.ok(cvStorageService.collectGarbage());
+    }
+    
+    /**
+     * Progress of the last migration of the legacy CV files
+     */
+    @GetMapping("/cv-storage/migrate")
+    public ResponseEntity<Map<String, Object>> getCvMigrationStatus() {
+        return ResponseEntity.ok(cvStorageService.getMigrationStatus());
+    }
+    
+    /**
+     * Moves the CVs stored before deduplication to the content-addressed layout in the
+     * background, poll GET /cv-storage/migrate for progress
+     */
+    @PostMapping("/cv-storage/migrate")
+    public ResponseEntity<Map<String, Object>> migrateCvFiles(Authentication authentication) {
+        // Only admin can run maintenance tasks
+        if (!"admin".equals(authentication.getName())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(cvStorageService.startMigration());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Progress of the last copy between CV storages
+     */
+    @GetMapping("/cv-storage/copy")
+    public ResponseEntity<Map<String, Object>> getCvStorageCopyStatus() {
+        return ResponseEntity.ok(cvStorageCopyService.getStatus());
+    }
+    
+    /**
+     * Copies every CV file from one storage to the other (filesystem, s3) in the background,
+     * poll GET /cv-storage/copy for progress
+     */
+    @PostMapping("/cv-storage/copy")
+    public ResponseEntity<Map<String, Object>> copyCvStorage(
+            @RequestParam String source,
+            @RequestParam String target,
+            Authentication authentication) {
+        // Only admin can run maintenance tasks
+        if (!"admin".equals(authentication.getName())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(cvStorageCopyService.startCopy(source, target));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Queue depth and throughput of each CV pipeline stage, and CVs per stage
+     */
+    @GetMapping("/cv-pipeline")
+    public ResponseEntity<Map<String, Object>> getCvPipelineStats() {
+        return ResponseEntity.ok(cvPipelineService.getStats());
+    }
+    
+    /**
+     * Processes the CVs that failed max-attempts times again, from the first stage
+     */
+    @PostMapping("/cv-pipeline/retry")
+    public ResponseEntity<Map<String, Integer>> retryFailedCvs(Authentication authentication) {
+        // Only admin can run maintenance tasks
+        if (!"admin".equals(authentication.getName())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        return ResponseEntity.ok(Map.of("retried", cvPipelineService.retryFailed()));
+    }
+}
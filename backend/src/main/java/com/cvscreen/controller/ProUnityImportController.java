@@ -1,13 +1,20 @@
 package com.cvscreen.controller;
 
+import com.cvscreen.dto.ImportJobDTO;
+import com.cvscreen.service.ImportJobService;
 import com.cvscreen.service.ProUnityImportService;
 import com.cvscreen.service.ProUnityImportService.ImportResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -20,10 +27,16 @@ import java.util.stream.Collectors;
 public class ProUnityImportController {
     
     private final ProUnityImportService proUnityImportService;
+    private final ImportJobService importJobService;
+    
+    @Value("${spring.servlet.multipart.max-file-size:1MB}")
+    private String maxFileSize;
     
     @PostMapping("/prounity")
     public ResponseEntity<Map<String, Object>> importProUnity(
-            @RequestParam("file") MultipartFile file) {
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(defaultValue = "true") boolean resume,
+            @RequestParam(defaultValue = "false") boolean sync) {
         
         Map<String, Object> response = new HashMap<>();
         
@@ -48,14 +61,19 @@ public class ProUnityImportController {
             }
             
             // Perform import
-            ImportResult result = proUnityImportService.importFromProUnity(file);
+            ImportResult result = proUnityImportService.importFromProUnity(file, resume, sync);
             
             // Build response
-            response.put("success", result.getSuccessCount() > 0 || result.getSkippedCount() > 0);
+            response.put("success", result.getSuccessCount() > 0 || result.getUpdatedCount() > 0
+                    || result.getSkippedCount() > 0 || result.getResumedCount() > 0);
             response.put("successCount", result.getSuccessCount());
+            response.put("updatedCount", result.getUpdatedCount());
             response.put("skippedCount", result.getSkippedCount());
+            response.put("resumedCount", result.getResumedCount());
             response.put("failedCount", result.getFailedCount());
-            response.put("totalProcessed", result.getSuccessCount() + result.getSkippedCount() + result.getFailedCount());
+            response.put("totalProcessed", result.getSuccessCount() + result.getUpdatedCount()
+                    + result.getSkippedCount() + result.getFailedCount());
+            response.put("cacheStatistics", result.getCacheStatistics());
             
             if (result.hasErrors()) {
                 response.put("errors", result.getErrors().stream()
@@ -76,6 +94,19 @@ public class ProUnityImportController {
                 ));
             }
             
+            if (sync) {
+                response.put("message", response.get("message") + String.format(
+                    " %d changed records updated.", result.getUpdatedCount()
+                ));
+            }
+            
+            if (result.getResumedCount() > 0) {
+                response.put("message", response.get("message") + String.format(
+                    " %d candidates were already committed by a previous import of this file.",
+                    result.getResumedCount()
+                ));
+            }
+            
             log.info("Import result: {}", response.get("message"));
             return ResponseEntity.ok(response);
             
@@ -87,12 +118,57 @@ public class ProUnityImportController {
         }
     }
     
+    /**
+     * Queues the import and returns at once, follow it with GET /import/jobs/{jobId}/events
+     */
+    @PostMapping("/prounity/jobs")
+    public ResponseEntity<?> startProUnityImportJob(@RequestParam("file") MultipartFile file,
+                                                    @RequestParam(defaultValue = "true") boolean resume,
+                                                    @RequestParam(defaultValue = "false") boolean sync) {
+        Map<String, Object> response = new HashMap<>();
+        
+        if (file.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "File is empty");
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        if (!isValidJSONFile(file)) {
+            response.put("success", false);
+            response.put("message", "Invalid file type. Please upload a JSON file.");
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        try {
+            ImportJobDTO job = importJobService.startJob(file, resume, sync);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IOException | IllegalStateException e) {
+            log.error("Could not queue import of {}", file.getOriginalFilename(), e);
+            response.put("success", false);
+            response.put("message", "Import failed: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+    }
+    
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ImportJobDTO> getImportJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(importJobService.getJob(jobId));
+    }
+    
+    /**
+     * Server-Sent Events: status, then progress per candidate, then completed or failed
+     */
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamImportJob(@PathVariable String jobId) {
+        return importJobService.subscribe(jobId);
+    }
+    
     @GetMapping("/prounity-info")
     public ResponseEntity<Map<String, Object>> getProUnityInfo() {
         Map<String, Object> info = new HashMap<>();
         
         info.put("format", "JSON (Pro-Unity export)");
-        info.put("maxFileSize", "20MB");
+        info.put("maxFileSize", maxFileSize);
         info.put("description", "Export job post data from Pro-Unity including candidates");
         
         info.put("instructions", Map.of(
@@ -100,7 +176,7 @@ public class ProUnityImportController {
             "step2", "Open the browser console (F12)",
             "step3", "Type: copy(JSON.stringify(jobPost, null, 2))",
             "step4", "Paste the content into a .json file",
-            "step5", "Upload the file here (max 20MB)"
+            "step5", "Upload the file here (max " + maxFileSize + ")"
         ));
         
         info.put("features", new String[] {
@@ -26,6 +26,7 @@ public class ApplicationDTO {
     private String status;
     private String conclusion;
     private String cvFilePath;
+    private String cvFileName;
     private Long commentCount;
     private Double averageRating; // Average rating from comments (1-5 stars)
     private LocalDateTime createdAt;
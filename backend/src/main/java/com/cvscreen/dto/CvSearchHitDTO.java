@@ -0,0 +1,13 @@
+package com.cvscreen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CvSearchHitDTO {
+    private ApplicationDTO application;
+    private float score;
+}
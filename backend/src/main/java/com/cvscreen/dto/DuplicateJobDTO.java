@@ -0,0 +1,29 @@
+package com.cvscreen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Status and progress of a background duplicate detection job
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicateJobDTO {
+    private String id;
+    private String status; // QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED
+    private double threshold;
+    private Integer limit;
+    private int candidateCount;
+    private long pairsCompared;
+    private double percentDone; // 0 to 100
+    private long hits; // pairs reaching the threshold found so far
+    private Integer resultCount; // pairs kept, once completed
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
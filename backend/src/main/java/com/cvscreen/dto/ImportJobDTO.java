@@ -0,0 +1,38 @@
+package com.cvscreen.dto;
+
+import com.cvscreen.service.ImportResolutionCache.HitCounter;
+import com.cvscreen.service.ProUnityImportService.ImportError;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Status and progress of a background Pro-Unity import job
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobDTO {
+    private String id;
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+    private String filename;
+    private long fileSize;
+    private Integer candidateCount; // once the file is scanned
+    private int processedCount;
+    private int successCount;
+    private int updatedCount; // sync only
+    private int skippedCount;
+    private int resumedCount; // committed by a previous import of the same file
+    private int failedCount;
+    private double percentDone; // 0 to 100
+    private List<ImportError> errors; // once finished
+    private Map<String, HitCounter> cacheStatistics; // once finished
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -12,14 +13,17 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "applications")
+@Table(name = "applications",
+       indexes = @Index(name = "idx_applications_cv_sha256", columnList = "cv_sha256"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Application {
     
+    // Pooled sequence so that imports can insert in JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "applications_seq")
+    @SequenceGenerator(name = "applications_seq", sequenceName = "applications_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -43,12 +47,25 @@ public class Application {
     @Column(name = "application_date", nullable = false)
     private LocalDate applicationDate;
     
+    // Relative to the CV storage path: ab/cd/<sha256>, or <uuid>.<ext> for CVs not migrated yet
     @Column(name = "cv_file_path", length = 500)
     private String cvFilePath;
     
+    // Name of the uploaded file, which gives the CV its type
+    @Column(name = "cv_file_name", length = 255)
+    private String cvFileName;
+    
+    // SHA-256 of the CV file, served as its ETag. Older CVs get it at their first download.
+    @Column(name = "cv_sha256", length = 64)
+    private String cvSha256;
+    
     @Column(name = "external_id", unique = true, length = 255)
     private String externalId;
     
+    // SHA-256 of the Pro-Unity candidate node this application was last imported or synced from
+    @Column(name = "source_hash", length = 64)
+    private String sourceHash;
+    
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 50)
     private ApplicationStatus status = ApplicationStatus.CV_RECEIVED;
@@ -56,6 +73,19 @@ public class Application {
     @Column(columnDefinition = "TEXT")
     private String conclusion;
     
+    // Maintained by CounterService with bulk updates, never written from the entity
+    @Column(name = "comment_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long commentCount = 0L;
+    
+    @Column(name = "rating_sum", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long ratingSum = 0L;
+    
+    @Column(name = "rating_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long ratingCount = 0L;
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
@@ -76,6 +106,10 @@ public class Application {
         updatedAt = LocalDateTime.now();
     }
     
+    public Double getAverageRating() {
+        return ratingCount > 0 ? (double) ratingSum / ratingCount : 0.0;
+    }
+    
     public enum ApplicationStatus {
         CV_RECEIVED,
         CV_REVIEWED,
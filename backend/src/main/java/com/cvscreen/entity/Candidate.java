@@ -4,20 +4,28 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "candidates")
+@Table(name = "candidates",
+       indexes = {
+           @Index(name = "idx_candidates_application_count", columnList = "application_count"),
+           @Index(name = "idx_candidates_comment_count", columnList = "comment_count"),
+           @Index(name = "idx_candidates_name", columnList = "last_name, first_name")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Candidate {
     
+    // Pooled sequence so that imports can insert in JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "candidates_seq")
+    @SequenceGenerator(name = "candidates_seq", sequenceName = "candidates_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "first_name", nullable = false)
@@ -32,6 +40,23 @@ public class Candidate {
     @Column(name = "global_notes", columnDefinition = "TEXT")
     private String globalNotes;
     
+    // Maintained by CounterService with bulk updates, never written from the entity
+    @Column(name = "application_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long applicationCount = 0L;
+    
+    @Column(name = "comment_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long commentCount = 0L;
+    
+    @Column(name = "rating_sum", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long ratingSum = 0L;
+    
+    @Column(name = "rating_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long ratingCount = 0L;
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
@@ -55,4 +80,8 @@ public class Candidate {
     public String getFullName() {
         return firstName + " " + lastName;
     }
+    
+    public Double getAverageRating() {
+        return ratingCount > 0 ? (double) ratingSum / ratingCount : 0.0;
+    }
 }
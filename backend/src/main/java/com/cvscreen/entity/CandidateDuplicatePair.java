@@ -0,0 +1,55 @@
+package com.cvscreen.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Precomputed pair of candidates with similar names, maintained by
+ * CandidateDuplicateIndexService. candidate1 always has the lower id.
+ */
+@Entity
+@Table(name = "candidate_duplicate_pairs",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"candidate1_id", "candidate2_id"}),
+       indexes = {
+           @Index(name = "idx_duplicate_pairs_score", columnList = "similarity_score"),
+           @Index(name = "idx_duplicate_pairs_candidate2", columnList = "candidate2_id")
+       })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CandidateDuplicatePair {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "candidate1_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Candidate candidate1;
+    
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "candidate2_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Candidate candidate2;
+    
+    @Column(name = "similarity_score", nullable = false)
+    private Double similarityScore;
+    
+    @Column(name = "levenshtein_distance", nullable = false)
+    private Integer levenshteinDistance;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
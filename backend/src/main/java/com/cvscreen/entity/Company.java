@@ -4,20 +4,24 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "companies")
+@Table(name = "companies",
+       indexes = @Index(name = "idx_companies_application_count", columnList = "application_count"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Company {
     
+    // Pooled sequence so that imports can insert in JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "companies_seq")
+    @SequenceGenerator(name = "companies_seq", sequenceName = "companies_seq", allocationSize = 50)
     private Long id;
     
     @Column(unique = true, nullable = false)
@@ -26,6 +30,11 @@ public class Company {
     @Column(columnDefinition = "TEXT")
     private String notes;
     
+    // Maintained by CounterService with bulk updates, never written from the entity
+    @Column(name = "application_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long applicationCount = 0L;
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
@@ -0,0 +1,39 @@
+package com.cvscreen.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored CV file, shared by every application that uploaded the same content.
+ * Rows are written by CvStorageService with bulk statements only.
+ */
+@Entity
+@Table(name = "cv_blobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CvBlob {
+    
+    // SHA-256 of the content, hex; the file is stored under ab/cd/<sha256>
+    @Id
+    @Column(length = 64)
+    private String sha256;
+    
+    @Column(nullable = false)
+    private Long size;
+    
+    // Applications pointing to this file. Zero for longer than the grace period: collected.
+    @Column(name = "reference_count", nullable = false)
+    private Integer referenceCount = 0;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    // Last change of the reference count
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,92 @@
+package com.cvscreen.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the CV of an application through the CV pipeline (CvPipelineService), and what
+ * the pipeline found. Restarted on each upload; rows are written with bulk statements only.
+ * The instance processing a CV holds a lease on its row until lease_until.
+ */
+@Entity
+@Table(name = "cv_processing",
+       indexes = @Index(name = "idx_cv_processing_stage", columnList = "stage"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CvProcessing {
+    
+    @Id
+    @Column(name = "application_id")
+    private Long applicationId;
+    
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @MapsId
+    @JoinColumn(name = "application_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Application application;
+    
+    // CV being processed; a result is only saved while the application still has it
+    @Column(name = "cv_file_path", nullable = false, length = 500)
+    private String cvFilePath;
+    
+    @Column(name = "file_name", length = 255)
+    private String fileName;
+    
+    // Next stage to run
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Stage stage;
+    
+    // Failed attempts at the current stage
+    @Column(nullable = false)
+    private Integer attempts = 0;
+    
+    // Last failure
+    @Column(length = 1000)
+    private String error;
+    
+    // Instance processing the CV, null when none
+    @Column(length = 36)
+    private String owner;
+    
+    // Other instances may take the CV once passed
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+    
+    // Null when the format does not tell
+    @Column(name = "page_count")
+    private Integer pageCount;
+    
+    // ISO 639-1, null when not detected
+    @Column(length = 8)
+    private String language;
+    
+    // Storage key of the PNG preview of the first page
+    @Column(name = "preview_key", length = 500)
+    private String previewKey;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    public enum Stage {
+        EXTRACT,
+        LANGUAGE,
+        PREVIEW,
+        DONE,
+        FAILED
+    }
+}
@@ -0,0 +1,49 @@
+package com.cvscreen.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Text extracted from the CV of an application by the CV pipeline. Every instance applies the
+ * rows changed since it last looked to its own search index (CvSearchService).
+ */
+@Entity
+@Table(name = "cv_texts",
+       indexes = @Index(name = "idx_cv_texts_updated_at", columnList = "updated_at, application_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CvText {
+    
+    @Id
+    @Column(name = "application_id")
+    private Long applicationId;
+    
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @MapsId
+    @JoinColumn(name = "application_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Application application;
+    
+    // CV the text was extracted from
+    @Column(name = "cv_file_path", nullable = false, length = 500)
+    private String cvFilePath;
+    
+    // Null when the CV has no text
+    @Column(columnDefinition = "TEXT")
+    private String content;
+    
+    // Database time of the last change
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
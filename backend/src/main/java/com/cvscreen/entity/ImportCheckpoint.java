@@ -0,0 +1,63 @@
+package com.cvscreen.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the Pro-Unity import of one file content, so that a re-run resumes after
+ * the last committed chunk. Advanced in the same transaction as each chunk.
+ */
+@Entity
+@Table(name = "import_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportCheckpoint {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // SHA-256 of the file, hex
+    @Column(name = "file_checksum", nullable = false, unique = true, length = 64)
+    private String fileChecksum;
+    
+    @Column(length = 255)
+    private String filename;
+    
+    @Column(name = "candidate_count", nullable = false)
+    private Integer candidateCount;
+    
+    // Candidates up to this position in the file are committed
+    @Column(name = "last_committed_index", nullable = false)
+    private Integer lastCommittedIndex = 0;
+    
+    // The committed candidates were synced (changed applications updated), not only imported.
+    // A sync does not resume after candidates a plain import skipped.
+    @Column(name = "sync_mode")
+    private Boolean syncMode = false;
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
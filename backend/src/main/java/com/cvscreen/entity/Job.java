@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -43,6 +44,11 @@ public class Job {
     @Column(columnDefinition = "TEXT")
     private String description;
     
+    // Maintained by CounterService with bulk updates, never written from the entity
+    @Column(name = "application_count", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long applicationCount = 0L;
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
@@ -0,0 +1,35 @@
+package com.cvscreen.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A one-time maintenance task done on this database, so that startup does not check for it again
+ */
+@Entity
+@Table(name = "maintenance_flags")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MaintenanceFlag {
+    
+    @Id
+    @Column(length = 100)
+    private String name;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    public MaintenanceFlag(String name) {
+        this.name = name;
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
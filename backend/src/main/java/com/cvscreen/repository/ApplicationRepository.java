@@ -10,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +31,38 @@ public interface ApplicationRepository extends JpaRepository<Application, Long>,
     
     Optional<Application> findByExternalId(String externalId);
     
+    /**
+     * (externalId, sourceHash) of the applications already imported, without loading entities
+     */
+    @Query("SELECT a.externalId, a.sourceHash FROM Application a WHERE a.externalId IN :externalIds")
+    List<Object[]> findSourceHashes(@Param("externalIds") Collection<String> externalIds);
+    
+    List<Application> findByExternalIdIn(Collection<String> externalIds);
+    
+    @Modifying
+    @Query("UPDATE Application a SET a.cvSha256 = :sha256 WHERE a.id = :id")
+    void updateCvSha256(@Param("id") Long id, @Param("sha256") String sha256);
+    
+    @Query("SELECT a.cvFilePath FROM Application a WHERE a.id = :id")
+    Optional<String> findCvFilePathById(@Param("id") Long id);
+    
+    /**
+     * (id, cvFilePath) of the CVs still stored as flat files, from before content-addressed storage
+     */
+    @Query("SELECT a.id, a.cvFilePath FROM Application a " +
+           "WHERE a.cvFilePath IS NOT NULL AND a.cvFilePath NOT LIKE '%/%' ORDER BY a.id")
+    List<Object[]> findLegacyCvFiles();
+    
+    /**
+     * Points the application to its migrated CV, unless another CV was uploaded meanwhile
+     */
+    @Modifying
+    @Query("UPDATE Application a SET a.cvFilePath = :path, a.cvSha256 = :sha256, " +
+           "a.cvFileName = COALESCE(a.cvFileName, :fileName) " +
+           "WHERE a.id = :id AND a.cvFilePath = :legacyPath")
+    int moveCvFile(@Param("id") Long id, @Param("legacyPath") String legacyPath, @Param("path") String path,
+                   @Param("sha256") String sha256, @Param("fileName") String fileName);
+    
     @Modifying
     @Query("UPDATE Application a SET a.candidate.id = :targetCandidateId WHERE a.candidate.id = :sourceCandidateId")
     void updateCandidateForApplications(@Param("sourceCandidateId") Long sourceCandidateId, 
@@ -41,23 +74,39 @@ public interface ApplicationRepository extends JpaRepository<Application, Long>,
                                       @Param("targetCompanyId") Long targetCompanyId);
     
     /**
-     * Find all applications with pagination, supporting sorting by candidate name or average rating
+     * Find all applications with pagination, supporting sorting by candidate name or average rating.
+     * The filters are patterns from SearchPattern.containsOrNull, null to not filter.
      */
     @Query("SELECT a FROM Application a " +
            "LEFT JOIN FETCH a.candidate " +
            "LEFT JOIN FETCH a.job " +
            "LEFT JOIN FETCH a.company " +
-           "WHERE (:candidateName IS NULL OR " +
-           "LOWER(CONCAT(a.candidate.firstName, ' ', a.candidate.lastName)) LIKE LOWER(CONCAT('%', :candidateName, '%'))) " +
-           "AND (:jobReference IS NULL OR LOWER(a.job.reference) LIKE LOWER(CONCAT('%', :jobReference, '%'))) " +
-           "AND (:companyName IS NULL OR LOWER(a.company.name) LIKE LOWER(CONCAT('%', :companyName, '%'))) " +
-           "AND (:roleCategory IS NULL OR LOWER(a.roleCategory) LIKE LOWER(CONCAT('%', :roleCategory, '%'))) " +
+           "WHERE (:candidateNamePattern IS NULL OR " +
+           "LOWER(CONCAT(a.candidate.firstName, ' ', a.candidate.lastName)) LIKE :candidateNamePattern ESCAPE '\\') " +
+           "AND (:jobReferencePattern IS NULL OR LOWER(a.job.reference) LIKE :jobReferencePattern ESCAPE '\\') " +
+           "AND (:companyNamePattern IS NULL OR LOWER(a.company.name) LIKE :companyNamePattern ESCAPE '\\') " +
+           "AND (:roleCategoryPattern IS NULL OR LOWER(a.roleCategory) LIKE :roleCategoryPattern ESCAPE '\\') " +
            "AND (:status IS NULL OR a.status = :status)")
     Page<Application> findAllWithFilters(
-            @Param("candidateName") String candidateName,
-            @Param("jobReference") String jobReference,
-            @Param("companyName") String companyName,
-            @Param("roleCategory") String roleCategory,
+            @Param("candidateNamePattern") String candidateNamePattern,
+            @Param("jobReferencePattern") String jobReferencePattern,
+            @Param("companyNamePattern") String companyNamePattern,
+            @Param("roleCategoryPattern") String roleCategoryPattern,
             @Param("status") Application.ApplicationStatus status,
             Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE Application a SET a.commentCount = a.commentCount + :comments, " +
+           "a.ratingSum = a.ratingSum + :ratingSum, " +
+           "a.ratingCount = a.ratingCount + :ratings " +
+           "WHERE a.id = :applicationId")
+    int addCommentStatistics(@Param("applicationId") Long applicationId, @Param("comments") long comments,
+                             @Param("ratingSum") long ratingSum, @Param("ratings") long ratings);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Application a SET " +
+           "a.commentCount = (SELECT COUNT(ac) FROM ApplicationComment ac WHERE ac.application = a), " +
+           "a.ratingSum = (SELECT COALESCE(SUM(ac.rating), 0) FROM ApplicationComment ac WHERE ac.application = a), " +
+           "a.ratingCount = (SELECT COUNT(ac.rating) FROM ApplicationComment ac WHERE ac.application = a)")
+    int recountAllCommentStatistics();
 }
@@ -0,0 +1,38 @@
+package com.cvscreen.repository;
+
+import com.cvscreen.entity.CandidateDuplicatePair;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface CandidateDuplicatePairRepository extends JpaRepository<CandidateDuplicatePair, Long> {
+    
+    /**
+     * Pairs reaching the threshold, in the order of the duplicate scan
+     * (similarity score desc, then candidate ids)
+     */
+    @Query(value = "SELECT p FROM CandidateDuplicatePair p " +
+                   "JOIN FETCH p.candidate1 " +
+                   "JOIN FETCH p.candidate2 " +
+                   "WHERE p.similarityScore >= :threshold " +
+                   "ORDER BY p.similarityScore DESC, p.candidate1.id ASC, p.candidate2.id ASC",
+           countQuery = "SELECT COUNT(p) FROM CandidateDuplicatePair p WHERE p.similarityScore >= :threshold")
+    Page<CandidateDuplicatePair> findBySimilarityScoreAtLeast(@Param("threshold") double threshold, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM CandidateDuplicatePair p " +
+           "WHERE p.candidate1.id = :candidateId OR p.candidate2.id = :candidateId")
+    int deleteByCandidateId(@Param("candidateId") Long candidateId);
+    
+    @Modifying
+    @Query("DELETE FROM CandidateDuplicatePair p " +
+           "WHERE p.candidate1.id IN :candidateIds OR p.candidate2.id IN :candidateIds")
+    int deleteByCandidateIdIn(@Param("candidateIds") Collection<Long> candidateIds);
+}
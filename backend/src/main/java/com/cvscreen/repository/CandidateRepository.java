@@ -4,30 +4,45 @@ import com.cvscreen.entity.Candidate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CandidateRepository extends JpaRepository<Candidate, Long> {
+public interface CandidateRepository extends JpaRepository<Candidate, Long>, JpaSpecificationExecutor<Candidate> {
+    
+    String RECOUNT_STATISTICS = "UPDATE Candidate c SET " +
+            "c.applicationCount = (SELECT COUNT(a) FROM Application a WHERE a.candidate = c), " +
+            "c.commentCount = (SELECT COALESCE(SUM(a.commentCount), 0) FROM Application a WHERE a.candidate = c), " +
+            "c.ratingSum = (SELECT COALESCE(SUM(a.ratingSum), 0) FROM Application a WHERE a.candidate = c), " +
+            "c.ratingCount = (SELECT COALESCE(SUM(a.ratingCount), 0) FROM Application a WHERE a.candidate = c) ";
     
     Optional<Candidate> findByFirstNameAndLastName(String firstName, String lastName);
     
+    /**
+     * Superset of the candidates having one of the given names, to be matched by (first name, last name)
+     */
+    List<Candidate> findByFirstNameInAndLastNameInOrderByIdAsc(Collection<String> firstNames, Collection<String> lastNames);
+    
     List<Candidate> findByLastNameContainingIgnoreCase(String lastName);
     
+    /**
+     * Candidates whose lowercased full name matches the pattern, see SearchPattern.contains.
+     * Uses the trigram index on LOWER(first_name || ' ' || last_name).
+     */
     @Query("SELECT c FROM Candidate c WHERE " +
-           "LOWER(c.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(c.lastName) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    List<Candidate> searchByName(@Param("searchTerm") String searchTerm);
+           "LOWER(CONCAT(c.firstName, ' ', c.lastName)) LIKE :pattern ESCAPE '\\'")
+    List<Candidate> searchByName(@Param("pattern") String pattern);
     
     @Query("SELECT c FROM Candidate c WHERE " +
-           "LOWER(c.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(c.lastName) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    Page<Candidate> searchByName(@Param("searchTerm") String searchTerm, Pageable pageable);
+           "LOWER(CONCAT(c.firstName, ' ', c.lastName)) LIKE :pattern ESCAPE '\\'")
+    Page<Candidate> searchByName(@Param("pattern") String pattern, Pageable pageable);
     
     @Query("SELECT DISTINCT c FROM Candidate c " +
            "LEFT JOIN FETCH c.applications a " +
@@ -35,4 +50,63 @@ public interface CandidateRepository extends JpaRepository<Candidate, Long> {
            "LEFT JOIN FETCH a.company " +
            "WHERE c.id = :candidateId")
     Optional<Candidate> findByIdWithApplications(@Param("candidateId") Long candidateId);
+    
+    /**
+     * Lightweight (id, name) rows for the duplicate scan, without loading entities
+     */
+    @Query("SELECT c.id AS id, c.firstName AS firstName, c.lastName AS lastName " +
+           "FROM Candidate c ORDER BY c.id")
+    List<CandidateNameView> findAllNames();
+    
+    /**
+     * (id, firstName, lastName, contractType) of every candidate, oldest first, to pre-warm the import cache
+     */
+    @Query("SELECT c.id, c.firstName, c.lastName, c.contractType FROM Candidate c ORDER BY c.id")
+    List<Object[]> findAllForImport();
+    
+    /**
+     * Sets the contract type of a candidate that has none yet
+     */
+    @Modifying
+    @Query("UPDATE Candidate c SET c.contractType = :contractType " +
+           "WHERE c.id = :candidateId AND c.contractType IS NULL")
+    int fillContractType(@Param("candidateId") Long candidateId, @Param("contractType") String contractType);
+    
+    @Modifying
+    @Query("UPDATE Candidate c SET c.applicationCount = c.applicationCount + :applications, " +
+           "c.commentCount = c.commentCount + :comments, " +
+           "c.ratingSum = c.ratingSum + :ratingSum, " +
+           "c.ratingCount = c.ratingCount + :ratings " +
+           "WHERE c.id = :candidateId")
+    int addStatistics(@Param("candidateId") Long candidateId, @Param("applications") long applications,
+                      @Param("comments") long comments, @Param("ratingSum") long ratingSum,
+                      @Param("ratings") long ratings);
+    
+    /**
+     * Adds the same number of new applications, which have no comment yet, to several candidates
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Candidate c SET c.applicationCount = c.applicationCount + :applications WHERE c.id IN :candidateIds")
+    int addApplications(@Param("candidateIds") Collection<Long> candidateIds, @Param("applications") long applications);
+    
+    /**
+     * Recomputes the counters of the given candidates, from the counters of their applications
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(RECOUNT_STATISTICS + "WHERE c.id IN :candidateIds")
+    int recountStatistics(@Param("candidateIds") Collection<Long> candidateIds);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(RECOUNT_STATISTICS)
+    int recountAllStatistics();
+    
+    interface CandidateNameView {
+        Long getId();
+        String getFirstName();
+        String getLastName();
+        
+        default String getFullName() {
+            return getFirstName() + " " + getLastName();
+        }
+    }
 }
@@ -2,15 +2,52 @@ package com.cvscreen.repository;
 
 import com.cvscreen.entity.Company;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CompanyRepository extends JpaRepository<Company, Long> {
+public interface CompanyRepository extends JpaRepository<Company, Long>, JpaSpecificationExecutor<Company> {
+    
+    String RECOUNT_APPLICATIONS = "UPDATE Company co SET " +
+            "co.applicationCount = (SELECT COUNT(a) FROM Application a WHERE a.company = co) ";
     
     Optional<Company> findByName(String name);
     
-    List<Company> findByNameContainingIgnoreCase(String name);
+    List<Company> findByNameIn(Collection<String> names);
+    
+    /**
+     * (id, name) of every company, oldest first, to pre-warm the import cache
+     */
+    @Query("SELECT co.id, co.name FROM Company co ORDER BY co.id")
+    List<Object[]> findAllIdsAndNames();
+    
+    /**
+     * Companies whose lowercased name matches the pattern, see SearchPattern.contains.
+     * Uses the trigram index on LOWER(name).
+     */
+    @Query("SELECT co FROM Company co WHERE LOWER(co.name) LIKE :pattern ESCAPE '\\'")
+    List<Company> searchByName(@Param("pattern") String pattern);
+    
+    @Modifying
+    @Query("UPDATE Company co SET co.applicationCount = co.applicationCount + :applications WHERE co.id = :companyId")
+    int addApplications(@Param("companyId") Long companyId, @Param("applications") long applications);
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Company co SET co.applicationCount = co.applicationCount + :applications WHERE co.id IN :companyIds")
+    int addApplications(@Param("companyIds") Collection<Long> companyIds, @Param("applications") long applications);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(RECOUNT_APPLICATIONS + "WHERE co.id IN :companyIds")
+    int recountApplications(@Param("companyIds") Collection<Long> companyIds);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(RECOUNT_APPLICATIONS)
+    int recountAllApplications();
 }
@@ -0,0 +1,48 @@
+package com.cvscreen.repository;
+
+import com.cvscreen.entity.CvBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CvBlobRepository extends JpaRepository<CvBlob, String> {
+    
+    /**
+     * Registers a stored file with one reference, or takes one more on it. A single statement,
+     * so that the garbage collection cannot delete the row between its insert and the reference.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO cv_blobs (sha256, size, reference_count, created_at, updated_at) " +
+                   "VALUES (:sha256, :size, 1, :now, :now) ON CONFLICT (sha256) DO UPDATE " +
+                   "SET reference_count = cv_blobs.reference_count + 1, updated_at = :now", nativeQuery = true)
+    int addReference(@Param("sha256") String sha256, @Param("size") long size, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE CvBlob b SET b.referenceCount = b.referenceCount + :references, b.updatedAt = :now " +
+           "WHERE b.sha256 = :sha256 AND b.referenceCount + :references >= 0")
+    int addReferences(@Param("sha256") String sha256, @Param("references") int references,
+                      @Param("now") LocalDateTime now);
+    
+    /**
+     * Recounts the references from the applications, to catch up with cascade deletes.
+     * Applications still on a legacy flat path (no '/') do not use the blob.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CvBlob b SET b.referenceCount = " +
+           "(SELECT COUNT(a) FROM Application a WHERE a.cvSha256 = b.sha256 AND a.cvFilePath LIKE '%/%')")
+    int recountReferences();
+    
+    @Modifying
+    @Query("DELETE FROM CvBlob b WHERE b.referenceCount = 0 AND b.updatedAt < :cutoff")
+    int deleteUnreferenced(@Param("cutoff") LocalDateTime cutoff);
+    
+    @Query("SELECT b.sha256 FROM CvBlob b WHERE b.sha256 IN :sha256s")
+    List<String> findExisting(@Param("sha256s") Collection<String> sha256s);
+}
@@ -0,0 +1,170 @@
+package com.cvscreen.repository;
+
+import com.cvscreen.entity.CvProcessing;
+import com.cvscreen.entity.CvProcessing.Stage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Results are only saved while the application still has the CV they were computed from
+ * (applicationId and cvFilePath), so a late worker never overwrites the state of a newer upload.
+ *
+ * An instance claims the CVs it processes (owner, leaseUntil); the others skip them until the
+ * lease passes. Leases are renewed at each stage and released when the CV leaves the pipeline.
+ */
+@Repository
+public interface CvProcessingRepository extends JpaRepository<CvProcessing, Long> {
+    
+    /**
+     * Starts over with a new CV, when the application already had one, claimed by owner
+     */
+    @Modifying
+    @Query("UPDATE CvProcessing p SET p.cvFilePath = :cvFile, p.fileName = :fileName, p.stage = :stage, " +
+           "p.attempts = 0, p.error = NULL, p.pageCount = NULL, p.language = NULL, p.previewKey = NULL, " +
+           "p.owner = :owner, p.leaseUntil = :leaseUntil, p.updatedAt = :now WHERE p.applicationId = :applicationId")
+    int restart(@Param("applicationId") Long applicationId, @Param("cvFile") String cvFile,
+                @Param("fileName") String fileName, @Param("stage") Stage stage, @Param("owner") String owner,
+                @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query(value = "INSERT INTO cv_processing (application_id, cv_file_path, file_name, stage, attempts, " +
+                   "owner, lease_until, created_at, updated_at) " +
+                   "VALUES (:applicationId, :cvFile, :fileName, 'EXTRACT', 0, :owner, :leaseUntil, :now, :now) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("applicationId") Long applicationId, @Param("cvFile") String cvFile,
+                       @Param("fileName") String fileName, @Param("owner") String owner,
+                       @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now);
+    
+    /**
+     * Queues the CVs uploaded before the pipeline existed, or whose row was lost
+     */
+    @Modifying
+    @Query(value = "INSERT INTO cv_processing (application_id, cv_file_path, file_name, stage, attempts, " +
+                   "created_at, updated_at) " +
+                   "SELECT a.id, a.cv_file_path, a.cv_file_name, 'EXTRACT', 0, :now, :now FROM applications a " +
+                   "WHERE a.cv_file_path IS NOT NULL " +
+                   "AND NOT EXISTS (SELECT 1 FROM cv_processing p WHERE p.application_id = a.id) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertMissing(@Param("now") LocalDateTime now);
+    
+    /**
+     * Starts over for the CVs moved without upload (legacy file migration)
+     */
+    @Modifying
+    @Query("UPDATE CvProcessing p SET " +
+           "p.cvFilePath = (SELECT a.cvFilePath FROM Application a WHERE a.id = p.applicationId), " +
+           "p.stage = :stage, p.attempts = 0, p.error = NULL, p.previewKey = NULL, p.owner = NULL, " +
+           "p.leaseUntil = NULL, p.updatedAt = :now " +
+           "WHERE EXISTS (SELECT a.id FROM Application a WHERE a.id = p.applicationId " +
+           "AND a.cvFilePath IS NOT NULL AND a.cvFilePath <> p.cvFilePath)")
+    int restartMoved(@Param("stage") Stage stage, @Param("now") LocalDateTime now);
+    
+    /**
+     * Starts over for the CVs extracted before their text was saved in cv_texts
+     */
+    @Modifying
+    @Query("UPDATE CvProcessing p SET p.stage = :restart, p.attempts = 0, p.error = NULL, p.owner = NULL, " +
+           "p.leaseUntil = NULL, p.updatedAt = :now WHERE p.stage IN :extracted " +
+           "AND NOT EXISTS (SELECT t.applicationId FROM CvText t WHERE t.applicationId = p.applicationId)")
+    int restartWithoutText(@Param("extracted") Collection<Stage> extracted, @Param("restart") Stage restart,
+                           @Param("now") LocalDateTime now);
+    
+    /**
+     * Moves the CV to the next stage, clearing the failures of the previous one, and renews the
+     * lease, or releases it with a null owner
+     */
+    @Modifying
+    @Query("UPDATE CvProcessing p SET p.stage = :next, p.attempts = 0, p.error = NULL, p.owner = :owner, " +
+           "p.leaseUntil = :leaseUntil, p.updatedAt = :now " +
+           "WHERE p.applicationId = :applicationId AND p.cvFilePath = :cvFile AND p.stage = :current")
+    int advance(@Param("applicationId") Long applicationId, @Param("cvFile") String cvFile,
+                @Param("current") Stage current, @Param("next") Stage next, @Param("owner") String owner,
+                @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE CvProcessing p SET p.pageCount = :pageCount " +
+           "WHERE p.applicationId = :applicationId AND p.cvFilePath = :cvFile")
+    int setPageCount(@Param("applicationId") Long applicationId, @Param("cvFile") String cvFile,
+                     @Param("pageCount") Integer pageCount);
+    
+    @Modifying
+    @Query("UPDATE CvProcessing p SET p.language = :language " +
+           "WHERE p.applicationId = :applicationId AND p.cvFilePath = :cvFile")
+    int setLanguage(@Param("applicationId") Long applicationId, @Param("cvFile") String cvFile,
+                    @Param("language") String language);
+    
+    @Modifying
+    @Query("UPDATE CvProcessing p SET p.previewKey = :previewKey " +
+           "WHERE p.applicationId = :applicationId AND p.cvFilePath = :cvFile")
+    int setPreviewKey(@Param("applicationId") Long applicationId, @Param("cvFile") String cvFile,
+                      @Param("previewKey") String previewKey);
+    
+    /**
+     * Counts a failed attempt at the current stage, releasing the lease; the CV fails for good
+     * at maxAttempts
+     */
+    @Modifying
+    @Query("UPDATE CvProcessing p SET p.attempts = p.attempts + 1, p.error = :error, p.updatedAt = :now, " +
+           "p.owner = NULL, p.leaseUntil = NULL, " +
+           "p.stage = CASE WHEN p.attempts + 1 >= :maxAttempts THEN :failed ELSE p.stage END " +
+           "WHERE p.applicationId = :applicationId AND p.cvFilePath = :cvFile AND p.stage = :current")
+    int failAttempt(@Param("applicationId") Long applicationId, @Param("cvFile") String cvFile,
+                    @Param("current") Stage current, @Param("error") String error,
+                    @Param("maxAttempts") int maxAttempts, @Param("failed") Stage failed,
+                    @Param("now") LocalDateTime now);
+    
+    /**
+     * Gives the failed CVs another maxAttempts, from the first stage
+     */
+    @Modifying
+    @Query("UPDATE CvProcessing p SET p.stage = :restart, p.attempts = 0, p.owner = NULL, p.leaseUntil = NULL, " +
+           "p.updatedAt = :now WHERE p.stage = :failed")
+    int retryFailed(@Param("failed") Stage failed, @Param("restart") Stage restart, @Param("now") LocalDateTime now);
+    
+    /**
+     * Releases the lease of owner on the CV, left to the next sweep of any instance
+     */
+    @Modifying
+    @Query("UPDATE CvProcessing p SET p.owner = NULL, p.leaseUntil = NULL " +
+           "WHERE p.applicationId = :applicationId AND p.cvFilePath = :cvFile AND p.owner = :owner")
+    int release(@Param("applicationId") Long applicationId, @Param("cvFile") String cvFile,
+                @Param("owner") String owner);
+    
+    /**
+     * CVs waiting at one of the stages without a live lease, by id after afterId; after a
+     * failed attempt, only once the cutoff has passed. The rows are locked until the end of the
+     * transaction, rows locked by another instance claiming them are skipped.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT p FROM CvProcessing p WHERE p.stage IN :stages AND (p.attempts = 0 OR p.updatedAt < :cutoff) " +
+           "AND (p.leaseUntil IS NULL OR p.leaseUntil < :now) AND p.applicationId > :afterId " +
+           "ORDER BY p.applicationId")
+    List<CvProcessing> lockClaimable(@Param("stages") Collection<Stage> stages, @Param("cutoff") LocalDateTime cutoff,
+                                     @Param("now") LocalDateTime now, @Param("afterId") Long afterId,
+                                     Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE CvProcessing p SET p.owner = :owner, p.leaseUntil = :leaseUntil " +
+           "WHERE p.applicationId IN :applicationIds")
+    int claim(@Param("applicationIds") Collection<Long> applicationIds, @Param("owner") String owner,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+    
+    /**
+     * (stage, count)
+     */
+    @Query("SELECT p.stage, COUNT(p) FROM CvProcessing p GROUP BY p.stage")
+    List<Object[]> countByStage();
+}
@@ -0,0 +1,40 @@
+package com.cvscreen.repository;
+
+import com.cvscreen.entity.CvText;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Rows are stamped with the database time, so that instances read the changes in one order
+ * whatever their clocks.
+ */
+@Repository
+public interface CvTextRepository extends JpaRepository<CvText, Long> {
+    
+    @Modifying
+    @Query(value = "INSERT INTO cv_texts (application_id, cv_file_path, content, updated_at) " +
+                   "VALUES (:applicationId, :cvFile, CAST(:content AS TEXT), LOCALTIMESTAMP) " +
+                   "ON CONFLICT (application_id) DO UPDATE SET cv_file_path = EXCLUDED.cv_file_path, " +
+                   "content = EXCLUDED.content, updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int saveText(@Param("applicationId") Long applicationId, @Param("cvFile") String cvFile,
+                 @Param("content") String content);
+    
+    /**
+     * (applicationId, updatedAt) of the rows changed after (since, afterId), in that order
+     */
+    @Query("SELECT t.applicationId, t.updatedAt FROM CvText t " +
+           "WHERE t.updatedAt > :since OR (t.updatedAt = :since AND t.applicationId > :afterId) " +
+           "ORDER BY t.updatedAt, t.applicationId")
+    List<Object[]> findChangedSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId,
+                                    Pageable pageable);
+    
+    @Query("SELECT t.applicationId FROM CvText t")
+    List<Long> findAllApplicationIds();
+}
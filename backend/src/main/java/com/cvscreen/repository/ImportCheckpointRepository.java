@@ -0,0 +1,29 @@
+package com.cvscreen.repository;
+
+import com.cvscreen.entity.ImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface ImportCheckpointRepository extends JpaRepository<ImportCheckpoint, Long> {
+    
+    Optional<ImportCheckpoint> findByFileChecksum(String fileChecksum);
+    
+    /**
+     * Moves the checkpoint forward, never back. Also locks the row until the chunk commits,
+     * so that two runs of the same file take their chunks in turn.
+     */
+    @Modifying
+    @Query("UPDATE ImportCheckpoint c SET " +
+           "c.lastCommittedIndex = CASE WHEN c.lastCommittedIndex < :index THEN :index ELSE c.lastCommittedIndex END, " +
+           "c.completedAt = CASE WHEN :index >= c.candidateCount THEN :now ELSE c.completedAt END, " +
+           "c.updatedAt = :now " +
+           "WHERE c.id = :checkpointId")
+    int advance(@Param("checkpointId") Long checkpointId, @Param("index") int index, @Param("now") LocalDateTime now);
+}
@@ -2,10 +2,12 @@ package com.cvscreen.repository;
 
 import com.cvscreen.entity.Job;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,9 +22,29 @@ public interface JobRepository extends JpaRepository<Job, Long> {
     
     List<Job> findByCategoryIgnoreCase(String category);
     
+    /**
+     * Jobs whose lowercased reference, title or category matches the pattern, see
+     * SearchPattern.contains. Each column has a trigram index.
+     */
     @Query("SELECT j FROM Job j WHERE " +
-           "LOWER(j.reference) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(j.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(j.category) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    List<Job> searchJobs(@Param("searchTerm") String searchTerm);
+           "LOWER(j.reference) LIKE :pattern ESCAPE '\\' OR " +
+           "LOWER(j.title) LIKE :pattern ESCAPE '\\' OR " +
+           "LOWER(j.category) LIKE :pattern ESCAPE '\\'")
+    List<Job> searchJobs(@Param("pattern") String pattern);
+    
+    @Query("SELECT j.id, j.reference FROM Job j ORDER BY j.id")
+    List<Object[]> findAllIdsAndReferences();
+    
+    @Modifying
+    @Query("UPDATE Job j SET j.applicationCount = j.applicationCount + :applications WHERE j.id = :jobId")
+    int addApplications(@Param("jobId") Long jobId, @Param("applications") long applications);
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Job j SET j.applicationCount = j.applicationCount + :applications WHERE j.id IN :jobIds")
+    int addApplications(@Param("jobIds") Collection<Long> jobIds, @Param("applications") long applications);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Job j SET " +
+           "j.applicationCount = (SELECT COUNT(a) FROM Application a WHERE a.job = j)")
+    int recountAllApplications();
 }
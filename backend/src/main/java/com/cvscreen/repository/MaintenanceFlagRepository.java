@@ -0,0 +1,9 @@
+package com.cvscreen.repository;
+
+import com.cvscreen.entity.MaintenanceFlag;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MaintenanceFlagRepository extends JpaRepository<MaintenanceFlag, String> {
+}
@@ -2,6 +2,9 @@ package com.cvscreen.repository;
 
 import com.cvscreen.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -12,4 +15,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     
     Boolean existsByUsername(String username);
+    
+    @Modifying
+    @Query("UPDATE User u SET u.commentCount = u.commentCount + :comments WHERE u.id = :userId")
+    int addComments(@Param("userId") Long userId, @Param("comments") long comments);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET " +
+           "u.commentCount = (SELECT COUNT(ac) FROM ApplicationComment ac WHERE ac.user = u)")
+    int recountAllComments();
 }
@@ -24,6 +24,7 @@ public class ApplicationCommentService {
     private final ApplicationCommentRepository commentRepository;
     private final ApplicationRepository applicationRepository;
     private final UserRepository userRepository;
+    private final CounterService counterService;
     
     @Transactional(readOnly = true)
     public List<ApplicationCommentDTO> getCommentsForApplication(Long applicationId) {
@@ -65,6 +66,7 @@ public class ApplicationCommentService {
         comment.setRating(request.getRating());
         
         comment = commentRepository.save(comment);
+        counterService.commentAdded(comment);
         return convertCommentToDTO(comment, true);
     }
     
@@ -81,19 +83,21 @@ public class ApplicationCommentService {
             throw new AccessDeniedException("You can only edit your own comments");
         }
         
+        Integer previousRating = comment.getRating();
         comment.setComment(request.getComment());
         comment.setRating(request.getRating());
         
         comment = commentRepository.save(comment);
+        counterService.commentRatingChanged(comment, previousRating);
         return convertCommentToDTO(comment, true);
     }
     
     @Transactional
     public void deleteComment(Long commentId) {
-        if (!commentRepository.existsById(commentId)) {
-            throw new ResourceNotFoundException("Comment not found with id: " + commentId);
-        }
-        commentRepository.deleteById(commentId);
+        ApplicationComment comment = commentRepository.findById(commentId)
+            .orElseThrow(() -> new ResourceNotFoundException("Comment not found with id: " + commentId));
+        counterService.commentsRemoved(List.of(comment));
+        commentRepository.delete(comment);
     }
     
     @Transactional(readOnly = true)
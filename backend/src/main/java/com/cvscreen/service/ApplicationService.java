@@ -2,35 +2,42 @@ package com.cvscreen.service;
 
 import com.cvscreen.dto.ApplicationDTO;
 import com.cvscreen.dto.CreateApplicationRequest;
+import com.cvscreen.dto.CursorPageDTO;
+import com.cvscreen.dto.CvSearchHitDTO;
 import com.cvscreen.entity.Application;
 import com.cvscreen.entity.Candidate;
 import com.cvscreen.entity.Company;
 import com.cvscreen.entity.Job;
 import com.cvscreen.exception.ResourceNotFoundException;
-import com.cvscreen.repository.ApplicationCommentRepository;
 import com.cvscreen.repository.ApplicationRepository;
 import com.cvscreen.repository.CandidateRepository;
 import com.cvscreen.repository.CompanyRepository;
 import com.cvscreen.repository.JobRepository;
+import com.cvscreen.service.CvSearchService.RankedApplications;
+import com.cvscreen.service.CvStorageService.StoredCv;
 import com.cvscreen.specification.ApplicationSpecification;
+import com.cvscreen.specification.KeysetCursor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.Comparator;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,9 +48,11 @@ public class ApplicationService {
     private final CandidateRepository candidateRepository;
     private final JobRepository jobRepository;
     private final CompanyRepository companyRepository;
-    private final ApplicationCommentRepository commentRepository;
-    
-    private static final String CV_STORAGE_PATH = "./cvs";
+    private final CounterService counterService;
+    private final ListingCountCache countCache;
+    private final CvSearchService cvSearchService;
+    private final CvStorageService cvStorageService;
+    private final CvPipelineService cvPipelineService;
     
     @Transactional(readOnly = true)
     public Page<ApplicationDTO> getAllApplicationsPaginated(Pageable pageable) {
@@ -56,14 +65,12 @@ public class ApplicationService {
             return getAllApplicationsWithCustomSort(null, null, null, null, null, pageable);
         }
         
-        return applicationRepository.findAll(pageable).map(this::convertToDTO);
+        return convertPageToDTO(applicationRepository.findAll(pageable));
     }
     
     @Transactional(readOnly = true)
     public List<ApplicationDTO> getAllApplications() {
-        return applicationRepository.findAll().stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
+        return convertToDTOs(applicationRepository.findAll());
     }
     
     @Transactional(readOnly = true)
@@ -94,72 +101,73 @@ public class ApplicationService {
             status
         );
         
-        return applicationRepository.findAll(spec, pageable).map(this::convertToDTO);
+        return convertPageToDTO(applicationRepository.findAll(spec, pageable));
     }
     
     /**
      * Custom method to handle sorting by candidateName or averageRating
+     * The sort is done by the database so only the requested page is loaded and converted
      */
     @Transactional(readOnly = true)
     public Page<ApplicationDTO> getAllApplicationsWithCustomSort(
             String candidateName, String jobReference, String companyName, 
             String roleCategory, String status, Pageable pageable) {
         
-        // Get all applications matching the filters (without pagination for sorting)
+        Sort.Order order = pageable.getSort().iterator().hasNext() 
+            ? pageable.getSort().iterator().next() 
+            : Sort.Order.desc("applicationDate");
+        
         Specification<Application> spec = ApplicationSpecification.searchApplications(
             candidateName, jobReference, companyName, roleCategory, status
-        );
-        
-        List<Application> allApplications = applicationRepository.findAll(spec);
+        ).and(ApplicationSpecification.orderBy(order.getProperty(), order.isAscending()));
         
-        // Convert to DTOs
-        List<ApplicationDTO> dtos = allApplications.stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
+        // The order comes from the specification, the page request stays unsorted
+        Page<Application> applications = applicationRepository.findAll(spec, 
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
         
-        // Apply custom sorting
-        String sortProperty = pageable.getSort().iterator().hasNext() 
-            ? pageable.getSort().iterator().next().getProperty() 
-            : "applicationDate";
-        boolean ascending = pageable.getSort().iterator().hasNext() 
-            ? pageable.getSort().iterator().next().isAscending() 
-            : false;
-        
-        if ("candidateName".equals(sortProperty)) {
-            // Sort by candidate name
-            if (ascending) {
-                dtos.sort(Comparator.comparing(
-                    dto -> dto.getCandidateName() != null ? dto.getCandidateName().toLowerCase() : "",
-                    Comparator.naturalOrder()
-                ));
-            } else {
-                dtos.sort(Comparator.comparing(
-                    dto -> dto.getCandidateName() != null ? dto.getCandidateName().toLowerCase() : "",
-                    Comparator.reverseOrder()
-                ));
-            }
-        } else if ("averageRating".equals(sortProperty)) {
-            // Sort by average rating
-            if (ascending) {
-                dtos.sort(Comparator.comparing(
-                    dto -> dto.getAverageRating() != null ? dto.getAverageRating() : 0.0,
-                    Comparator.naturalOrder()
-                ));
-            } else {
-                dtos.sort(Comparator.comparing(
-                    dto -> dto.getAverageRating() != null ? dto.getAverageRating() : 0.0,
-                    Comparator.reverseOrder()
-                ));
-            }
+        return new PageImpl<>(convertToDTOs(applications.getContent()), pageable, applications.getTotalElements());
+    }
+    
+    /**
+     * Keyset pagination: the applications after the cursor, read with a seek predicate
+     * instead of an offset. The total is only counted on request, and cached.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ApplicationDTO> scrollApplications(
+            String candidateName, String jobReference, String companyName, String roleCategory, String status,
+            String sortBy, boolean ascending, String cursor, int size, boolean includeTotal) {
+        if (!ApplicationSpecification.KEYSET_PROPERTIES.contains(sortBy)) {
+            throw new IllegalArgumentException("Cursor pagination cannot sort by " + sortBy);
         }
+        if (size < 1) {
+            throw new IllegalArgumentException("Size must be at least 1");
+        }
+        // Capped, so that a huge size neither overflows the extra row nor loads everything
+        int pageSize = Math.min(size, KeysetCursor.MAX_PAGE_SIZE);
+        KeysetCursor position = KeysetCursor.decode(cursor, sortBy, ascending);
+        Specification<Application> filter = ApplicationSpecification.searchApplications(
+            candidateName, jobReference, companyName, roleCategory, status
+        );
         
-        // Apply pagination manually
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), dtos.size());
-        
-        List<ApplicationDTO> pageContent = dtos.subList(start, end);
+        // One extra row tells whether there is a next page
+        List<Application> applications = applicationRepository.findBy(
+            filter.and(ApplicationSpecification.after(position))
+                .and(ApplicationSpecification.orderBy(sortBy, ascending)),
+            query -> query.limit(pageSize + 1).all());
+        
+        String nextCursor = null;
+        if (applications.size() > pageSize) {
+            applications = applications.subList(0, pageSize);
+            Application last = applications.get(pageSize - 1);
+            nextCursor = KeysetCursor.of(sortBy, ascending,
+                ApplicationSpecification.sortValue(last, sortBy), last.getId()).encode();
+        }
         
-        return new PageImpl<>(pageContent, pageable, dtos.size());
+        Long total = includeTotal
+            ? countCache.get(String.join("|", "applications", candidateName, jobReference, companyName, roleCategory, status),
+                () -> applicationRepository.count(filter))
+            : null;
+        return new CursorPageDTO<>(convertToDTOs(applications), nextCursor, total);
     }
     
     @Transactional(readOnly = true)
@@ -173,9 +181,7 @@ public class ApplicationService {
             status
         );
         
-        return applicationRepository.findAll(spec).stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
+        return convertToDTOs(applicationRepository.findAll(spec));
     }
     
     @Transactional
@@ -211,6 +217,7 @@ public class ApplicationService {
         }
         
         application = applicationRepository.save(application);
+        counterService.applicationAdded(application);
         return convertToDTO(application);
     }
     
@@ -222,6 +229,9 @@ public class ApplicationService {
         Candidate candidate = candidateRepository.findById(request.getCandidateId())
             .orElseThrow(() -> new ResourceNotFoundException("Candidate not found with id: " + request.getCandidateId()));
         
+        Candidate previousCandidate = application.getCandidate();
+        Company previousCompany = application.getCompany();
+        Job previousJob = application.getJob();
         application.setCandidate(candidate);
         
         if (request.getJobId() != null) {
@@ -251,15 +261,18 @@ public class ApplicationService {
         }
         
         application = applicationRepository.save(application);
+        counterService.applicationMoved(application, previousCandidate, previousCompany, previousJob);
         return convertToDTO(application);
     }
     
     @Transactional
     public void deleteApplication(Long id) {
-        if (!applicationRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Application not found with id: " + id);
-        }
-        applicationRepository.deleteById(id);
+        Application application = applicationRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Application not found with id: " + id));
+        counterService.applicationsRemoved(List.of(application));
+        cvStorageService.release(application);
+        applicationRepository.delete(application);
+        cvSearchService.applicationsRemoved(List.of(id));
     }
     
     @Transactional
@@ -267,26 +280,94 @@ public class ApplicationService {
         Application application = applicationRepository.findById(applicationId)
             .orElseThrow(() -> new ResourceNotFoundException("Application not found with id: " + applicationId));
         
-        Path uploadPath = Paths.get(CV_STORAGE_PATH);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        StoredCv stored;
+        try (InputStream input = file.getInputStream()) {
+            stored = cvStorageService.store(input);
         }
+        cvStorageService.release(application);
         
-        String originalFilename = file.getOriginalFilename();
-        String fileExtension = originalFilename != null && originalFilename.contains(".") 
-            ? originalFilename.substring(originalFilename.lastIndexOf(".")) 
-            : "";
-        String newFilename = UUID.randomUUID().toString() + fileExtension;
-        
-        Path filePath = uploadPath.resolve(newFilename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-        
-        application.setCvFilePath(newFilename);
+        application.setCvFilePath(stored.getPath());
+        application.setCvSha256(stored.getSha256());
+        application.setCvFileName(file.getOriginalFilename());
         application = applicationRepository.save(application);
+        cvPipelineService.cvUploaded(application);
         
         return convertToDTO(application);
     }
     
+    /**
+     * The stored CV of an application, to be streamed by the caller
+     *
+     * @throws ResourceNotFoundException when the application has no CV or its file is missing
+     */
+    @Transactional
+    public CvFile getCvFile(Long applicationId) throws IOException {
+        Application application = applicationRepository.findById(applicationId)
+            .orElseThrow(() -> new ResourceNotFoundException("Application not found with id: " + applicationId));
+        if (application.getCvFilePath() == null) {
+            throw new ResourceNotFoundException("No CV uploaded for application: " + applicationId);
+        }
+        
+        long size = cvStorageService.size(application.getCvFilePath());
+        if (size < 0) {
+            throw new ResourceNotFoundException("CV file missing for application: " + applicationId);
+        }
+        
+        // CVs uploaded before their hash was recorded, not migrated yet
+        String sha256 = application.getCvSha256();
+        if (sha256 == null) {
+            sha256 = cvStorageService.checksum(application.getCvFilePath());
+            applicationRepository.updateCvSha256(applicationId, sha256);
+        }
+        
+        // Content-addressed files have no extension, the uploaded name gives the type
+        String typedName = application.getCvFileName() != null ? application.getCvFileName() : application.getCvFilePath();
+        String extension = typedName.contains(".") ? typedName.substring(typedName.lastIndexOf(".")) : "";
+        return new CvFile(cvStorageService.resource(application.getCvFilePath(), size), size, sha256,
+            MediaTypeFactory.getMediaType(typedName).orElse(MediaType.APPLICATION_OCTET_STREAM),
+            "CV " + application.getCandidate().getFullName() + extension);
+    }
+    
+    /**
+     * Full-text search in the CVs, best matches first, restricted to the applications matching
+     * the usual search filters. Only the applications of the requested page are loaded.
+     */
+    @Transactional(readOnly = true)
+    public CvSearchPage searchCvs(String cvQuery, String candidateName, String jobReference, String companyName,
+                                  String roleCategory, String status, Pageable pageable) throws IOException {
+        Specification<Application> filter = ApplicationSpecification.searchApplications(
+            candidateName, jobReference, companyName, roleCategory, status
+        );
+        RankedApplications ranked = cvSearchService.search(cvQuery, filter);
+        
+        int from = (int) Math.min(pageable.getOffset(), ranked.getIds().size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.getIds().size());
+        List<Long> pageIds = ranked.getIds().subList(from, to);
+        Map<Long, Application> applications = applicationRepository.findAll(
+                filter.and(ApplicationSpecification.idIn(pageIds))).stream()
+            .collect(Collectors.toMap(Application::getId, Function.identity()));
+        
+        List<CvSearchHitDTO> hits = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Application application = applications.get(ranked.getIds().get(i));
+            if (application != null) {
+                hits.add(new CvSearchHitDTO(convertToDTO(application), ranked.getScores().get(i)));
+            }
+        }
+        return new CvSearchPage(new PageImpl<>(hits, pageable, ranked.getIds().size()), ranked.isTruncated());
+    }
+    
+    private Page<ApplicationDTO> convertPageToDTO(Page<Application> applications) {
+        return new PageImpl<>(convertToDTOs(applications.getContent()), applications.getPageable(), 
+                applications.getTotalElements());
+    }
+    
+    private List<ApplicationDTO> convertToDTOs(List<Application> applications) {
+        return applications.stream()
+            .map(this::convertToDTO)
+            .collect(Collectors.toList());
+    }
+    
     private ApplicationDTO convertToDTO(Application application) {
         ApplicationDTO dto = new ApplicationDTO();
         dto.setId(application.getId());
@@ -311,16 +392,32 @@ public class ApplicationService {
         dto.setStatus(application.getStatus().name());
         dto.setConclusion(application.getConclusion());
         dto.setCvFilePath(application.getCvFilePath());
+        dto.setCvFileName(application.getCvFileName());
         dto.setCreatedAt(application.getCreatedAt());
         dto.setUpdatedAt(application.getUpdatedAt());
         
-        // Get comment count and average rating for this application
-        long commentCount = commentRepository.countByApplicationId(application.getId());
-        dto.setCommentCount(commentCount);
-        
-        Double averageRating = commentRepository.getAverageRatingByApplicationId(application.getId());
-        dto.setAverageRating(averageRating);
+        dto.setCommentCount(application.getCommentCount());
+        dto.setAverageRating(application.getAverageRating());
         
         return dto;
     }
+    
+    @Getter
+    @RequiredArgsConstructor
+    public static class CvFile {
+        private final Resource resource;
+        private final long size;
+        private final String sha256;
+        private final MediaType mediaType;
+        // Name offered to the browser: "CV " and the candidate name, with the extension of the upload
+        private final String filename;
+    }
+    
+    @Getter
+    @RequiredArgsConstructor
+    public static class CvSearchPage {
+        private final Page<CvSearchHitDTO> hits;
+        // More CVs matched than were ranked, see cvscreen.cv-search.max-hits
+        private final boolean truncated;
+    }
 }
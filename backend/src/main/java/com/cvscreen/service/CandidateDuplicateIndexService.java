@@ -0,0 +1,464 @@
+package com.cvscreen.service;
+
+import com.cvscreen.entity.Candidate;
+import com.cvscreen.repository.CandidateDuplicatePairRepository;
+import com.cvscreen.repository.CandidateRepository;
+import com.cvscreen.repository.CandidateRepository.CandidateNameView;
+import com.cvscreen.service.duplicate.DuplicateBlockingEngine;
+import com.cvscreen.service.duplicate.DuplicatePairHeap;
+import com.cvscreen.service.duplicate.DynamicNameIndex;
+import com.cvscreen.service.duplicate.NameGrams;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maintains the candidate_duplicate_pairs table: every pair of candidates whose name
+ * similarity reaches cvscreen.duplicates.index-threshold.
+ *
+ * The table is fully computed once (on an empty table or on demand), then kept up to date
+ * by the candidate write paths: a created or renamed candidate is only compared with the
+ * candidates sharing enough name bigrams with it, through an in-memory {@link DynamicNameIndex}.
+ * Pair rows are written in the caller's transaction; the in-memory index is only updated
+ * once that transaction commits. Changes committed while the index is (re)loading are
+ * replayed afterwards.
+ *
+ * Two transactions saving similar names at the same time do not see each other's name: the
+ * index commits are serialized, and a transaction whose comparison missed a commit compares
+ * its candidates again after its own commit, against their freshly read names.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CandidateDuplicateIndexService {
+    
+    private static final String UPSERT_PAIR_SQL =
+            "INSERT INTO candidate_duplicate_pairs " +
+            "(candidate1_id, candidate2_id, similarity_score, levenshtein_distance, created_at) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (candidate1_id, candidate2_id) DO UPDATE SET " +
+            "similarity_score = EXCLUDED.similarity_score, " +
+            "levenshtein_distance = EXCLUDED.levenshtein_distance";
+    
+    private static final int INSERT_BATCH_SIZE = 1000;
+    
+    private final CandidateRepository candidateRepository;
+    private final CandidateDuplicatePairRepository pairRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    
+    @Value("${cvscreen.duplicates.index-threshold:0.80}")
+    private double indexThreshold;
+    
+    private volatile DynamicNameIndex index = new DynamicNameIndex();
+    private volatile boolean ready;
+    private final AtomicLong generation = new AtomicLong();
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+    private final Object loadLock = new Object();
+    private final Object commitLock = new Object();
+    // Transactions applied to the index so far
+    private final AtomicLong indexVersion = new AtomicLong();
+    
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // Startup load and background rebuilds, one at a time
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "duplicate-index-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Integer rebuildPairs;
+    private volatile LocalDateTime rebuildStartedAt;
+    private volatile LocalDateTime rebuildFinishedAt;
+    
+    /**
+     * Loads the index in the background once the application is started, computing
+     * every pair first if the table is empty
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!isEnabled()) {
+            log.warn("Duplicate index disabled: threshold {} is below {}",
+                    indexThreshold, DuplicateBlockingEngine.MIN_BLOCKING_THRESHOLD);
+            return;
+        }
+        loader.execute(() -> {
+            try {
+                load(pairRepository.count() == 0);
+            } catch (RuntimeException e) {
+                log.error("Failed to load the duplicate index", e);
+            }
+        });
+    }
+    
+    @PreDestroy
+    void stop() {
+        loader.shutdownNow();
+    }
+    
+    /**
+     * Recomputes every pair from scratch, on the calling thread (imports)
+     *
+     * @return number of pairs stored
+     */
+    public int rebuild() {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Duplicate index is disabled (threshold " + indexThreshold + ")");
+        }
+        return load(true);
+    }
+    
+    /**
+     * Recomputes every pair from scratch in the background. Reads keep working meanwhile,
+     * from the table until it is replaced, then from the new pairs.
+     *
+     * @throws IllegalStateException when the index is disabled or a rebuild is already running
+     */
+    public Map<String, Object> startRebuild() {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Duplicate index is disabled (threshold " + indexThreshold + ")");
+        }
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("A duplicate index rebuild is already running");
+        }
+        rebuildStartedAt = LocalDateTime.now();
+        rebuildFinishedAt = null;
+        rebuildPairs = null;
+        
+        try {
+            loader.execute(() -> {
+                try {
+                    rebuildPairs = load(true);
+                } catch (Exception e) {
+                    log.error("Duplicate index rebuild failed", e);
+                } finally {
+                    rebuildFinishedAt = LocalDateTime.now();
+                    rebuilding.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rebuilding.set(false);
+            throw new IllegalStateException("The application is shutting down");
+        }
+        return getStatus();
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("threshold", indexThreshold);
+        status.put("enabled", isEnabled());
+        status.put("ready", ready);
+        status.put("candidates", index.size());
+        status.put("rebuilding", rebuilding.get());
+        status.put("rebuildPairs", rebuildPairs);
+        status.put("rebuildStartedAt", rebuildStartedAt);
+        status.put("rebuildFinishedAt", rebuildFinishedAt);
+        return status;
+    }
+    
+    /**
+     * True when pairs at this threshold can be read from the table instead of scanning
+     */
+    public boolean covers(double threshold) {
+        return ready && threshold >= indexThreshold;
+    }
+    
+    public double getIndexThreshold() {
+        return indexThreshold;
+    }
+    
+    /**
+     * Recomputes the pairs of a created or renamed candidate. Call after the candidate is saved.
+     */
+    public void candidateSaved(Candidate candidate) {
+        indexSaved(List.of(candidate), true);
+    }
+    
+    /**
+     * Computes the pairs of candidates saved together (import chunks), with one delete for
+     * those already indexed and one upsert batch. Call after the candidates are saved.
+     */
+    public void candidatesSaved(Collection<Candidate> candidates) {
+        indexSaved(candidates, false);
+    }
+    
+    /**
+     * @param replacePairs delete the pairs of every candidate, not only of those known to the
+     *                     index or to the transaction (the others were just created)
+     */
+    private void indexSaved(Collection<Candidate> candidates, boolean replacePairs) {
+        if (!isEnabled() || candidates.isEmpty()) {
+            return;
+        }
+        
+        transaction(TransactionDefinition.PROPAGATION_REQUIRED).executeWithoutResult(status -> {
+            PendingChanges changes = currentChanges();
+            if (!ready || changes.generation != generation.get()) {
+                // Replayed once the index is loaded
+                changes.stale = true;
+                candidates.forEach(candidate ->
+                        changes.saved(candidate.getId(), NameGrams.normalize(candidate.getFullName())));
+                return;
+            }
+            
+            Set<Long> savedIds = new HashSet<>();
+            List<Long> indexedIds = new ArrayList<>();
+            for (Candidate candidate : candidates) {
+                savedIds.add(candidate.getId());
+                if (replacePairs || index.contains(candidate.getId()) || changes.touches(candidate.getId())) {
+                    indexedIds.add(candidate.getId());
+                }
+            }
+            
+            List<Object[]> rows = new ArrayList<>();
+            changes.compared(indexVersion.get());
+            for (Candidate candidate : candidates) {
+                Long candidateId = candidate.getId();
+                String name = NameGrams.normalize(candidate.getFullName());
+                DynamicNameIndex.MatchConsumer collector = pairCollector(candidateId, rows);
+                // Committed names, except the candidates changed by this transaction...
+                index.findSimilar(candidateId, name, indexThreshold, (otherId, distance, similarityScore) -> {
+                    if (!changes.touches(otherId) && !savedIds.contains(otherId)) {
+                        collector.accept(otherId, distance, similarityScore);
+                    }
+                });
+                // ...whose current names are in the transaction index, the candidates saved before
+                // this one included, so that each pair is found once
+                changes.local.findSimilar(candidateId, name, indexThreshold, collector);
+                changes.saved(candidateId, name);
+            }
+            
+            if (!indexedIds.isEmpty()) {
+                pairRepository.deleteByCandidateIdIn(indexedIds);
+            }
+            if (!rows.isEmpty()) {
+                candidateRepository.flush();
+                jdbcTemplate.batchUpdate(UPSERT_PAIR_SQL, rows);
+            }
+            log.debug("Duplicate index: {} candidates saved, {} pairs", candidates.size(), rows.size());
+        });
+    }
+    
+    /**
+     * Drops the pairs of deleted or merged candidates. Call before the candidates are deleted.
+     */
+    public void candidatesRemoved(Collection<Long> candidateIds) {
+        if (!isEnabled() || candidateIds.isEmpty()) {
+            return;
+        }
+        transaction(TransactionDefinition.PROPAGATION_REQUIRED).executeWithoutResult(status -> {
+            PendingChanges changes = currentChanges();
+            for (Long candidateId : candidateIds) {
+                pairRepository.deleteByCandidateId(candidateId);
+                changes.removed(candidateId);
+            }
+        });
+    }
+    
+    /**
+     * Compares candidates again with the whole index, after their transaction committed
+     * while others were committing theirs. Only adds pairs; a candidate renamed or deleted
+     * since is left to the transaction that changed it.
+     */
+    private void recheck(Map<Long, String> saved) {
+        try {
+            transaction(TransactionDefinition.PROPAGATION_REQUIRES_NEW).executeWithoutResult(status -> {
+                List<Object[]> rows = new ArrayList<>();
+                saved.forEach((candidateId, name) -> candidateRepository.findById(candidateId)
+                        .filter(candidate -> name.equals(NameGrams.normalize(candidate.getFullName())))
+                        .ifPresent(candidate ->
+                            index.findSimilar(candidateId, name, indexThreshold, pairCollector(candidateId, rows))));
+                if (!rows.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPSERT_PAIR_SQL, rows);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to recheck the duplicates of candidates {}", saved.keySet(), e);
+        }
+    }
+    
+    private DynamicNameIndex.MatchConsumer pairCollector(long candidateId, List<Object[]> rows) {
+        LocalDateTime now = LocalDateTime.now();
+        return (otherId, distance, similarityScore) -> rows.add(new Object[] {
+                Math.min(candidateId, otherId), Math.max(candidateId, otherId), similarityScore, distance, now});
+    }
+    
+    private boolean isEnabled() {
+        return indexThreshold >= DuplicateBlockingEngine.MIN_BLOCKING_THRESHOLD;
+    }
+    
+    private int load(boolean recomputePairs) {
+        int pairCount;
+        synchronized (loadLock) {
+            ready = false;
+            generation.incrementAndGet();
+            long start = System.currentTimeMillis();
+            
+            TransactionTemplate readOnly = transaction(TransactionDefinition.PROPAGATION_REQUIRED);
+            readOnly.setReadOnly(true);
+            List<CandidateNameView> candidates = readOnly.execute(status -> candidateRepository.findAllNames());
+            String[] names = new String[candidates.size()];
+            DynamicNameIndex newIndex = new DynamicNameIndex();
+            for (int i = 0; i < names.length; i++) {
+                names[i] = NameGrams.normalize(candidates.get(i).getFullName());
+                newIndex.put(candidates.get(i).getId(), names[i]);
+            }
+            
+            if (recomputePairs) {
+                DuplicatePairHeap pairs = new DuplicatePairHeap(Integer.MAX_VALUE);
+                new DuplicateBlockingEngine(names).scan(indexThreshold, pairs::offer);
+                transaction(TransactionDefinition.PROPAGATION_REQUIRED).executeWithoutResult(status -> {
+                    pairRepository.deleteAllInBatch();
+                    LocalDateTime now = LocalDateTime.now();
+                    List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+                    for (int p = 0; p < pairs.size(); p++) {
+                        batch.add(new Object[] {
+                                candidates.get(pairs.first(p)).getId(), candidates.get(pairs.second(p)).getId(),
+                                pairs.similarityScore(p), pairs.distance(p), now});
+                        if (batch.size() == INSERT_BATCH_SIZE) {
+                            jdbcTemplate.batchUpdate(UPSERT_PAIR_SQL, batch);
+                            batch.clear();
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        jdbcTemplate.batchUpdate(UPSERT_PAIR_SQL, batch);
+                    }
+                });
+                pairCount = pairs.size();
+            } else {
+                pairCount = (int) pairRepository.count();
+            }
+            
+            index = newIndex;
+            ready = true;
+            log.info("Duplicate index loaded: {} candidates, {} pairs at threshold {} ({} ms)",
+                    names.length, pairCount, indexThreshold, System.currentTimeMillis() - start);
+        }
+        replayPending();
+        return pairCount;
+    }
+    
+    /**
+     * Re-indexes candidates changed while the index was loading, each in its own transaction
+     */
+    private void replayPending() {
+        Iterator<Long> iterator = pendingIds.iterator();
+        while (ready && iterator.hasNext()) {
+            Long candidateId = iterator.next();
+            iterator.remove();
+            try {
+                transaction(TransactionDefinition.PROPAGATION_REQUIRES_NEW).executeWithoutResult(status ->
+                    candidateRepository.findById(candidateId).ifPresentOrElse(
+                        this::candidateSaved,
+                        () -> candidatesRemoved(List.of(candidateId))));
+            } catch (RuntimeException e) {
+                log.error("Failed to update the duplicate index for candidate {}", candidateId, e);
+            }
+        }
+    }
+    
+    private TransactionTemplate transaction(int propagation) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(propagation);
+        return template;
+    }
+    
+    private PendingChanges currentChanges() {
+        // Looked up among the synchronizations so that a nested REQUIRES_NEW transaction gets its own
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges changes) {
+                return changes;
+            }
+        }
+        PendingChanges changes = new PendingChanges(generation.get());
+        TransactionSynchronizationManager.registerSynchronization(changes);
+        return changes;
+    }
+    
+    /**
+     * Candidates saved or removed by one transaction, applied to the shared index on commit
+     */
+    private final class PendingChanges implements TransactionSynchronization {
+        private final long generation;
+        private final DynamicNameIndex local = new DynamicNameIndex();
+        private final Map<Long, String> saved = new LinkedHashMap<>();
+        private final Set<Long> removed = new HashSet<>();
+        private boolean stale;
+        // Index version seen by the first comparison, -1 before any
+        private long comparedAt = -1;
+        
+        PendingChanges(long generation) {
+            this.generation = generation;
+        }
+        
+        void saved(long candidateId, String name) {
+            removed.remove(candidateId);
+            saved.put(candidateId, name);
+            local.put(candidateId, name);
+        }
+        
+        void removed(long candidateId) {
+            saved.remove(candidateId);
+            local.remove(candidateId);
+            removed.add(candidateId);
+        }
+        
+        void compared(long version) {
+            if (comparedAt < 0) {
+                comparedAt = version;
+            }
+        }
+        
+        boolean touches(long candidateId) {
+            return saved.containsKey(candidateId) || removed.contains(candidateId);
+        }
+        
+        @Override
+        public void afterCommit() {
+            if (!stale && ready && generation == CandidateDuplicateIndexService.this.generation.get()) {
+                boolean missedCommits;
+                synchronized (commitLock) {
+                    DynamicNameIndex current = index;
+                    removed.forEach(current::remove);
+                    saved.forEach(current::put);
+                    missedCommits = indexVersion.getAndIncrement() != comparedAt && comparedAt >= 0;
+                }
+                if (missedCommits && !saved.isEmpty()) {
+                    recheck(saved);
+                }
+                return;
+            }
+            // The index was (re)loaded during the transaction
+            pendingIds.addAll(saved.keySet());
+            pendingIds.addAll(removed);
+            if (ready) {
+                replayPending();
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.cvscreen.service;
+
+import com.cvscreen.dto.DuplicateJobDTO;
+import com.cvscreen.exception.ResourceNotFoundException;
+import com.cvscreen.repository.CandidateRepository;
+import com.cvscreen.repository.CandidateRepository.CandidateNameView;
+import com.cvscreen.service.duplicate.DuplicateBlockingEngine;
+import com.cvscreen.service.duplicate.DuplicatePairHeap;
+import com.cvscreen.service.duplicate.NameGrams;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs duplicate scans as background jobs on a small dedicated pool, so a scan never
+ * holds a servlet thread, a database connection or a transaction while it runs.
+ * Finished jobs keep their pairs for paginated retrieval until they expire.
+ *
+ * Also owns the fork-join pool of the parallel scans, jobs and synchronous requests alike,
+ * so that concurrent scans share cvscreen.duplicates.scan-parallelism workers.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CandidateDuplicateJobService {
+    
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+    
+    private final CandidateRepository candidateRepository;
+    private final PlatformTransactionManager transactionManager;
+    
+    @Value("${cvscreen.duplicates.jobs.workers:1}")
+    private int workers;
+    
+    @Value("${cvscreen.duplicates.jobs.queue-capacity:4}")
+    private int queueCapacity;
+    
+    @Value("${cvscreen.duplicates.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+    
+    // 0: one worker per processor but one, left to requests
+    @Value("${cvscreen.duplicates.scan-parallelism:0}")
+    private int scanParallelism;
+    
+    private final Map<String, DuplicateJob> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private ForkJoinPool scanPool;
+    
+    @PostConstruct
+    void startExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "duplicate-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        
+        int parallelism = scanParallelism > 0 ? scanParallelism
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger scanThreadCount = new AtomicInteger();
+        scanPool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("duplicate-scan-" + scanThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+    
+    @PreDestroy
+    void stopExecutor() {
+        jobs.values().forEach(DuplicateJob::cancel);
+        executor.shutdownNow();
+        scanPool.shutdownNow();
+    }
+    
+    /**
+     * Workers of the shared scan pool
+     */
+    public int getScanParallelism() {
+        return scanPool.getParallelism();
+    }
+    
+    /**
+     * Runs a top-K scan on the shared pool, on the calling thread when parallelism is 1
+     *
+     * @param parallelism Requested workers, capped to those of the pool
+     */
+    public DuplicatePairHeap scanTopPairs(DuplicateBlockingEngine engine, double threshold, int limit,
+                                          int parallelism) {
+        return engine.scanTopPairs(threshold, limit, scanPool, parallelism);
+    }
+    
+    /**
+     * Queues a duplicate scan
+     *
+     * @param limit Maximum number of pairs kept (best first), null for all pairs
+     * @param parallelism Requested fork-join workers, capped to those of the shared scan pool
+     */
+    public DuplicateJobDTO startJob(double threshold, Integer limit, int parallelism) {
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        purgeExpiredJobs();
+        
+        DuplicateJob job = new DuplicateJob(UUID.randomUUID().toString(), threshold, limit,
+                Math.max(1, Math.min(parallelism, getScanParallelism())));
+        jobs.put(job.id, job);
+        try {
+            job.future = executor.submit(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw new IllegalStateException("Too many duplicate jobs queued, please retry later");
+        }
+        
+        log.info("Queued duplicate job {} (threshold: {}, limit: {}, parallelism: {})",
+                job.id, threshold, limit, job.parallelism);
+        return toDTO(job);
+    }
+    
+    public DuplicateJobDTO getJob(String jobId) {
+        purgeExpiredJobs();
+        return toDTO(findJob(jobId));
+    }
+    
+    /**
+     * Cancels a queued or running job. Finished jobs are left unchanged.
+     */
+    public DuplicateJobDTO cancelJob(String jobId) {
+        DuplicateJob job = findJob(jobId);
+        job.cancel();
+        executor.purge();
+        log.info("Cancellation requested for duplicate job {}", jobId);
+        return toDTO(job);
+    }
+    
+    /**
+     * Pairs of a completed job, sorted best first
+     */
+    public ScanResult getResult(String jobId) {
+        DuplicateJob job = findJob(jobId);
+        if (job.status != JobStatus.COMPLETED) {
+            throw new IllegalStateException("Duplicate job " + jobId + " is " + job.status);
+        }
+        return job.result;
+    }
+    
+    private void run(DuplicateJob job) {
+        if (job.cancelRequested) {
+            job.finish(JobStatus.CANCELLED);
+            return;
+        }
+        job.status = JobStatus.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        
+        try {
+            // Short read-only transaction: the scan itself runs without a connection
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            List<CandidateNameView> candidates = readOnly.execute(status -> candidateRepository.findAllNames());
+            
+            long[] candidateIds = new long[candidates.size()];
+            String[] names = new String[candidates.size()];
+            for (int i = 0; i < names.length; i++) {
+                candidateIds[i] = candidates.get(i).getId();
+                names[i] = NameGrams.normalize(candidates.get(i).getFullName());
+            }
+            
+            DuplicateBlockingEngine engine = new DuplicateBlockingEngine(names);
+            job.engine = engine;
+            if (job.cancelRequested) {
+                engine.cancel();
+            }
+            DuplicatePairHeap pairs = scanTopPairs(engine, job.threshold,
+                    job.limit != null ? job.limit : Integer.MAX_VALUE, job.parallelism);
+            
+            job.result = new ScanResult(candidateIds, pairs);
+            job.finish(JobStatus.COMPLETED);
+            log.info("Duplicate job {} found {} pairs ({} comparisons for {} candidates)",
+                    job.id, pairs.size(), engine.getComparisons(), names.length);
+        } catch (CancellationException e) {
+            job.finish(JobStatus.CANCELLED);
+            log.info("Duplicate job {} cancelled", job.id);
+        } catch (RuntimeException e) {
+            job.errorMessage = e.getMessage();
+            job.finish(JobStatus.FAILED);
+            log.error("Duplicate job {} failed", job.id, e);
+        }
+    }
+    
+    private DuplicateJob findJob(String jobId) {
+        DuplicateJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Duplicate job not found with id: " + jobId);
+        }
+        return job;
+    }
+    
+    private void purgeExpiredJobs() {
+        LocalDateTime expiry = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(expiry));
+    }
+    
+    private DuplicateJobDTO toDTO(DuplicateJob job) {
+        DuplicateJobDTO dto = new DuplicateJobDTO();
+        dto.setId(job.id);
+        dto.setStatus(job.status.name());
+        dto.setThreshold(job.threshold);
+        dto.setLimit(job.limit);
+        dto.setCreatedAt(job.createdAt);
+        dto.setStartedAt(job.startedAt);
+        dto.setFinishedAt(job.finishedAt);
+        dto.setErrorMessage(job.errorMessage);
+        
+        DuplicateBlockingEngine engine = job.engine;
+        if (engine != null) {
+            dto.setCandidateCount(engine.size());
+            dto.setPairsCompared(engine.getComparisons());
+            dto.setHits(engine.getMatches());
+            dto.setPercentDone(job.status == JobStatus.COMPLETED ? 100.0 : engine.getProgress() * 100.0);
+        }
+        if (job.result != null) {
+            dto.setResultCount(job.result.getPairs().size());
+        }
+        return dto;
+    }
+    
+    /**
+     * Pairs found by a job, as indexes into the candidate ids scanned
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class ScanResult {
+        private final long[] candidateIds;
+        private final DuplicatePairHeap pairs;
+    }
+    
+    private static final class DuplicateJob {
+        private final String id;
+        private final double threshold;
+        private final Integer limit;
+        private final int parallelism;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile boolean cancelRequested;
+        private volatile DuplicateBlockingEngine engine;
+        private volatile ScanResult result;
+        private volatile Future<?> future;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String errorMessage;
+        
+        DuplicateJob(String id, double threshold, Integer limit, int parallelism) {
+            this.id = id;
+            this.threshold = threshold;
+            this.limit = limit;
+            this.parallelism = parallelism;
+        }
+        
+        void cancel() {
+            cancelRequested = true;
+            DuplicateBlockingEngine running = engine;
+            if (running != null) {
+                running.cancel();
+            }
+            // A queued job is dropped without waiting for a worker
+            Future<?> queued = future;
+            if (status == JobStatus.QUEUED && queued != null && queued.cancel(false)) {
+                finish(JobStatus.CANCELLED);
+            }
+        }
+        
+        synchronized void finish(JobStatus finalStatus) {
+            if (finishedAt == null) {
+                status = finalStatus;
+                finishedAt = LocalDateTime.now();
+            }
+        }
+    }
+}
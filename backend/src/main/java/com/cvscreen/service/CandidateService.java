@@ -2,22 +2,38 @@ package com.cvscreen.service;
 
 import com.cvscreen.dto.*;
 import com.cvscreen.entity.Candidate;
+import com.cvscreen.entity.CandidateDuplicatePair;
 import com.cvscreen.exception.ResourceNotFoundException;
 import com.cvscreen.repository.ApplicationCommentRepository;
 import com.cvscreen.repository.ApplicationRepository;
+import com.cvscreen.repository.CandidateDuplicatePairRepository;
 import com.cvscreen.repository.CandidateRepository;
+import com.cvscreen.repository.CandidateRepository.CandidateNameView;
+import com.cvscreen.service.duplicate.DuplicateBlockingEngine;
+import com.cvscreen.service.duplicate.DuplicatePairHeap;
+import com.cvscreen.service.duplicate.NameGrams;
+import com.cvscreen.specification.CandidateSpecification;
+import com.cvscreen.specification.KeysetCursor;
+import com.cvscreen.specification.SearchPattern;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.text.similarity.LevenshteinDistance;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,8 +45,13 @@ public class CandidateService {
     private final ApplicationRepository applicationRepository;
     private final ApplicationCommentRepository commentRepository;
     private final ApplicationCommentService commentService;
-    
-    private static final LevenshteinDistance LEVENSHTEIN = new LevenshteinDistance();
+    private final CandidateDuplicatePairRepository duplicatePairRepository;
+    private final CandidateDuplicateIndexService duplicateIndexService;
+    private final CandidateDuplicateJobService duplicateJobService;
+    private final CounterService counterService;
+    private final ListingCountCache countCache;
+    private final SuggestionService suggestionService;
+    private final CvStorageService cvStorageService;
     
     @Transactional(readOnly = true)
     public Page<CandidateDTO> getAllCandidatesPaginated(Pageable pageable) {
@@ -45,14 +66,12 @@ public class CandidateService {
             return getAllCandidatesWithCustomSort(null, pageable);
         }
         
-        return candidateRepository.findAll(pageable).map(this::convertToDTO);
+        return convertPageToDTO(candidateRepository.findAll(pageable));
     }
     
     @Transactional(readOnly = true)
     public List<CandidateDTO> getAllCandidates() {
-        return candidateRepository.findAll().stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
+        return convertToDTOs(candidateRepository.findAll());
     }
     
     @Transactional(readOnly = true)
@@ -86,146 +105,197 @@ public class CandidateService {
             return getAllCandidatesWithCustomSort(searchTerm, pageable);
         }
         
-        return candidateRepository.searchByName(searchTerm, pageable).map(this::convertToDTO);
+        return convertPageToDTO(candidateRepository.searchByName(SearchPattern.contains(searchTerm), pageable));
     }
     
     /**
      * Custom method to handle sorting by computed fields (applicationCount, reviewCount, averageRating)
+     * The sort is done by the database so only the requested page is loaded and converted
      */
     @Transactional(readOnly = true)
     public Page<CandidateDTO> getAllCandidatesWithCustomSort(String searchTerm, Pageable pageable) {
-        // Get all candidates matching the search (without pagination for sorting)
-        List<Candidate> allCandidates;
-        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-            allCandidates = candidateRepository.searchByName(searchTerm);
-        } else {
-            allCandidates = candidateRepository.findAll();
-        }
+        Sort.Order order = pageable.getSort().iterator().hasNext() 
+            ? pageable.getSort().iterator().next() 
+            : Sort.Order.asc("lastName");
         
-        // Convert to DTOs (which calculates the computed fields)
-        List<CandidateDTO> dtos = allCandidates.stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
+        Specification<Candidate> spec = CandidateSpecification.searchByName(searchTerm)
+            .and(CandidateSpecification.orderBy(order.getProperty(), order.isAscending()));
         
-        // Apply custom sorting
-        String sortProperty = pageable.getSort().iterator().hasNext() 
-            ? pageable.getSort().iterator().next().getProperty() 
-            : "lastName";
-        boolean ascending = pageable.getSort().iterator().hasNext() 
-            ? pageable.getSort().iterator().next().isAscending() 
-            : true;
-        
-        if ("applicationCount".equals(sortProperty)) {
-            // Sort by application count
-            if (ascending) {
-                dtos.sort(Comparator.comparing(
-                    dto -> dto.getApplicationCount() != null ? dto.getApplicationCount() : 0,
-                    Comparator.naturalOrder()
-                ));
-            } else {
-                dtos.sort(Comparator.comparing(
-                    dto -> dto.getApplicationCount() != null ? dto.getApplicationCount() : 0,
-                    Comparator.reverseOrder()
-                ));
-            }
-        } else if ("reviewCount".equals(sortProperty)) {
-            // Sort by review count
-            if (ascending) {
-                dtos.sort(Comparator.comparing(
-                    dto -> dto.getReviewCount() != null ? dto.getReviewCount() : 0L,
-                    Comparator.naturalOrder()
-                ));
-            } else {
-                dtos.sort(Comparator.comparing(
-                    dto -> dto.getReviewCount() != null ? dto.getReviewCount() : 0L,
-                    Comparator.reverseOrder()
-                ));
-            }
-        } else if ("averageRating".equals(sortProperty)) {
-            // Sort by average rating
-            if (ascending) {
-                dtos.sort(Comparator.comparing(
-                    dto -> dto.getAverageRating() != null ? dto.getAverageRating() : 0.0,
-                    Comparator.naturalOrder()
-                ));
-            } else {
-                dtos.sort(Comparator.comparing(
-                    dto -> dto.getAverageRating() != null ? dto.getAverageRating() : 0.0,
-                    Comparator.reverseOrder()
-                ));
-            }
+        // The order comes from the specification, the page request stays unsorted
+        Page<Candidate> candidates = candidateRepository.findAll(spec, 
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        
+        return new PageImpl<>(convertToDTOs(candidates.getContent()), pageable, candidates.getTotalElements());
+    }
+    
+    /**
+     * Keyset pagination: the candidates after the cursor, read with a seek predicate
+     * instead of an offset. The total is only counted on request, and cached.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CandidateDTO> scrollCandidates(String searchTerm, String sortBy, boolean ascending,
+                                                       String cursor, int size, boolean includeTotal) {
+        if (!CandidateSpecification.KEYSET_PROPERTIES.contains(sortBy)) {
+            throw new IllegalArgumentException("Cursor pagination cannot sort by " + sortBy);
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Size must be at least 1");
         }
+        // Capped, so that a huge size neither overflows the extra row nor loads everything
+        int pageSize = Math.min(size, KeysetCursor.MAX_PAGE_SIZE);
+        KeysetCursor position = KeysetCursor.decode(cursor, sortBy, ascending);
+        Specification<Candidate> filter = CandidateSpecification.searchByName(searchTerm);
         
-        // Apply pagination manually
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), dtos.size());
+        // One extra row tells whether there is a next page
+        List<Candidate> candidates = candidateRepository.findBy(
+            filter.and(CandidateSpecification.after(position))
+                .and(CandidateSpecification.orderBy(sortBy, ascending)),
+            query -> query.limit(pageSize + 1).all());
         
-        List<CandidateDTO> pageContent = dtos.subList(start, end);
+        String nextCursor = null;
+        if (candidates.size() > pageSize) {
+            candidates = candidates.subList(0, pageSize);
+            Candidate last = candidates.get(pageSize - 1);
+            nextCursor = KeysetCursor.of(sortBy, ascending,
+                CandidateSpecification.sortValue(last, sortBy), last.getId()).encode();
+        }
         
-        return new PageImpl<>(pageContent, pageable, dtos.size());
+        Long total = includeTotal
+            ? countCache.get("candidates|" + searchTerm, () -> candidateRepository.count(filter))
+            : null;
+        return new CursorPageDTO<>(convertToDTOs(candidates), nextCursor, total);
     }
     
     @Transactional(readOnly = true)
     public List<CandidateDTO> searchCandidates(String searchTerm) {
-        return candidateRepository.searchByName(searchTerm).stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
+        return convertToDTOs(candidateRepository.searchByName(SearchPattern.contains(searchTerm)));
     }
     
     /**
      * NEW: Find potential duplicate candidates based on name similarity
-     * Uses Levenshtein distance algorithm
+     * Uses Levenshtein distance algorithm, only comparing candidates that share
+     * a name block (see {@link DuplicateBlockingEngine}). Thresholds covered by the
+     * duplicate index are read from the precomputed pairs instead.
      * 
      * @param threshold Similarity threshold (0.0 to 1.0), default 0.85 means 85% similar
      * @return List of duplicate pairs
      */
     @Transactional(readOnly = true)
     public List<CandidateDuplicateDTO> findPotentialDuplicates(double threshold) {
-        log.info("Searching for duplicate candidates with threshold: {}", threshold);
+        return findPotentialDuplicates(threshold, null, 1);
+    }
+    
+    /**
+     * Find potential duplicates, keeping only the best pairs
+     * 
+     * @param threshold Similarity threshold (0.0 to 1.0)
+     * @param limit Maximum number of pairs returned (best first), null for all pairs
+     * @param parallelism Number of fork-join workers used for the scan, 1 for a sequential scan,
+     *                    capped to those of the shared scan pool
+     * @return List of duplicate pairs
+     */
+    @Transactional(readOnly = true)
+    public List<CandidateDuplicateDTO> findPotentialDuplicates(double threshold, Integer limit, int parallelism) {
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        if (duplicateIndexService.covers(threshold)) {
+            Pageable pageable = limit != null ? PageRequest.of(0, limit) : Pageable.unpaged();
+            return convertPairsToDTO(duplicatePairRepository.findBySimilarityScoreAtLeast(threshold, pageable).getContent());
+        }
         
-        List<Candidate> allCandidates = candidateRepository.findAll();
-        List<CandidateDuplicateDTO> duplicates = new ArrayList<>();
+        int workers = Math.max(1, Math.min(parallelism, duplicateJobService.getScanParallelism()));
+        log.info("Searching for duplicate candidates with threshold: {}, limit: {}, parallelism: {}", 
+                threshold, limit, workers);
         
-        // Compare each candidate with every other candidate
-        for (int i = 0; i < allCandidates.size(); i++) {
-            Candidate candidate1 = allCandidates.get(i);
-            String name1 = candidate1.getFullName().toLowerCase().trim();
-            
-            for (int j = i + 1; j < allCandidates.size(); j++) {
-                Candidate candidate2 = allCandidates.get(j);
-                String name2 = candidate2.getFullName().toLowerCase().trim();
-                
-                // Calculate Levenshtein distance
-                int distance = LEVENSHTEIN.apply(name1, name2);
-                
-                // Calculate similarity ratio (0.0 to 1.0)
-                int maxLength = Math.max(name1.length(), name2.length());
-                double similarityScore = 1.0 - ((double) distance / maxLength);
-                
-                // If similarity is above threshold, consider it a potential duplicate
-                if (similarityScore >= threshold) {
-                    CandidateDuplicateDTO duplicate = new CandidateDuplicateDTO();
-                    duplicate.setCandidate1(convertToDTO(candidate1));
-                    duplicate.setCandidate2(convertToDTO(candidate2));
-                    duplicate.setSimilarityScore(similarityScore);
-                    duplicate.setLevenshteinDistance(distance);
-                    duplicate.setMatchReason(String.format("Name similarity: %.0f%%", similarityScore * 100));
-                    
-                    duplicates.add(duplicate);
-                    
-                    log.debug("Found duplicate: '{}' ≈ '{}' ({}%)", 
-                            name1, name2, (int)(similarityScore * 100));
-                }
-            }
+        List<CandidateNameView> allCandidates = candidateRepository.findAllNames();
+        String[] names = new String[allCandidates.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = NameGrams.normalize(allCandidates.get(i).getFullName());
         }
         
-        // Sort by similarity score (highest first)
-        duplicates.sort(Comparator.comparing(CandidateDuplicateDTO::getSimilarityScore).reversed());
+        DuplicateBlockingEngine engine = new DuplicateBlockingEngine(names);
+        DuplicatePairHeap pairs = duplicateJobService.scanTopPairs(engine, threshold,
+                limit != null ? limit : Integer.MAX_VALUE, workers);
         
-        log.info("Found {} potential duplicate pairs", duplicates.size());
+        // Only load and convert the candidates that appear in a kept pair
+        Set<Long> pairIds = new HashSet<>();
+        for (int p = 0; p < pairs.size(); p++) {
+            pairIds.add(allCandidates.get(pairs.first(p)).getId());
+            pairIds.add(allCandidates.get(pairs.second(p)).getId());
+        }
+        Map<Long, CandidateDTO> dtosById = new HashMap<>();
+        for (CandidateDTO dto : convertToDTOs(candidateRepository.findAllById(pairIds))) {
+            dtosById.put(dto.getId(), dto);
+        }
+        
+        // Pairs are already sorted by similarity score (highest first)
+        List<CandidateDuplicateDTO> duplicates = new ArrayList<>(pairs.size());
+        for (int p = 0; p < pairs.size(); p++) {
+            double similarityScore = pairs.similarityScore(p);
+            duplicates.add(convertToDuplicateDTO(
+                    dtosById.get(allCandidates.get(pairs.first(p)).getId()),
+                    dtosById.get(allCandidates.get(pairs.second(p)).getId()),
+                    similarityScore, pairs.distance(p)));
+            
+            log.debug("Found duplicate: '{}' ≈ '{}' ({}%)", 
+                    names[pairs.first(p)], names[pairs.second(p)], (int)(similarityScore * 100));
+        }
+        
+        log.info("Found {} potential duplicate pairs ({} comparisons for {} candidates)", 
+                duplicates.size(), engine.getComparisons(), names.length);
         return duplicates;
     }
     
+    /**
+     * Paginated duplicates. Thresholds below the duplicate index threshold need a full scan.
+     */
+    @Transactional(readOnly = true)
+    public Page<CandidateDuplicateDTO> findPotentialDuplicatesPaginated(double threshold, Pageable pageable) {
+        if (duplicateIndexService.covers(threshold)) {
+            Page<CandidateDuplicatePair> pairs = duplicatePairRepository.findBySimilarityScoreAtLeast(threshold, pageable);
+            return new PageImpl<>(convertPairsToDTO(pairs.getContent()), pageable, pairs.getTotalElements());
+        }
+        
+        List<CandidateDuplicateDTO> duplicates = findPotentialDuplicates(threshold, null, 1);
+        int start = (int) Math.min(pageable.getOffset(), duplicates.size());
+        int end = Math.min(start + pageable.getPageSize(), duplicates.size());
+        return new PageImpl<>(duplicates.subList(start, end), pageable, duplicates.size());
+    }
+    
+    /**
+     * One page of the pairs found by a completed duplicate job. Pairs whose candidates
+     * were deleted since the scan are left out of the page.
+     */
+    @Transactional(readOnly = true)
+    public Page<CandidateDuplicateDTO> getDuplicateJobResults(String jobId, Pageable pageable) {
+        CandidateDuplicateJobService.ScanResult result = duplicateJobService.getResult(jobId);
+        long[] candidateIds = result.getCandidateIds();
+        DuplicatePairHeap pairs = result.getPairs();
+        int start = (int) Math.min(pageable.getOffset(), pairs.size());
+        int end = Math.min(start + pageable.getPageSize(), pairs.size());
+        
+        Set<Long> pageIds = new HashSet<>();
+        for (int p = start; p < end; p++) {
+            pageIds.add(candidateIds[pairs.first(p)]);
+            pageIds.add(candidateIds[pairs.second(p)]);
+        }
+        Map<Long, CandidateDTO> dtosById = new HashMap<>();
+        for (CandidateDTO dto : convertToDTOs(candidateRepository.findAllById(pageIds))) {
+            dtosById.put(dto.getId(), dto);
+        }
+        
+        List<CandidateDuplicateDTO> duplicates = new ArrayList<>(end - start);
+        for (int p = start; p < end; p++) {
+            CandidateDTO candidate1 = dtosById.get(candidateIds[pairs.first(p)]);
+            CandidateDTO candidate2 = dtosById.get(candidateIds[pairs.second(p)]);
+            if (candidate1 != null && candidate2 != null) {
+                duplicates.add(convertToDuplicateDTO(candidate1, candidate2, pairs.similarityScore(p), pairs.distance(p)));
+            }
+        }
+        return new PageImpl<>(duplicates, pageable, pairs.size());
+    }
+    
     @Transactional
     public CandidateDTO createCandidate(CreateCandidateRequest request) {
         Candidate candidate = new Candidate();
@@ -235,6 +305,8 @@ public class CandidateService {
         candidate.setGlobalNotes(request.getGlobalNotes());
         
         candidate = candidateRepository.save(candidate);
+        duplicateIndexService.candidateSaved(candidate);
+        suggestionService.candidateSaved(candidate);
         return convertToDTO(candidate);
     }
     
@@ -243,21 +315,29 @@ public class CandidateService {
         Candidate candidate = candidateRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Candidate not found with id: " + id));
         
+        String previousName = candidate.getFullName();
         candidate.setFirstName(request.getFirstName());
         candidate.setLastName(request.getLastName());
         candidate.setContractType(request.getContractType());
         candidate.setGlobalNotes(request.getGlobalNotes());
         
         candidate = candidateRepository.save(candidate);
+        if (!previousName.equals(candidate.getFullName())) {
+            duplicateIndexService.candidateSaved(candidate);
+            suggestionService.candidateSaved(candidate);
+        }
         return convertToDTO(candidate);
     }
     
     @Transactional
     public void deleteCandidate(Long id) {
-        if (!candidateRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Candidate not found with id: " + id);
-        }
-        candidateRepository.deleteById(id);
+        Candidate candidate = candidateRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Candidate not found with id: " + id));
+        duplicateIndexService.candidatesRemoved(List.of(id));
+        suggestionService.candidatesRemoved(List.of(id));
+        counterService.applicationsRemoved(candidate.getApplications());
+        cvStorageService.applicationsRemoved(candidate.getApplications());
+        candidateRepository.delete(candidate);
     }
     
     @Transactional
@@ -287,11 +367,14 @@ public class CandidateService {
                     candidateToMerge.getApplications().size(), candidateId, targetCandidateId);
             
             // Delete the merged candidate
+            duplicateIndexService.candidatesRemoved(List.of(candidateId));
+            suggestionService.candidatesRemoved(List.of(candidateId));
             candidateRepository.deleteById(candidateId);
         }
         
         // Save and return updated target candidate
-        targetCandidate = candidateRepository.save(targetCandidate);
+        candidateRepository.save(targetCandidate);
+        counterService.candidatesMerged(targetCandidateId);
         return getCandidateById(targetCandidateId);
     }
     
@@ -301,7 +384,10 @@ public class CandidateService {
                 Candidate newCandidate = new Candidate();
                 newCandidate.setFirstName(firstName);
                 newCandidate.setLastName(lastName);
-                return candidateRepository.save(newCandidate);
+                newCandidate = candidateRepository.save(newCandidate);
+                duplicateIndexService.candidateSaved(newCandidate);
+                suggestionService.candidateSaved(newCandidate);
+                return newCandidate;
             });
     }
     
@@ -320,10 +406,66 @@ public class CandidateService {
                 newCandidate.setFirstName(firstName);
                 newCandidate.setLastName(lastName);
                 newCandidate.setContractType(contractType);
-                return candidateRepository.save(newCandidate);
+                newCandidate = candidateRepository.save(newCandidate);
+                duplicateIndexService.candidateSaved(newCandidate);
+                suggestionService.candidateSaved(newCandidate);
+                return newCandidate;
             });
     }
     
+    /**
+     * Batch version of findOrCreateCandidateWithContractType: the existing candidates are
+     * read with one query and the missing ones saved together.
+     *
+     * @param candidates Unsaved candidates, looked up by name and created as given when missing
+     * @return Candidates by {@link #nameKey(String, String)}
+     */
+    public Map<String, Candidate> findOrCreateCandidatesWithContractType(Collection<Candidate> candidates) {
+        Map<String, Candidate> candidatesByName = new HashMap<>();
+        if (candidates.isEmpty()) {
+            return candidatesByName;
+        }
+        
+        Set<String> firstNames = candidates.stream().map(Candidate::getFirstName).collect(Collectors.toSet());
+        Set<String> lastNames = candidates.stream().map(Candidate::getLastName).collect(Collectors.toSet());
+        // Oldest first, as findByFirstNameAndLastName would only ever have found one
+        for (Candidate existing : candidateRepository.findByFirstNameInAndLastNameInOrderByIdAsc(firstNames, lastNames)) {
+            candidatesByName.putIfAbsent(nameKey(existing.getFirstName(), existing.getLastName()), existing);
+        }
+        
+        List<Candidate> created = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            String key = nameKey(candidate.getFirstName(), candidate.getLastName());
+            Candidate found = candidatesByName.putIfAbsent(key, candidate);
+            if (found == null) {
+                created.add(candidate);
+            } else if (candidate.getContractType() != null && !candidate.getContractType().isEmpty()
+                    && found.getContractType() == null) {
+                // Update contract type if provided and not already set
+                found.setContractType(candidate.getContractType());
+            }
+        }
+        
+        candidateRepository.saveAll(created);
+        duplicateIndexService.candidatesSaved(created);
+        created.forEach(suggestionService::candidateSaved);
+        return candidatesByName;
+    }
+    
+    public static String nameKey(String firstName, String lastName) {
+        return firstName + "\n" + lastName;
+    }
+    
+    private Page<CandidateDTO> convertPageToDTO(Page<Candidate> candidates) {
+        return new PageImpl<>(convertToDTOs(candidates.getContent()), candidates.getPageable(), candidates.getTotalElements());
+    }
+    
+    private List<CandidateDTO> convertToDTOs(List<Candidate> candidates) {
+        return candidates.stream()
+            .map(this::convertToDTO)
+            .collect(Collectors.toList());
+    }
+    
     private CandidateDTO convertToDTO(Candidate candidate) {
         CandidateDTO dto = new CandidateDTO();
         dto.setId(candidate.getId());
@@ -334,18 +476,49 @@ public class CandidateService {
         dto.setGlobalNotes(candidate.getGlobalNotes());
         dto.setCreatedAt(candidate.getCreatedAt());
         dto.setUpdatedAt(candidate.getUpdatedAt());
-        dto.setApplicationCount(candidate.getApplications() != null ? candidate.getApplications().size() : 0);
-        
-        // Get review statistics for this candidate
-        long reviewCount = commentRepository.countByCandidateId(candidate.getId());
-        dto.setReviewCount(reviewCount);
         
-        Double averageRating = commentRepository.getAverageRatingByCandidateId(candidate.getId());
-        dto.setAverageRating(averageRating);
+        dto.setApplicationCount(candidate.getApplicationCount().intValue());
+        dto.setReviewCount(candidate.getCommentCount());
+        dto.setAverageRating(candidate.getAverageRating());
         
         return dto;
     }
     
+    /**
+     * Converts stored pairs, converting each candidate only once
+     */
+    private List<CandidateDuplicateDTO> convertPairsToDTO(List<CandidateDuplicatePair> pairs) {
+        Map<Long, Candidate> candidatesById = new LinkedHashMap<>();
+        for (CandidateDuplicatePair pair : pairs) {
+            candidatesById.putIfAbsent(pair.getCandidate1().getId(), pair.getCandidate1());
+            candidatesById.putIfAbsent(pair.getCandidate2().getId(), pair.getCandidate2());
+        }
+        Map<Long, CandidateDTO> dtosById = new HashMap<>();
+        for (CandidateDTO dto : convertToDTOs(new ArrayList<>(candidatesById.values()))) {
+            dtosById.put(dto.getId(), dto);
+        }
+        
+        List<CandidateDuplicateDTO> duplicates = new ArrayList<>(pairs.size());
+        for (CandidateDuplicatePair pair : pairs) {
+            duplicates.add(convertToDuplicateDTO(
+                    dtosById.get(pair.getCandidate1().getId()),
+                    dtosById.get(pair.getCandidate2().getId()),
+                    pair.getSimilarityScore(), pair.getLevenshteinDistance()));
+        }
+        return duplicates;
+    }
+    
+    private CandidateDuplicateDTO convertToDuplicateDTO(CandidateDTO candidate1, CandidateDTO candidate2, 
+                                                        double similarityScore, int levenshteinDistance) {
+        CandidateDuplicateDTO duplicate = new CandidateDuplicateDTO();
+        duplicate.setCandidate1(candidate1);
+        duplicate.setCandidate2(candidate2);
+        duplicate.setSimilarityScore(similarityScore);
+        duplicate.setLevenshteinDistance(levenshteinDistance);
+        duplicate.setMatchReason(String.format("Name similarity: %.0f%%", similarityScore * 100));
+        return duplicate;
+    }
+    
     private ApplicationSummaryDTO convertToApplicationSummary(com.cvscreen.entity.Application application) {
         ApplicationSummaryDTO dto = new ApplicationSummaryDTO();
         dto.setId(application.getId());
@@ -1,20 +1,30 @@
 package com.cvscreen.service;
 
 import com.cvscreen.dto.CompanyDTO;
+import com.cvscreen.dto.CursorPageDTO;
 import com.cvscreen.entity.Company;
 import com.cvscreen.exception.ResourceNotFoundException;
 import com.cvscreen.repository.ApplicationRepository;
 import com.cvscreen.repository.CompanyRepository;
+import com.cvscreen.specification.CompanySpecification;
+import com.cvscreen.specification.KeysetCursor;
+import com.cvscreen.specification.SearchPattern;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,6 +34,10 @@ public class CompanyService {
     
     private final CompanyRepository companyRepository;
     private final ApplicationRepository applicationRepository;
+    private final CounterService counterService;
+    private final ListingCountCache countCache;
+    private final SuggestionService suggestionService;
+    private final CvStorageService cvStorageService;
     
     /**
      * NEW: Get all companies with pagination and sorting
@@ -49,99 +63,70 @@ public class CompanyService {
      */
     @Transactional(readOnly = true)
     public Page<CompanyDTO> searchCompaniesPaginated(String name, Pageable pageable) {
-        String sortProperty = pageable.getSort().iterator().hasNext() 
-            ? pageable.getSort().iterator().next().getProperty() 
-            : null;
-        
-        // Check if sorting by applicationCount (computed field)
-        if ("applicationCount".equals(sortProperty)) {
-            return getAllCompaniesWithCustomSort(name, pageable);
-        }
-        
-        // Standard search and sorting
-        List<Company> companies = companyRepository.findByNameContainingIgnoreCase(name);
-        
-        // Apply sorting manually if needed
-        boolean ascending = pageable.getSort().iterator().hasNext() 
-            ? pageable.getSort().iterator().next().isAscending() 
-            : true;
-        
-        if ("name".equals(sortProperty)) {
-            if (ascending) {
-                companies.sort(Comparator.comparing(Company::getName, String.CASE_INSENSITIVE_ORDER));
-            } else {
-                companies.sort(Comparator.comparing(Company::getName, String.CASE_INSENSITIVE_ORDER).reversed());
-            }
-        }
-        
-        List<CompanyDTO> dtos = companies.stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
-        
-        // Apply pagination manually
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), dtos.size());
-        
-        List<CompanyDTO> pageContent = start < dtos.size() ? dtos.subList(start, end) : List.of();
-        
-        return new PageImpl<>(pageContent, pageable, dtos.size());
+        // Search and sort (applicationCount, or name case-insensitively) are both done by the database
+        return getAllCompaniesWithCustomSort(name, pageable);
     }
     
     /**
      * Custom method to handle sorting by applicationCount (computed field)
+     * The sort is done by the database so only the requested page is loaded and converted
      */
     @Transactional(readOnly = true)
     public Page<CompanyDTO> getAllCompaniesWithCustomSort(String searchTerm, Pageable pageable) {
-        // Get all companies matching the search (without pagination for sorting)
-        List<Company> allCompanies;
-        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-            allCompanies = companyRepository.findByNameContainingIgnoreCase(searchTerm);
-        } else {
-            allCompanies = companyRepository.findAll();
-        }
+        Sort.Order order = pageable.getSort().iterator().hasNext() 
+            ? pageable.getSort().iterator().next() 
+            : Sort.Order.desc("applicationCount"); // Default DESC for applicationCount
         
-        // Convert to DTOs (which calculates applicationCount)
-        List<CompanyDTO> dtos = allCompanies.stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
+        Specification<Company> spec = CompanySpecification.nameContains(searchTerm)
+            .and(CompanySpecification.orderBy(order.getProperty(), order.isAscending()));
         
-        // Apply custom sorting
-        String sortProperty = pageable.getSort().iterator().hasNext() 
-            ? pageable.getSort().iterator().next().getProperty() 
-            : "applicationCount";
-        boolean ascending = pageable.getSort().iterator().hasNext() 
-            ? pageable.getSort().iterator().next().isAscending() 
-            : false; // Default DESC for applicationCount
+        // The order comes from the specification, the page request stays unsorted
+        Page<Company> companies = companyRepository.findAll(spec, 
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
         
-        if ("applicationCount".equals(sortProperty)) {
-            // Sort by application count
-            if (ascending) {
-                dtos.sort(Comparator.comparing(
-                    dto -> dto.getApplicationCount() != null ? dto.getApplicationCount() : 0,
-                    Comparator.naturalOrder()
-                ));
-            } else {
-                dtos.sort(Comparator.comparing(
-                    dto -> dto.getApplicationCount() != null ? dto.getApplicationCount() : 0,
-                    Comparator.reverseOrder()
-                ));
-            }
-        } else if ("name".equals(sortProperty)) {
-            // Sort by name
-            if (ascending) {
-                dtos.sort(Comparator.comparing(CompanyDTO::getName, String.CASE_INSENSITIVE_ORDER));
-            } else {
-                dtos.sort(Comparator.comparing(CompanyDTO::getName, String.CASE_INSENSITIVE_ORDER).reversed());
-            }
+        return new PageImpl<>(companies.getContent().stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList()), pageable, companies.getTotalElements());
+    }
+    
+    /**
+     * Keyset pagination: the companies after the cursor, read with a seek predicate
+     * instead of an offset. The total is only counted on request, and cached.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CompanyDTO> scrollCompanies(String searchTerm, String sortBy, boolean ascending,
+                                                     String cursor, int size, boolean includeTotal) {
+        if (!CompanySpecification.KEYSET_PROPERTIES.contains(sortBy)) {
+            throw new IllegalArgumentException("Cursor pagination cannot sort by " + sortBy);
         }
+        if (size < 1) {
+            throw new IllegalArgumentException("Size must be at least 1");
+        }
+        // Capped, so that a huge size neither overflows the extra row nor loads everything
+        int pageSize = Math.min(size, KeysetCursor.MAX_PAGE_SIZE);
+        KeysetCursor position = KeysetCursor.decode(cursor, sortBy, ascending);
+        Specification<Company> filter = CompanySpecification.nameContains(searchTerm);
         
-        // Apply pagination manually
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), dtos.size());
+        // One extra row tells whether there is a next page
+        List<Company> companies = companyRepository.findBy(
+            filter.and(CompanySpecification.after(position))
+                .and(CompanySpecification.orderBy(sortBy, ascending)),
+            query -> query.limit(pageSize + 1).all());
         
-        List<CompanyDTO> pageContent = start < dtos.size() ? dtos.subList(start, end) : List.of();
+        String nextCursor = null;
+        if (companies.size() > pageSize) {
+            companies = companies.subList(0, pageSize);
+            Company last = companies.get(pageSize - 1);
+            nextCursor = KeysetCursor.of(sortBy, ascending,
+                CompanySpecification.sortValue(last, sortBy), last.getId()).encode();
+        }
         
-        return new PageImpl<>(pageContent, pageable, dtos.size());
+        Long total = includeTotal
+            ? countCache.get("companies|" + searchTerm, () -> companyRepository.count(filter))
+            : null;
+        return new CursorPageDTO<>(companies.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList()), nextCursor, total);
     }
     
     @Transactional(readOnly = true)
@@ -160,7 +145,7 @@ public class CompanyService {
     
     @Transactional(readOnly = true)
     public List<CompanyDTO> searchCompanies(String name) {
-        return companyRepository.findByNameContainingIgnoreCase(name).stream()
+        return companyRepository.searchByName(SearchPattern.contains(name)).stream()
             .map(this::convertToDTO)
             .collect(Collectors.toList());
     }
@@ -172,6 +157,7 @@ public class CompanyService {
         company.setNotes(notes);
         
         company = companyRepository.save(company);
+        suggestionService.companySaved(company);
         return convertToDTO(company);
     }
     
@@ -184,15 +170,18 @@ public class CompanyService {
         company.setNotes(notes);
         
         company = companyRepository.save(company);
+        suggestionService.companySaved(company);
         return convertToDTO(company);
     }
     
     @Transactional
     public void deleteCompany(Long id) {
-        if (!companyRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Company not found with id: " + id);
-        }
-        companyRepository.deleteById(id);
+        Company company = companyRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Company not found with id: " + id));
+        counterService.applicationsRemoved(company.getApplications());
+        cvStorageService.applicationsRemoved(company.getApplications());
+        companyRepository.delete(company);
+        suggestionService.companiesRemoved(List.of(id));
     }
     
     @Transactional
@@ -223,11 +212,13 @@ public class CompanyService {
             
             // Delete the merged company
             companyRepository.deleteById(companyId);
+            suggestionService.companiesRemoved(List.of(companyId));
         }
         
-        // Save and return updated target company
-        targetCompany = companyRepository.save(targetCompany);
-        return convertToDTO(targetCompany);
+        // Save and return updated target company, reloaded with its recomputed application count
+        companyRepository.save(targetCompany);
+        counterService.companiesMerged(targetCompanyId);
+        return getCompanyById(targetCompanyId);
     }
     
     public Company findOrCreateCompany(String name) {
@@ -238,16 +229,48 @@ public class CompanyService {
             .orElseGet(() -> {
                 Company newCompany = new Company();
                 newCompany.setName(name);
-                return companyRepository.save(newCompany);
+                newCompany = companyRepository.save(newCompany);
+                suggestionService.companySaved(newCompany);
+                return newCompany;
             });
     }
     
+    /**
+     * Batch version of findOrCreateCompany, one query for the existing companies
+     *
+     * @param names Non-blank company names
+     * @return Companies by name
+     */
+    public Map<String, Company> findOrCreateCompanies(Collection<String> names) {
+        Map<String, Company> companiesByName = new HashMap<>();
+        if (names.isEmpty()) {
+            return companiesByName;
+        }
+        
+        for (Company existing : companyRepository.findByNameIn(names)) {
+            companiesByName.put(existing.getName(), existing);
+        }
+        
+        List<Company> created = new ArrayList<>();
+        for (String name : names) {
+            if (!companiesByName.containsKey(name)) {
+                Company newCompany = new Company();
+                newCompany.setName(name);
+                companiesByName.put(name, newCompany);
+                created.add(newCompany);
+            }
+        }
+        companyRepository.saveAll(created);
+        created.forEach(suggestionService::companySaved);
+        return companiesByName;
+    }
+    
     private CompanyDTO convertToDTO(Company company) {
         CompanyDTO dto = new CompanyDTO();
         dto.setId(company.getId());
         dto.setName(company.getName());
         dto.setNotes(company.getNotes());
-        dto.setApplicationCount(company.getApplications() != null ? company.getApplications().size() : 0);
+        dto.setApplicationCount(company.getApplicationCount().intValue());
         dto.setCreatedAt(company.getCreatedAt());
         return dto;
     }
@@ -0,0 +1,273 @@
+package com.cvscreen.service;
+
+import com.cvscreen.entity.Application;
+import com.cvscreen.entity.ApplicationComment;
+import com.cvscreen.entity.Candidate;
+import com.cvscreen.entity.Company;
+import com.cvscreen.entity.Job;
+import com.cvscreen.entity.MaintenanceFlag;
+import com.cvscreen.repository.ApplicationRepository;
+import com.cvscreen.repository.CandidateRepository;
+import com.cvscreen.repository.CompanyRepository;
+import com.cvscreen.repository.JobRepository;
+import com.cvscreen.repository.MaintenanceFlagRepository;
+import com.cvscreen.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the denormalized counters up to date: comment count and rating sum/count of
+ * applications and candidates, application count of candidates, companies and jobs,
+ * and comment count of users.
+ *
+ * Write paths report their changes here, within their transaction. Counters are moved
+ * with relative bulk updates (counter = counter + delta) so that concurrent writers
+ * never overwrite each other, and are never written from the entities.
+ *
+ * Counters added to an existing database start at 0: they are rebuilt at startup when
+ * all of them are still 0 while the rows they count exist. That check runs once per database,
+ * then a maintenance flag skips it.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+@Slf4j
+public class CounterService {
+    
+    private final ApplicationRepository applicationRepository;
+    private final CandidateRepository candidateRepository;
+    private final CompanyRepository companyRepository;
+    private final JobRepository jobRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final MaintenanceFlagRepository flagRepository;
+    
+    /**
+     * Set once the counters were checked. Change it along with a new counter column, for the
+     * databases that already have data to be checked again.
+     */
+    static final String COUNTERS_CHECKED_FLAG = "counters-checked-1";
+    
+    /**
+     * True when a counter column is 0 everywhere although there is something to count, which
+     * only happens when ddl-auto just added it. Each check stops at the first counted row.
+     */
+    private static final String COUNTERS_MISSING_SQL =
+            "SELECT CASE WHEN " +
+            missing("application_comments", "applications", "comment_count") + " OR " +
+            missing("application_comments WHERE rating IS NOT NULL", "applications", "rating_count") + " OR " +
+            missing("applications", "candidates", "application_count") + " OR " +
+            missing("application_comments", "candidates", "comment_count") + " OR " +
+            missing("application_comments WHERE rating IS NOT NULL", "candidates", "rating_count") + " OR " +
+            missing("applications WHERE company_id IS NOT NULL", "companies", "application_count") + " OR " +
+            missing("applications WHERE job_id IS NOT NULL", "jobs", "application_count") + " OR " +
+            missing("application_comments", "users", "comment_count") +
+            " THEN 1 ELSE 0 END";
+    
+    @Value("${cvscreen.counters.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            rebuild();
+        } else if (flagRepository.existsById(COUNTERS_CHECKED_FLAG)) {
+            return;
+        } else if (countersMissing()) {
+            log.info("Counter columns were just added to existing data, rebuilding them");
+            rebuild();
+        }
+        flagRepository.save(new MaintenanceFlag(COUNTERS_CHECKED_FLAG));
+    }
+    
+    boolean countersMissing() {
+        Integer missing = jdbcTemplate.queryForObject(COUNTERS_MISSING_SQL, Integer.class);
+        return missing != null && missing == 1;
+    }
+    
+    /**
+     * Recomputes every counter from the applications and comments
+     *
+     * @return number of rows updated per table
+     */
+    public Map<String, Integer> rebuild() {
+        long start = System.currentTimeMillis();
+        Map<String, Integer> updated = new LinkedHashMap<>();
+        // Applications first, candidate statistics are summed from them
+        updated.put("applications", applicationRepository.recountAllCommentStatistics());
+        updated.put("candidates", candidateRepository.recountAllStatistics());
+        updated.put("companies", companyRepository.recountAllApplications());
+        updated.put("jobs", jobRepository.recountAllApplications());
+        updated.put("users", userRepository.recountAllComments());
+        log.info("Counters rebuilt in {} ms: {}", System.currentTimeMillis() - start, updated);
+        return updated;
+    }
+    
+    public void commentAdded(ApplicationComment comment) {
+        commentChanged(comment, 1, ratingOf(comment.getRating()), countOf(comment.getRating()));
+    }
+    
+    /**
+     * Call with the rating the comment had before the update
+     */
+    public void commentRatingChanged(ApplicationComment comment, Integer previousRating) {
+        long ratingSum = ratingOf(comment.getRating()) - ratingOf(previousRating);
+        long ratings = countOf(comment.getRating()) - countOf(previousRating);
+        if (ratingSum != 0 || ratings != 0) {
+            commentChanged(comment, 0, ratingSum, ratings);
+        }
+    }
+    
+    /**
+     * Call before the comments are deleted
+     */
+    public void commentsRemoved(Collection<ApplicationComment> comments) {
+        for (ApplicationComment comment : comments) {
+            commentChanged(comment, -1, -ratingOf(comment.getRating()), -countOf(comment.getRating()));
+        }
+    }
+    
+    public void applicationAdded(Application application) {
+        candidateChanged(application.getCandidate(), application, 1);
+        companyChanged(application.getCompany(), 1);
+        jobChanged(application.getJob(), 1);
+    }
+    
+    /**
+     * Batch version of applicationAdded for applications created without comments.
+     * Targets receiving the same number of applications are updated together, so an
+     * import batch usually costs one statement per table.
+     */
+    public void applicationsAdded(Collection<Application> applications) {
+        Map<Long, Long> byCandidate = new HashMap<>();
+        Map<Long, Long> byCompany = new HashMap<>();
+        Map<Long, Long> byJob = new HashMap<>();
+        for (Application application : applications) {
+            byCandidate.merge(application.getCandidate().getId(), 1L, Long::sum);
+            if (application.getCompany() != null) {
+                byCompany.merge(application.getCompany().getId(), 1L, Long::sum);
+            }
+            if (application.getJob() != null) {
+                byJob.merge(application.getJob().getId(), 1L, Long::sum);
+            }
+        }
+        groupByCount(byCandidate).forEach((count, ids) -> candidateRepository.addApplications(ids, count));
+        groupByCount(byCompany).forEach((count, ids) -> companyRepository.addApplications(ids, count));
+        groupByCount(byJob).forEach((count, ids) -> jobRepository.addApplications(ids, count));
+    }
+    
+    /**
+     * Moves the counters of an application whose candidate, company or job changed.
+     * Call with the values it had before the update.
+     */
+    public void applicationMoved(Application application, Candidate previousCandidate,
+                                 Company previousCompany, Job previousJob) {
+        if (!previousCandidate.getId().equals(application.getCandidate().getId())) {
+            candidateChanged(previousCandidate, application, -1);
+            candidateChanged(application.getCandidate(), application, 1);
+        }
+        if (!sameId(previousCompany != null ? previousCompany.getId() : null,
+                application.getCompany() != null ? application.getCompany().getId() : null)) {
+            companyChanged(previousCompany, -1);
+            companyChanged(application.getCompany(), 1);
+        }
+        if (!sameId(previousJob != null ? previousJob.getId() : null,
+                application.getJob() != null ? application.getJob().getId() : null)) {
+            jobChanged(previousJob, -1);
+            jobChanged(application.getJob(), 1);
+        }
+    }
+    
+    /**
+     * Call before the applications are deleted, their comments are removed with them
+     */
+    public void applicationsRemoved(Collection<Application> applications) {
+        Map<Long, Long> commentsByUser = new LinkedHashMap<>();
+        for (Application application : applications) {
+            candidateChanged(application.getCandidate(), application, -1);
+            companyChanged(application.getCompany(), -1);
+            jobChanged(application.getJob(), -1);
+            for (ApplicationComment comment : application.getComments()) {
+                commentsByUser.merge(comment.getUser().getId(), 1L, Long::sum);
+            }
+        }
+        commentsByUser.forEach((userId, comments) -> userRepository.addComments(userId, -comments));
+    }
+    
+    /**
+     * Recomputes the counters of the candidates applications were moved to
+     */
+    public void candidatesMerged(Long targetCandidateId) {
+        candidateRepository.recountStatistics(List.of(targetCandidateId));
+    }
+    
+    /**
+     * Recomputes the counter of the company applications were moved to
+     */
+    public void companiesMerged(Long targetCompanyId) {
+        companyRepository.recountApplications(List.of(targetCompanyId));
+    }
+    
+    private void commentChanged(ApplicationComment comment, long comments, long ratingSum, long ratings) {
+        Application application = comment.getApplication();
+        applicationRepository.addCommentStatistics(application.getId(), comments, ratingSum, ratings);
+        candidateRepository.addStatistics(application.getCandidate().getId(), 0, comments, ratingSum, ratings);
+        if (comments != 0) {
+            userRepository.addComments(comment.getUser().getId(), comments);
+        }
+    }
+    
+    private void candidateChanged(Candidate candidate, Application application, int sign) {
+        candidateRepository.addStatistics(candidate.getId(), sign,
+                sign * application.getCommentCount(), sign * application.getRatingSum(),
+                sign * application.getRatingCount());
+    }
+    
+    private void companyChanged(Company company, int sign) {
+        if (company != null) {
+            companyRepository.addApplications(company.getId(), sign);
+        }
+    }
+    
+    private void jobChanged(Job job, int sign) {
+        if (job != null) {
+            jobRepository.addApplications(job.getId(), sign);
+        }
+    }
+    
+    private static String missing(String counted, String table, String counter) {
+        return "(EXISTS (SELECT 1 FROM " + counted + ") AND NOT EXISTS (SELECT 1 FROM " + table +
+               " WHERE " + counter + " > 0))";
+    }
+    
+    private static Map<Long, List<Long>> groupByCount(Map<Long, Long> countsById) {
+        Map<Long, List<Long>> idsByCount = new HashMap<>();
+        countsById.forEach((id, count) -> idsByCount.computeIfAbsent(count, key -> new ArrayList<>()).add(id));
+        return idsByCount;
+    }
+    
+    private static long ratingOf(Integer rating) {
+        return rating != null ? rating : 0;
+    }
+    
+    private static long countOf(Integer rating) {
+        return rating != null ? 1 : 0;
+    }
+    
+    private static boolean sameId(Long first, Long second) {
+        return first == null ? second == null : first.equals(second);
+    }
+}
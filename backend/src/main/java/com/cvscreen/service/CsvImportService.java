@@ -0,0 +1,440 @@
+package com.cvscreen.service;
+
+import com.cvscreen.entity.Application;
+import com.cvscreen.entity.Candidate;
+import com.cvscreen.service.ProUnityImportService.ImportError;
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.CSVWriter;
+import com.opencsv.exceptions.CsvValidationException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bulk import of applications exported by other ATS tools as CSV. The rows are streamed
+ * with opencsv into a temporary staging table through the PostgreSQL COPY protocol, then
+ * candidates, companies, jobs and applications are resolved and inserted with a handful of
+ * set-based statements, all in one transaction. Requires PostgreSQL.
+ *
+ * The file needs a header row. Columns are matched by name, ignoring case, spaces and
+ * underscores; first_name and last_name are required, the others optional:
+ * contract_type, company, job_reference, job_title, role_category, daily_rate,
+ * application_date (yyyy-MM-dd or dd/MM/yyyy), status (an application status, CV_RECEIVED
+ * if empty), conclusion, external_id. Unknown columns are ignored.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CsvImportService {
+    
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int COPY_BUFFER_ROWS = 1000;
+    // Above this many new candidates, the duplicate index is rebuilt instead of updated per candidate
+    private static final int INDEX_UPDATE_LIMIT = 1000;
+    
+    private static final List<String> COLUMNS = List.of(
+            "first_name", "last_name", "contract_type", "company", "job_reference", "job_title",
+            "role_category", "daily_rate", "application_date", "status", "conclusion", "external_id");
+    
+    private static final Map<String, Integer> COLUMN_LENGTHS = Map.of(
+            "first_name", 255, "last_name", 255, "contract_type", 16, "company", 255,
+            "job_reference", 255, "job_title", 255, "role_category", 255, "external_id", 255);
+    
+    private static final DateTimeFormatter FRENCH_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    
+    // Same normalization as ImportResolutionCache.normalizeCompanyName, applied by the database
+    private static final String COMPANY_KEY = "lower(regexp_replace(btrim(%s), '\\s+', ' ', 'g'))";
+    
+    private static final String CREATE_STAGING_SQL =
+            "CREATE TEMPORARY TABLE csv_import_rows (" +
+            "line_number BIGINT PRIMARY KEY, first_name TEXT NOT NULL, last_name TEXT NOT NULL, " +
+            "contract_type TEXT, company_name TEXT, job_reference TEXT, job_title TEXT, " +
+            "role_category TEXT NOT NULL, daily_rate NUMERIC(10, 2), application_date DATE, " +
+            "status TEXT NOT NULL, conclusion TEXT, external_id TEXT, " +
+            "company_key TEXT, candidate_id BIGINT, company_id BIGINT, job_id BIGINT) ON COMMIT DROP";
+    
+    private static final String COPY_SQL =
+            "COPY csv_import_rows (line_number, first_name, last_name, contract_type, company_name, " +
+            "job_reference, job_title, role_category, daily_rate, application_date, status, conclusion, " +
+            "external_id) FROM STDIN WITH (FORMAT csv)";
+    
+    private static final String INSERT_COMPANIES_SQL =
+            "INSERT INTO companies (id, name, created_at) " +
+            "SELECT nextval('companies_seq'), n.company_name, now() FROM (" +
+            "  SELECT DISTINCT ON (company_key) company_key, company_name, line_number FROM csv_import_rows " +
+            "  WHERE company_key IS NOT NULL ORDER BY company_key, line_number) n " +
+            "WHERE NOT EXISTS (SELECT 1 FROM companies co WHERE " + COMPANY_KEY.formatted("co.name") + " = n.company_key) " +
+            "ORDER BY n.line_number " +
+            "ON CONFLICT (name) DO NOTHING";
+    
+    private static final String RESOLVE_COMPANIES_SQL =
+            "UPDATE csv_import_rows r SET company_id = co.id FROM (" +
+            "  SELECT DISTINCT ON (company_key) id, company_key FROM (" +
+            "    SELECT id, " + COMPANY_KEY.formatted("name") + " AS company_key FROM companies) keyed " +
+            "  ORDER BY company_key, id) co " +
+            "WHERE co.company_key = r.company_key";
+    
+    private static final String INSERT_JOBS_SQL =
+            "INSERT INTO jobs (reference, title, category, status, source, created_at, updated_at) " +
+            "SELECT n.job_reference, COALESCE(n.job_title, 'Unknown'), 'Unknown', 'OPEN', 'CSV import', now(), now() " +
+            "FROM (SELECT DISTINCT ON (job_reference) job_reference, job_title, line_number FROM csv_import_rows " +
+            "  WHERE job_reference IS NOT NULL ORDER BY job_reference, line_number) n " +
+            "WHERE NOT EXISTS (SELECT 1 FROM jobs j WHERE j.reference = n.job_reference) " +
+            "ORDER BY n.line_number " +
+            "ON CONFLICT (reference) DO NOTHING";
+    
+    private static final String RESOLVE_JOBS_SQL =
+            "UPDATE csv_import_rows r SET job_id = j.id FROM jobs j WHERE j.reference = r.job_reference";
+    
+    // First contract type given for each name, in file order
+    private static final String NAMES_SQL =
+            "SELECT first_name, last_name, MIN(line_number) AS first_line, " +
+            "(array_agg(contract_type ORDER BY line_number) FILTER (WHERE contract_type IS NOT NULL))[1] AS contract_type " +
+            "FROM csv_import_rows GROUP BY first_name, last_name";
+    
+    private static final String INSERT_CANDIDATES_SQL =
+            "WITH created AS (" +
+            "  INSERT INTO candidates (id, first_name, last_name, contract_type, created_at, updated_at) " +
+            "  SELECT nextval('candidates_seq'), n.first_name, n.last_name, n.contract_type, now(), now() " +
+            "  FROM (" + NAMES_SQL + ") n " +
+            "  WHERE NOT EXISTS (SELECT 1 FROM candidates c WHERE c.first_name = n.first_name AND c.last_name = n.last_name) " +
+            "  ORDER BY n.first_line " +
+            "  RETURNING id, first_name, last_name) " +
+            "INSERT INTO csv_import_new_candidates SELECT id, first_name, last_name FROM created";
+    
+    // The oldest candidate with the name, as findOrCreateCandidatesWithContractType would pick
+    private static final String RESOLVE_CANDIDATES_SQL =
+            "UPDATE csv_import_rows r SET candidate_id = c.id FROM (" +
+            "  SELECT DISTINCT ON (first_name, last_name) id, first_name, last_name FROM candidates " +
+            "  WHERE (first_name, last_name) IN (SELECT first_name, last_name FROM csv_import_rows) " +
+            "  ORDER BY first_name, last_name, id) c " +
+            "WHERE c.first_name = r.first_name AND c.last_name = r.last_name";
+    
+    private static final String FILL_CONTRACT_TYPES_SQL =
+            "UPDATE candidates c SET contract_type = n.contract_type, updated_at = now() FROM (" +
+            "  SELECT candidate_id, " +
+            "  (array_agg(contract_type ORDER BY line_number) FILTER (WHERE contract_type IS NOT NULL))[1] AS contract_type " +
+            "  FROM csv_import_rows GROUP BY candidate_id) n " +
+            "WHERE c.id = n.candidate_id AND c.contract_type IS NULL AND n.contract_type IS NOT NULL";
+    
+    private static final String INSERT_APPLICATIONS_SQL =
+            "INSERT INTO applications (id, candidate_id, job_id, company_id, role_category, daily_rate, " +
+            "application_date, status, conclusion, external_id, created_at, updated_at) " +
+            "SELECT nextval('applications_seq'), candidate_id, job_id, company_id, role_category, daily_rate, " +
+            "COALESCE(application_date, CURRENT_DATE), status, conclusion, external_id, now(), now() " +
+            "FROM csv_import_rows ORDER BY line_number";
+    
+    private static final String COUNT_APPLICATIONS_SQL =
+            "UPDATE %1$s t SET application_count = t.application_count + n.applications FROM (" +
+            "  SELECT %2$s AS target_id, COUNT(*) AS applications FROM csv_import_rows " +
+            "  WHERE %2$s IS NOT NULL GROUP BY %2$s) n " +
+            "WHERE t.id = n.target_id";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final CandidateDuplicateIndexService duplicateIndexService;
+    private final SuggestionService suggestionService;
+    
+    /**
+     * @param source CSV file, UTF-8
+     * @param separator Field separator, usually ',' or ';'
+     */
+    public CsvImportResult importCsv(InputStreamSource source, String filename, char separator) throws IOException {
+        long start = System.currentTimeMillis();
+        log.info("=== Starting CSV import of {} ===", filename);
+        CsvImportResult result = new CsvImportResult();
+        
+        Long createdCandidates = new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.execute(CREATE_STAGING_SQL);
+            jdbcTemplate.execute("CREATE TEMPORARY TABLE csv_import_new_candidates " +
+                    "(id BIGINT, first_name TEXT, last_name TEXT) ON COMMIT DROP");
+            
+            long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                if (!connection.isWrapperFor(PGConnection.class)) {
+                    throw new IllegalStateException("CSV import requires PostgreSQL");
+                }
+                try (Reader reader = new InputStreamReader(source.getInputStream(), StandardCharsets.UTF_8)) {
+                    return copyRows(connection.unwrap(PGConnection.class), reader, separator, result);
+                } catch (IOException | CsvValidationException e) {
+                    throw new IllegalArgumentException("Could not read CSV: " + e.getMessage(), e);
+                }
+            });
+            log.info("{} rows copied to staging in {} ms", copied, System.currentTimeMillis() - start);
+            
+            jdbcTemplate.execute("CREATE INDEX ON csv_import_rows (external_id)");
+            jdbcTemplate.execute("ANALYZE csv_import_rows");
+            
+            // Applications already imported, or earlier in the file
+            int known = jdbcTemplate.update("DELETE FROM csv_import_rows r USING applications a " +
+                    "WHERE a.external_id = r.external_id");
+            int repeated = jdbcTemplate.update("DELETE FROM csv_import_rows r USING csv_import_rows o " +
+                    "WHERE o.external_id = r.external_id AND o.line_number < r.line_number");
+            result.skippedCount = known + repeated;
+            
+            jdbcTemplate.update("UPDATE csv_import_rows SET company_key = " + COMPANY_KEY.formatted("company_name") +
+                    " WHERE company_name IS NOT NULL");
+            result.companiesCreated = jdbcTemplate.update(INSERT_COMPANIES_SQL);
+            jdbcTemplate.update(RESOLVE_COMPANIES_SQL);
+            
+            result.jobsCreated = jdbcTemplate.update(INSERT_JOBS_SQL);
+            jdbcTemplate.update(RESOLVE_JOBS_SQL);
+            
+            result.candidatesCreated = jdbcTemplate.update(INSERT_CANDIDATES_SQL);
+            jdbcTemplate.update(RESOLVE_CANDIDATES_SQL);
+            jdbcTemplate.update(FILL_CONTRACT_TYPES_SQL);
+            
+            result.importedCount = jdbcTemplate.update(INSERT_APPLICATIONS_SQL);
+            jdbcTemplate.update(COUNT_APPLICATIONS_SQL.formatted("candidates", "candidate_id"));
+            jdbcTemplate.update(COUNT_APPLICATIONS_SQL.formatted("companies", "company_id"));
+            jdbcTemplate.update(COUNT_APPLICATIONS_SQL.formatted("jobs", "job_id"));
+            
+            if (result.candidatesCreated <= INDEX_UPDATE_LIMIT) {
+                duplicateIndexService.candidatesSaved(jdbcTemplate.query(
+                        "SELECT id, first_name, last_name FROM csv_import_new_candidates", (row, rowNumber) -> {
+                            Candidate candidate = new Candidate();
+                            candidate.setId(row.getLong(1));
+                            candidate.setFirstName(row.getString(2));
+                            candidate.setLastName(row.getString(3));
+                            return candidate;
+                        }));
+            }
+            return result.candidatesCreated;
+        });
+        
+        if (createdCandidates > INDEX_UPDATE_LIMIT) {
+            log.info("{} candidates created, rebuilding the duplicate index", createdCandidates);
+            try {
+                duplicateIndexService.rebuild();
+            } catch (IllegalStateException e) {
+                log.info("Duplicate index not rebuilt: {}", e.getMessage());
+            }
+        }
+        // Rows were inserted with plain SQL, the suggestions only learn about them by reloading
+        if (result.candidatesCreated + result.companiesCreated + result.jobsCreated > 0) {
+            suggestionService.reload();
+        }
+        
+        result.durationMillis = System.currentTimeMillis() - start;
+        log.info("=== CSV import completed in {} ms: {} imported, {} skipped, {} failed, " +
+                        "{} candidates, {} companies and {} jobs created ===",
+                result.durationMillis, result.importedCount, result.skippedCount, result.failedCount,
+                result.candidatesCreated, result.companiesCreated, result.jobsCreated);
+        return result;
+    }
+    
+    /**
+     * Streams the valid rows into the staging table, invalid ones are recorded and left out
+     *
+     * @return number of rows copied
+     */
+    private long copyRows(PGConnection connection, Reader reader, char separator, CsvImportResult result)
+            throws SQLException, IOException, CsvValidationException {
+        CSVReader csvReader = new CSVReaderBuilder(reader)
+                .withCSVParser(new CSVParserBuilder().withSeparator(separator).build())
+                .build();
+        String[] header = csvReader.readNext();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV file is empty");
+        }
+        Map<String, Integer> positions = mapHeader(header);
+        
+        CopyIn copyIn = connection.getCopyAPI().copyIn(COPY_SQL);
+        try {
+            StringWriter buffer = new StringWriter();
+            CSVWriter csvWriter = new CSVWriter(buffer, ',', CSVWriter.DEFAULT_QUOTE_CHARACTER,
+                    CSVWriter.DEFAULT_ESCAPE_CHARACTER, "\n");
+            int buffered = 0;
+            String[] record;
+            while ((record = csvReader.readNext()) != null) {
+                // Line the record ends on, quoted values can span lines
+                long lineNumber = csvReader.getLinesRead();
+                result.rowsRead++;
+                if (record.length == 1 && record[0].isBlank()) {
+                    result.rowsRead--;
+                    continue;
+                }
+                String[] row;
+                try {
+                    row = toStagingRow(record, positions, lineNumber);
+                } catch (IllegalArgumentException e) {
+                    result.addError(lineNumber, e.getMessage());
+                    continue;
+                }
+                // Unquoted empty fields are NULL for COPY, quotes are only written where needed
+                csvWriter.writeNext(row, false);
+                if (++buffered == COPY_BUFFER_ROWS) {
+                    writeToCopy(copyIn, csvWriter, buffer);
+                    buffered = 0;
+                }
+            }
+            writeToCopy(copyIn, csvWriter, buffer);
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+    
+    private static void writeToCopy(CopyIn copyIn, CSVWriter csvWriter, StringWriter buffer) throws SQLException, IOException {
+        csvWriter.flush();
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0) {
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+        }
+        buffer.getBuffer().setLength(0);
+    }
+    
+    private static Map<String, Integer> mapHeader(String[] header) {
+        Map<String, String> known = new HashMap<>();
+        for (String column : COLUMNS) {
+            known.put(headerKey(column), column);
+        }
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            // Excel adds a byte order mark
+            String name = i == 0 ? header[i].replace("\uFEFF", "") : header[i];
+            String column = known.get(headerKey(name));
+            if (column != null) {
+                positions.putIfAbsent(column, i);
+            }
+        }
+        if (!positions.containsKey("first_name") || !positions.containsKey("last_name")) {
+            throw new IllegalArgumentException("CSV header must have first_name and last_name columns");
+        }
+        return positions;
+    }
+    
+    private static String headerKey(String name) {
+        return name.trim().replace("_", "").replace(" ", "").toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Validates a record and returns it in COPY_SQL column order
+     *
+     * @throws IllegalArgumentException with the reason the record is rejected
+     */
+    private static String[] toStagingRow(String[] record, Map<String, Integer> positions, long lineNumber) {
+        Map<String, String> values = new HashMap<>();
+        for (Map.Entry<String, Integer> position : positions.entrySet()) {
+            String value = position.getValue() < record.length ? record[position.getValue()].trim() : "";
+            if (!value.isEmpty()) {
+                Integer maxLength = COLUMN_LENGTHS.get(position.getKey());
+                if (maxLength != null && value.length() > maxLength) {
+                    throw new IllegalArgumentException(position.getKey() + " longer than " + maxLength + " characters");
+                }
+                values.put(position.getKey(), value);
+            }
+        }
+        if (values.get("first_name") == null || values.get("last_name") == null) {
+            throw new IllegalArgumentException("Missing candidate name information");
+        }
+        String roleCategory = values.get("role_category");
+        if (roleCategory == null) {
+            roleCategory = values.getOrDefault("job_title", "Unknown");
+        }
+        return new String[] {
+                String.valueOf(lineNumber),
+                values.get("first_name"),
+                values.get("last_name"),
+                values.get("contract_type"),
+                values.get("company"),
+                values.get("job_reference"),
+                values.get("job_title"),
+                roleCategory,
+                parseDailyRate(values.get("daily_rate")),
+                parseDate(values.get("application_date")),
+                parseStatus(values.get("status")),
+                values.get("conclusion"),
+                values.get("external_id")
+        };
+    }
+    
+    private static String parseDailyRate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            BigDecimal rate = new BigDecimal(value.replace(" ", "").replace(',', '.'));
+            // NUMERIC(10, 2)
+            if (rate.abs().compareTo(new BigDecimal("100000000")) >= 0) {
+                throw new IllegalArgumentException("daily_rate out of range: " + value);
+            }
+            return rate.toPlainString();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid daily_rate: " + value);
+        }
+    }
+    
+    private static String parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return value.contains("/") ? LocalDate.parse(value, FRENCH_DATE).toString() : LocalDate.parse(value).toString();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid application_date: " + value);
+        }
+    }
+    
+    private static String parseStatus(String value) {
+        if (value == null) {
+            return Application.ApplicationStatus.CV_RECEIVED.name();
+        }
+        try {
+            return Application.ApplicationStatus.valueOf(
+                    value.trim().replace(' ', '_').replace('-', '_').toUpperCase(Locale.ROOT)).name();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown status: " + value);
+        }
+    }
+    
+    @Getter
+    public static class CsvImportResult {
+        private long rowsRead;
+        private long importedCount;
+        // Rows whose external_id was already imported, or appears earlier in the file
+        private long skippedCount;
+        private long failedCount;
+        private long candidatesCreated;
+        private long companiesCreated;
+        private long jobsCreated;
+        private long durationMillis;
+        // Rejected rows, the first MAX_REPORTED_ERRORS of them
+        private final List<ImportError> errors = new ArrayList<>();
+        
+        void addError(long lineNumber, String message) {
+            failedCount++;
+            // The count keeps going, the details are capped
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportError((int) lineNumber, message));
+            }
+        }
+    }
+}
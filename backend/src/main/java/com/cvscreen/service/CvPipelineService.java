@@ -0,0 +1,480 @@
+package com.cvscreen.service;
+
+import com.cvscreen.entity.Application;
+import com.cvscreen.entity.CvProcessing;
+import com.cvscreen.entity.CvProcessing.Stage;
+import com.cvscreen.exception.ResourceNotFoundException;
+import com.cvscreen.repository.CvProcessingRepository;
+import com.cvscreen.repository.CvTextRepository;
+import com.cvscreen.service.pipeline.CvPreviewRenderer;
+import com.cvscreen.service.pipeline.LanguageDetector;
+import com.cvscreen.service.pipeline.PipelineStage;
+import com.cvscreen.service.search.CvTextExtractor;
+import com.cvscreen.service.search.CvTextExtractor.ExtractedCv;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Work done on an uploaded CV after the upload returns, in stages: text extraction (page count,
+ * and the text saved in cv_texts for the search index of every instance), language detection,
+ * and a PNG preview of the first page. Each stage is a
+ * {@link PipelineStage} with its own threads and bounded queue, and waits for room in the next
+ * one, so that a slow stage holds back the others instead of piling CVs up in memory.
+ *
+ * The stage of each CV is saved in cv_processing, which is the queue that matters: an upload is
+ * only offered to the pipeline, and the sweep requeues the CVs not done (queue full, failed
+ * attempt, restart), at the pace of the pipeline. A CV failing max-attempts times at a stage
+ * stops there, until POST /api/maintenance/cv-pipeline/retry.
+ *
+ * Instances sharing the database share the work: the sweep claims the rows it queues (SELECT
+ * FOR UPDATE SKIP LOCKED, then a lease of lease-seconds renewed at each stage), and skips the
+ * rows leased by another instance. A lease that runs out, the instance being gone, lets any
+ * sweep take the CV again; results of a stage are only saved once, as they require its stage.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CvPipelineService {
+    
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int MAX_ERROR_LENGTH = 1000;
+    // Pending CVs read per query during a sweep
+    private static final int SWEEP_BATCH_SIZE = 500;
+    private static final List<Stage> PENDING_STAGES = List.of(Stage.EXTRACT, Stage.LANGUAGE, Stage.PREVIEW);
+    private static final List<Stage> EXTRACTED_STAGES = List.of(Stage.LANGUAGE, Stage.PREVIEW, Stage.DONE);
+    
+    private final CvProcessingRepository processingRepository;
+    private final CvTextRepository textRepository;
+    private final CvStorageService cvStorageService;
+    private final PlatformTransactionManager transactionManager;
+    
+    @Value("${cvscreen.cv-pipeline.extract.workers:2}")
+    private int extractWorkers;
+    
+    @Value("${cvscreen.cv-pipeline.extract.queue-capacity:100}")
+    private int extractQueueCapacity;
+    
+    @Value("${cvscreen.cv-pipeline.language.workers:1}")
+    private int languageWorkers;
+    
+    @Value("${cvscreen.cv-pipeline.language.queue-capacity:100}")
+    private int languageQueueCapacity;
+    
+    @Value("${cvscreen.cv-pipeline.preview.workers:1}")
+    private int previewWorkers;
+    
+    @Value("${cvscreen.cv-pipeline.preview.queue-capacity:20}")
+    private int previewQueueCapacity;
+    
+    @Value("${cvscreen.cv-pipeline.preview-width:600}")
+    private int previewWidth;
+    
+    @Value("${cvscreen.cv-pipeline.sweep-interval-seconds:60}")
+    private long sweepIntervalSeconds;
+    
+    @Value("${cvscreen.cv-pipeline.lease-seconds:600}")
+    private long leaseSeconds;
+    
+    // Owner of the rows this instance claims
+    private final String instanceId = UUID.randomUUID().toString();
+    
+    private PipelineStage<CvJob> extractStage;
+    private PipelineStage<CvJob> languageStage;
+    private PipelineStage<CvJob> previewStage;
+    // Jobs queued or being handled, by application and CV, so that a sweep does not queue them twice
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private TransactionTemplate transaction;
+    private ScheduledExecutorService sweepExecutor;
+    private volatile LocalDateTime lastSweepAt;
+    
+    @PostConstruct
+    void start() {
+        transaction = new TransactionTemplate(transactionManager);
+        extractStage = new PipelineStage<>("extract", extractWorkers, extractQueueCapacity,
+                job -> handle(job, Stage.EXTRACT, this::extract));
+        languageStage = new PipelineStage<>("language", languageWorkers, languageQueueCapacity,
+                job -> handle(job, Stage.LANGUAGE, this::detectLanguage));
+        previewStage = new PipelineStage<>("preview", previewWorkers, previewQueueCapacity,
+                job -> handle(job, Stage.PREVIEW, this::renderPreview));
+        stages().forEach(PipelineStage::start);
+        log.info("CV pipeline started, instance {}", instanceId);
+    }
+    
+    /**
+     * Sweeps once the application is ready, then every sweep-interval-seconds
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startSweeps() {
+        sweepExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cv-pipeline-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runnable sweep = () -> {
+            try {
+                sweep();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("CV pipeline sweep failed", e);
+            }
+        };
+        if (sweepIntervalSeconds > 0) {
+            sweepExecutor.scheduleWithFixedDelay(sweep, 0, sweepIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            sweepExecutor.execute(sweep);
+        }
+    }
+    
+    @PreDestroy
+    void stop() {
+        if (sweepExecutor != null) {
+            sweepExecutor.shutdownNow();
+        }
+        stages().forEach(PipelineStage::stop);
+    }
+    
+    /**
+     * Call once a new CV is set on the application: its processing starts over, and it is
+     * queued once the transaction commits. A full queue is left to the next sweep.
+     */
+    @Transactional
+    public void cvUploaded(Application application) {
+        LocalDateTime now = LocalDateTime.now();
+        Long applicationId = application.getId();
+        String cvFile = application.getCvFilePath();
+        String fileName = application.getCvFileName();
+        LocalDateTime leaseUntil = leaseUntil(now);
+        if (processingRepository.restart(applicationId, cvFile, fileName, Stage.EXTRACT, instanceId, leaseUntil,
+                now) == 0) {
+            processingRepository.insertIfAbsent(applicationId, cvFile, fileName, instanceId, leaseUntil, now);
+        }
+        
+        CvJob job = new CvJob(applicationId, cvFile, fileName);
+        TransactionCallbacks.afterCommit(() -> {
+            if (!inFlight.add(job.key())) {
+                return;
+            }
+            if (!extractStage.offer(job)) {
+                inFlight.remove(job.key());
+                transaction.executeWithoutResult(status ->
+                        processingRepository.release(applicationId, cvFile, instanceId));
+                log.info("CV pipeline full, the CV of application {} waits for the next sweep", applicationId);
+            }
+        });
+    }
+    
+    /**
+     * Claims and queues the CVs not done and not leased, waiting for room in the stage queues.
+     * The CVs without processing state (uploaded before the pipeline) are added first, and
+     * those moved by the legacy file migration or without saved text start over. This is how
+     * the CV texts of existing applications reach the search index.
+     */
+    public void sweep() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        int[] added = transaction.execute(status -> new int[] {
+                processingRepository.insertMissing(now),
+                processingRepository.restartMoved(Stage.EXTRACT, now),
+                processingRepository.restartWithoutText(EXTRACTED_STAGES, Stage.EXTRACT, now)
+        });
+        
+        // Failed attempts are retried one sweep later
+        LocalDateTime cutoff = sweepIntervalSeconds > 0 ? now.minusSeconds(sweepIntervalSeconds) : now;
+        int queued = 0;
+        long afterId = 0;
+        List<CvProcessing> batch;
+        do {
+            long from = afterId;
+            batch = transaction.execute(status -> claim(cutoff, from));
+            for (CvProcessing processing : batch) {
+                afterId = processing.getApplicationId();
+                CvJob job = new CvJob(processing.getApplicationId(), processing.getCvFilePath(),
+                        processing.getFileName());
+                if (!inFlight.add(job.key())) {
+                    continue;
+                }
+                try {
+                    stageOf(processing.getStage()).put(job);
+                } catch (InterruptedException e) {
+                    inFlight.remove(job.key());
+                    throw e;
+                }
+                queued++;
+            }
+        } while (batch.size() == SWEEP_BATCH_SIZE);
+        
+        lastSweepAt = now;
+        if (added[0] > 0 || added[1] > 0 || added[2] > 0 || queued > 0) {
+            log.info("CV pipeline sweep in {} ms: {} CVs added, {} moved, {} without text, {} queued",
+                    System.currentTimeMillis() - start, added[0], added[1], added[2], queued);
+        }
+    }
+    
+    /**
+     * Locks a batch of claimable CVs after the id, skipping those another instance is
+     * claiming, and leases them to this instance
+     */
+    private List<CvProcessing> claim(LocalDateTime cutoff, long afterId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<CvProcessing> batch = processingRepository.lockClaimable(PENDING_STAGES, cutoff, now, afterId,
+                PageRequest.of(0, SWEEP_BATCH_SIZE));
+        if (!batch.isEmpty()) {
+            processingRepository.claim(batch.stream().map(CvProcessing::getApplicationId).toList(), instanceId,
+                    leaseUntil(now));
+        }
+        return batch;
+    }
+    
+    /**
+     * Failed CVs start over at the next sweep
+     *
+     * @return the number of CVs
+     */
+    @Transactional
+    public int retryFailed() {
+        int retried = processingRepository.retryFailed(Stage.FAILED, Stage.EXTRACT, LocalDateTime.now());
+        log.info("CV pipeline: {} failed CVs retried", retried);
+        return retried;
+    }
+    
+    /**
+     * Queue depth and throughput per stage, and CVs per stage
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stageStats = new LinkedHashMap<>();
+        stages().forEach(stage -> stageStats.put(stage.getName(), stage.getStats()));
+        Map<String, Long> cvs = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            cvs.put(stage.name(), 0L);
+        }
+        for (Object[] row : processingRepository.countByStage()) {
+            cvs.put(((Stage) row[0]).name(), (Long) row[1]);
+        }
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("stages", stageStats);
+        stats.put("inFlight", inFlight.size());
+        stats.put("cvs", cvs);
+        stats.put("lastSweepAt", lastSweepAt);
+        return stats;
+    }
+    
+    /**
+     * Stage and results of the CV of an application
+     *
+     * @throws ResourceNotFoundException when the application has no CV
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getProcessing(Long applicationId) {
+        CvProcessing processing = findProcessing(applicationId);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("applicationId", processing.getApplicationId());
+        result.put("stage", processing.getStage());
+        result.put("attempts", processing.getAttempts());
+        result.put("error", processing.getError());
+        result.put("pageCount", processing.getPageCount());
+        result.put("language", processing.getLanguage());
+        result.put("preview", processing.getPreviewKey() != null);
+        result.put("updatedAt", processing.getUpdatedAt());
+        return result;
+    }
+    
+    /**
+     * PNG preview of the first page of the CV
+     *
+     * @throws ResourceNotFoundException when the CV has no preview (yet)
+     */
+    @Transactional(readOnly = true)
+    public Resource getPreview(Long applicationId) throws IOException {
+        String previewKey = findProcessing(applicationId).getPreviewKey();
+        long size = previewKey == null ? -1 : cvStorageService.size(previewKey);
+        if (size < 0) {
+            throw new ResourceNotFoundException("No CV preview for application: " + applicationId);
+        }
+        return cvStorageService.resource(previewKey, size);
+    }
+    
+    private CvProcessing findProcessing(Long applicationId) {
+        return processingRepository.findById(applicationId)
+                .orElseThrow(() -> new ResourceNotFoundException("No CV for application: " + applicationId));
+    }
+    
+    /**
+     * Runs a stage on the job, then hands it to the next stage or lets it leave the pipeline.
+     * A failure is saved as an attempt; the sweep requeues the CV.
+     */
+    private boolean handle(CvJob job, Stage stage, StageWork work) throws InterruptedException {
+        boolean handedOver = false;
+        try {
+            PipelineStage<CvJob> next = work.run(job);
+            if (next != null) {
+                next.put(job);
+                handedOver = true;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            String error = e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+            log.warn("CV pipeline: {} failed for CV {} of application {}: {}", stage, job.cvFile,
+                    job.applicationId, error);
+            transaction.executeWithoutResult(status -> processingRepository.failAttempt(job.applicationId,
+                    job.cvFile, stage, error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error,
+                    MAX_ATTEMPTS, Stage.FAILED, LocalDateTime.now()));
+            return false;
+        } finally {
+            if (!handedOver) {
+                inFlight.remove(job.key());
+            }
+        }
+    }
+    
+    private PipelineStage<CvJob> extract(CvJob job) throws IOException {
+        ExtractedCv cv = cvStorageService.readLocally(job.cvFile,
+                file -> CvTextExtractor.read(file, job.typedName()));
+        job.text = cv == null ? null : cv.getText();
+        job.textRead = true;
+        Integer pageCount = cv == null ? null : cv.getPageCount();
+        boolean advanced = Boolean.TRUE.equals(transaction.execute(status -> {
+            processingRepository.setPageCount(job.applicationId, job.cvFile, pageCount);
+            if (!advance(job, Stage.EXTRACT, Stage.LANGUAGE)) {
+                return false;
+            }
+            // Indexed by every instance from there
+            textRepository.saveText(job.applicationId, job.cvFile, job.text);
+            return true;
+        }));
+        return advanced ? languageStage : null;
+    }
+    
+    private PipelineStage<CvJob> detectLanguage(CvJob job) throws IOException {
+        // Requeued by a sweep: the text is read again
+        String text = job.textRead ? job.text
+                : cvStorageService.readLocally(job.cvFile, file -> CvTextExtractor.extract(file, job.typedName()));
+        job.text = null;
+        String language = LanguageDetector.detect(text);
+        boolean advanced = Boolean.TRUE.equals(transaction.execute(status -> {
+            processingRepository.setLanguage(job.applicationId, job.cvFile, language);
+            return advance(job, Stage.LANGUAGE, Stage.PREVIEW);
+        }));
+        return advanced ? previewStage : null;
+    }
+    
+    private PipelineStage<CvJob> renderPreview(CvJob job) throws IOException {
+        String previewKey = CvPreviewRenderer.supports(job.typedName()) ? CvStorageService.previewKey(job.cvFile) : null;
+        // Shared by the applications with the same CV
+        if (previewKey != null && cvStorageService.size(previewKey) < 0) {
+            Path temp = cvStorageService.createTempFile();
+            try {
+                cvStorageService.readLocally(job.cvFile, file -> {
+                    CvPreviewRenderer.render(file, previewWidth, temp);
+                    return null;
+                });
+                cvStorageService.putDerived(previewKey, temp);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        transaction.executeWithoutResult(status -> {
+            processingRepository.setPreviewKey(job.applicationId, job.cvFile, previewKey);
+            advance(job, Stage.PREVIEW, Stage.DONE);
+        });
+        return null;
+    }
+    
+    /**
+     * Renews the lease, or releases it when the CV is done
+     *
+     * @return false when the application has another CV or is gone, the job is dropped
+     */
+    private boolean advance(CvJob job, Stage current, Stage next) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean done = next == Stage.DONE;
+        return processingRepository.advance(job.applicationId, job.cvFile, current, next, done ? null : instanceId,
+                done ? null : leaseUntil(now), now) > 0;
+    }
+    
+    private LocalDateTime leaseUntil(LocalDateTime now) {
+        return now.plusSeconds(leaseSeconds);
+    }
+    
+    private PipelineStage<CvJob> stageOf(Stage stage) {
+        return switch (stage) {
+            case EXTRACT -> extractStage;
+            case LANGUAGE -> languageStage;
+            case PREVIEW -> previewStage;
+            default -> throw new IllegalArgumentException("No pipeline stage for " + stage);
+        };
+    }
+    
+    private List<PipelineStage<CvJob>> stages() {
+        return List.of(extractStage, languageStage, previewStage);
+    }
+    
+    @FunctionalInterface
+    private interface StageWork {
+        /**
+         * @return the stage to hand the job to, null when it leaves the pipeline
+         */
+        PipelineStage<CvJob> run(CvJob job) throws IOException;
+    }
+    
+    /**
+     * A CV going through the pipeline; the text is kept between extraction and language detection
+     */
+    private static class CvJob {
+        private final Long applicationId;
+        private final String cvFile;
+        private final String fileName;
+        private String text;
+        private boolean textRead;
+        
+        CvJob(Long applicationId, String cvFile, String fileName) {
+            this.applicationId = applicationId;
+            this.cvFile = cvFile;
+            this.fileName = fileName;
+        }
+        
+        String key() {
+            return applicationId + ":" + cvFile;
+        }
+        
+        /**
+         * Name giving the format, stored files have no extension
+         */
+        String typedName() {
+            return fileName != null ? fileName : cvFile;
+        }
+        
+        @Override
+        public String toString() {
+            return "CV " + cvFile + " of application " + applicationId;
+        }
+    }
+}
@@ -0,0 +1,553 @@
+package com.cvscreen.service;
+
+import com.cvscreen.entity.Application;
+import com.cvscreen.entity.CvText;
+import com.cvscreen.repository.ApplicationRepository;
+import com.cvscreen.repository.CvTextRepository;
+import com.cvscreen.specification.ApplicationSpecification;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Full-text search over the uploaded CVs, with a Lucene index kept on disk by each instance.
+ *
+ * The text of an uploaded CV is extracted once by the CV pipeline (CvPipelineService) and
+ * saved in cv_texts. Every follow-interval-seconds, each instance applies the rows changed since
+ * its last pass to its index, then commits once; how far it got is saved with the commit, so a
+ * new index starts from the first row. Rows are read again for follow-overlap-seconds, for the
+ * transactions that committed late. Documents of deleted applications are removed by the
+ * instance deleting them; searches never return them, and a rebuild removes them everywhere.
+ * Searches rank the best max-hits CVs, then keep the applications matching the filters.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CvSearchService {
+    
+    private static final String ID_FIELD = "id";
+    private static final String ID_VALUE_FIELD = "idValue";
+    private static final String CONTENT_FIELD = "content";
+    // Ids checked against the database per query
+    private static final int FILTER_CHUNK_SIZE = 1000;
+    // Changed texts read per query
+    private static final int FOLLOW_BATCH_SIZE = 500;
+    // Documents written between two commits of a long pass (a rebuild, a new index)
+    private static final int COMMIT_INTERVAL = 1000;
+    // Commit user data: updatedAt of the last cv_texts row applied
+    private static final String FOLLOWED_UNTIL = "followedUntil";
+    private static final LocalDateTime FIRST_CHANGE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    // Locks the writes of an application are serialized on, picked by id
+    private static final int WRITE_LOCK_STRIPES = 64;
+    
+    private final ApplicationRepository applicationRepository;
+    private final CvTextRepository textRepository;
+    private final EntityManager entityManager;
+    
+    @Value("${cvscreen.cv-search.index-path:./cvs/index}")
+    private String indexPath;
+    
+    @Value("${cvscreen.cv-search.max-hits:10000}")
+    private int maxHits;
+    
+    @Value("${cvscreen.cv-search.follow-interval-seconds:5}")
+    private long followIntervalSeconds;
+    
+    @Value("${cvscreen.cv-search.follow-overlap-seconds:10}")
+    private long followOverlapSeconds;
+    
+    private final Analyzer analyzer = new CvAnalyzer();
+    private final Object[] writeLocks = newWriteLocks();
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private ScheduledExecutorService followExecutor;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cv-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // Passes over cv_texts run one at a time; the fields below are only used within one
+    private final Object followLock = new Object();
+    private volatile LocalDateTime followedUntil;
+    // updatedAt of the rows applied within the overlap, not to write them again
+    private final Map<Long, LocalDateTime> recentlyApplied = new HashMap<>();
+    // Deletes waiting for the next commit
+    private volatile boolean uncommitted;
+    
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicInteger rebuildTotal = new AtomicInteger();
+    private final AtomicInteger rebuildProcessed = new AtomicInteger();
+    private volatile LocalDateTime rebuildStartedAt;
+    private volatile LocalDateTime rebuildFinishedAt;
+    
+    @PostConstruct
+    void openIndex() throws IOException {
+        Path path = Paths.get(indexPath);
+        Files.createDirectories(path);
+        directory = FSDirectory.open(path);
+        boolean created = !DirectoryReader.indexExists(directory);
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        if (created) {
+            writer.commit();
+        }
+        searcherManager = new SearcherManager(writer, null);
+        
+        followedUntil = FIRST_CHANGE;
+        Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+        if (commitData != null) {
+            for (Map.Entry<String, String> entry : commitData) {
+                if (FOLLOWED_UNTIL.equals(entry.getKey())) {
+                    followedUntil = LocalDateTime.parse(entry.getValue());
+                }
+            }
+        }
+        log.info("CV index opened at {} ({} documents, CV texts applied until {})", path.toAbsolutePath(),
+                writer.getDocStats().numDocs, followedUntil);
+    }
+    
+    /**
+     * Applies the changed CV texts once the application is ready, then every
+     * follow-interval-seconds
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startFollowing() {
+        followExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cv-index-follow");
+            thread.setDaemon(true);
+            return thread;
+        });
+        followExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                follow();
+            } catch (Exception e) {
+                log.error("Could not apply the changed CV texts to the CV index", e);
+            }
+        }, 0, followIntervalSeconds, TimeUnit.SECONDS);
+    }
+    
+    @PreDestroy
+    void closeIndex() throws IOException, InterruptedException {
+        if (followExecutor != null) {
+            followExecutor.shutdownNow();
+            followExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        rebuildExecutor.shutdownNow();
+        rebuildExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+    
+    /**
+     * Removes the documents once the transaction commits; they are committed with the next pass
+     */
+    public void applicationsRemoved(Collection<Long> applicationIds) {
+        List<Long> ids = List.copyOf(applicationIds);
+        TransactionCallbacks.afterCommit(() -> {
+            try {
+                for (Long id : ids) {
+                    synchronized (writeLock(id)) {
+                        writer.deleteDocuments(idTerm(id));
+                    }
+                }
+                uncommitted = true;
+            } catch (IOException e) {
+                log.warn("Could not remove applications {} from the CV index: {}", ids, e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Applies the CV texts changed since the last pass, and commits
+     */
+    public void follow() throws IOException {
+        synchronized (followLock) {
+            apply(followedUntil.minusSeconds(followOverlapSeconds), null);
+        }
+    }
+    
+    /**
+     * Starts re-indexing every CV text in the background, and removing the documents of the
+     * applications without one. Searches keep working meanwhile.
+     *
+     * @throws IllegalStateException when a rebuild is already running
+     */
+    public Map<String, Object> startRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("A CV index rebuild is already running");
+        }
+        rebuildStartedAt = LocalDateTime.now();
+        rebuildFinishedAt = null;
+        rebuildTotal.set(0);
+        rebuildProcessed.set(0);
+        
+        try {
+            rebuildExecutor.execute(() -> {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    log.error("CV index rebuild failed", e);
+                } finally {
+                    rebuildFinishedAt = LocalDateTime.now();
+                    rebuilding.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rebuilding.set(false);
+            throw new IllegalStateException("The application is shutting down");
+        }
+        return getStatus();
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("documents", writer.getDocStats().numDocs);
+        status.put("followedUntil", followedUntil);
+        status.put("rebuilding", rebuilding.get());
+        status.put("rebuildTotal", rebuildTotal.get());
+        status.put("rebuildProcessed", rebuildProcessed.get());
+        status.put("rebuildStartedAt", rebuildStartedAt);
+        status.put("rebuildFinishedAt", rebuildFinishedAt);
+        return status;
+    }
+    
+    /**
+     * Applications whose CV matches the query, best first, among the max-hits best CVs.
+     * The query uses the Lucene syntax (AND, OR, NOT, "phrases", prefix*); terms are all
+     * required by default.
+     *
+     * @param filter applications to keep, usually ApplicationSpecification.searchApplications
+     * @throws IllegalArgumentException when the query cannot be parsed
+     */
+    @Transactional(readOnly = true)
+    public RankedApplications search(String queryText, Specification<Application> filter) throws IOException {
+        QueryParser parser = new QueryParser(CONTENT_FIELD, analyzer);
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+        Query query;
+        try {
+            query = parser.parse(queryText);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid CV search query: " + e.getMessage(), e);
+        }
+        
+        List<Long> ids = new ArrayList<>();
+        List<Float> scores = new ArrayList<>();
+        boolean truncated;
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(query, maxHits);
+            truncated = topDocs.scoreDocs.length == maxHits
+                    && (topDocs.totalHits.value() > maxHits
+                    || topDocs.totalHits.relation() == TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
+            long[] hitIds = applicationIds(searcher, topDocs.scoreDocs);
+            for (int i = 0; i < hitIds.length; i++) {
+                ids.add(hitIds[i]);
+                scores.add(topDocs.scoreDocs[i].score);
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+        
+        // Also drops the applications deleted since their CV was indexed
+        Set<Long> kept = matchingIds(ids, filter);
+        RankedApplications ranked = new RankedApplications(truncated);
+        for (int i = 0; i < ids.size(); i++) {
+            if (kept.contains(ids.get(i))) {
+                ranked.ids.add(ids.get(i));
+                ranked.scores.add(scores.get(i));
+            }
+        }
+        return ranked;
+    }
+    
+    private void rebuild() throws IOException {
+        long start = System.currentTimeMillis();
+        synchronized (followLock) {
+            rebuildTotal.set((int) textRepository.count());
+            log.info("Rebuilding the CV index: {} CV texts", rebuildTotal.get());
+            recentlyApplied.clear();
+            apply(FIRST_CHANGE, rebuildProcessed);
+            
+            // Documents of applications deleted or without CV any more
+            Set<Long> textIds = new HashSet<>(textRepository.findAllApplicationIds());
+            int removed = 0;
+            for (long indexedId : allIndexedIds()) {
+                if (!textIds.contains(indexedId)) {
+                    synchronized (writeLock(indexedId)) {
+                        writer.deleteDocuments(idTerm(indexedId));
+                    }
+                    removed++;
+                }
+            }
+            commit();
+            log.info("CV index rebuilt in {} ms: {} CV texts, {} stale documents removed",
+                    System.currentTimeMillis() - start, rebuildProcessed.get(), removed);
+        }
+    }
+    
+    /**
+     * Writes the CV texts changed after since, in the order of their changes, and commits with
+     * the time of the last one, also every COMMIT_INTERVAL documents on long passes. Call under
+     * the follow lock.
+     *
+     * @param processed counts the rows read, null when not needed
+     */
+    private void apply(LocalDateTime since, AtomicInteger processed) throws IOException {
+        LocalDateTime fromTime = since;
+        long fromId = 0;
+        LocalDateTime newest = followedUntil;
+        int written = 0;
+        int committed = 0;
+        List<Object[]> changes;
+        do {
+            changes = textRepository.findChangedSince(fromTime, fromId, PageRequest.of(0, FOLLOW_BATCH_SIZE));
+            List<Long> ids = new ArrayList<>();
+            for (Object[] change : changes) {
+                fromId = (Long) change[0];
+                fromTime = (LocalDateTime) change[1];
+                if (!fromTime.equals(recentlyApplied.get(fromId))) {
+                    ids.add(fromId);
+                }
+                if (fromTime.isAfter(newest)) {
+                    newest = fromTime;
+                }
+            }
+            for (CvText text : textRepository.findAllById(ids)) {
+                write(text.getApplicationId(), text.getCvFilePath(), text.getContent());
+                recentlyApplied.put(text.getApplicationId(), text.getUpdatedAt());
+                written++;
+            }
+            if (processed != null) {
+                processed.addAndGet(changes.size());
+            }
+            // Between batches, every row up to newest is written
+            if (written - committed >= COMMIT_INTERVAL) {
+                commit(newest);
+                committed = written;
+            }
+        } while (changes.size() == FOLLOW_BATCH_SIZE);
+        
+        if (written > 0 || uncommitted || newest.isAfter(followedUntil)) {
+            commit(newest);
+        }
+        LocalDateTime forgotten = newest.minusSeconds(followOverlapSeconds);
+        recentlyApplied.values().removeIf(updatedAt -> updatedAt.isBefore(forgotten));
+        if (written > 0) {
+            log.debug("CV index: {} CV texts applied, until {}", written, newest);
+        }
+    }
+    
+    private void write(Long applicationId, String cvFile, String text) throws IOException {
+        // Checked and written under the lock of the application, so that a write of an older
+        // CV checked before a newer one was indexed cannot replace it afterwards
+        synchronized (writeLock(applicationId)) {
+            // The application may have a newer CV, whose text comes later, or be gone
+            String currentFile = applicationRepository.findCvFilePathById(applicationId).orElse(null);
+            if (currentFile != null && !currentFile.equals(cvFile)) {
+                return;
+            }
+            if (currentFile == null || text == null || text.isBlank()) {
+                writer.deleteDocuments(idTerm(applicationId));
+                return;
+            }
+            
+            Document document = new Document();
+            document.add(new StringField(ID_FIELD, applicationId.toString(), Field.Store.NO));
+            document.add(new NumericDocValuesField(ID_VALUE_FIELD, applicationId));
+            document.add(new TextField(CONTENT_FIELD, text, Field.Store.NO));
+            writer.updateDocument(idTerm(applicationId), document);
+        }
+        log.debug("Indexed CV {} of application {} ({} chars)", cvFile, applicationId, text.length());
+    }
+    
+    private Object writeLock(Long applicationId) {
+        return writeLocks[Math.floorMod(Long.hashCode(applicationId), WRITE_LOCK_STRIPES)];
+    }
+    
+    private static Object[] newWriteLocks() {
+        Object[] locks = new Object[WRITE_LOCK_STRIPES];
+        Arrays.setAll(locks, i -> new Object());
+        return locks;
+    }
+    
+    /**
+     * Commits, recording that the CV texts were applied until followedUntil
+     */
+    private void commit(LocalDateTime until) throws IOException {
+        followedUntil = until;
+        writer.setLiveCommitData(Map.of(FOLLOWED_UNTIL, until.toString()).entrySet());
+        commit();
+    }
+    
+    private void commit() throws IOException {
+        uncommitted = false;
+        writer.commit();
+        searcherManager.maybeRefresh();
+    }
+    
+    /**
+     * Application ids of the hits, read from doc values leaf by leaf in doc order
+     */
+    private static long[] applicationIds(IndexSearcher searcher, ScoreDoc[] hits) throws IOException {
+        long[] ids = new long[hits.length];
+        Integer[] byDoc = new Integer[hits.length];
+        Arrays.setAll(byDoc, i -> i);
+        Arrays.sort(byDoc, Comparator.comparingInt(i -> hits[i].doc));
+        
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        LeafReaderContext leaf = null;
+        NumericDocValues values = null;
+        for (int i : byDoc) {
+            int doc = hits[i].doc;
+            if (leaf == null || doc >= leaf.docBase + leaf.reader().maxDoc()) {
+                leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+                values = leaf.reader().getNumericDocValues(ID_VALUE_FIELD);
+            }
+            if (values == null || !values.advanceExact(doc - leaf.docBase)) {
+                throw new IllegalStateException("CV index document without application id");
+            }
+            ids[i] = values.longValue();
+        }
+        return ids;
+    }
+    
+    private List<Long> allIndexedIds() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryReader reader = DirectoryReader.open(writer)) {
+            for (LeafReaderContext leaf : reader.leaves()) {
+                NumericDocValues values = leaf.reader().getNumericDocValues(ID_VALUE_FIELD);
+                if (values == null) {
+                    continue;
+                }
+                Bits liveDocs = leaf.reader().getLiveDocs();
+                for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+                    if (liveDocs == null || liveDocs.get(doc)) {
+                        ids.add(values.longValue());
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+    
+    /**
+     * The ids of existing applications matching the filter, checked in chunks
+     */
+    private Set<Long> matchingIds(List<Long> ids, Specification<Application> filter) {
+        Set<Long> matching = new HashSet<>();
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        for (int from = 0; from < ids.size(); from += FILTER_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + FILTER_CHUNK_SIZE, ids.size()));
+            CriteriaQuery<Long> criteriaQuery = criteriaBuilder.createQuery(Long.class);
+            Root<Application> root = criteriaQuery.from(Application.class);
+            // A Long query, so searchApplications adds no fetch joins
+            Predicate predicate = filter.and(ApplicationSpecification.idIn(chunk))
+                    .toPredicate(root, criteriaQuery, criteriaBuilder);
+            criteriaQuery.select(root.get("id")).where(predicate);
+            matching.addAll(entityManager.createQuery(criteriaQuery).getResultList());
+        }
+        return matching;
+    }
+    
+    private static Term idTerm(Long applicationId) {
+        return new Term(ID_FIELD, applicationId.toString());
+    }
+    
+    /**
+     * Ids of the matching applications with their scores, best first
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class RankedApplications {
+        private final List<Long> ids = new ArrayList<>();
+        private final List<Float> scores = new ArrayList<>();
+        // More CVs matched than the max-hits ranked
+        private final boolean truncated;
+    }
+    
+    /**
+     * Standard tokens, lowercased and without accents, for queries and documents alike
+     */
+    private static class CvAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            StandardTokenizer tokenizer = new StandardTokenizer();
+            TokenStream stream = new ASCIIFoldingFilter(new LowerCaseFilter(tokenizer));
+            return new TokenStreamComponents(tokenizer, stream);
+        }
+        
+        @Override
+        protected TokenStream normalize(String fieldName, TokenStream in) {
+            return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.cvscreen.service;
+
+import com.cvscreen.service.storage.CvStorage;
+import com.cvscreen.service.storage.CvStorage.StoredObject;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Copies every CV file from one storage to another in the background, to move to S3 (or back)
+ * without downtime: copy while the old storage is in use, switch cvscreen.cv-storage.type, then
+ * copy again for the uploads made meanwhile.
+ *
+ * Files already in the target with the same size are skipped, so a copy can be rerun after a
+ * failure. At most copy-workers files are in flight; the listing waits for a free worker, so
+ * large stores are never held in memory.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CvStorageCopyService {
+    
+    private final CvStorageService cvStorageService;
+    
+    @Value("${cvscreen.cv-storage.copy-workers:4}")
+    private int workers;
+    
+    private final AtomicBoolean copying = new AtomicBoolean();
+    private final AtomicInteger listed = new AtomicInteger();
+    private final AtomicInteger copied = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong bytesCopied = new AtomicLong();
+    private volatile String source;
+    private volatile String target;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    // Lists the source and hands the files to the copy workers
+    private final ExecutorService copyExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cv-storage-copy");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @PreDestroy
+    void stop() {
+        copyExecutor.shutdownNow();
+    }
+    
+    /**
+     * @throws IllegalArgumentException when a storage is not configured, or both are the same
+     * @throws IllegalStateException when a copy is already running
+     */
+    public Map<String, Object> startCopy(String sourceName, String targetName) {
+        CvStorage from = cvStorageService.getStorage(sourceName);
+        CvStorage to = cvStorageService.getStorage(targetName);
+        if (from == to) {
+            throw new IllegalArgumentException("Source and target are the same CV storage");
+        }
+        if (!copying.compareAndSet(false, true)) {
+            throw new IllegalStateException("A CV storage copy is already running");
+        }
+        source = from.getName();
+        target = to.getName();
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        listed.set(0);
+        copied.set(0);
+        skipped.set(0);
+        failed.set(0);
+        bytesCopied.set(0);
+        
+        try {
+            copyExecutor.execute(() -> {
+                try {
+                    copy(from, to);
+                } catch (Exception e) {
+                    log.error("CV storage copy from {} to {} failed", from.getName(), to.getName(), e);
+                } finally {
+                    finishedAt = LocalDateTime.now();
+                    copying.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            copying.set(false);
+            throw new IllegalStateException("The application is shutting down");
+        }
+        return getStatus();
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("copying", copying.get());
+        status.put("source", source);
+        status.put("target", target);
+        status.put("listed", listed.get());
+        status.put("copied", copied.get());
+        status.put("skipped", skipped.get());
+        status.put("failed", failed.get());
+        status.put("bytesCopied", bytesCopied.get());
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        return status;
+    }
+    
+    private void copy(CvStorage from, CvStorage to) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        log.info("Copying the CV files from {} to {} ({} workers)", from.getName(), to.getName(), workers);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "cv-storage-copy-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore permits = new Semaphore(workers);
+        try (Stream<StoredObject> objects = from.list()) {
+            Iterator<StoredObject> iterator = objects.iterator();
+            while (iterator.hasNext()) {
+                StoredObject object = iterator.next();
+                listed.incrementAndGet();
+                permits.acquire();
+                executor.execute(() -> {
+                    try {
+                        copyObject(from, to, object);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            permits.acquire(workers);
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("CV files copied from {} to {} in {} ms: {}", from.getName(), to.getName(),
+                System.currentTimeMillis() - start, getStatus());
+    }
+    
+    private void copyObject(CvStorage from, CvStorage to, StoredObject object) {
+        try {
+            if (to.size(object.getKey()) == object.getSize()) {
+                skipped.incrementAndGet();
+                return;
+            }
+            Path temp = cvStorageService.createTempFile();
+            try {
+                try (InputStream input = from.open(object.getKey(), 0)) {
+                    Files.copy(input, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                to.put(object.getKey(), temp);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            copied.incrementAndGet();
+            bytesCopied.addAndGet(object.getSize());
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            log.warn("Could not copy CV file {}: {}", object.getKey(), e.getMessage());
+        }
+    }
+}
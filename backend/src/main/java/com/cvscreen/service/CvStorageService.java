@@ -0,0 +1,468 @@
+package com.cvscreen.service;
+
+import com.cvscreen.entity.Application;
+import com.cvscreen.repository.ApplicationRepository;
+import com.cvscreen.repository.CvBlobRepository;
+import com.cvscreen.service.storage.CvStorage;
+import com.cvscreen.service.storage.CvStorage.StoredObject;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed CV files: an upload is hashed while it is streamed to a local temp file,
+ * then stored as ab/cd/&lt;sha256&gt; in the {@link CvStorage} in use (cvscreen.cv-storage.type).
+ * Applications uploading the same content share the file, counted in cv_blobs.
+ *
+ * Files are never deleted when their count drops. The garbage collection, run periodically,
+ * recounts the references, then removes the blobs unreferenced for longer than the grace period
+ * and the files without blob (uploads rolled back). The grace period covers uploads still in
+ * their transaction, whose file already exists. Files derived from a CV, such as its preview
+ * (ab/cd/&lt;sha256&gt;.png), are stored next to it and collected with it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CvStorageService {
+    
+    private static final String TEMP_DIRECTORY = "tmp";
+    private static final Pattern BLOB_KEY = Pattern.compile("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}");
+    // A CV file, or a file derived from it
+    private static final Pattern STORED_KEY = Pattern.compile("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}(\\.[a-z]+)?");
+    private static final String PREVIEW_EXTENSION = ".png";
+    // Blobs looked up per query during the file sweep
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+    
+    private final CvBlobRepository blobRepository;
+    private final ApplicationRepository applicationRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final List<CvStorage> storages;
+    
+    @Value("${cvscreen.cv-storage-path:./cvs}")
+    private String storagePath;
+    
+    @Value("${cvscreen.cv-storage.type:filesystem}")
+    private String storageType;
+    
+    @Value("${cvscreen.cv-storage.gc-grace-minutes:60}")
+    private long gcGraceMinutes;
+    
+    @Value("${cvscreen.cv-storage.gc-interval-minutes:60}")
+    private long gcIntervalMinutes;
+    
+    private CvStorage storage;
+    private Path tempDirectory;
+    private ScheduledExecutorService gcExecutor;
+    private final ExecutorService migrationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cv-storage-migrate");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final AtomicBoolean migrating = new AtomicBoolean();
+    private final AtomicInteger migrationTotal = new AtomicInteger();
+    private final AtomicInteger migrated = new AtomicInteger();
+    private final AtomicInteger migrationMissing = new AtomicInteger();
+    private final AtomicInteger migrationSkipped = new AtomicInteger();
+    private final AtomicInteger migrationFailed = new AtomicInteger();
+    private volatile LocalDateTime migrationStartedAt;
+    private volatile LocalDateTime migrationFinishedAt;
+    
+    @PostConstruct
+    void init() throws IOException {
+        storage = getStorage(storageType);
+        // Uploads are hashed locally whatever the storage
+        tempDirectory = Paths.get(storagePath).toAbsolutePath().normalize().resolve(TEMP_DIRECTORY);
+        Files.createDirectories(tempDirectory);
+        log.info("CV storage: {}", storage.getName());
+        if (gcIntervalMinutes > 0) {
+            gcExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cv-storage-gc");
+                thread.setDaemon(true);
+                return thread;
+            });
+            gcExecutor.scheduleWithFixedDelay(() -> {
+                try {
+                    collectGarbage();
+                } catch (Exception e) {
+                    log.error("CV storage garbage collection failed", e);
+                }
+            }, gcIntervalMinutes, gcIntervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+    
+    @PreDestroy
+    void stop() {
+        if (gcExecutor != null) {
+            gcExecutor.shutdownNow();
+        }
+        migrationExecutor.shutdownNow();
+    }
+    
+    /**
+     * Stores the content and takes a reference on it, in the current transaction
+     */
+    @Transactional
+    public StoredCv store(InputStream content) throws IOException {
+        Path temp = createTempFile();
+        try {
+            MessageDigest digest = sha256Digest();
+            long size;
+            try (InputStream input = new DigestInputStream(content, digest)) {
+                size = Files.copy(input, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            String relativePath = shardedPath(sha256);
+            
+            // Even when it exists: replacing the file refreshes its date for the garbage collection
+            storage.put(relativePath, temp);
+            
+            blobRepository.addReference(sha256, size, LocalDateTime.now());
+            return new StoredCv(sha256, relativePath, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Drops the reference of the application on its CV, before the CV is replaced or the
+     * application deleted. A legacy flat file is deleted once the transaction commits.
+     */
+    @Transactional
+    public void release(Application application) {
+        String cvFile = application.getCvFilePath();
+        if (cvFile == null) {
+            return;
+        }
+        if (isStored(cvFile, application.getCvSha256())) {
+            blobRepository.addReferences(application.getCvSha256(), -1, LocalDateTime.now());
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> deleteLegacyFile(cvFile));
+    }
+    
+    /**
+     * Call before applications are deleted along with their candidate, company or job
+     */
+    @Transactional
+    public void applicationsRemoved(Collection<Application> applications) {
+        applications.forEach(this::release);
+    }
+    
+    /**
+     * @return the size of the CV file, -1 when it is missing
+     */
+    public long size(String cvFile) throws IOException {
+        return storage.size(cvFile);
+    }
+    
+    public Resource resource(String cvFile, long size) {
+        return storage.resource(cvFile, size);
+    }
+    
+    /**
+     * Stores a file derived from a CV, under a key from previewKey
+     *
+     * @param file moved or copied, the caller deletes it
+     */
+    public void putDerived(String key, Path file) throws IOException {
+        storage.put(key, file);
+    }
+    
+    /**
+     * Reads the CV file from a local path: the file itself on the filesystem storage, a temp
+     * copy otherwise
+     */
+    public <T> T readLocally(String cvFile, LocalFileReader<T> reader) throws IOException {
+        Path local = storage.localFile(cvFile);
+        if (local != null) {
+            return reader.read(local);
+        }
+        Path temp = createTempFile();
+        try {
+            try (InputStream input = storage.open(cvFile, 0)) {
+                Files.copy(input, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return reader.read(temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * SHA-256 of a CV file, hex
+     */
+    public String checksum(String cvFile) throws IOException {
+        MessageDigest digest = sha256Digest();
+        try (InputStream input = new DigestInputStream(storage.open(cvFile, 0), digest)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    /**
+     * Configured storage by name
+     *
+     * @throws IllegalArgumentException when there is no such storage (S3 without bucket)
+     */
+    public CvStorage getStorage(String name) {
+        return storages.stream()
+                .filter(candidate -> candidate.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("CV storage not configured: " + name));
+    }
+    
+    /**
+     * Temp file removed by the garbage collection if its owner does not
+     */
+    public Path createTempFile() throws IOException {
+        return Files.createTempFile(tempDirectory, "cv-", ".part");
+    }
+    
+    /**
+     * Recounts the references and removes the blobs and files unreferenced for longer than the
+     * grace period, as well as abandoned temp files
+     */
+    public Map<String, Integer> collectGarbage() throws IOException {
+        long start = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(gcGraceMinutes);
+        Instant fileCutoff = Instant.now().minusSeconds(gcGraceMinutes * 60);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        
+        Integer blobsDeleted = transaction.execute(status -> {
+            blobRepository.recountReferences();
+            return blobRepository.deleteUnreferenced(cutoff);
+        });
+        
+        // Files of the deleted blobs, and of uploads rolled back
+        List<String> candidates = new ArrayList<>();
+        try (Stream<StoredObject> objects = storage.list()) {
+            objects.filter(object -> STORED_KEY.matcher(object.getKey()).matches()
+                            && object.getLastModified().isBefore(fileCutoff))
+                    .forEach(object -> candidates.add(object.getKey()));
+        }
+        int filesDeleted = 0;
+        for (int from = 0; from < candidates.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<String> chunk = candidates.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, candidates.size()));
+            Set<String> existing = new HashSet<>(blobRepository.findExisting(
+                    chunk.stream().map(CvStorageService::blobSha256).toList()));
+            for (String key : chunk) {
+                if (!existing.contains(blobSha256(key))) {
+                    storage.delete(key);
+                    filesDeleted++;
+                }
+            }
+        }
+        
+        int tempFilesDeleted = 0;
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            for (Path file : files.filter(file -> isOlderThan(file, fileCutoff)).toList()) {
+                if (Files.deleteIfExists(file)) {
+                    tempFilesDeleted++;
+                }
+            }
+        }
+        
+        Map<String, Integer> result = new LinkedHashMap<>();
+        result.put("blobsDeleted", blobsDeleted);
+        result.put("filesDeleted", filesDeleted);
+        result.put("tempFilesDeleted", tempFilesDeleted);
+        log.info("CV storage garbage collection in {} ms: {}", System.currentTimeMillis() - start, result);
+        return result;
+    }
+    
+    /**
+     * Starts moving the CVs uploaded before content-addressed storage (flat UUID files) to their
+     * sharded path, in the background. Applications keep the old file name, for its extension.
+     *
+     * @throws IllegalStateException when a migration is already running
+     */
+    public Map<String, Object> startMigration() {
+        if (!migrating.compareAndSet(false, true)) {
+            throw new IllegalStateException("A CV storage migration is already running");
+        }
+        migrationStartedAt = LocalDateTime.now();
+        migrationFinishedAt = null;
+        migrationTotal.set(0);
+        migrated.set(0);
+        migrationMissing.set(0);
+        migrationSkipped.set(0);
+        migrationFailed.set(0);
+        
+        try {
+            migrationExecutor.execute(() -> {
+                try {
+                    migrateLegacyFiles();
+                } catch (Exception e) {
+                    log.error("Legacy CV files migration failed", e);
+                } finally {
+                    migrationFinishedAt = LocalDateTime.now();
+                    migrating.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            migrating.set(false);
+            throw new IllegalStateException("The application is shutting down");
+        }
+        return getMigrationStatus();
+    }
+    
+    public Map<String, Object> getMigrationStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("migrating", migrating.get());
+        status.put("total", migrationTotal.get());
+        status.put("migrated", migrated.get());
+        status.put("missing", migrationMissing.get());
+        status.put("skipped", migrationSkipped.get());
+        status.put("failed", migrationFailed.get());
+        status.put("startedAt", migrationStartedAt);
+        status.put("finishedAt", migrationFinishedAt);
+        return status;
+    }
+    
+    private void migrateLegacyFiles() {
+        long start = System.currentTimeMillis();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<Object[]> legacyFiles = applicationRepository.findLegacyCvFiles();
+        migrationTotal.set(legacyFiles.size());
+        log.info("Migrating {} legacy CV files", legacyFiles.size());
+        for (Object[] row : legacyFiles) {
+            Long applicationId = (Long) row[0];
+            String legacyPath = (String) row[1];
+            try {
+                if (storage.size(legacyPath) < 0) {
+                    migrationMissing.incrementAndGet();
+                    continue;
+                }
+                Boolean moved = transaction.execute(status -> {
+                    try (InputStream input = storage.open(legacyPath, 0)) {
+                        StoredCv stored = store(input);
+                        if (applicationRepository.moveCvFile(applicationId, legacyPath, stored.getPath(),
+                                stored.getSha256(), legacyPath) == 0) {
+                            // A new CV was uploaded meanwhile
+                            status.setRollbackOnly();
+                            return false;
+                        }
+                        return true;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (Boolean.TRUE.equals(moved)) {
+                    deleteLegacyFile(legacyPath);
+                    migrated.incrementAndGet();
+                } else {
+                    migrationSkipped.incrementAndGet();
+                }
+            } catch (IOException | RuntimeException e) {
+                migrationFailed.incrementAndGet();
+                log.warn("Could not migrate CV file {} (application {}): {}", legacyPath, applicationId, e.getMessage());
+            }
+        }
+        log.info("Legacy CV files migrated in {} ms: {}", System.currentTimeMillis() - start, getMigrationStatus());
+    }
+    
+    /**
+     * ab/cd/&lt;sha256&gt;, so that no directory holds more than a few files per 65536 CVs
+     */
+    public static String shardedPath(String sha256) {
+        return sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256;
+    }
+    
+    /**
+     * Key of the preview of a CV, null when the CV is a legacy flat file
+     */
+    public static String previewKey(String cvFile) {
+        return BLOB_KEY.matcher(cvFile).matches() ? cvFile + PREVIEW_EXTENSION : null;
+    }
+    
+    private static boolean isStored(String cvFile, String sha256) {
+        return sha256 != null && cvFile.equals(shardedPath(sha256));
+    }
+    
+    private static String blobSha256(String key) {
+        String name = key.substring(key.lastIndexOf('/') + 1);
+        int dot = name.indexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+    
+    private void deleteLegacyFile(String cvFile) {
+        try {
+            storage.delete(cvFile);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not delete legacy CV file {}: {}", cvFile, e.getMessage());
+        }
+    }
+    
+    private static boolean isOlderThan(Path file, Instant cutoff) {
+        try {
+            FileTime modified = Files.getLastModifiedTime(file);
+            return Files.isRegularFile(file) && modified.toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            // Deleted meanwhile
+            return false;
+        }
+    }
+    
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    @FunctionalInterface
+    public interface LocalFileReader<T> {
+        T read(Path file) throws IOException;
+    }
+    
+    @Getter
+    @RequiredArgsConstructor
+    public static class StoredCv {
+        private final String sha256;
+        // Path relative to the storage directory, as stored in cv_file_path
+        private final String path;
+        private final long size;
+    }
+}
@@ -0,0 +1,202 @@
+package com.cvscreen.service;
+
+import com.cvscreen.entity.Application;
+import com.cvscreen.entity.Candidate;
+import com.cvscreen.entity.Company;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVWriter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Streams applications, candidates and companies as CSV or NDJSON. Rows are read with a
+ * forward-only scroll and written as they come, the persistence context being cleared every
+ * FETCH_SIZE rows, so memory does not grow with the number of rows exported.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportService {
+    
+    // Rows fetched per round trip, and read between two clears of the persistence context
+    private static final int FETCH_SIZE = 500;
+    
+    private static final List<ExportColumn<Application>> APPLICATION_COLUMNS = List.of(
+        new ExportColumn<>("id", Application::getId),
+        new ExportColumn<>("firstName", application -> application.getCandidate().getFirstName()),
+        new ExportColumn<>("lastName", application -> application.getCandidate().getLastName()),
+        new ExportColumn<>("contractType", application -> application.getCandidate().getContractType()),
+        new ExportColumn<>("jobReference", application -> application.getJob() != null ? application.getJob().getReference() : null),
+        new ExportColumn<>("jobTitle", application -> application.getJob() != null ? application.getJob().getTitle() : null),
+        new ExportColumn<>("company", application -> application.getCompany() != null ? application.getCompany().getName() : null),
+        new ExportColumn<>("roleCategory", Application::getRoleCategory),
+        new ExportColumn<>("dailyRate", Application::getDailyRate),
+        new ExportColumn<>("applicationDate", Application::getApplicationDate),
+        new ExportColumn<>("status", Application::getStatus),
+        new ExportColumn<>("conclusion", Application::getConclusion),
+        new ExportColumn<>("commentCount", Application::getCommentCount),
+        new ExportColumn<>("averageRating", application -> round(application.getAverageRating())),
+        new ExportColumn<>("externalId", Application::getExternalId),
+        new ExportColumn<>("createdAt", Application::getCreatedAt)
+    );
+    
+    private static final List<ExportColumn<Candidate>> CANDIDATE_COLUMNS = List.of(
+        new ExportColumn<>("id", Candidate::getId),
+        new ExportColumn<>("firstName", Candidate::getFirstName),
+        new ExportColumn<>("lastName", Candidate::getLastName),
+        new ExportColumn<>("contractType", Candidate::getContractType),
+        new ExportColumn<>("applicationCount", Candidate::getApplicationCount),
+        new ExportColumn<>("reviewCount", Candidate::getCommentCount),
+        new ExportColumn<>("averageRating", candidate -> round(candidate.getAverageRating())),
+        new ExportColumn<>("globalNotes", Candidate::getGlobalNotes),
+        new ExportColumn<>("createdAt", Candidate::getCreatedAt)
+    );
+    
+    private static final List<ExportColumn<Company>> COMPANY_COLUMNS = List.of(
+        new ExportColumn<>("id", Company::getId),
+        new ExportColumn<>("name", Company::getName),
+        new ExportColumn<>("applicationCount", Company::getApplicationCount),
+        new ExportColumn<>("notes", Company::getNotes),
+        new ExportColumn<>("createdAt", Company::getCreatedAt)
+    );
+    
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * @param filter usually ApplicationSpecification.searchApplications, which fetches the
+     *               candidate, job and company with the application
+     * @return number of rows written
+     */
+    @Transactional(readOnly = true)
+    public long exportApplications(Specification<Application> filter, ExportFormat format, OutputStream output) throws IOException {
+        return export(Application.class, filter, APPLICATION_COLUMNS, format, output);
+    }
+    
+    @Transactional(readOnly = true)
+    public long exportCandidates(Specification<Candidate> filter, ExportFormat format, OutputStream output) throws IOException {
+        return export(Candidate.class, filter, CANDIDATE_COLUMNS, format, output);
+    }
+    
+    @Transactional(readOnly = true)
+    public long exportCompanies(Specification<Company> filter, ExportFormat format, OutputStream output) throws IOException {
+        return export(Company.class, filter, COMPANY_COLUMNS, format, output);
+    }
+    
+    private <T> long export(Class<T> type, Specification<T> filter, List<ExportColumn<T>> columns,
+                            ExportFormat format, OutputStream output) throws IOException {
+        long start = System.currentTimeMillis();
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(type);
+        Root<T> root = criteriaQuery.from(type);
+        Predicate predicate = filter.toPredicate(root, criteriaQuery, criteriaBuilder);
+        if (predicate != null) {
+            criteriaQuery.where(predicate);
+        }
+        criteriaQuery.orderBy(criteriaBuilder.asc(root.get("id")));
+        
+        @SuppressWarnings("unchecked")
+        Query<T> query = entityManager.createQuery(criteriaQuery).unwrap(Query.class);
+        query.setFetchSize(FETCH_SIZE);
+        query.setReadOnly(true);
+        
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        CSVWriter csvWriter = format == ExportFormat.CSV ? new CSVWriter(writer) : null;
+        if (csvWriter != null) {
+            csvWriter.writeNext(columns.stream().map(ExportColumn::getName).toArray(String[]::new), false);
+        }
+        
+        long rows = 0;
+        try (ScrollableResults<T> results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                T entity = results.get();
+                if (csvWriter != null) {
+                    String[] values = new String[columns.size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = toCsvValue(columns.get(i).getValue().apply(entity));
+                    }
+                    csvWriter.writeNext(values, false);
+                } else {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (ExportColumn<T> column : columns) {
+                        row.put(column.getName(), column.getValue().apply(entity));
+                    }
+                    writer.write(objectMapper.writeValueAsString(row));
+                    writer.write('\n');
+                }
+                if (++rows % FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        writer.flush();
+        log.info("Exported {} {} rows as {} in {} ms", rows, type.getSimpleName(), format,
+                System.currentTimeMillis() - start);
+        return rows;
+    }
+    
+    private static String toCsvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        return value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+    }
+    
+    private static double round(Double rating) {
+        return Math.round(rating * 100) / 100.0;
+    }
+    
+    @Getter
+    @RequiredArgsConstructor
+    public enum ExportFormat {
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv"),
+        NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+        
+        private final MediaType mediaType;
+        private final String extension;
+        
+        /**
+         * @return the format, or null for an unknown name
+         */
+        public static ExportFormat fromName(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+    
+    @Getter
+    @RequiredArgsConstructor
+    private static class ExportColumn<T> {
+        private final String name;
+        private final Function<T, Object> value;
+    }
+}
@@ -0,0 +1,459 @@
+package com.cvscreen.service;
+
+import com.cvscreen.dto.ImportJobDTO;
+import com.cvscreen.exception.ResourceNotFoundException;
+import com.cvscreen.service.ProUnityImportService.CandidateOutcome;
+import com.cvscreen.service.ProUnityImportService.ImportListener;
+import com.cvscreen.service.ProUnityImportService.ImportResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs Pro-Unity imports as background jobs on a small dedicated pool. The upload is
+ * spooled to disk so the request returns at once, and progress is pushed to subscribers
+ * over Server-Sent Events:
+ * <ul>
+ *   <li>status: the job on subscription</li>
+ *   <li>progress: each candidate processed, with the running counts</li>
+ *   <li>completed / failed: the final job, with the errors</li>
+ * </ul>
+ * The import thread only queues the events; each subscriber has a bounded queue, sent from a
+ * separate fixed pool, so a slow client never holds the import back. When a queue is full, the
+ * progress events of a subscriber are merged: the latest one carries the running counts.
+ * Subscribers with events take turns on the sender threads; beyond event-sender-backlog
+ * subscribers waiting for a turn, new streams are closed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportJobService {
+    
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+    
+    private final ProUnityImportService proUnityImportService;
+    
+    @Value("${cvscreen.import.jobs.workers:1}")
+    private int workers;
+    
+    @Value("${cvscreen.import.jobs.queue-capacity:4}")
+    private int queueCapacity;
+    
+    @Value("${cvscreen.import.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+    
+    @Value("${cvscreen.import.jobs.event-queue-capacity:100}")
+    private int eventQueueCapacity;
+    
+    @Value("${cvscreen.import.jobs.event-senders:2}")
+    private int eventSenders;
+    
+    @Value("${cvscreen.import.jobs.event-sender-backlog:1000}")
+    private int eventSenderBacklog;
+    
+    @Value("${cvscreen.import.spool-path:${java.io.tmpdir}/cvscreen-imports}")
+    private String spoolPath;
+    
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private ThreadPoolExecutor eventSender;
+    
+    @PostConstruct
+    void startExecutor() throws IOException {
+        // Jobs do not survive a restart, neither do their uploads
+        Path spoolDirectory = Paths.get(spoolPath);
+        Files.createDirectories(spoolDirectory);
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(spoolDirectory, "*.json")) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "import-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        
+        // Subscribers with events to send are queued at most once each
+        AtomicInteger senderCount = new AtomicInteger();
+        eventSender = new ThreadPoolExecutor(eventSenders, eventSenders, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(eventSenderBacklog),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "import-events-" + senderCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdownNow();
+        eventSender.shutdownNow();
+    }
+    
+    /**
+     * Spools the upload to disk and queues its import
+     *
+     * @param resume False to process the whole file again, ignoring its checkpoint
+     * @param sync True to update the applications whose candidate changed instead of skipping them
+     */
+    public ImportJobDTO startJob(MultipartFile file, boolean resume, boolean sync) throws IOException {
+        purgeExpiredJobs();
+        
+        String jobId = UUID.randomUUID().toString();
+        Path spooled = Paths.get(spoolPath).resolve(jobId + ".json");
+        file.transferTo(spooled);
+        
+        ImportJob job = new ImportJob(jobId, file.getOriginalFilename(), file.getSize(), spooled, resume, sync);
+        jobs.put(jobId, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            Files.deleteIfExists(spooled);
+            throw new IllegalStateException("Too many imports queued, please retry later");
+        }
+        
+        log.info("Queued import job {} for {} ({} bytes)", jobId, job.filename, job.fileSize);
+        return toDTO(job);
+    }
+    
+    public ImportJobDTO getJob(String jobId) {
+        purgeExpiredJobs();
+        return toDTO(findJob(jobId));
+    }
+    
+    /**
+     * Streams the events of a job, completed once the job is finished
+     */
+    public SseEmitter subscribe(String jobId) {
+        ImportJob job = findJob(jobId);
+        // No timeout: the stream ends with the job
+        SseEmitter emitter = new SseEmitter(0L);
+        job.subscribe(new Subscriber(emitter, eventSender, eventQueueCapacity));
+        return emitter;
+    }
+    
+    private void run(ImportJob job) {
+        job.start();
+        try {
+            ImportResult result = proUnityImportService.importFromProUnity(
+                    new FileSystemResource(job.spooled), job.filename, job.fileSize, job.resume, job.sync, job);
+            job.finish(JobStatus.COMPLETED, result, null);
+            log.info("Import job {} completed: {} imported, {} updated, {} skipped, {} failed", job.id,
+                    result.getSuccessCount(), result.getUpdatedCount(), result.getSkippedCount(),
+                    result.getFailedCount());
+        } catch (RuntimeException e) {
+            job.finish(JobStatus.FAILED, null, e.getMessage());
+            log.error("Import job {} failed", job.id, e);
+        } finally {
+            try {
+                Files.deleteIfExists(job.spooled);
+            } catch (IOException e) {
+                log.warn("Could not delete spooled import {}", job.spooled, e);
+            }
+        }
+    }
+    
+    private ImportJob findJob(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Import job not found with id: " + jobId);
+        }
+        return job;
+    }
+    
+    private void purgeExpiredJobs() {
+        LocalDateTime expiry = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(expiry));
+    }
+    
+    private static ImportJobDTO toDTO(ImportJob job) {
+        ImportJobDTO dto = new ImportJobDTO();
+        dto.setId(job.id);
+        dto.setStatus(job.status.name());
+        dto.setFilename(job.filename);
+        dto.setFileSize(job.fileSize);
+        dto.setCandidateCount(job.candidateCount);
+        dto.setProcessedCount(job.successCount + job.updatedCount + job.skippedCount + job.failedCount);
+        dto.setSuccessCount(job.successCount);
+        dto.setUpdatedCount(job.updatedCount);
+        dto.setSkippedCount(job.skippedCount);
+        dto.setResumedCount(job.resumedCount);
+        dto.setFailedCount(job.failedCount);
+        if (job.status == JobStatus.COMPLETED) {
+            dto.setPercentDone(100.0);
+        } else if (job.candidateCount != null && job.candidateCount > 0) {
+            dto.setPercentDone(Math.min(100.0, job.lastIndex * 100.0 / job.candidateCount));
+        }
+        if (job.result != null) {
+            dto.setErrors(job.result.getErrors());
+            dto.setCacheStatistics(job.result.getCacheStatistics());
+        }
+        dto.setErrorMessage(job.errorMessage);
+        dto.setCreatedAt(job.createdAt);
+        dto.setStartedAt(job.startedAt);
+        dto.setFinishedAt(job.finishedAt);
+        return dto;
+    }
+    
+    /**
+     * A job and its subscribers. Events are queued under the job lock, so a new subscriber
+     * gets the status first and then every later event, in order.
+     */
+    private static final class ImportJob implements ImportListener {
+        private final String id;
+        private final String filename;
+        private final long fileSize;
+        private final Path spooled;
+        private final boolean resume;
+        private final boolean sync;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile Integer candidateCount;
+        private volatile int lastIndex;
+        private volatile int successCount;
+        private volatile int updatedCount;
+        private volatile int skippedCount;
+        private volatile int resumedCount;
+        private volatile int failedCount;
+        private volatile ImportResult result;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String errorMessage;
+        
+        ImportJob(String id, String filename, long fileSize, Path spooled, boolean resume, boolean sync) {
+            this.id = id;
+            this.filename = filename;
+            this.fileSize = fileSize;
+            this.spooled = spooled;
+            this.resume = resume;
+            this.sync = sync;
+        }
+        
+        synchronized void start() {
+            status = JobStatus.RUNNING;
+            startedAt = LocalDateTime.now();
+        }
+        
+        @Override
+        public synchronized void started(int candidateCount, int resumedCount) {
+            this.candidateCount = candidateCount;
+            this.resumedCount = resumedCount;
+            lastIndex = resumedCount;
+            send("status", toDTO(this));
+        }
+        
+        @Override
+        public synchronized void candidateProcessed(int index, CandidateOutcome outcome, String message,
+                                                    ImportResult result) {
+            lastIndex = Math.max(lastIndex, index);
+            successCount = result.getSuccessCount();
+            updatedCount = result.getUpdatedCount();
+            skippedCount = result.getSkippedCount();
+            failedCount = result.getFailedCount();
+            
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("index", index);
+            event.put("outcome", outcome.name());
+            event.put("message", message);
+            event.put("successCount", successCount);
+            event.put("updatedCount", updatedCount);
+            event.put("skippedCount", skippedCount);
+            event.put("failedCount", failedCount);
+            event.put("candidateCount", candidateCount);
+            send("progress", event);
+        }
+        
+        synchronized void finish(JobStatus finalStatus, ImportResult finalResult, String error) {
+            result = finalResult;
+            errorMessage = error;
+            if (finalResult != null) {
+                successCount = finalResult.getSuccessCount();
+                updatedCount = finalResult.getUpdatedCount();
+                skippedCount = finalResult.getSkippedCount();
+                failedCount = finalResult.getFailedCount();
+            }
+            status = finalStatus;
+            finishedAt = LocalDateTime.now();
+            
+            send(finalStatus == JobStatus.COMPLETED ? "completed" : "failed", toDTO(this));
+            subscribers.forEach(Subscriber::complete);
+            subscribers.clear();
+        }
+        
+        synchronized void subscribe(Subscriber subscriber) {
+            subscriber.offer("status", toDTO(this));
+            if (finishedAt != null) {
+                subscriber.offer(status == JobStatus.COMPLETED ? "completed" : "failed", toDTO(this));
+                subscriber.complete();
+                return;
+            }
+            subscribers.add(subscriber);
+            SseEmitter emitter = subscriber.emitter;
+            emitter.onCompletion(() -> subscribers.remove(subscriber));
+            emitter.onTimeout(() -> subscribers.remove(subscriber));
+            emitter.onError(error -> subscribers.remove(subscriber));
+        }
+        
+        private void send(String eventName, Object data) {
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.offer(eventName, data)) {
+                    subscribers.remove(subscriber);
+                }
+            }
+        }
+    }
+    
+    /**
+     * The events waiting for one subscriber, sent in order by at most one sender thread at a
+     * time. Only progress events are dropped: when the queue is full, a progress event replaces
+     * the progress event at its tail, or is dropped after any other event.
+     */
+    private static final class Subscriber implements Runnable {
+        private static final String PROGRESS = "progress";
+        
+        private final SseEmitter emitter;
+        private final ExecutorService sender;
+        private final int capacity;
+        private final Deque<Event> pending = new ArrayDeque<>();
+        private boolean sending;
+        private boolean closed;
+        
+        /**
+         * @param name null to complete the stream
+         */
+        private record Event(String name, Object data) {
+        }
+        
+        Subscriber(SseEmitter emitter, ExecutorService sender, int capacity) {
+            this.emitter = emitter;
+            this.sender = sender;
+            this.capacity = capacity;
+        }
+        
+        /**
+         * @return false once the client is gone
+         */
+        boolean offer(String name, Object data) {
+            return enqueue(new Event(name, data));
+        }
+        
+        void complete() {
+            enqueue(new Event(null, null));
+        }
+        
+        private boolean enqueue(Event event) {
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                if (PROGRESS.equals(event.name()) && pending.size() >= capacity) {
+                    if (pending.peekLast() != null && PROGRESS.equals(pending.peekLast().name())) {
+                        pending.pollLast();
+                        pending.addLast(event);
+                    }
+                    return true;
+                }
+                pending.addLast(event);
+                if (sending) {
+                    return true;
+                }
+                sending = true;
+            }
+            schedule();
+            return true;
+        }
+        
+        /**
+         * Sends at most a queue of events, then gives the thread to the next subscriber
+         */
+        @Override
+        public void run() {
+            for (int sent = 0; ; sent++) {
+                Event event;
+                synchronized (this) {
+                    if (closed || pending.isEmpty()) {
+                        sending = false;
+                        return;
+                    }
+                    if (sent == capacity) {
+                        break;
+                    }
+                    event = pending.pollFirst();
+                }
+                try {
+                    if (event.name() == null) {
+                        emitter.complete();
+                        close();
+                    } else {
+                        emitter.send(SseEmitter.event().name(event.name()).data(event.data()));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // Client gone
+                    close();
+                }
+            }
+            schedule();
+        }
+        
+        private void schedule() {
+            try {
+                sender.execute(this);
+            } catch (RejectedExecutionException e) {
+                // Too many subscribers waiting, or shutting down
+                close();
+                try {
+                    emitter.complete();
+                } catch (IllegalStateException alreadyCompleted) {
+                    // Nothing to end
+                }
+            }
+        }
+        
+        private synchronized void close() {
+            closed = true;
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.cvscreen.service;
+
+import com.cvscreen.entity.Job;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Companies, candidates and jobs resolved during one Pro-Unity import, so that the suppliers
+ * and candidates repeated across the file cost one lookup each. Pre-warmed with one query per
+ * entity type, then completed with the entities the import creates. Holds ids rather than
+ * entities since the persistence context is cleared after every chunk, except for the jobs,
+ * read outside of the chunks.
+ *
+ * Not thread-safe, and dropped with its import. Changes made by a chunk are undone with
+ * {@link #rollback()} when the chunk is rolled back, kept with {@link #commit()} otherwise.
+ */
+public class ImportResolutionCache {
+    
+    private final Map<String, Long> companyIds = new HashMap<>();
+    private final Map<String, CandidateEntry> candidates = new HashMap<>();
+    private final Map<String, Job> jobs = new HashMap<>();
+    
+    // Changes since the last commit
+    private final List<String> addedCompanies = new ArrayList<>();
+    private final List<String> addedCandidates = new ArrayList<>();
+    private final List<CandidateEntry> filledContractTypes = new ArrayList<>();
+    
+    private final HitCounter companyHits = new HitCounter();
+    private final HitCounter candidateHits = new HitCounter();
+    private final HitCounter jobHits = new HitCounter();
+    
+    /**
+     * Key companies are matched by: case, surrounding and repeated spaces are ignored
+     */
+    public static String normalizeCompanyName(String name) {
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Keeps the first company added for a name, add them oldest first
+     */
+    public void addCompany(Long id, String name) {
+        String key = normalizeCompanyName(name);
+        if (companyIds.putIfAbsent(key, id) == null) {
+            addedCompanies.add(key);
+        }
+    }
+    
+    public Long findCompanyId(String name) {
+        return companyIds.get(normalizeCompanyName(name));
+    }
+    
+    /**
+     * Keeps the first candidate added for a name, add them oldest first
+     */
+    public void addCandidate(Long id, String firstName, String lastName, String contractType) {
+        String key = CandidateService.nameKey(firstName, lastName);
+        if (candidates.putIfAbsent(key, new CandidateEntry(id, contractType != null)) == null) {
+            addedCandidates.add(key);
+        }
+    }
+    
+    public CandidateEntry findCandidate(String firstName, String lastName) {
+        return candidates.get(CandidateService.nameKey(firstName, lastName));
+    }
+    
+    /**
+     * Records that the contract type of a cached candidate was just filled
+     */
+    public void contractTypeSet(CandidateEntry entry) {
+        entry.hasContractType = true;
+        filledContractTypes.add(entry);
+    }
+    
+    public void addJob(Job job) {
+        jobs.putIfAbsent(job.getReference(), job);
+    }
+    
+    public Job findJob(String reference) {
+        return jobs.get(reference);
+    }
+    
+    /**
+     * Keeps the changes made so far, once the chunk that made them is committed
+     */
+    public void commit() {
+        addedCompanies.clear();
+        addedCandidates.clear();
+        filledContractTypes.clear();
+    }
+    
+    /**
+     * Forgets the companies and candidates added since the last commit, their rows were rolled back
+     */
+    public void rollback() {
+        addedCompanies.forEach(companyIds::remove);
+        addedCandidates.forEach(candidates::remove);
+        filledContractTypes.forEach(entry -> entry.hasContractType = false);
+        commit();
+    }
+    
+    public HitCounter getCompanyHits() {
+        return companyHits;
+    }
+    
+    public HitCounter getCandidateHits() {
+        return candidateHits;
+    }
+    
+    public HitCounter getJobHits() {
+        return jobHits;
+    }
+    
+    /**
+     * Lookups and hits per entity type, for the import result
+     */
+    public Map<String, HitCounter> getStatistics() {
+        Map<String, HitCounter> statistics = new LinkedHashMap<>();
+        statistics.put("companies", companyHits);
+        statistics.put("candidates", candidateHits);
+        statistics.put("jobs", jobHits);
+        return statistics;
+    }
+    
+    public static class CandidateEntry {
+        private final Long id;
+        private boolean hasContractType;
+        
+        CandidateEntry(Long id, boolean hasContractType) {
+            this.id = id;
+            this.hasContractType = hasContractType;
+        }
+        
+        public Long getId() {
+            return id;
+        }
+        
+        public boolean hasContractType() {
+            return hasContractType;
+        }
+    }
+    
+    public static class HitCounter {
+        private int lookups;
+        private int hits;
+        
+        public void hit() {
+            lookups++;
+            hits++;
+        }
+        
+        public void miss() {
+            lookups++;
+        }
+        
+        public int getLookups() {
+            return lookups;
+        }
+        
+        public int getHits() {
+            return hits;
+        }
+        
+        /**
+         * Between 0 and 1, 0 without lookups
+         */
+        public double getHitRatio() {
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%d/%d (%.0f%%)", hits, lookups, getHitRatio() * 100);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.cvscreen.dto.JobDTO;
 import com.cvscreen.entity.Job;
 import com.cvscreen.exception.ResourceNotFoundException;
 import com.cvscreen.repository.JobRepository;
+import com.cvscreen.specification.SearchPattern;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,6 +18,9 @@ import java.util.stream.Collectors;
 public class JobService {
     
     private final JobRepository jobRepository;
+    private final CounterService counterService;
+    private final SuggestionService suggestionService;
+    private final CvStorageService cvStorageService;
     
     @Transactional(readOnly = true)
     public List<JobDTO> getAllJobs() {
@@ -41,7 +45,7 @@ public class JobService {
     
     @Transactional(readOnly = true)
     public List<JobDTO> searchJobs(String searchTerm) {
-        return jobRepository.searchJobs(searchTerm).stream()
+        return jobRepository.searchJobs(SearchPattern.contains(searchTerm)).stream()
             .map(this::convertToDTO)
             .collect(Collectors.toList());
     }
@@ -63,6 +67,7 @@ public class JobService {
         }
         
         job = jobRepository.save(job);
+        suggestionService.jobSaved(job);
         return convertToDTO(job);
     }
     
@@ -83,15 +88,18 @@ public class JobService {
         }
         
         job = jobRepository.save(job);
+        suggestionService.jobSaved(job);
         return convertToDTO(job);
     }
     
     @Transactional
     public void deleteJob(Long id) {
-        if (!jobRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Job not found with id: " + id);
-        }
-        jobRepository.deleteById(id);
+        Job job = jobRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Job not found with id: " + id));
+        counterService.applicationsRemoved(job.getApplications());
+        cvStorageService.applicationsRemoved(job.getApplications());
+        jobRepository.delete(job);
+        suggestionService.jobRemoved(id);
     }
     
     public Job findOrCreateJob(String reference, String title, String category) {
@@ -102,7 +110,9 @@ public class JobService {
                 newJob.setTitle(title != null ? title : "Unknown");
                 newJob.setCategory(category != null ? category : "Unknown");
                 newJob.setStatus(Job.JobStatus.OPEN);
-                return jobRepository.save(newJob);
+                newJob = jobRepository.save(newJob);
+                suggestionService.jobSaved(newJob);
+                return newJob;
             });
     }
     
@@ -116,7 +126,7 @@ public class JobService {
         dto.setStatus(job.getStatus().name());
         dto.setSource(job.getSource());
         dto.setDescription(job.getDescription());
-        dto.setApplicationCount(job.getApplications() != null ? job.getApplications().size() : 0);
+        dto.setApplicationCount(job.getApplicationCount().intValue());
         dto.setCreatedAt(job.getCreatedAt());
         dto.setUpdatedAt(job.getUpdatedAt());
         return dto;
@@ -0,0 +1,53 @@
+package com.cvscreen.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived cache of listing totals, so that cursor pages asking for the total
+ * do not run a COUNT(*) each. Totals may lag behind writes by the cache duration.
+ */
+@Service
+public class ListingCountCache {
+    
+    private static final int MAX_ENTRIES = 1000;
+    
+    @Value("${cvscreen.pagination.count-cache-seconds:60}")
+    private long cacheSeconds;
+    
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+    
+    /**
+     * @param key Listing and filters the total belongs to
+     */
+    public long get(String key, LongSupplier counter) {
+        long now = System.currentTimeMillis();
+        CachedCount cached = counts.get(key);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.count;
+        }
+        if (counts.size() >= MAX_ENTRIES) {
+            counts.values().removeIf(entry -> entry.expiresAt <= now);
+            if (counts.size() >= MAX_ENTRIES) {
+                counts.clear();
+            }
+        }
+        long count = counter.getAsLong();
+        counts.put(key, new CachedCount(count, now + cacheSeconds * 1000));
+        return count;
+    }
+    
+    private static final class CachedCount {
+        private final long count;
+        private final long expiresAt;
+        
+        CachedCount(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -3,25 +3,51 @@ package com.cvscreen.service;
 import com.cvscreen.entity.Application;
 import com.cvscreen.entity.Candidate;
 import com.cvscreen.entity.Company;
+import com.cvscreen.entity.ImportCheckpoint;
 import com.cvscreen.entity.Job;
 import com.cvscreen.repository.ApplicationRepository;
+import com.cvscreen.repository.CandidateRepository;
+import com.cvscreen.repository.CompanyRepository;
+import com.cvscreen.repository.ImportCheckpointRepository;
+import com.cvscreen.repository.JobRepository;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -32,76 +58,69 @@ public class ProUnityImportService {
     private final CandidateService candidateService;
     private final JobService jobService;
     private final CompanyService companyService;
+    private final CounterService counterService;
+    private final JobRepository jobRepository;
+    private final CandidateRepository candidateRepository;
+    private final CompanyRepository companyRepository;
+    private final ImportCheckpointRepository checkpointRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManager entityManager;
     private final ObjectMapper objectMapper;
     
-    @Transactional
-    public ImportResult importFromProUnity(MultipartFile file) {
-        ImportResult result = new ImportResult();
+    // Checksums of the files being imported
+    private final Set<String> checksumsInFlight = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * Objects whose candidates array is imported, in order of preference ("" is the root)
+     */
+    private static final List<String> CANDIDATE_PARENTS = List.of("", "jobPost", "data");
+    
+    @Value("${cvscreen.import.batch-size:500}")
+    private int batchSize;
+    
+    public ImportResult importFromProUnity(MultipartFile file, boolean resume, boolean sync) {
+        return importFromProUnity(file, file.getOriginalFilename(), file.getSize(), resume, sync, ImportListener.NONE);
+    }
+    
+    /**
+     * Imports the candidates in chunks of cvscreen.import.batch-size, each committed in its own
+     * transaction together with the checkpoint of the file. A failed chunk is retried one
+     * candidate at a time, the candidates failing on their own being reported as errors. The
+     * import stops when no candidate of a chunk can be saved; running it again on the same
+     * file content resumes after the last committed candidate. A run is refused while the same
+     * content is being imported.
+     *
+     * @param source Pro-Unity export, opened twice
+     * @param resume False to process the whole file again, ignoring its checkpoint
+     * @param sync True to update the applications already imported whose candidate changed in Pro-Unity,
+     *             instead of skipping them
+     * @param listener Notified of each candidate on the calling thread, once its chunk is committed
+     */
+    public ImportResult importFromProUnity(InputStreamSource source, String filename, long size,
+                                           boolean resume, boolean sync, ImportListener listener) {
+        ImportResult result = new ImportResult(listener);
         
         try {
-            log.info("=== Starting Pro-Unity import ===");
+            log.info("=== Starting Pro-Unity {} ===", sync ? "sync" : "import");
             log.info("File: {}, Size: {} bytes ({} MB)", 
-                    file.getOriginalFilename(), file.getSize(), String.format("%.2f", file.getSize() / 1024.0 / 1024.0));
-            
-            // Parse JSON
-            JsonNode rootNode = objectMapper.readTree(file.getInputStream());
-            log.info("JSON parsed successfully");
-            log.debug("Root node has {} fields", rootNode.size());
-            
-            // Log all root level fields to help debug
-            Iterator<String> fieldNames = rootNode.fieldNames();
-            StringBuilder fieldsInfo = new StringBuilder("Root fields: ");
-            while (fieldNames.hasNext()) {
-                fieldsInfo.append(fieldNames.next()).append(", ");
-            }
-            log.info(fieldsInfo.toString());
+                    filename, size, String.format("%.2f", size / 1024.0 / 1024.0));
             
-            // Navigate to candidates - try multiple paths
-            JsonNode candidatesNode = findCandidatesNode(rootNode);
-            
-            if (candidatesNode == null || !candidatesNode.isArray()) {
-                String errorMsg = "No candidates array found in JSON";
-                log.error(errorMsg);
-                log.error("JSON structure (first 1000 chars): {}", 
-                        rootNode.toPrettyString().substring(0, Math.min(1000, rootNode.toPrettyString().length())));
-                result.addError(0, errorMsg + ". Please check the file structure.");
+            // First pass: job context and location of the candidates, without building the tree.
+            // The whole document is read, so a malformed file is rejected before anything is imported.
+            DocumentLayout layout = scanDocument(source);
+            result.setChecksum(layout.getChecksum());
+            // Two runs of the same content would both create what the other is creating
+            if (!checksumsInFlight.add(layout.getChecksum())) {
+                log.warn("✗ The same file content is being imported by another run");
+                result.setConcurrentRun(true);
+                result.addError(0, "The same file content is being imported, import it again once that is done");
                 return result;
             }
-            
-            log.info("✓ Found {} candidates in JSON", candidatesNode.size());
-            
-            // Extract job information
-            String jobReference = extractJobReference(rootNode);
-            String jobTitle = extractJobTitle(rootNode);
-            
-            log.info("Job context - Reference: '{}', Title: '{}'", 
-                    jobReference, jobTitle);
-            
-            // Find or create job
-            Job job = null;
-            if (jobReference != null && !jobReference.isEmpty()) {
-                job = jobService.findOrCreateJob(jobReference, jobTitle != null ? jobTitle : "Unknown", "Unknown");
-                log.info("✓ Job created/found: {}", jobReference);
-            } else {
-                log.warn("No job reference found, candidates will be imported as spontaneous applications");
-            }
-            
-            // Process candidates
-            int candidateIndex = 0;
-            for (JsonNode candidateNode : candidatesNode) {
-                candidateIndex++;
-                try {
-                    importCandidate(candidateNode, job, result, candidateIndex);
-                } catch (Exception e) {
-                    log.error("✗ Failed to import candidate #{}: {}", candidateIndex, e.getMessage(), e);
-                    result.addError(candidateIndex, "Failed: " + e.getMessage());
-                }
+            try {
+                importDocument(source, layout, filename, resume, sync, listener, result);
+            } finally {
+                checksumsInFlight.remove(layout.getChecksum());
             }
-            
-            log.info("=== Import completed ===");
-            log.info("SUCCESS: {}, SKIPPED (duplicates): {}, FAILED: {}", 
-                    result.getSuccessCount(), result.getSkippedCount(), result.getFailedCount());
-            
         } catch (IOException e) {
             log.error("✗ Failed to parse Pro-Unity JSON", e);
             result.addError(0, "Failed to parse JSON: " + e.getMessage());
@@ -114,46 +133,211 @@ public class ProUnityImportService {
     }
     
     /**
-     * Try to find the candidates array in various possible locations
+     * Imports the candidates of a scanned document, resuming after its checkpoint
      */
-    private JsonNode findCandidatesNode(JsonNode rootNode) {
-        log.debug("Searching for candidates array...");
-        
-        // Try direct candidates array
-        if (rootNode.has("candidates")) {
-            JsonNode candidates = rootNode.get("candidates");
-            if (candidates.isArray()) {
-                log.info("✓ Found candidates at root.candidates");
-                return candidates;
-            }
+    private void importDocument(InputStreamSource source, DocumentLayout layout, String filename,
+                                boolean resume, boolean sync, ImportListener listener,
+                                ImportResult result) throws IOException {
+        log.info("JSON parsed successfully");
+        log.info("Root fields: {}", String.join(", ", layout.getRootFields()));
+        
+        String candidatesPath = layout.findCandidatesPath();
+        
+        if (candidatesPath == null) {
+            String errorMsg = "No candidates array found in JSON";
+            log.error(errorMsg);
+            result.addError(0, errorMsg + ". Please check the file structure.");
+            return;
         }
         
-        // Try jobPost.candidates
-        if (rootNode.has("jobPost")) {
-            JsonNode jobPost = rootNode.get("jobPost");
-            if (jobPost.has("candidates") && jobPost.get("candidates").isArray()) {
-                log.info("✓ Found candidates at root.jobPost.candidates");
-                return jobPost.get("candidates");
+        int candidateCount = layout.getCandidateCount(candidatesPath);
+        log.info("✓ Found {} candidates in JSON at {}", candidateCount,
+                candidatesPath.isEmpty() ? "root" : "root." + candidatesPath);
+        
+        ImportCheckpoint checkpoint = transaction().execute(status ->
+                findOrCreateCheckpoint(layout.getChecksum(), filename, candidateCount, resume, sync));
+        int committedIndex = checkpoint.getLastCommittedIndex();
+        if (committedIndex > 0) {
+            log.info("↻ Resuming after candidate #{}, committed by a previous import of this file", committedIndex);
+        }
+        result.setResumedCount(committedIndex);
+        listener.started(candidateCount, committedIndex);
+        if (checkpoint.getCompletedAt() != null) {
+            log.info("✓ This file content was already fully imported, nothing to do");
+            result.setAlreadyImported(true);
+            result.setCompleted(true);
+            return;
+        }
+        
+        ImportResolutionCache cache = transaction().execute(status -> prewarmCache());
+        result.setCacheStatistics(cache.getStatistics());
+        
+        // Extract job information
+        String jobReference = extractJobReference(layout.getContext());
+        String jobTitle = extractJobTitle(layout.getContext());
+        
+        log.info("Job context - Reference: '{}', Title: '{}'", 
+                jobReference, jobTitle);
+        
+        // Find or create job
+        Job job = null;
+        if (jobReference != null && !jobReference.isEmpty()) {
+            job = cache.findJob(jobReference);
+            if (job != null) {
+                cache.getJobHits().hit();
+            } else {
+                cache.getJobHits().miss();
+                job = transaction().execute(status ->
+                        jobService.findOrCreateJob(jobReference, jobTitle != null ? jobTitle : "Unknown", "Unknown"));
+                cache.addJob(job);
             }
+            log.info("✓ Job created/found: {}", jobReference);
+        } else {
+            log.warn("No job reference found, candidates will be imported as spontaneous applications");
         }
         
-        // Try data.candidates
-        if (rootNode.has("data")) {
-            JsonNode data = rootNode.get("data");
-            if (data.has("candidates") && data.get("candidates").isArray()) {
-                log.info("✓ Found candidates at root.data.candidates");
-                return data.get("candidates");
+        // Second pass: process candidates, one subtree in memory at a time, saved in chunks
+        int candidateIndex = 0;
+        List<PendingCandidate> batch = new ArrayList<>(batchSize);
+        try (JsonParser parser = openCandidates(source, candidatesPath)) {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                candidateIndex++;
+                if (candidateIndex <= committedIndex) {
+                    // Committed by a previous run, not even parsed
+                    parser.skipChildren();
+                    continue;
+                }
+                JsonNode candidateNode = parser.readValueAsTree();
+                try {
+                    PendingCandidate pending = parseCandidate(candidateNode, job, result, candidateIndex);
+                    if (pending != null) {
+                        batch.add(pending);
+                    }
+                } catch (Exception e) {
+                    log.error("✗ Failed to import candidate #{}: {}", candidateIndex, e.getMessage(), e);
+                    result.addError(candidateIndex, "Failed: " + e.getMessage());
+                }
+                if (batch.size() >= batchSize) {
+                    if (!commitChunk(batch, committedIndex, candidateIndex, job, sync, cache, checkpoint, result)) {
+                        return;
+                    }
+                    committedIndex = candidateIndex;
+                    batch.clear();
+                }
             }
         }
+        if (candidateIndex > committedIndex) {
+            if (!commitChunk(batch, committedIndex, candidateIndex, job, sync, cache, checkpoint, result)) {
+                return;
+            }
+        } else {
+            // No chunk to commit (an empty candidates array): the checkpoint is completed here
+            int lastIndex = candidateIndex;
+            transaction().executeWithoutResult(status ->
+                    checkpointRepository.advance(checkpoint.getId(), lastIndex, LocalDateTime.now()));
+        }
+        result.setCompleted(true);
         
-        // Maybe the root itself is an array of candidates?
-        if (rootNode.isArray()) {
-            log.info("✓ Root node itself is an array (assuming candidates)");
-            return rootNode;
+        log.info("=== Import completed ===");
+        log.info("SUCCESS: {}, UPDATED: {}, SKIPPED (duplicates): {}, FAILED: {}", 
+                result.getSuccessCount(), result.getUpdatedCount(), result.getSkippedCount(), result.getFailedCount());
+        log.info("Resolution cache hits: {}", cache.getStatistics());
+    }
+    
+    /**
+     * Reads the document once with the streaming parser. Keeps the scalar fields of the root
+     * and of jobPost (the job context), and counts the elements of every candidates array
+     * found at a supported location. Everything else is skipped without being materialized.
+     */
+    private DocumentLayout scanDocument(InputStreamSource source) throws IOException {
+        DocumentLayout layout = new DocumentLayout(objectMapper.createObjectNode());
+        MessageDigest digest = newDigest();
+        
+        try (DigestInputStream input = new DigestInputStream(source.getInputStream(), digest);
+             JsonParser parser = objectMapper.createParser(input)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                // Maybe the root itself is an array of candidates?
+                layout.addCandidates("", countElements(parser));
+            } else if (token == JsonToken.START_OBJECT) {
+                scanObject(parser, "", layout.getContext(), layout);
+            } else {
+                throw new JsonParseException(parser, "Expected a JSON object or array");
+            }
+            // Reject trailing content, as readTree would. This reads to the end, so the
+            // checksum covers the whole file.
+            if (parser.nextToken() != null) {
+                throw new JsonParseException(parser, "Unexpected content after the JSON document");
+            }
         }
         
-        log.error("✗ Could not find candidates array in any expected location");
-        return null;
+        layout.setChecksum(HexFormat.of().formatHex(digest.digest()));
+        return layout;
+    }
+    
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private void scanObject(JsonParser parser, String path, ObjectNode context, DocumentLayout layout) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (path.isEmpty()) {
+                layout.getRootFields().add(fieldName);
+            }
+            
+            if (token.isScalarValue()) {
+                context.set(fieldName, parser.readValueAsTree());
+            } else if (token == JsonToken.START_ARRAY && "candidates".equals(fieldName)
+                    && CANDIDATE_PARENTS.contains(path)) {
+                layout.addCandidates(path.isEmpty() ? fieldName : path + "." + fieldName, countElements(parser));
+            } else if (token == JsonToken.START_OBJECT && path.isEmpty() && CANDIDATE_PARENTS.contains(fieldName)) {
+                scanObject(parser, fieldName, context.putObject(fieldName), layout);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+    
+    private int countElements(JsonParser parser) throws IOException {
+        int count = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * Opens the file again and positions the parser on the start of the candidates array
+     * at the given dotted path (empty for a root array)
+     */
+    private JsonParser openCandidates(InputStreamSource source, String path) throws IOException {
+        JsonParser parser = objectMapper.createParser(source.getInputStream());
+        try {
+            parser.nextToken();
+            if (!path.isEmpty()) {
+                for (String fieldName : path.split("\\.")) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME && !fieldName.equals(parser.currentName())) {
+                        parser.nextToken();
+                        parser.skipChildren();
+                    }
+                    parser.nextToken();
+                }
+            }
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Candidates array not found at " + path);
+            }
+            return parser;
+        } catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
     }
     
     private String extractJobReference(JsonNode rootNode) {
@@ -215,19 +399,17 @@ public class ProUnityImportService {
         return null;
     }
     
-    private void importCandidate(JsonNode candidateNode, Job job, ImportResult result, int index) {
-        // Extract Pro-Unity UUID
-        String externalId = candidateNode.path("id").asText();
+    /**
+     * Reads one candidate without touching the database
+     *
+     * @return null if the candidate cannot be imported, the error being recorded
+     */
+    private PendingCandidate parseCandidate(JsonNode candidateNode, Job job, ImportResult result, int index) {
+        // Extract Pro-Unity UUID (external_id is unique, so a missing one is stored as null)
+        String externalId = getTextValue(candidateNode, "id");
         
         log.debug("Processing candidate #{} (externalId: {})", index, externalId);
         
-        // Check if application already exists (duplicate detection)
-        if (externalId != null && !externalId.isEmpty() && applicationRepository.existsByExternalId(externalId)) {
-            log.info("↻ Candidate #{} already exists (externalId: {}), skipping", index, externalId);
-            result.incrementSkippedCount();
-            return;
-        }
-        
         // Extract candidate name from resourceProfile
         JsonNode resourceProfileNode = candidateNode.path("resourceProfile");
         
@@ -254,7 +436,7 @@ public class ProUnityImportService {
                 String errorMsg = "Missing candidate name information";
                 log.error("✗ Candidate #{}: {}", index, errorMsg);
                 result.addError(index, errorMsg);
-                return;
+                return null;
             }
             
             // Use simple split as fallback
@@ -269,11 +451,14 @@ public class ProUnityImportService {
                     index, firstName, lastName, contractType);
         }
         
-        // Find or create candidate with contract type
-        Candidate candidate = candidateService.findOrCreateCandidateWithContractType(firstName, lastName, contractType);
+        // Candidate to find or create with contract type
+        Candidate candidate = new Candidate();
+        candidate.setFirstName(firstName);
+        candidate.setLastName(lastName);
+        candidate.setContractType(contractType);
         
         // Extract company information for this specific candidate
-        Company company = extractCompanyForCandidate(candidateNode, index);
+        String companyName = extractCompanyName(candidateNode, index);
         
         // Extract application details
         String roleCategory = extractRoleCategory(candidateNode, job);
@@ -282,30 +467,304 @@ public class ProUnityImportService {
         Application.ApplicationStatus status = mapStatus(candidateNode);
         String conclusion = extractConclusion(candidateNode);
         
-        // Create application
+        // Application, candidate, company and job are set once resolved
         Application application = new Application();
         application.setExternalId(externalId);
-        application.setCandidate(candidate);
-        application.setJob(job);
-        application.setCompany(company);
         application.setRoleCategory(roleCategory);
         application.setDailyRate(dailyRate);
         application.setApplicationDate(applicationDate);
         application.setStatus(status);
         application.setConclusion(conclusion);
+        application.setSourceHash(contentHash(candidateNode));
         
-        applicationRepository.save(application);
-        result.incrementSuccessCount();
+        return new PendingCandidate(index, candidate, companyName, application);
+    }
+    
+    /**
+     * Commits one chunk: the candidates read after the previous checkpoint, up to lastIndex.
+     * Outcomes are reported once the transaction is committed. A chunk rolled back is retried
+     * one candidate at a time, see {@link #commitOneByOne}.
+     *
+     * @return false if nothing of the chunk could be saved, the error being recorded
+     */
+    private boolean commitChunk(List<PendingCandidate> batch, int previousIndex, int lastIndex, Job job,
+                                boolean sync, ImportResolutionCache cache, ImportCheckpoint checkpoint,
+                                ImportResult result) {
+        try {
+            commit(batch, lastIndex, job, sync, cache, checkpoint);
+        } catch (RuntimeException e) {
+            log.warn("✗ Candidates #{} to #{} rolled back, retrying them one at a time: {}",
+                    previousIndex + 1, lastIndex, e.getMessage());
+            return commitOneByOne(batch, previousIndex, lastIndex, job, sync, cache, checkpoint, result, e);
+        }
+        batch.forEach(pending -> reportOutcome(pending, sync, result));
+        return true;
+    }
+    
+    /**
+     * Commits the candidates of a rolled back chunk one per transaction, each moving the
+     * checkpoint to itself, so that a bad record only fails on its own. When every candidate
+     * fails, the cause is not in the records (the database is unavailable, for instance): the
+     * import stops there and the checkpoint stays before the chunk.
+     */
+    private boolean commitOneByOne(List<PendingCandidate> batch, int previousIndex, int lastIndex, Job job,
+                                   boolean sync, ImportResolutionCache cache, ImportCheckpoint checkpoint,
+                                   ImportResult result, RuntimeException chunkError) {
+        Map<Integer, String> failures = new LinkedHashMap<>();
+        int committed = 0;
+        for (PendingCandidate pending : batch) {
+            pending.reset();
+            try {
+                commit(List.of(pending), pending.index, job, sync, cache, checkpoint);
+            } catch (RuntimeException e) {
+                log.error("✗ Failed to import candidate #{}", pending.index, e);
+                pending.reset();
+                failures.put(pending.index, e.getMessage());
+                continue;
+            }
+            committed++;
+            reportOutcome(pending, sync, result);
+        }
         
-        log.info("✓ Candidate #{}: {} {} ({}) - {} ({}) - Company: {}", 
-                index, firstName, lastName, contractType != null ? contractType : "N/A", 
-                roleCategory, status, company != null ? company.getName() : "None");
+        if (committed == 0 && !batch.isEmpty()) {
+            log.error("✗ Candidates #{} to #{} rolled back", previousIndex + 1, lastIndex, chunkError);
+            result.addError(previousIndex + 1, String.format(
+                    "Candidates #%d to #%d rolled back: %s. Import the file again to resume after candidate #%d.",
+                    previousIndex + 1, lastIndex, chunkError.getMessage(), previousIndex));
+            return false;
+        }
+        failures.forEach((index, message) -> result.addError(index, "Failed: " + message));
+        // Past the failed candidates and those that were not parsed
+        transaction().executeWithoutResult(status ->
+                checkpointRepository.advance(checkpoint.getId(), lastIndex, LocalDateTime.now()));
+        return true;
+    }
+    
+    /**
+     * Saves candidates and moves the checkpoint to lastIndex in one transaction
+     */
+    private void commit(List<PendingCandidate> batch, int lastIndex, Job job, boolean sync,
+                        ImportResolutionCache cache, ImportCheckpoint checkpoint) {
+        try {
+            transaction().executeWithoutResult(status -> {
+                // First, so that the checkpoint row stays locked for the whole chunk
+                checkpointRepository.advance(checkpoint.getId(), lastIndex, LocalDateTime.now());
+                importBatch(batch, job != null ? jobRepository.getReferenceById(job.getId()) : null, sync, cache);
+                // Nothing is kept from one chunk to the next
+                entityManager.flush();
+                entityManager.clear();
+            });
+        } catch (RuntimeException e) {
+            cache.rollback();
+            throw e;
+        }
+        cache.commit();
+    }
+    
+    private void reportOutcome(PendingCandidate pending, boolean sync, ImportResult result) {
+        Candidate candidate = pending.candidate;
+        Application application = pending.application;
+        if (pending.outcome == CandidateOutcome.SKIPPED) {
+            log.info("↻ Candidate #{} already exists (externalId: {}), skipping", pending.index, application.getExternalId());
+            result.addSkipped(pending.index, (sync ? "Unchanged" : "Already imported")
+                    + " (externalId: " + application.getExternalId() + ")");
+        } else if (pending.outcome == CandidateOutcome.UPDATED) {
+            log.info("⟳ Candidate #{} changed (externalId: {}), updated to {}", 
+                    pending.index, application.getExternalId(), application.getStatus());
+            result.addUpdated(pending.index, candidate.getFirstName() + " " + candidate.getLastName());
+        } else {
+            result.addSuccess(pending.index, candidate.getFirstName() + " " + candidate.getLastName());
+            log.info("✓ Candidate #{}: {} {} ({}) - {} ({}) - Company: {}", 
+                    pending.index, candidate.getFirstName(), candidate.getLastName(),
+                    candidate.getContractType() != null ? candidate.getContractType() : "N/A", 
+                    application.getRoleCategory(), application.getStatus(),
+                    pending.companyName != null ? pending.companyName : "None");
+        }
+    }
+    
+    /**
+     * Saves a batch of parsed candidates with set-based lookups: one query for the known
+     * external ids and their hashes, candidates and companies from the cache or else one
+     * query each, then the new rows are inserted in JDBC batches and the counters moved with
+     * a few bulk updates. In sync mode, known applications whose hash changed are loaded and
+     * updated as well.
+     */
+    private void importBatch(List<PendingCandidate> batch, Job job, boolean sync, ImportResolutionCache cache) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        // Check if applications already exist (duplicate detection), in the database or earlier in this batch
+        Set<String> externalIds = batch.stream()
+                .map(pending -> pending.application.getExternalId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        // Hash of each known external id, null for applications imported before hashes were stored
+        Map<String, String> storedHashes = new HashMap<>();
+        if (!externalIds.isEmpty()) {
+            for (Object[] row : applicationRepository.findSourceHashes(externalIds)) {
+                storedHashes.put((String) row[0], (String) row[1]);
+            }
+        }
+        Set<String> seenExternalIds = new HashSet<>();
+        List<PendingCandidate> accepted = new ArrayList<>();
+        Map<String, PendingCandidate> changed = new LinkedHashMap<>();
+        for (PendingCandidate pending : batch) {
+            String externalId = pending.application.getExternalId();
+            if (externalId != null && !seenExternalIds.add(externalId)) {
+                pending.outcome = CandidateOutcome.SKIPPED;
+            } else if (externalId == null || !storedHashes.containsKey(externalId)) {
+                pending.outcome = CandidateOutcome.IMPORTED;
+                accepted.add(pending);
+            } else if (sync && !pending.application.getSourceHash().equals(storedHashes.get(externalId))) {
+                pending.outcome = CandidateOutcome.UPDATED;
+                changed.put(externalId, pending);
+            } else {
+                pending.outcome = CandidateOutcome.SKIPPED;
+            }
+        }
+        
+        if (!changed.isEmpty()) {
+            // Known applications: their candidate, company and job are kept
+            for (Application application : applicationRepository.findByExternalIdIn(changed.keySet())) {
+                Application source = changed.get(application.getExternalId()).application;
+                application.setStatus(source.getStatus());
+                application.setDailyRate(source.getDailyRate());
+                application.setConclusion(source.getConclusion());
+                application.setSourceHash(source.getSourceHash());
+            }
+        }
+        
+        // Candidates and companies missing from the cache are found or created together,
+        // including those appearing several times in the batch
+        Map<String, Candidate> candidates = new HashMap<>();
+        List<Candidate> missingCandidates = new ArrayList<>();
+        Set<String> missingCandidateKeys = new HashSet<>();
+        Map<String, Company> companies = new HashMap<>();
+        Map<String, String> missingCompanies = new LinkedHashMap<>();
+        for (PendingCandidate pending : accepted) {
+            Candidate candidate = pending.candidate;
+            String key = CandidateService.nameKey(candidate.getFirstName(), candidate.getLastName());
+            ImportResolutionCache.CandidateEntry cached = cache.findCandidate(candidate.getFirstName(), candidate.getLastName());
+            if (cached != null) {
+                cache.getCandidateHits().hit();
+                candidates.computeIfAbsent(key, name -> candidateRepository.getReferenceById(cached.getId()));
+                if (candidate.getContractType() != null && !candidate.getContractType().isEmpty()
+                        && !cached.hasContractType()) {
+                    // Update contract type if provided and not already set
+                    candidateRepository.fillContractType(cached.getId(), candidate.getContractType());
+                    cache.contractTypeSet(cached);
+                }
+            } else {
+                if (missingCandidateKeys.add(key)) {
+                    cache.getCandidateHits().miss();
+                } else {
+                    cache.getCandidateHits().hit();
+                }
+                // All of them, a later one may bring the contract type
+                missingCandidates.add(candidate);
+            }
+            
+            if (pending.companyName != null) {
+                String companyKey = ImportResolutionCache.normalizeCompanyName(pending.companyName);
+                Long companyId = cache.findCompanyId(pending.companyName);
+                if (companyId != null) {
+                    cache.getCompanyHits().hit();
+                    companies.computeIfAbsent(companyKey, name -> companyRepository.getReferenceById(companyId));
+                } else if (missingCompanies.putIfAbsent(companyKey, pending.companyName) == null) {
+                    cache.getCompanyHits().miss();
+                } else {
+                    cache.getCompanyHits().hit();
+                }
+            }
+        }
+        
+        Map<String, Candidate> created = candidateService.findOrCreateCandidatesWithContractType(missingCandidates);
+        created.forEach((key, candidate) -> {
+            candidates.put(key, candidate);
+            cache.addCandidate(candidate.getId(), candidate.getFirstName(), candidate.getLastName(),
+                    candidate.getContractType());
+        });
+        companyService.findOrCreateCompanies(missingCompanies.values()).forEach((name, company) -> {
+            companies.put(ImportResolutionCache.normalizeCompanyName(name), company);
+            cache.addCompany(company.getId(), company.getName());
+        });
+        
+        List<Application> applications = new ArrayList<>();
+        for (PendingCandidate pending : accepted) {
+            Application application = pending.application;
+            application.setCandidate(candidates.get(
+                    CandidateService.nameKey(pending.candidate.getFirstName(), pending.candidate.getLastName())));
+            application.setCompany(pending.companyName != null
+                    ? companies.get(ImportResolutionCache.normalizeCompanyName(pending.companyName)) : null);
+            application.setJob(job);
+            applications.add(application);
+        }
+        
+        applicationRepository.saveAll(applications);
+        counterService.applicationsAdded(applications);
+    }
+    
+    /**
+     * SHA-256 of the candidate node as read from the file, to detect changes between two syncs
+     */
+    private String contentHash(JsonNode candidateNode) {
+        try {
+            return HexFormat.of().formatHex(newDigest().digest(objectMapper.writeValueAsBytes(candidateNode)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize candidate", e);
+        }
+    }
+    
+    /**
+     * Loads the known companies, candidates and jobs, one query each
+     */
+    private ImportResolutionCache prewarmCache() {
+        long start = System.currentTimeMillis();
+        ImportResolutionCache cache = new ImportResolutionCache();
+        for (Object[] row : companyRepository.findAllIdsAndNames()) {
+            cache.addCompany((Long) row[0], (String) row[1]);
+        }
+        for (Object[] row : candidateRepository.findAllForImport()) {
+            cache.addCandidate((Long) row[0], (String) row[1], (String) row[2], (String) row[3]);
+        }
+        jobRepository.findAll().forEach(cache::addJob);
+        // Existing rows, never rolled back
+        cache.commit();
+        log.info("Resolution cache pre-warmed in {} ms", System.currentTimeMillis() - start);
+        return cache;
+    }
+    
+    /**
+     * Checkpoint of the file content, reset when not resuming. A sync only resumes after
+     * candidates committed by a sync: a plain import skipped the applications known from an
+     * older export. An import resumes after either, the rest of the file is then only imported.
+     */
+    private ImportCheckpoint findOrCreateCheckpoint(String checksum, String filename, int candidateCount,
+                                                    boolean resume, boolean sync) {
+        ImportCheckpoint checkpoint = checkpointRepository.findByFileChecksum(checksum).orElseGet(() -> {
+            ImportCheckpoint created = new ImportCheckpoint();
+            created.setFileChecksum(checksum);
+            created.setCandidateCount(candidateCount);
+            return created;
+        });
+        checkpoint.setFilename(filename);
+        if (!resume || (sync && !Boolean.TRUE.equals(checkpoint.getSyncMode()))) {
+            checkpoint.setLastCommittedIndex(0);
+            checkpoint.setCompletedAt(null);
+        }
+        checkpoint.setSyncMode(sync);
+        return checkpointRepository.save(checkpoint);
+    }
+    
+    private TransactionTemplate transaction() {
+        return new TransactionTemplate(transactionManager);
     }
     
     /**
      * Extract company information for a specific candidate
      */
-    private Company extractCompanyForCandidate(JsonNode candidateNode, int candidateIndex) {
+    private String extractCompanyName(JsonNode candidateNode, int candidateIndex) {
         String companyName = null;
         
         // First try: resourceProfile.contactInfo.company
@@ -335,9 +794,7 @@ public class ProUnityImportService {
             return null;
         }
         
-        // Find or create company
-        Company company = companyService.findOrCreateCompany(companyName.trim());
-        return company;
+        return companyName.trim();
     }
     
     private String extractRoleCategory(JsonNode candidateNode, Job job) {
@@ -490,36 +947,240 @@ public class ProUnityImportService {
         return notes.length() > 0 ? notes.toString().trim() : null;
     }
     
+    /**
+     * A parsed candidate waiting for its batch to be saved
+     */
+    private static class PendingCandidate {
+        private final int index;
+        private final Candidate candidate;
+        private final String companyName;
+        private final Application application;
+        private CandidateOutcome outcome;
+        
+        PendingCandidate(int index, Candidate candidate, String companyName, Application application) {
+            this.index = index;
+            this.candidate = candidate;
+            this.companyName = companyName;
+            this.application = application;
+        }
+        
+        /**
+         * Back to unsaved after a rollback: ids were assigned to rows that do not exist
+         */
+        void reset() {
+            candidate.setId(null);
+            application.setId(null);
+            application.setCandidate(null);
+            application.setCompany(null);
+            application.setJob(null);
+            outcome = null;
+        }
+    }
+    
+    /**
+     * What the first pass learned about the document
+     */
+    private static class DocumentLayout {
+        private final ObjectNode context;
+        private final Set<String> rootFields = new LinkedHashSet<>();
+        private final Map<String, Integer> candidateCounts = new LinkedHashMap<>();
+        private String checksum;
+        
+        DocumentLayout(ObjectNode context) {
+            this.context = context;
+        }
+        
+        void addCandidates(String path, int count) {
+            candidateCounts.put(path, count);
+        }
+        
+        /**
+         * Same preference as before: root.candidates, jobPost.candidates, data.candidates, root array
+         */
+        String findCandidatesPath() {
+            for (String path : List.of("candidates", "jobPost.candidates", "data.candidates", "")) {
+                if (candidateCounts.containsKey(path)) {
+                    return path;
+                }
+            }
+            return null;
+        }
+        
+        int getCandidateCount(String path) {
+            return candidateCounts.get(path);
+        }
+        
+        ObjectNode getContext() {
+            return context;
+        }
+        
+        Set<String> getRootFields() {
+            return rootFields;
+        }
+        
+        String getChecksum() {
+            return checksum;
+        }
+        
+        void setChecksum(String checksum) {
+            this.checksum = checksum;
+        }
+    }
+    
+    /**
+     * Follows an import as it runs, on the importing thread
+     */
+    public interface ImportListener {
+        ImportListener NONE = new ImportListener() {};
+        
+        /**
+         * @param resumedCount Candidates skipped because a previous run committed them
+         */
+        default void started(int candidateCount, int resumedCount) {
+        }
+        
+        /**
+         * @param index Position of the candidate in the file, 0 for errors about the whole file
+         * @param result Counts so far
+         */
+        default void candidateProcessed(int index, CandidateOutcome outcome, String message, ImportResult result) {
+        }
+    }
+    
+    public enum CandidateOutcome {
+        IMPORTED,
+        UPDATED,
+        SKIPPED,
+        FAILED
+    }
+    
     // Inner classes for result
     public static class ImportResult {
         private int successCount = 0;
+        private int updatedCount = 0;
         private int skippedCount = 0;
+        private int resumedCount = 0;
+        private String checksum;
+        private boolean completed;
+        private boolean alreadyImported;
+        private boolean concurrentRun;
         private final List<ImportError> errors = new ArrayList<>();
+        private final ImportListener listener;
+        private Map<String, ImportResolutionCache.HitCounter> cacheStatistics = new LinkedHashMap<>();
+        
+        public ImportResult() {
+            this(ImportListener.NONE);
+        }
         
-        public void incrementSuccessCount() {
+        public ImportResult(ImportListener listener) {
+            this.listener = listener;
+        }
+        
+        public void addSuccess(int index, String message) {
             successCount++;
+            listener.candidateProcessed(index, CandidateOutcome.IMPORTED, message, this);
+        }
+        
+        public void addUpdated(int index, String message) {
+            updatedCount++;
+            listener.candidateProcessed(index, CandidateOutcome.UPDATED, message, this);
         }
         
-        public void incrementSkippedCount() {
+        public void addSkipped(int index, String message) {
             skippedCount++;
+            listener.candidateProcessed(index, CandidateOutcome.SKIPPED, message, this);
         }
         
         public void addError(int lineNumber, String message) {
             errors.add(new ImportError(lineNumber, message));
+            listener.candidateProcessed(lineNumber, CandidateOutcome.FAILED, message, this);
         }
         
         public int getSuccessCount() {
             return successCount;
         }
         
+        /**
+         * Applications already imported, rewritten by a sync because their candidate changed
+         */
+        public int getUpdatedCount() {
+            return updatedCount;
+        }
+        
         public int getSkippedCount() {
             return skippedCount;
         }
         
+        /**
+         * Candidates committed by a previous run of the same file, not processed again
+         */
+        public int getResumedCount() {
+            return resumedCount;
+        }
+        
+        public void setResumedCount(int resumedCount) {
+            this.resumedCount = resumedCount;
+        }
+        
         public int getFailedCount() {
             return errors.size();
         }
         
+        /**
+         * SHA-256 of the file, hex; null when it could not be read
+         */
+        public String getChecksum() {
+            return checksum;
+        }
+        
+        public void setChecksum(String checksum) {
+            this.checksum = checksum;
+        }
+        
+        /**
+         * The checkpoint of the file is completed: every candidate was committed or failed on its own
+         */
+        public boolean isCompleted() {
+            return completed;
+        }
+        
+        public void setCompleted(boolean completed) {
+            this.completed = completed;
+        }
+        
+        /**
+         * A previous run completed the file, nothing was done
+         */
+        public boolean isAlreadyImported() {
+            return alreadyImported;
+        }
+        
+        public void setAlreadyImported(boolean alreadyImported) {
+            this.alreadyImported = alreadyImported;
+        }
+        
+        /**
+         * Another run was importing the same content, nothing was done
+         */
+        public boolean isConcurrentRun() {
+            return concurrentRun;
+        }
+        
+        public void setConcurrentRun(boolean concurrentRun) {
+            this.concurrentRun = concurrentRun;
+        }
+        
+        /**
+         * Hits of the resolution cache per entity type
+         */
+        public Map<String, ImportResolutionCache.HitCounter> getCacheStatistics() {
+            return cacheStatistics;
+        }
+        
+        public void setCacheStatistics(Map<String, ImportResolutionCache.HitCounter> cacheStatistics) {
+            this.cacheStatistics = cacheStatistics;
+        }
+        
         public List<ImportError> getErrors() {
             return errors;
         }
@@ -0,0 +1,288 @@
+package com.cvscreen.service;
+
+import com.cvscreen.service.ProUnityImportService.ImportListener;
+import com.cvscreen.service.ProUnityImportService.ImportResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports the Pro-Unity exports dropped into an inbox directory, watched with a WatchService.
+ * A file is picked up once its size and date have not changed for the debounce delay, so
+ * exports still being copied are left alone. It is then moved to done/ or failed/ next to a
+ * &lt;file&gt;.result.json sidecar. A file whose content was already fully imported is not
+ * imported again, and a failed file dropped again resumes after its last committed chunk.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProUnityInboxService {
+    
+    private static final long POLL_MILLIS = 1000;
+    private static final DateTimeFormatter COLLISION_PREFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-");
+    
+    private final ProUnityImportService proUnityImportService;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${cvscreen.import.inbox.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${cvscreen.import.inbox.path:./imports/inbox}")
+    private String inboxPath;
+    
+    @Value("${cvscreen.import.inbox.debounce-seconds:10}")
+    private long debounceSeconds;
+    
+    @Value("${cvscreen.import.inbox.workers:1}")
+    private int workers;
+    
+    @Value("${cvscreen.import.inbox.queue-capacity:16}")
+    private int queueCapacity;
+    
+    @Value("${cvscreen.import.inbox.sync:false}")
+    private boolean sync;
+    
+    private Path inbox;
+    private Path doneDirectory;
+    private Path failedDirectory;
+    private WatchService watchService;
+    private ThreadPoolExecutor executor;
+    
+    // Files seen but not yet stable, and files queued or being imported
+    private final Map<Path, FileState> pending = new ConcurrentHashMap<>();
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        inbox = Paths.get(inboxPath).toAbsolutePath().normalize();
+        doneDirectory = inbox.resolve("done");
+        failedDirectory = inbox.resolve("failed");
+        Files.createDirectories(doneDirectory);
+        Files.createDirectories(failedDirectory);
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "prounity-inbox-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        
+        watchService = inbox.getFileSystem().newWatchService();
+        inbox.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        // Files dropped while the application was down
+        scanInbox();
+        
+        Thread watcher = new Thread(this::watch, "prounity-inbox-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Watching {} for Pro-Unity exports (debounce: {}s, workers: {})", inbox, debounceSeconds, workers);
+    }
+    
+    @PreDestroy
+    void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+    
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            scanInbox();
+                        } else {
+                            track(inbox.resolve((Path) event.context()));
+                        }
+                    }
+                    if (!key.reset()) {
+                        log.error("Inbox {} is no longer accessible, stopped watching it", inbox);
+                        return;
+                    }
+                }
+                submitStableFiles();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Shutting down
+        } catch (RuntimeException e) {
+            log.error("Inbox watcher stopped", e);
+        }
+    }
+    
+    private void scanInbox() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(inbox)) {
+            for (Path file : files) {
+                track(file);
+            }
+        } catch (IOException e) {
+            log.error("Could not list inbox {}", inbox, e);
+        }
+    }
+    
+    private void track(Path file) {
+        String name = file.getFileName().toString();
+        // Hidden and partial files are usually renamed once complete, which creates a new entry
+        if (name.startsWith(".") || !name.toLowerCase().endsWith(".json") || !Files.isRegularFile(file)
+                || inFlight.contains(file)) {
+            return;
+        }
+        pending.computeIfAbsent(file, path -> new FileState());
+    }
+    
+    /**
+     * Queues the files whose size and date did not change during the debounce delay.
+     * Files the pool cannot take yet stay pending and are offered again on the next poll.
+     */
+    private void submitStableFiles() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Path, FileState> entry : pending.entrySet()) {
+            Path file = entry.getKey();
+            FileState state = entry.getValue();
+            long size;
+            long modified;
+            try {
+                size = Files.size(file);
+                modified = Files.getLastModifiedTime(file).toMillis();
+            } catch (IOException e) {
+                // Moved or deleted in the meantime
+                pending.remove(file);
+                continue;
+            }
+            if (size != state.size || modified != state.modified) {
+                state.size = size;
+                state.modified = modified;
+                state.stableSince = now;
+                continue;
+            }
+            if (now - state.stableSince < debounceSeconds * 1000) {
+                continue;
+            }
+            inFlight.add(file);
+            try {
+                executor.execute(() -> process(file));
+                pending.remove(file);
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(file);
+                return;
+            }
+        }
+    }
+    
+    private void process(Path file) {
+        String filename = file.getFileName().toString();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("filename", filename);
+        report.put("startedAt", LocalDateTime.now());
+        boolean succeeded = false;
+        try {
+            long size = Files.size(file);
+            report.put("fileSize", size);
+            log.info("Importing inbox file {} ({} bytes)", filename, size);
+            ImportResult result = proUnityImportService.importFromProUnity(
+                    new FileSystemResource(file), filename, size, true, sync, ImportListener.NONE);
+            report.put("checksum", result.getChecksum());
+            if (result.isConcurrentRun()) {
+                // Same content as a file being imported right now, decide once it is done
+                log.info("Inbox file {} has the same content as a file being imported, will retry", filename);
+                inFlight.remove(file);
+                pending.putIfAbsent(file, new FileState());
+                return;
+            }
+            if (result.isAlreadyImported()) {
+                log.info("Inbox file {} was already imported (checksum {}), skipping", filename, result.getChecksum());
+                report.put("status", "DUPLICATE");
+                succeeded = true;
+            } else {
+                // A file that could not be read or stopped on a chunk has no completed checkpoint. The
+                // candidates failing on their own are in the errors, importing the file again would not help.
+                succeeded = result.isCompleted();
+                report.put("status", !succeeded ? "FAILED"
+                        : result.getFailedCount() > 0 ? "IMPORTED_WITH_ERRORS" : "IMPORTED");
+                report.put("successCount", result.getSuccessCount());
+                report.put("updatedCount", result.getUpdatedCount());
+                report.put("skippedCount", result.getSkippedCount());
+                report.put("resumedCount", result.getResumedCount());
+                report.put("failedCount", result.getFailedCount());
+                report.put("errors", result.getErrors());
+                report.put("cacheStatistics", result.getCacheStatistics());
+            }
+        } catch (NoSuchFileException e) {
+            log.info("Inbox file {} disappeared before its import", filename);
+            inFlight.remove(file);
+            return;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to import inbox file {}", filename, e);
+            report.put("status", "FAILED");
+            report.put("errorMessage", e.getMessage());
+        }
+        report.put("finishedAt", LocalDateTime.now());
+        
+        try {
+            Path moved = moveTo(file, succeeded ? doneDirectory : failedDirectory);
+            objectMapper.writerWithDefaultPrettyPrinter()
+                    .writeValue(moved.resolveSibling(moved.getFileName() + ".result.json").toFile(), report);
+            log.info("Inbox file {} {}, moved to {}", filename, report.get("status"), moved);
+        } catch (IOException e) {
+            log.error("Could not move inbox file {} out of the inbox", filename, e);
+        } finally {
+            inFlight.remove(file);
+        }
+    }
+    
+    /**
+     * Moves the file into the directory, prefixing its name with the time if the name is taken
+     */
+    private static Path moveTo(Path file, Path directory) throws IOException {
+        Path target = directory.resolve(file.getFileName());
+        if (Files.exists(target)) {
+            target = directory.resolve(LocalDateTime.now().format(COLLISION_PREFIX) + file.getFileName());
+        }
+        return Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private static final class FileState {
+        private long size = -1;
+        private long modified = -1;
+        private long stableSince;
+    }
+}
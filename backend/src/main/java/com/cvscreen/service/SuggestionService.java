@@ -0,0 +1,219 @@
+package com.cvscreen.service;
+
+import com.cvscreen.entity.Candidate;
+import com.cvscreen.entity.Company;
+import com.cvscreen.entity.Job;
+import com.cvscreen.repository.CandidateRepository;
+import com.cvscreen.repository.CompanyRepository;
+import com.cvscreen.repository.JobRepository;
+import com.cvscreen.service.search.SuggestionIndex;
+import com.cvscreen.service.search.SuggestionIndex.Suggestion;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Typeahead over candidate names, company names and job references, answered from
+ * in-memory {@link SuggestionIndex}es without touching the database.
+ *
+ * The indexes are loaded once the application is started, then kept current by the
+ * candidate, company and job write paths. Changes are applied when their transaction
+ * commits; changes committed while the indexes are (re)loading are replayed on the new ones.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SuggestionService {
+    
+    public static final int MAX_LIMIT = 50;
+    
+    private final CandidateRepository candidateRepository;
+    private final CompanyRepository companyRepository;
+    private final JobRepository jobRepository;
+    private final PlatformTransactionManager transactionManager;
+    
+    private volatile Indexes indexes = new Indexes();
+    private volatile boolean ready;
+    private final Object loadLock = new Object();
+    private final Object changeLock = new Object();
+    // Changes applied while loading, non-null during a load
+    private List<Consumer<Indexes>> replay;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "suggestion-index-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        loader.execute(() -> {
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                log.error("Failed to load the suggestion indexes", e);
+            }
+        });
+    }
+    
+    @PreDestroy
+    void stop() {
+        loader.shutdownNow();
+    }
+    
+    /**
+     * Rebuilds the indexes from the database, for changes made without the write paths (bulk SQL)
+     */
+    public void reload() {
+        synchronized (loadLock) {
+            long start = System.currentTimeMillis();
+            synchronized (changeLock) {
+                replay = new ArrayList<>();
+            }
+            
+            Indexes loaded = new Indexes();
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            try {
+                readOnly.executeWithoutResult(status -> {
+                    candidateRepository.findAllNames().forEach(candidate ->
+                            loaded.candidates.put(candidate.getId(), candidate.getFullName()));
+                    companyRepository.findAllIdsAndNames().forEach(row ->
+                            loaded.companies.put((Long) row[0], (String) row[1]));
+                    jobRepository.findAllIdsAndReferences().forEach(row ->
+                            loaded.jobs.put((Long) row[0], (String) row[1]));
+                });
+            } finally {
+                synchronized (changeLock) {
+                    replay.forEach(change -> change.accept(loaded));
+                    replay = null;
+                    indexes = loaded;
+                }
+            }
+            ready = true;
+            log.info("Suggestion indexes loaded: {} candidates, {} companies, {} jobs ({} ms)",
+                    loaded.candidates.size(), loaded.companies.size(), loaded.jobs.size(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * Best matches per type (candidates, companies, jobs), at most limit each
+     */
+    public Map<String, List<Suggestion>> suggest(String query, int limit) {
+        int boundedLimit = Math.min(limit, MAX_LIMIT);
+        Indexes current = indexes;
+        Map<String, List<Suggestion>> suggestions = new LinkedHashMap<>();
+        suggestions.put("candidates", current.candidates.suggest(query, boundedLimit));
+        suggestions.put("companies", current.companies.suggest(query, boundedLimit));
+        suggestions.put("jobs", current.jobs.suggest(query, boundedLimit));
+        return suggestions;
+    }
+    
+    /**
+     * Call after a candidate is created or renamed
+     */
+    public void candidateSaved(Candidate candidate) {
+        long id = candidate.getId();
+        String label = candidate.getFullName();
+        changed(current -> current.candidates.put(id, label));
+    }
+    
+    public void candidatesRemoved(Collection<Long> candidateIds) {
+        List<Long> ids = List.copyOf(candidateIds);
+        changed(current -> ids.forEach(current.candidates::remove));
+    }
+    
+    /**
+     * Call after a company is created or renamed
+     */
+    public void companySaved(Company company) {
+        long id = company.getId();
+        String label = company.getName();
+        changed(current -> current.companies.put(id, label));
+    }
+    
+    public void companiesRemoved(Collection<Long> companyIds) {
+        List<Long> ids = List.copyOf(companyIds);
+        changed(current -> ids.forEach(current.companies::remove));
+    }
+    
+    /**
+     * Call after a job is created or its reference changed
+     */
+    public void jobSaved(Job job) {
+        long id = job.getId();
+        String label = job.getReference();
+        changed(current -> current.jobs.put(id, label));
+    }
+    
+    public void jobRemoved(Long jobId) {
+        changed(current -> current.jobs.remove(jobId));
+    }
+    
+    /**
+     * Applies the change once the current transaction commits, at once without transaction
+     */
+    private void changed(Consumer<Indexes> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(List.of(change));
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges pending) {
+                pending.changes.add(change);
+                return;
+            }
+        }
+        PendingChanges pending = new PendingChanges();
+        pending.changes.add(change);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+    
+    private void apply(List<Consumer<Indexes>> changes) {
+        synchronized (changeLock) {
+            Indexes current = indexes;
+            changes.forEach(change -> change.accept(current));
+            if (replay != null) {
+                replay.addAll(changes);
+            }
+        }
+    }
+    
+    private static final class Indexes {
+        private final SuggestionIndex candidates = new SuggestionIndex();
+        private final SuggestionIndex companies = new SuggestionIndex();
+        private final SuggestionIndex jobs = new SuggestionIndex();
+    }
+    
+    /**
+     * Index changes of one transaction, applied on commit
+     */
+    private final class PendingChanges implements TransactionSynchronization {
+        private final List<Consumer<Indexes>> changes = new ArrayList<>();
+        
+        @Override
+        public void afterCommit() {
+            apply(changes);
+        }
+    }
+}
@@ -5,7 +5,6 @@ import com.cvscreen.dto.UpdateUserRequest;
 import com.cvscreen.dto.UserDTO;
 import com.cvscreen.entity.User;
 import com.cvscreen.exception.ResourceNotFoundException;
-import com.cvscreen.repository.ApplicationCommentRepository;
 import com.cvscreen.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.AccessDeniedException;
@@ -21,7 +20,7 @@ import java.util.stream.Collectors;
 public class UserService {
     
     private final UserRepository userRepository;
-    private final ApplicationCommentRepository commentRepository;
+    private final CounterService counterService;
     private final PasswordEncoder passwordEncoder;
     
     @Transactional(readOnly = true)
@@ -111,7 +110,8 @@ public class UserService {
             throw new IllegalArgumentException("Cannot delete admin user");
         }
         
-        userRepository.deleteById(id);
+        counterService.commentsRemoved(user.getApplicationComments());
+        userRepository.delete(user);
     }
     
     private UserDTO convertToDTO(User user) {
@@ -122,9 +122,7 @@ public class UserService {
         dto.setEnabled(user.getEnabled());
         dto.setCreatedAt(user.getCreatedAt());
         
-        // Get comment count
-        long commentCount = commentRepository.countByUserId(user.getId());
-        dto.setCommentCount((int) commentCount);
+        dto.setCommentCount(user.getCommentCount().intValue());
         
         return dto;
     }
@@ -0,0 +1,376 @@
+package com.cvscreen.service.duplicate;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Blocking engine for candidate duplicate detection.
+ *
+ * Every name is cut into padded bigrams, each bigram occurrence being a blocking key
+ * (see {@link NameGrams}).
+ * Keys are ranked from rarest to most frequent and a name only joins the blocks of its
+ * first (2 * maxDistance + 1) rarest keys (prefix filtering). Two names whose Levenshtein
+ * similarity reaches the threshold always share at least one of those blocks, so only
+ * pairs found inside a common block are compared and no match of the brute-force scan
+ * is lost for thresholds of 0.5 and above. Lower thresholds fall back to comparing
+ * every pair.
+ *
+ * Row i of the scan compares name i with the names j &lt; i of its blocks, so rows are
+ * independent and can be split across fork-join tasks.
+ *
+ * Names must already be normalized (lower case, trimmed) by the caller.
+ *
+ * Progress counters can be read and {@link #cancel()} called from other threads while
+ * a scan runs; a cancelled scan throws {@link CancellationException}.
+ */
+public final class DuplicateBlockingEngine {
+
+    /** Lowest threshold for which the bigram blocks are guaranteed to contain every match */
+    public static final double MIN_BLOCKING_THRESHOLD = 1.0 - 1.0 / NameGrams.Q;
+
+    /** Rows per fork-join leaf are aimed at this many leaves per worker */
+    private static final int LEAVES_PER_WORKER = 8;
+
+    private final String[] names;
+
+    /** Block keys of each name, ordered from rarest to most frequent */
+    private final int[][] sortedKeys;
+
+    private int keyCount;
+
+    private final LongAdder comparisons = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+
+    /** Sum of the row numbers scanned so far: row i covers i pairs of the triangle */
+    private final LongAdder rowsWork = new LongAdder();
+
+    private volatile boolean cancelled;
+
+    public DuplicateBlockingEngine(String[] names) {
+        this.names = names;
+        this.sortedKeys = buildSortedKeys(names);
+    }
+
+    /**
+     * Callback receiving each pair whose similarity reaches the threshold.
+     * Indexes refer to the names array given to the constructor, with first < second.
+     */
+    @FunctionalInterface
+    public interface PairConsumer {
+        void accept(int first, int second, int distance, double similarityScore);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Number of pairs actually compared by the last (or running) scan
+     */
+    public long getComparisons() {
+        return comparisons.sum();
+    }
+
+    /**
+     * Number of pairs reaching the threshold found so far, including those a
+     * top-K scan did not keep
+     */
+    public long getMatches() {
+        return matches.sum();
+    }
+
+    /**
+     * Fraction of the pair space covered by the last (or running) scan, from 0.0 to 1.0
+     */
+    public double getProgress() {
+        long total = (long) names.length * (names.length - 1) / 2;
+        return total == 0 ? 1.0 : Math.min(1.0, (double) rowsWork.sum() / total);
+    }
+
+    /**
+     * Stops the running scan (and any later one) at the next row
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Sequential scan reporting every matching pair
+     */
+    public void scan(double threshold, PairConsumer consumer) {
+        resetCounters();
+        new RowScanner(buildBlocks(threshold), threshold).scanRows(0, names.length, consumer);
+    }
+
+    /**
+     * Scan keeping only the {@code limit} best pairs, with rows split into fork-join tasks
+     * on the given pool, shared by the scans running at the same time. Each task keeps its
+     * own bounded heap; heaps are merged when tasks join.
+     *
+     * @param parallelism workers the rows are split for, at most those of the pool; 1 scans
+     *                    sequentially on the calling thread
+     * @return best pairs, sorted best first
+     */
+    public DuplicatePairHeap scanTopPairs(double threshold, int limit, ForkJoinPool pool, int parallelism) {
+        resetCounters();
+        Blocks blocks = buildBlocks(threshold);
+        int workers = Math.min(parallelism, pool.getParallelism());
+        if (workers <= 1 || names.length < 2) {
+            DuplicatePairHeap heap = new DuplicatePairHeap(limit);
+            new RowScanner(blocks, threshold).scanRows(0, names.length, heap::offer);
+            return heap.sort();
+        }
+
+        int leafRows = Math.max(64, names.length / (workers * LEAVES_PER_WORKER));
+        return pool.invoke(new RowRangeTask(blocks, threshold, limit, leafRows, 0, names.length)).sort();
+    }
+
+    private void resetCounters() {
+        comparisons.reset();
+        matches.reset();
+        rowsWork.reset();
+    }
+
+    /**
+     * Fork-join task over rows [from, to). Row i costs about i comparisons, so ranges
+     * are split where the triangular pair space is cut in half, not at the middle row.
+     */
+    private final class RowRangeTask extends RecursiveTask<DuplicatePairHeap> {
+        private final Blocks blocks;
+        private final double threshold;
+        private final int limit;
+        private final int leafRows;
+        private final int from;
+        private final int to;
+
+        RowRangeTask(Blocks blocks, double threshold, int limit, int leafRows, int from, int to) {
+            this.blocks = blocks;
+            this.threshold = threshold;
+            this.limit = limit;
+            this.leafRows = leafRows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected DuplicatePairHeap compute() {
+            if (to - from <= leafRows) {
+                DuplicatePairHeap heap = new DuplicatePairHeap(limit);
+                new RowScanner(blocks, threshold).scanRows(from, to, heap::offer);
+                return heap;
+            }
+
+            int split = (int) Math.sqrt(((double) from * from + (double) to * to) / 2.0);
+            split = Math.max(from + 1, Math.min(to - 1, split));
+            RowRangeTask low = new RowRangeTask(blocks, threshold, limit, leafRows, from, split);
+            RowRangeTask high = new RowRangeTask(blocks, threshold, limit, leafRows, split, to);
+            low.fork();
+            DuplicatePairHeap merged = high.compute();
+            DuplicatePairHeap lowHeap = low.join();
+            if (lowHeap.size() > merged.size()) {
+                lowHeap.addAll(merged);
+                return lowHeap;
+            }
+            merged.addAll(lowHeap);
+            return merged;
+        }
+    }
+
+    /**
+     * Compares rows against their blocks. Holds per-thread state (kernel, dedup stamps).
+     */
+    private final class RowScanner {
+        private final Blocks blocks;
+        private final double threshold;
+        private final NameSimilarityKernel kernel = new NameSimilarityKernel();
+        private final int[] lastSeen = new int[names.length];
+        private long compared;
+
+        RowScanner(Blocks blocks, double threshold) {
+            this.blocks = blocks;
+            this.threshold = threshold;
+            Arrays.fill(lastSeen, -1);
+        }
+
+        void scanRows(int from, int to, PairConsumer consumer) {
+            for (int i = from; i < to; i++) {
+                if (cancelled) {
+                    throw new CancellationException("Duplicate scan cancelled");
+                }
+                scanRow(i, consumer);
+                comparisons.add(compared);
+                compared = 0;
+                rowsWork.add(i);
+            }
+        }
+
+        private void scanRow(int i, PairConsumer consumer) {
+            if (blocks == null) {
+                for (int j = 0; j < i; j++) {
+                    compare(j, i, consumer);
+                }
+                return;
+            }
+
+            int[] keys = sortedKeys[i];
+            for (int k = 0; k < blocks.prefixLength[i]; k++) {
+                IntList block = blocks.members[keys[k]];
+                // Block members are stored in increasing order: stop at the row itself
+                for (int b = 0; b < block.size; b++) {
+                    int j = block.values[b];
+                    if (j >= i) {
+                        break;
+                    }
+                    if (lastSeen[j] == i) {
+                        continue;
+                    }
+                    lastSeen[j] = i;
+                    compare(j, i, consumer);
+                }
+            }
+        }
+
+        private void compare(int first, int second, PairConsumer consumer) {
+            String name1 = names[first];
+            String name2 = names[second];
+            int maxLength = Math.max(name1.length(), name2.length());
+            if (maxLength == 0) {
+                return;
+            }
+
+            // Length filter: the distance is at least the length difference
+            int maxDistance = NameSimilarityKernel.maxDistance(maxLength, threshold);
+            if (Math.abs(name1.length() - name2.length()) > maxDistance) {
+                return;
+            }
+
+            compared++;
+            int distance = kernel.distance(name1, name2, maxDistance);
+            if (distance < 0) {
+                return;
+            }
+            double similarityScore = 1.0 - ((double) distance / maxLength);
+            if (similarityScore >= threshold) {
+                matches.increment();
+                consumer.accept(first, second, distance, similarityScore);
+            }
+        }
+    }
+
+    /**
+     * Prefix blocks for one threshold, or null when the threshold is too low for blocking
+     */
+    private Blocks buildBlocks(double threshold) {
+        if (threshold < MIN_BLOCKING_THRESHOLD) {
+            return null;
+        }
+
+        int n = names.length;
+        Blocks blocks = new Blocks(n, keyCount);
+        for (int i = 0; i < n; i++) {
+            int[] keys = sortedKeys[i];
+            int maxDistance = maxDistance(names[i].length(), threshold);
+            blocks.prefixLength[i] = Math.min(keys.length, NameGrams.Q * maxDistance + 1);
+            for (int k = 0; k < blocks.prefixLength[i]; k++) {
+                if (blocks.members[keys[k]] == null) {
+                    blocks.members[keys[k]] = new IntList();
+                }
+                blocks.members[keys[k]].add(i);
+            }
+        }
+        // Empty blocks are shared so readers never see null
+        IntList empty = new IntList();
+        for (int k = 0; k < keyCount; k++) {
+            if (blocks.members[k] == null) {
+                blocks.members[k] = empty;
+            }
+        }
+        return blocks;
+    }
+
+    private static final class Blocks {
+        final int[] prefixLength;
+        final IntList[] members;
+
+        Blocks(int nameCount, int keyCount) {
+            this.prefixLength = new int[nameCount];
+            this.members = new IntList[keyCount];
+        }
+    }
+
+    /**
+     * Largest edit distance a name of this length can have with any name
+     * while still reaching the threshold (the partner may be longer).
+     */
+    static int maxDistance(int length, double threshold) {
+        return (int) Math.floor((1.0 - threshold) * length / threshold + 1e-9);
+    }
+
+    private int[][] buildSortedKeys(String[] names) {
+        Map<Long, Integer> keyIds = new HashMap<>();
+        IntList frequencies = new IntList();
+        int[][] keys = new int[names.length][];
+
+        for (int i = 0; i < names.length; i++) {
+            long[] nameGrams = NameGrams.keys(names[i]);
+            int[] nameKeys = new int[nameGrams.length];
+            for (int g = 0; g < nameGrams.length; g++) {
+                Integer keyId = keyIds.get(nameGrams[g]);
+                if (keyId == null) {
+                    keyId = frequencies.size;
+                    keyIds.put(nameGrams[g], keyId);
+                    frequencies.add(0);
+                }
+                frequencies.values[keyId]++;
+                nameKeys[g] = keyId;
+            }
+            keys[i] = nameKeys;
+        }
+
+        // Rank keys from rarest to most frequent, then renumber them by rank
+        Integer[] byFrequency = new Integer[frequencies.size];
+        for (int k = 0; k < byFrequency.length; k++) {
+            byFrequency[k] = k;
+        }
+        Arrays.sort(byFrequency, (a, b) -> frequencies.values[a] != frequencies.values[b]
+                ? Integer.compare(frequencies.values[a], frequencies.values[b])
+                : Integer.compare(a, b));
+        keyCount = byFrequency.length;
+        int[] rank = new int[keyCount];
+        for (int r = 0; r < byFrequency.length; r++) {
+            rank[byFrequency[r]] = r;
+        }
+
+        for (int[] nameKeys : keys) {
+            for (int g = 0; g < nameKeys.length; g++) {
+                nameKeys[g] = rank[nameKeys[g]];
+            }
+            Arrays.sort(nameKeys);
+        }
+        return keys;
+    }
+
+    /**
+     * Minimal growable int array, avoids boxing in block lists
+     */
+    static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
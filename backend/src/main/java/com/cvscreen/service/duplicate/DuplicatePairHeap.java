@@ -0,0 +1,166 @@
+package com.cvscreen.service.duplicate;
+
+import java.util.Arrays;
+
+/**
+ * Bounded collection of the best duplicate pairs, kept in primitive arrays.
+ *
+ * Pairs are ranked by similarity score (highest first), then by first and second index,
+ * which is the order of the duplicates endpoint. While collecting, the arrays form a
+ * binary heap with the worst kept pair at the root so a better pair replaces it in
+ * O(log K). {@link #sort()} turns the heap into a best-first list.
+ */
+public final class DuplicatePairHeap {
+
+    private final int capacity;
+    private int size;
+    private int[] first;
+    private int[] second;
+    private int[] distance;
+    private double[] score;
+
+    /**
+     * @param capacity maximum number of pairs kept, Integer.MAX_VALUE for no limit
+     */
+    public DuplicatePairHeap(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        int initial = Math.min(capacity, 16);
+        this.first = new int[initial];
+        this.second = new int[initial];
+        this.distance = new int[initial];
+        this.score = new double[initial];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int first(int index) {
+        return first[index];
+    }
+
+    public int second(int index) {
+        return second[index];
+    }
+
+    public int distance(int index) {
+        return distance[index];
+    }
+
+    public double similarityScore(int index) {
+        return score[index];
+    }
+
+    /**
+     * Keeps the pair if the heap is not full or if it ranks before the worst kept pair
+     */
+    public void offer(int pairFirst, int pairSecond, int pairDistance, double similarityScore) {
+        if (size < capacity) {
+            if (size == first.length) {
+                grow();
+            }
+            set(size, pairFirst, pairSecond, pairDistance, similarityScore);
+            siftUp(size++);
+            return;
+        }
+        if (compare(similarityScore, pairFirst, pairSecond, 0) <= 0) {
+            return;
+        }
+        set(0, pairFirst, pairSecond, pairDistance, similarityScore);
+        siftDown(0, size);
+    }
+
+    /**
+     * Merges the pairs of another (unsorted) heap into this one
+     */
+    public void addAll(DuplicatePairHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.first[i], other.second[i], other.distance[i], other.score[i]);
+        }
+    }
+
+    /**
+     * Sorts the kept pairs best first. The heap must not receive new pairs afterwards.
+     */
+    public DuplicatePairHeap sort() {
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        return this;
+    }
+
+    /**
+     * Positive when the given pair ranks before the pair stored at index
+     */
+    private int compare(double pairScore, int pairFirst, int pairSecond, int index) {
+        if (pairScore != score[index]) {
+            return pairScore > score[index] ? 1 : -1;
+        }
+        if (pairFirst != first[index]) {
+            return pairFirst < first[index] ? 1 : -1;
+        }
+        return Integer.compare(second[index], pairSecond);
+    }
+
+    private int compare(int left, int right) {
+        return compare(score[left], first[left], second[left], right);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (compare(index, parent) >= 0) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int length) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < length && compare(left, worst) < 0) {
+                worst = left;
+            }
+            if (right < length && compare(right, worst) < 0) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void set(int index, int pairFirst, int pairSecond, int pairDistance, double similarityScore) {
+        first[index] = pairFirst;
+        second[index] = pairSecond;
+        distance[index] = pairDistance;
+        score[index] = similarityScore;
+    }
+
+    private void swap(int a, int b) {
+        int f = first[a];
+        int s = second[a];
+        int d = distance[a];
+        double sc = score[a];
+        set(a, first[b], second[b], distance[b], score[b]);
+        set(b, f, s, d, sc);
+    }
+
+    private void grow() {
+        int newLength = (int) Math.min(capacity, Math.max(16L, first.length * 2L));
+        first = Arrays.copyOf(first, newLength);
+        second = Arrays.copyOf(second, newLength);
+        distance = Arrays.copyOf(distance, newLength);
+        score = Arrays.copyOf(score, newLength);
+    }
+}
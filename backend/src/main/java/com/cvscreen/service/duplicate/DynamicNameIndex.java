@@ -0,0 +1,158 @@
+package com.cvscreen.service.duplicate;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mutable in-memory index of candidate names used to find the duplicates of a single
+ * candidate when it is created, renamed or merged, without rescanning everyone.
+ *
+ * Every (bigram, occurrence) key of a name points to the names containing it. A lookup
+ * counts the keys each indexed name shares with the probed one and only computes the edit
+ * distance for names sharing enough keys to possibly reach the threshold (count filter),
+ * which is lossless for thresholds of 0.5 and above.
+ *
+ * All methods are synchronized: lookups are short and writes are rare.
+ */
+public final class DynamicNameIndex {
+
+    @FunctionalInterface
+    public interface MatchConsumer {
+        void accept(long candidateId, int distance, double similarityScore);
+    }
+
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+    private final Map<Long, DuplicateBlockingEngine.IntList> postings = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final NameSimilarityKernel kernel = new NameSimilarityKernel();
+
+    private long[] slotIds = new long[16];
+    private String[] slotNames = new String[16];
+    private long[][] slotKeys = new long[16][];
+    private int slotCount;
+
+    /** Shared key counts per slot for the current lookup, reset after each lookup */
+    private int[] sharedKeys = new int[16];
+    private final DuplicateBlockingEngine.IntList touched = new DuplicateBlockingEngine.IntList();
+
+    public synchronized int size() {
+        return slotsById.size();
+    }
+
+    public synchronized boolean contains(long candidateId) {
+        return slotsById.containsKey(candidateId);
+    }
+
+    /**
+     * Adds a candidate or replaces its indexed name
+     *
+     * @param name normalized full name (see {@link NameGrams#normalize})
+     */
+    public synchronized void put(long candidateId, String name) {
+        remove(candidateId);
+
+        int slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+        ensureCapacity(slotCount);
+        long[] keys = NameGrams.keys(name);
+        slotIds[slot] = candidateId;
+        slotNames[slot] = name;
+        slotKeys[slot] = keys;
+        slotsById.put(candidateId, slot);
+
+        for (long key : keys) {
+            postings.computeIfAbsent(key, k -> new DuplicateBlockingEngine.IntList()).add(slot);
+        }
+    }
+
+    public synchronized void remove(long candidateId) {
+        Integer slot = slotsById.remove(candidateId);
+        if (slot == null) {
+            return;
+        }
+        for (long key : slotKeys[slot]) {
+            DuplicateBlockingEngine.IntList list = postings.get(key);
+            for (int i = 0; i < list.size; i++) {
+                if (list.values[i] == slot) {
+                    list.values[i] = list.values[--list.size];
+                    break;
+                }
+            }
+            if (list.size == 0) {
+                postings.remove(key);
+            }
+        }
+        slotNames[slot] = null;
+        slotKeys[slot] = null;
+        freeSlots.push(slot);
+    }
+
+    /**
+     * Reports every indexed candidate (other than {@code candidateId}) whose name reaches
+     * the threshold with the given name, using the duplicate scan similarity formula.
+     */
+    public synchronized void findSimilar(long candidateId, String name, double threshold, MatchConsumer consumer) {
+        if (threshold < DuplicateBlockingEngine.MIN_BLOCKING_THRESHOLD) {
+            throw new IllegalArgumentException("Threshold too low for the name index: " + threshold);
+        }
+
+        for (long key : NameGrams.keys(name)) {
+            DuplicateBlockingEngine.IntList list = postings.get(key);
+            if (list == null) {
+                continue;
+            }
+            for (int i = 0; i < list.size; i++) {
+                int slot = list.values[i];
+                if (sharedKeys[slot]++ == 0) {
+                    touched.add(slot);
+                }
+            }
+        }
+
+        try {
+            for (int t = 0; t < touched.size; t++) {
+                int slot = touched.values[t];
+                if (slotIds[slot] == candidateId) {
+                    continue;
+                }
+                String other = slotNames[slot];
+                int maxLength = Math.max(name.length(), other.length());
+                int maxDistance = NameSimilarityKernel.maxDistance(maxLength, threshold);
+                if (maxLength == 0 || Math.abs(name.length() - other.length()) > maxDistance) {
+                    continue;
+                }
+                // Count filter: each edit destroys at most Q shared keys
+                if (sharedKeys[slot] < NameGrams.keyCount(maxLength) - NameGrams.Q * maxDistance) {
+                    continue;
+                }
+
+                int distance = kernel.distance(name, other, maxDistance);
+                if (distance < 0) {
+                    continue;
+                }
+                double similarityScore = 1.0 - ((double) distance / maxLength);
+                if (similarityScore >= threshold) {
+                    consumer.accept(slotIds[slot], distance, similarityScore);
+                }
+            }
+        } finally {
+            for (int t = 0; t < touched.size; t++) {
+                sharedKeys[touched.values[t]] = 0;
+            }
+            touched.size = 0;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= slotIds.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, slotIds.length * 2);
+        slotIds = Arrays.copyOf(slotIds, newLength);
+        slotNames = Arrays.copyOf(slotNames, newLength);
+        slotKeys = Arrays.copyOf(slotKeys, newLength);
+        sharedKeys = Arrays.copyOf(sharedKeys, newLength);
+    }
+}
@@ -0,0 +1,54 @@
+package com.cvscreen.service.duplicate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Name normalization and bigram keys shared by the duplicate scan and the duplicate index.
+ *
+ * A name of length L is padded on both sides and cut into L + 1 bigrams. Each key is a
+ * (bigram, occurrence number) pair so that a repeated bigram yields distinct keys and key
+ * sets intersect like bigram multisets. Two names at edit distance d share at least
+ * max(L1, L2) + 1 - 2d keys.
+ */
+public final class NameGrams {
+
+    /** Gram size: bigrams keep the key filters lossless down to a 0.5 threshold */
+    static final int Q = 2;
+
+    private static final char PAD_START = '\u0001';
+    private static final char PAD_END = '\u0002';
+
+    private NameGrams() {
+    }
+
+    /**
+     * Normalized form compared by the duplicate detection (same as the original scan)
+     */
+    public static String normalize(String fullName) {
+        return fullName.toLowerCase().trim();
+    }
+
+    /**
+     * Number of keys of a normalized name of the given length
+     */
+    static int keyCount(int nameLength) {
+        return nameLength + Q - 1;
+    }
+
+    /**
+     * (bigram, occurrence) keys of a normalized name, in name order
+     */
+    static long[] keys(String name) {
+        String padded = PAD_START + name + PAD_END;
+        long[] keys = new long[keyCount(name.length())];
+        Map<Integer, Integer> occurrences = new HashMap<>();
+
+        for (int g = 0; g < keys.length; g++) {
+            int gram = (padded.charAt(g) << 16) | padded.charAt(g + 1);
+            int occurrence = occurrences.merge(gram, 1, Integer::sum);
+            keys[g] = ((long) occurrence << 32) | (gram & 0xffffffffL);
+        }
+        return keys;
+    }
+}
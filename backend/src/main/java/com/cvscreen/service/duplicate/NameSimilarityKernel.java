@@ -0,0 +1,147 @@
+package com.cvscreen.service.duplicate;
+
+import org.apache.commons.text.similarity.LevenshteinDistance;
+
+/**
+ * Bounded Levenshtein distance for candidate names.
+ *
+ * Uses the Myers/Hyyrö bit-parallel algorithm: the shorter name (up to 64 chars) is
+ * encoded as one 64-bit column and the distance is computed in one pass over the longer
+ * name with a handful of word operations per character. The scan stops as soon as the
+ * distance can no longer fall back under the cutoff. Longer names fall back to the
+ * bounded commons-text implementation.
+ *
+ * An instance keeps its character tables between calls and allocates nothing per call,
+ * so it is not thread-safe: use one kernel per thread.
+ */
+public final class NameSimilarityKernel {
+
+    /** Longest pattern handled by the single-word bit-parallel algorithm */
+    public static final int MAX_BIT_PARALLEL_LENGTH = 64;
+
+    private static final int ASCII_SIZE = 128;
+
+    /** Match masks for ASCII characters of the current pattern */
+    private final long[] asciiMasks = new long[ASCII_SIZE];
+
+    /** Match masks for the (at most 64) non-ASCII characters of the current pattern */
+    private final char[] otherChars = new char[MAX_BIT_PARALLEL_LENGTH];
+    private final long[] otherMasks = new long[MAX_BIT_PARALLEL_LENGTH];
+    private int otherCount;
+
+    /**
+     * Largest edit distance for which {@code 1 - distance / maxLength >= threshold},
+     * evaluated with the exact same floating point expression as the similarity score.
+     * Returns -1 when even identical names could not reach the threshold.
+     */
+    public static int maxDistance(int maxLength, double threshold) {
+        int cutoff = Math.min(maxLength, (int) ((1.0 - threshold) * maxLength) + 1);
+        while (cutoff >= 0 && 1.0 - ((double) cutoff / maxLength) < threshold) {
+            cutoff--;
+        }
+        return cutoff;
+    }
+
+    /**
+     * Levenshtein distance between both names if it is at most {@code maxDistance}, -1 otherwise.
+     */
+    public int distance(CharSequence left, CharSequence right, int maxDistance) {
+        if (maxDistance < 0) {
+            return -1;
+        }
+        CharSequence pattern = left.length() <= right.length() ? left : right;
+        CharSequence text = pattern == left ? right : left;
+        int m = pattern.length();
+        int n = text.length();
+
+        if (n - m > maxDistance) {
+            return -1;
+        }
+        if (m == 0) {
+            return n;
+        }
+        if (m > MAX_BIT_PARALLEL_LENGTH) {
+            return new LevenshteinDistance(maxDistance).apply(left, right);
+        }
+
+        loadPattern(pattern);
+        try {
+            long lastBit = 1L << (m - 1);
+            long pv = -1L;
+            long mv = 0L;
+            int score = m;
+
+            for (int j = 0; j < n; j++) {
+                long eq = maskOf(text.charAt(j));
+                long xv = eq | mv;
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+
+                if ((ph & lastBit) != 0) {
+                    score++;
+                } else if ((mh & lastBit) != 0) {
+                    score--;
+                }
+
+                // Each remaining text character can lower the score by one at most
+                if (score - (n - j - 1) > maxDistance) {
+                    return -1;
+                }
+
+                ph = (ph << 1) | 1L;
+                mh = mh << 1;
+                pv = mh | ~(xv | ph);
+                mv = ph & xv;
+            }
+            return score <= maxDistance ? score : -1;
+        } finally {
+            clearPattern(pattern);
+        }
+    }
+
+    private void loadPattern(CharSequence pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            long bit = 1L << i;
+            if (c < ASCII_SIZE) {
+                asciiMasks[c] |= bit;
+                continue;
+            }
+            int slot = otherSlot(c);
+            if (slot < 0) {
+                slot = otherCount++;
+                otherChars[slot] = c;
+                otherMasks[slot] = 0L;
+            }
+            otherMasks[slot] |= bit;
+        }
+    }
+
+    private void clearPattern(CharSequence pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c < ASCII_SIZE) {
+                asciiMasks[c] = 0L;
+            }
+        }
+        otherCount = 0;
+    }
+
+    private long maskOf(char c) {
+        if (c < ASCII_SIZE) {
+            return asciiMasks[c];
+        }
+        int slot = otherSlot(c);
+        return slot < 0 ? 0L : otherMasks[slot];
+    }
+
+    private int otherSlot(char c) {
+        for (int s = 0; s < otherCount; s++) {
+            if (otherChars[s] == c) {
+                return s;
+            }
+        }
+        return -1;
+    }
+}
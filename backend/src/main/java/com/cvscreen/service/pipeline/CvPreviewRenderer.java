@@ -0,0 +1,50 @@
+package com.cvscreen.service.pipeline;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * PNG preview of the first page of a CV. Only PDF has a layout to render without an office
+ * suite; other formats have no preview.
+ */
+public final class CvPreviewRenderer {
+
+    private static final String FORMAT = "png";
+
+    private CvPreviewRenderer() {
+    }
+
+    public static boolean supports(String filename) {
+        return filename.toLowerCase(Locale.ROOT).endsWith(".pdf");
+    }
+
+    /**
+     * Renders the first page, scaled to the width, into the target file
+     *
+     * @throws IOException when the file is not a valid PDF or has no page
+     */
+    public static void render(Path file, int width, Path target) throws IOException {
+        try (PDDocument document = Loader.loadPDF(file.toFile(), null, null, null,
+                IOUtils.createTempFileOnlyStreamCache())) {
+            if (document.getNumberOfPages() == 0) {
+                throw new IOException("The PDF has no page");
+            }
+            PDRectangle page = document.getPage(0).getCropBox();
+            float scale = width / page.getWidth();
+            BufferedImage image = new PDFRenderer(document).renderImage(0, scale, ImageType.RGB);
+            if (!ImageIO.write(image, FORMAT, target.toFile())) {
+                throw new IOException("No image writer for " + FORMAT);
+            }
+        }
+    }
+}
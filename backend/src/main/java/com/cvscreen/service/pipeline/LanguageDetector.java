@@ -0,0 +1,82 @@
+package com.cvscreen.service.pipeline;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Main language of a CV text, by counting the function words of each supported language.
+ * CVs are long enough for this to be reliable, and it needs no model; the languages are the
+ * ones CVs are written in here, with Spanish and Italian for the occasional exception.
+ */
+public final class LanguageDetector {
+
+    // Function words counted in the first characters only
+    private static final int MAX_CHARS = 20_000;
+    // Fewer function words: too little running text (a list of skills) to tell
+    private static final int MIN_MATCHES = 8;
+    // The best language must beat the second by this ratio
+    private static final double MIN_LEAD = 1.3;
+
+    private static final Pattern WORD = Pattern.compile("\\p{L}+");
+
+    private static final Map<String, Set<String>> FUNCTION_WORDS = new LinkedHashMap<>();
+
+    static {
+        FUNCTION_WORDS.put("en", Set.of("the", "and", "of", "to", "with", "for", "in", "on", "at", "as", "was",
+                "were", "is", "are", "by", "from", "my", "which", "this", "that", "have", "has", "an", "i"));
+        FUNCTION_WORDS.put("fr", Set.of("le", "la", "les", "et", "des", "du", "un", "une", "pour", "avec", "dans",
+                "sur", "au", "aux", "est", "sont", "par", "qui", "que", "en", "de", "ce", "mes", "ou"));
+        FUNCTION_WORDS.put("nl", Set.of("het", "een", "van", "en", "de", "voor", "met", "op", "bij", "is", "zijn",
+                "naar", "als", "uit", "ook", "om", "aan", "die", "dat", "te", "mijn", "ik", "wordt", "werd"));
+        FUNCTION_WORDS.put("de", Set.of("der", "die", "das", "und", "mit", "für", "von", "zu", "im", "ist", "sind",
+                "eine", "ein", "den", "dem", "des", "auf", "bei", "als", "auch", "ich", "wurde", "nach", "aus"));
+        FUNCTION_WORDS.put("es", Set.of("el", "la", "los", "las", "y", "de", "del", "con", "para", "por", "en",
+                "una", "un", "es", "son", "que", "se", "al", "como", "mi", "sus", "fue", "entre", "desde"));
+        FUNCTION_WORDS.put("it", Set.of("il", "lo", "la", "gli", "le", "e", "di", "del", "della", "con", "per",
+                "in", "un", "una", "che", "è", "sono", "nel", "nella", "al", "dei", "da", "come", "mio"));
+    }
+
+    private LanguageDetector() {
+    }
+
+    /**
+     * @return the ISO 639-1 code, null when the text does not tell
+     */
+    public static String detect(String text) {
+        if (text == null) {
+            return null;
+        }
+        Map<String, Integer> matches = new LinkedHashMap<>();
+        FUNCTION_WORDS.keySet().forEach(language -> matches.put(language, 0));
+        Matcher words = WORD.matcher(text.length() > MAX_CHARS ? text.substring(0, MAX_CHARS) : text);
+        while (words.find()) {
+            String word = words.group().toLowerCase(Locale.ROOT);
+            FUNCTION_WORDS.forEach((language, functionWords) -> {
+                if (functionWords.contains(word)) {
+                    matches.merge(language, 1, Integer::sum);
+                }
+            });
+        }
+
+        String best = null;
+        int bestCount = 0;
+        int secondCount = 0;
+        for (Map.Entry<String, Integer> entry : matches.entrySet()) {
+            if (entry.getValue() > bestCount) {
+                secondCount = bestCount;
+                best = entry.getKey();
+                bestCount = entry.getValue();
+            } else if (entry.getValue() > secondCount) {
+                secondCount = entry.getValue();
+            }
+        }
+        if (bestCount < MIN_MATCHES || bestCount < secondCount * MIN_LEAD) {
+            return null;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,154 @@
+package com.cvscreen.service.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One stage of an in-process pipeline: a bounded queue drained by the stage's own worker
+ * threads. Producers that must not wait offer items, which are refused when the queue is full;
+ * the others put them, waiting for room, so a slow stage holds back the stage feeding it
+ * instead of letting items pile up in memory.
+ */
+@Slf4j
+public final class PipelineStage<T> {
+
+    // Throughput window, one bucket per second
+    private static final int WINDOW_SECONDS = 60;
+
+    private final String name;
+    private final int workers;
+    private final int capacity;
+    private final BlockingQueue<T> queue;
+    private final Handler<T> handler;
+    private final List<Thread> threads = new ArrayList<>();
+
+    private final AtomicInteger busy = new AtomicInteger();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final long[] bucketSeconds = new long[WINDOW_SECONDS];
+    private final long[] bucketCounts = new long[WINDOW_SECONDS];
+
+    public PipelineStage(String name, int workers, int capacity, Handler<T> handler) {
+        this.name = name;
+        this.workers = workers;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.handler = handler;
+    }
+
+    public void start() {
+        for (int i = 1; i <= workers; i++) {
+            Thread thread = new Thread(this::work, "cv-pipeline-" + name + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    public void stop() {
+        threads.forEach(Thread::interrupt);
+    }
+
+    /**
+     * @return false when the queue is full
+     */
+    public boolean offer(T item) {
+        return queue.offer(item);
+    }
+
+    /**
+     * Waits for room in the queue
+     */
+    public void put(T item) throws InterruptedException {
+        queue.put(item);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Workers, queue depth, and items handled: in total, over the last minute, average time
+     */
+    public Map<String, Object> getStats() {
+        long count = processed.get() + failed.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workers", workers);
+        stats.put("busy", busy.get());
+        stats.put("queued", queue.size());
+        stats.put("capacity", capacity);
+        stats.put("processed", processed.get());
+        stats.put("failed", failed.get());
+        stats.put("lastMinute", countLastMinute());
+        stats.put("averageMillis", count == 0 ? 0 : busyNanos.get() / count / 1_000_000);
+        return stats;
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            T item;
+            try {
+                item = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            busy.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                if (handler.handle(item)) {
+                    processed.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.error("CV pipeline stage {} failed on {}", name, item, e);
+            } finally {
+                busyNanos.addAndGet(System.nanoTime() - start);
+                busy.decrementAndGet();
+                record();
+            }
+        }
+    }
+
+    private synchronized void record() {
+        long second = System.currentTimeMillis() / 1000;
+        int bucket = (int) (second % WINDOW_SECONDS);
+        if (bucketSeconds[bucket] != second) {
+            bucketSeconds[bucket] = second;
+            bucketCounts[bucket] = 0;
+        }
+        bucketCounts[bucket]++;
+    }
+
+    private synchronized long countLastMinute() {
+        long second = System.currentTimeMillis() / 1000;
+        long count = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (second - bucketSeconds[i] < WINDOW_SECONDS) {
+                count += bucketCounts[i];
+            }
+        }
+        return count;
+    }
+
+    @FunctionalInterface
+    public interface Handler<T> {
+        /**
+         * @return false when the item failed and the handler dealt with it; other failures
+         *         (exceptions) are logged, the worker goes on either way
+         */
+        boolean handle(T item) throws Exception;
+    }
+}
@@ -0,0 +1,188 @@
+package com.cvscreen.service.search;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Plain text of a CV file, chosen by extension: PDF (PDFBox), DOCX (the paragraphs of
+ * word/document.xml) and TXT. Other formats, such as legacy .doc, have no text.
+ * The page count comes from the PDF, or from the statistics Word saves in docProps/app.xml.
+ */
+public final class CvTextExtractor {
+
+    private static final String DOCX_BODY = "word/document.xml";
+    private static final String DOCX_PROPERTIES = "docProps/app.xml";
+    private static final String WORDML = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    private CvTextExtractor() {
+    }
+
+    public static boolean supports(String filename) {
+        return switch (extension(filename)) {
+            case "pdf", "docx", "txt" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * @param filename name giving the format, stored files have no extension
+     * @return the text, null when the format is not supported
+     * @throws IOException when the file cannot be read or is not a valid document
+     */
+    public static String extract(Path file, String filename) throws IOException {
+        ExtractedCv cv = read(file, filename);
+        return cv == null ? null : cv.getText();
+    }
+
+    /**
+     * Text and page count
+     *
+     * @param filename name giving the format, stored files have no extension
+     * @return null when the format is not supported
+     * @throws IOException when the file cannot be read or is not a valid document
+     */
+    public static ExtractedCv read(Path file, String filename) throws IOException {
+        return switch (extension(filename)) {
+            case "pdf" -> readPdf(file);
+            case "docx" -> readDocx(file);
+            case "txt" -> new ExtractedCv(Files.readString(file, StandardCharsets.UTF_8), null);
+            default -> null;
+        };
+    }
+
+    private static ExtractedCv readPdf(Path file) throws IOException {
+        // Parsed streams are cached in temp files rather than on the heap
+        try (PDDocument document = Loader.loadPDF(file.toFile(), null, null, null,
+                IOUtils.createTempFileOnlyStreamCache())) {
+            return new ExtractedCv(new PDFTextStripper().getText(document), document.getNumberOfPages());
+        }
+    }
+
+    private static ExtractedCv readDocx(Path file) throws IOException {
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            ZipEntry body = zip.getEntry(DOCX_BODY);
+            if (body == null) {
+                throw new IOException("Not a DOCX document, " + DOCX_BODY + " is missing");
+            }
+            String text;
+            try (InputStream input = zip.getInputStream(body)) {
+                text = readDocumentXml(input);
+            }
+            ZipEntry properties = zip.getEntry(DOCX_PROPERTIES);
+            if (properties == null) {
+                return new ExtractedCv(text, null);
+            }
+            try (InputStream input = zip.getInputStream(properties)) {
+                return new ExtractedCv(text, readPageCount(input));
+            }
+        }
+    }
+
+    /**
+     * Pages element of docProps/app.xml, as last saved by Word; null when absent or invalid
+     */
+    private static Integer readPageCount(InputStream input) {
+        try {
+            XMLStreamReader reader = xmlInputFactory().createXMLStreamReader(input);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "Pages".equals(reader.getLocalName())) {
+                        return Integer.valueOf(reader.getElementText().trim());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | NumberFormatException e) {
+            // Statistics only
+        }
+        return null;
+    }
+
+    /**
+     * Text runs (w:t) in document order, paragraphs on their own line
+     */
+    private static String readDocumentXml(InputStream input) throws IOException {
+        StringBuilder text = new StringBuilder();
+        try {
+            XMLStreamReader reader = xmlInputFactory().createXMLStreamReader(input);
+            try {
+                boolean inText = false;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT && WORDML.equals(reader.getNamespaceURI())) {
+                        switch (reader.getLocalName()) {
+                            case "t" -> inText = true;
+                            case "tab" -> text.append('\t');
+                            case "br", "cr" -> text.append('\n');
+                            default -> {
+                            }
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT && WORDML.equals(reader.getNamespaceURI())) {
+                        switch (reader.getLocalName()) {
+                            case "t" -> inText = false;
+                            case "p" -> text.append('\n');
+                            default -> {
+                            }
+                        }
+                    } else if (inText && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)) {
+                        text.append(reader.getText());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid DOCX document: " + e.getMessage(), e);
+        }
+        return text.toString();
+    }
+
+    private static XMLInputFactory xmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private static String extension(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot < 0 ? "" : filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    public static final class ExtractedCv {
+        private final String text;
+        private final Integer pageCount;
+
+        public ExtractedCv(String text, Integer pageCount) {
+            this.text = text;
+            this.pageCount = pageCount;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * Null when the format does not tell
+         */
+        public Integer getPageCount() {
+            return pageCount;
+        }
+    }
+}
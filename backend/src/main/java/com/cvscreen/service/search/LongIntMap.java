@@ -0,0 +1,115 @@
+package com.cvscreen.service.search;
+
+/**
+ * Map from long keys to non-negative int values without boxing: open addressing with linear
+ * probing, removals shift the following entries back instead of leaving tombstones.
+ * Not thread-safe.
+ */
+final class LongIntMap {
+
+    /** Returned for a missing key */
+    static final int MISSING = -1;
+
+    private long[] keys;
+    // value + 1, 0 for an empty cell
+    private int[] values;
+    private int size;
+
+    LongIntMap() {
+        keys = new long[16];
+        values = new int[16];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); values[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i] - 1;
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * @param value 0 or more
+     */
+    void put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value);
+        }
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        for (; values[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value + 1;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value + 1;
+        // At most half full, so that probe sequences stay short
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * @return the value removed, MISSING if there was none
+     */
+    int remove(long key) {
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); values[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                int removed = values[i] - 1;
+                shiftBack(i, mask);
+                size--;
+                return removed;
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Fills the emptied cell with the next entries of its probe sequence that may move there
+     */
+    private void shiftBack(int gap, int mask) {
+        for (int i = (gap + 1) & mask; values[i] != 0; i = (i + 1) & mask) {
+            int home = index(keys[i], mask);
+            // Entries whose home is after the gap (cyclically) must stay after it
+            boolean stays = gap <= i ? gap < home && home <= i : gap < home || home <= i;
+            if (!stays) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != 0) {
+                int i = index(oldKeys[j], mask);
+                while (values[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    static int index(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
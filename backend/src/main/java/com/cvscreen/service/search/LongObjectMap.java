@@ -0,0 +1,100 @@
+package com.cvscreen.service.search;
+
+/**
+ * Map from long keys to non-null values without boxing the keys, laid out as
+ * {@link LongIntMap}. Not thread-safe.
+ */
+final class LongObjectMap<V> {
+
+    private long[] keys;
+    // null for an empty cell
+    private Object[] values;
+    private int size;
+
+    LongObjectMap() {
+        keys = new long[16];
+        values = new Object[16];
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int mask = keys.length - 1;
+        for (int i = LongIntMap.index(key, mask); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    void put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null value");
+        }
+        int mask = keys.length - 1;
+        int i = LongIntMap.index(key, mask);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * @return the value removed, null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        int mask = keys.length - 1;
+        for (int i = LongIntMap.index(key, mask); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V removed = (V) values[i];
+                shiftBack(i, mask);
+                size--;
+                return removed;
+            }
+        }
+        return null;
+    }
+
+    private void shiftBack(int gap, int mask) {
+        for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+            int home = LongIntMap.index(keys[i], mask);
+            boolean stays = gap <= i ? gap < home && home <= i : gap < home || home <= i;
+            if (!stays) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = LongIntMap.index(oldKeys[j], mask);
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
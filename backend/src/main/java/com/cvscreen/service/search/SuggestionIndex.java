@@ -0,0 +1,323 @@
+package com.cvscreen.service.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory typeahead index of short labels (candidate names, company names, job references),
+ * answering suggestion queries without the database.
+ *
+ * Labels are kept in slot arrays next to their id. Every trigram of a normalized label points
+ * to the slots containing it; ids and trigrams are unboxed long keys. A query of
+ * MIN_TRIGRAM_QUERY characters or more only scans the shortest posting list of its trigrams
+ * and checks each label. Shorter queries are matched against word prefixes through a sorted
+ * map of the label words.
+ *
+ * Matches are ranked: label equal to the query, label starting with it, a word starting with
+ * it, then anywhere; shorter labels first within a rank. Lookups share a read lock, writes
+ * take the write lock.
+ */
+public final class SuggestionIndex {
+
+    /** Shortest query looked up by trigrams, shorter ones match word prefixes */
+    public static final int MIN_TRIGRAM_QUERY = 3;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private static final int RANK_EQUAL = 0;
+    private static final int RANK_PREFIX = 1;
+    private static final int RANK_WORD_PREFIX = 2;
+    private static final int RANK_SUBSTRING = 3;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongIntMap slotsById = new LongIntMap();
+    private final LongObjectMap<IntList> trigrams = new LongObjectMap<>();
+    private final NavigableMap<String, IntList> words = new TreeMap<>();
+    private final IntList freeSlots = new IntList();
+
+    private long[] slotIds = new long[16];
+    private String[] slotLabels = new String[16];
+    private String[] slotKeys = new String[16];
+    private int slotCount;
+
+    /**
+     * Form labels and queries are compared in: lowercase, without accents, single spaces
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = MARKS.matcher(decomposed).replaceAll("");
+        return SPACES.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an entry or replaces its label
+     */
+    public void put(long id, String label) {
+        String key = normalize(label);
+        lock.writeLock().lock();
+        try {
+            removeSlot(id);
+            if (key.isEmpty()) {
+                return;
+            }
+            int slot = freeSlots.size > 0 ? freeSlots.values[--freeSlots.size] : slotCount++;
+            ensureCapacity(slotCount);
+            slotIds[slot] = id;
+            slotLabels[slot] = label;
+            slotKeys[slot] = key;
+            slotsById.put(id, slot);
+
+            for (long trigram : trigramsOf(key)) {
+                IntList list = trigrams.get(trigram);
+                if (list == null) {
+                    list = new IntList();
+                    trigrams.put(trigram, list);
+                }
+                list.add(slot);
+            }
+            for (String word : wordsOf(key)) {
+                words.computeIfAbsent(word, k -> new IntList()).add(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The best matches of the query, best first
+     */
+    public List<Suggestion> suggest(String query, int limit) {
+        String normalized = normalize(query);
+        List<Suggestion> suggestions = new ArrayList<>();
+        if (normalized.isEmpty() || limit < 1) {
+            return suggestions;
+        }
+
+        lock.readLock().lock();
+        try {
+            TopMatches top = new TopMatches(limit);
+            if (normalized.length() >= MIN_TRIGRAM_QUERY) {
+                IntList shortest = null;
+                for (long trigram : trigramsOf(normalized)) {
+                    IntList list = trigrams.get(trigram);
+                    if (list == null) {
+                        return suggestions;
+                    }
+                    if (shortest == null || list.size < shortest.size) {
+                        shortest = list;
+                    }
+                }
+                for (int i = 0; i < shortest.size; i++) {
+                    top.offer(shortest.values[i], normalized);
+                }
+            } else {
+                String end = normalized + Character.MAX_VALUE;
+                for (IntList list : words.subMap(normalized, true, end, false).values()) {
+                    for (int i = 0; i < list.size; i++) {
+                        top.offer(list.values[i], normalized);
+                    }
+                }
+            }
+
+            for (int i = 0; i < top.size; i++) {
+                int slot = top.slots[i];
+                suggestions.add(new Suggestion(slotIds[slot], slotLabels[slot]));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeSlot(long id) {
+        int slot = slotsById.remove(id);
+        if (slot == LongIntMap.MISSING) {
+            return;
+        }
+        String key = slotKeys[slot];
+        for (long trigram : trigramsOf(key)) {
+            if (trigrams.get(trigram).removeValue(slot)) {
+                trigrams.remove(trigram);
+            }
+        }
+        for (String word : wordsOf(key)) {
+            if (words.get(word).removeValue(slot)) {
+                words.remove(word);
+            }
+        }
+        slotLabels[slot] = null;
+        slotKeys[slot] = null;
+        freeSlots.add(slot);
+    }
+
+    /**
+     * Distinct trigrams of a normalized text, three chars packed in a long, sorted
+     */
+    private static long[] trigramsOf(String key) {
+        long[] keys = new long[Math.max(0, key.length() - MIN_TRIGRAM_QUERY + 1)];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) key.charAt(i) << 32) | ((long) key.charAt(i + 1) << 16) | key.charAt(i + 2);
+        }
+        Arrays.sort(keys);
+        int distinct = 0;
+        for (long trigram : keys) {
+            if (distinct == 0 || trigram != keys[distinct - 1]) {
+                keys[distinct++] = trigram;
+            }
+        }
+        return Arrays.copyOf(keys, distinct);
+    }
+
+    private static Set<String> wordsOf(String key) {
+        return new HashSet<>(Arrays.asList(key.split(" ")));
+    }
+
+    private static int rank(String key, String query) {
+        if (key.equals(query)) {
+            return RANK_EQUAL;
+        }
+        if (key.startsWith(query)) {
+            return RANK_PREFIX;
+        }
+        if (key.contains(" " + query)) {
+            return RANK_WORD_PREFIX;
+        }
+        return key.contains(query) ? RANK_SUBSTRING : -1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= slotIds.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, slotIds.length * 2);
+        slotIds = Arrays.copyOf(slotIds, newLength);
+        slotLabels = Arrays.copyOf(slotLabels, newLength);
+        slotKeys = Arrays.copyOf(slotKeys, newLength);
+    }
+
+    public static final class Suggestion {
+        private final long id;
+        private final String label;
+
+        Suggestion(long id, String label) {
+            this.id = id;
+            this.label = label;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * The best slots seen so far, kept sorted by insertion. Limits are small.
+     */
+    private final class TopMatches {
+        private final int[] slots;
+        private final int[] ranks;
+        private int size;
+
+        TopMatches(int limit) {
+            slots = new int[limit];
+            ranks = new int[limit];
+        }
+
+        void offer(int slot, String query) {
+            int rank = rank(slotKeys[slot], query);
+            if (rank < 0) {
+                return;
+            }
+            int position = size;
+            while (position > 0 && isBetter(slot, rank, slots[position - 1], ranks[position - 1])) {
+                position--;
+            }
+            if (position == slots.length) {
+                return;
+            }
+            // A label with two words starting with the query is listed twice in the word map
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    return;
+                }
+            }
+            int moved = Math.min(size, slots.length - 1) - position;
+            System.arraycopy(slots, position, slots, position + 1, moved);
+            System.arraycopy(ranks, position, ranks, position + 1, moved);
+            slots[position] = slot;
+            ranks[position] = rank;
+            size = Math.min(size + 1, slots.length);
+        }
+
+        private boolean isBetter(int slot, int rank, int otherSlot, int otherRank) {
+            if (rank != otherRank) {
+                return rank < otherRank;
+            }
+            String key = slotKeys[slot];
+            String otherKey = slotKeys[otherSlot];
+            if (key.length() != otherKey.length()) {
+                return key.length() < otherKey.length();
+            }
+            int order = key.compareTo(otherKey);
+            return order != 0 ? order < 0 : slotIds[slot] < slotIds[otherSlot];
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[2];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * Removes one occurrence, swapping the last value in
+         *
+         * @return true when the list is now empty
+         */
+        boolean removeValue(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    break;
+                }
+            }
+            return size == 0;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.cvscreen.service.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Backend holding the CV files, by key: ab/cd/&lt;sha256&gt; for content-addressed CVs,
+ * &lt;uuid&gt;.&lt;ext&gt; for CVs stored before. Keys are the cv_file_path of the applications.
+ * Implementations are thread-safe.
+ */
+public interface CvStorage {
+
+    /**
+     * Name of the backend in cvscreen.cv-storage.type and in copy requests
+     */
+    String getName();
+
+    /**
+     * Stores the content of the file under the key, replacing any object there. The file may be
+     * moved; the caller deletes it when it still exists.
+     */
+    void put(String key, Path file) throws IOException;
+
+    /**
+     * @return the size in bytes, -1 when there is no such object
+     */
+    long size(String key) throws IOException;
+
+    /**
+     * Content from offset to the end
+     *
+     * @throws java.nio.file.NoSuchFileException when there is no such object
+     */
+    InputStream open(String key, long offset) throws IOException;
+
+    /**
+     * Content as a resource for the web layer. Skipping its stream before reading does not read
+     * the bytes skipped, so range requests only fetch the part asked for.
+     */
+    Resource resource(String key, long size);
+
+    /**
+     * The file itself when objects are local files, null otherwise
+     */
+    Path localFile(String key);
+
+    /**
+     * Does nothing when there is no such object
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Every object, lazily; close the stream
+     */
+    Stream<StoredObject> list() throws IOException;
+
+    class StoredObject {
+        private final String key;
+        private final long size;
+        private final Instant lastModified;
+
+        public StoredObject(String key, long size, Instant lastModified) {
+            this.key = key;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public Instant getLastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.cvscreen.service.storage;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * CV files in a local directory, the key being the relative path. Only a single backend
+ * instance can use it, unless the directory is shared storage.
+ *
+ * The directory also holds other data (the temp directory, by default the CV index): listing
+ * only returns the files at the root (CVs stored before content addressing) and the files of
+ * the ab/cd shard directories.
+ */
+public class FileSystemCvStorage implements CvStorage {
+
+    public static final String NAME = "filesystem";
+
+    private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+
+    private final Path root;
+
+    public FileSystemCvStorage(Path root) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        Files.createDirectories(this.root);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        try {
+            // Replacing an identical file refreshes its date for the garbage collection
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Another file system: copy next to the target, then rename
+            Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+            try {
+                Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        Path path = resolve(key);
+        return Files.isRegularFile(path) ? Files.size(path) : -1;
+    }
+
+    @Override
+    public InputStream open(String key, long offset) throws IOException {
+        SeekableByteChannel channel = Files.newByteChannel(resolve(key));
+        channel.position(offset);
+        return Channels.newInputStream(channel);
+    }
+
+    @Override
+    public Resource resource(String key, long size) {
+        return new FileSystemResource(resolve(key));
+    }
+
+    @Override
+    public Path localFile(String key) {
+        return resolve(key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public Stream<StoredObject> list() throws IOException {
+        return Files.find(root, 3, (path, attributes) -> attributes.isRegularFile() && isObject(path))
+                .map(this::toObject)
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * @throws IllegalArgumentException when the key leaves the directory
+     */
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid CV key: " + key);
+        }
+        return path;
+    }
+
+    private boolean isObject(Path path) {
+        Path relative = root.relativize(path);
+        return relative.getNameCount() == 1
+            || relative.getNameCount() == 3
+                && SHARD.matcher(relative.getName(0).toString()).matches()
+                && SHARD.matcher(relative.getName(1).toString()).matches();
+    }
+
+    private StoredObject toObject(Path path) {
+        String key = StreamSupport.stream(root.relativize(path).spliterator(), false)
+                .map(Path::toString)
+                .collect(Collectors.joining("/"));
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new StoredObject(key, attributes.size(), attributes.lastModifiedTime().toInstant());
+        } catch (NoSuchFileException e) {
+            // Deleted meanwhile
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.cvscreen.service.storage;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * CV files as objects of an S3 bucket, or of any server speaking the S3 API (MinIO locally),
+ * under an optional key prefix. Shared by every backend instance.
+ *
+ * Files larger than the part size are sent as multipart uploads, read one part at a time; an
+ * upload that fails is aborted so that no parts are left billed. Reads starting past the
+ * beginning of an object are ranged GETs.
+ */
+public class S3CvStorage implements CvStorage, AutoCloseable {
+
+    public static final String NAME = "s3";
+
+    private static final String CONTENT_TYPE = "application/octet-stream";
+    // Longer skips in an open stream start a new ranged GET rather than read through
+    private static final long REOPEN_SKIP = 256 * 1024;
+
+    private final S3Client client;
+    private final String bucket;
+    private final String prefix;
+    private final int partSize;
+
+    /**
+     * @param partSize multipart part size in bytes, 5 MB at least (S3 minimum)
+     */
+    public S3CvStorage(S3Client client, String bucket, String prefix, int partSize) {
+        this.client = client;
+        this.bucket = bucket;
+        this.prefix = prefix;
+        this.partSize = partSize;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        long size = Files.size(file);
+        if (size <= partSize) {
+            client.putObject(request -> request.bucket(bucket).key(prefix + key).contentType(CONTENT_TYPE),
+                    RequestBody.fromFile(file));
+            return;
+        }
+
+        String uploadId = client.createMultipartUpload(request -> request.bucket(bucket).key(prefix + key)
+                .contentType(CONTENT_TYPE)).uploadId();
+        try (InputStream input = Files.newInputStream(file)) {
+            List<CompletedPart> parts = new ArrayList<>();
+            byte[] buffer = new byte[partSize];
+            int partNumber = 1;
+            int length;
+            while ((length = input.readNBytes(buffer, 0, partSize)) > 0) {
+                int number = partNumber++;
+                String eTag = client.uploadPart(request -> request.bucket(bucket).key(prefix + key)
+                                .uploadId(uploadId).partNumber(number),
+                        RequestBody.fromByteBuffer(ByteBuffer.wrap(buffer, 0, length)))
+                        .eTag();
+                parts.add(CompletedPart.builder().partNumber(number).eTag(eTag).build());
+            }
+            client.completeMultipartUpload(request -> request.bucket(bucket).key(prefix + key).uploadId(uploadId)
+                    .multipartUpload(upload -> upload.parts(parts)));
+        } catch (IOException | RuntimeException e) {
+            try {
+                client.abortMultipartUpload(request -> request.bucket(bucket).key(prefix + key).uploadId(uploadId));
+            } catch (RuntimeException abortFailure) {
+                e.addSuppressed(abortFailure);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public long size(String key) {
+        try {
+            return client.headObject(request -> request.bucket(bucket).key(prefix + key)).contentLength();
+        } catch (NoSuchKeyException e) {
+            return -1;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return -1;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream open(String key, long offset) throws IOException {
+        GetObjectRequest.Builder request = GetObjectRequest.builder().bucket(bucket).key(prefix + key);
+        if (offset > 0) {
+            request.range("bytes=" + offset + "-");
+        }
+        try {
+            return client.getObject(request.build());
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        } catch (S3Exception e) {
+            // Range past the end: nothing left to read
+            if (e.statusCode() == 416) {
+                return InputStream.nullInputStream();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Resource resource(String key, long size) {
+        return new ObjectResource(key, size);
+    }
+
+    @Override
+    public Path localFile(String key) {
+        return null;
+    }
+
+    @Override
+    public void delete(String key) {
+        client.deleteObject(request -> request.bucket(bucket).key(prefix + key));
+    }
+
+    @Override
+    public Stream<StoredObject> list() {
+        // Pages of 1000 keys, fetched as the stream is consumed
+        return client.listObjectsV2Paginator(request -> request.bucket(bucket).prefix(prefix))
+                .contents()
+                .stream()
+                .map(object -> new StoredObject(object.key().substring(prefix.length()), object.size(),
+                        object.lastModified()));
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    /**
+     * Object as a resource for range requests, see {@link LazyObjectInputStream}
+     */
+    private final class ObjectResource extends AbstractResource {
+        private final String key;
+        private final long size;
+
+        private ObjectResource(String key, long size) {
+            this.key = key;
+            this.size = size;
+        }
+
+        @Override
+        public String getDescription() {
+            return "S3 object [s3://" + bucket + "/" + prefix + key + "]";
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return size;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new LazyObjectInputStream(key, size);
+        }
+    }
+
+    /**
+     * Object content opened at its first read, after the skips of the range being served
+     */
+    private final class LazyObjectInputStream extends InputStream {
+        private final String key;
+        private final long size;
+        private long position;
+        private InputStream delegate;
+        private boolean finished;
+
+        private LazyObjectInputStream(String key, long size) {
+            this.key = key;
+            this.size = size;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (delegate != null && n < REOPEN_SKIP) {
+                long skipped = delegate.skip(n);
+                position += skipped;
+                return skipped;
+            }
+            close();
+            long skipped = Math.max(0, Math.min(n, size - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = delegate().read();
+            if (read < 0) {
+                finished = true;
+            } else {
+                position++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int from, int length) throws IOException {
+            int read = delegate().read(buffer, from, length);
+            if (read < 0) {
+                finished = true;
+            } else {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (delegate == null) {
+                return;
+            }
+            // Closing a response read partially would first drain it; drop the connection instead
+            if (!finished && delegate instanceof ResponseInputStream<?> response) {
+                response.abort();
+            }
+            delegate.close();
+            delegate = null;
+        }
+
+        private InputStream delegate() throws IOException {
+            if (delegate == null) {
+                delegate = open(key, position);
+                finished = false;
+            }
+            return delegate;
+        }
+    }
+}
@@ -8,7 +8,9 @@ import jakarta.persistence.criteria.*;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public class ApplicationSpecification {
     
@@ -29,16 +31,12 @@ public class ApplicationSpecification {
                 root.fetch("company", JoinType.LEFT);
             }
             
-            // Candidate name search - FIXED: use firstName and lastName fields
+            // Candidate name search, on the expression of the candidates trigram index
             if (candidateName != null && !candidateName.trim().isEmpty()) {
                 Join<Application, Candidate> candidateJoin = root.join("candidate", JoinType.LEFT);
-                Expression<String> fullName = criteriaBuilder.concat(
-                    criteriaBuilder.concat(candidateJoin.get("firstName"), " "),
-                    candidateJoin.get("lastName")
-                );
                 predicates.add(criteriaBuilder.like(
-                    criteriaBuilder.lower(fullName),
-                    "%" + candidateName.toLowerCase() + "%"
+                    CandidateSpecification.lowerFullName(candidateJoin, criteriaBuilder),
+                    SearchPattern.contains(candidateName), SearchPattern.ESCAPE
                 ));
             }
             
@@ -47,7 +45,7 @@ public class ApplicationSpecification {
                 Join<Application, Job> jobJoin = root.join("job", JoinType.LEFT);
                 predicates.add(criteriaBuilder.like(
                     criteriaBuilder.lower(jobJoin.get("reference")),
-                    "%" + jobReference.toLowerCase() + "%"
+                    SearchPattern.contains(jobReference), SearchPattern.ESCAPE
                 ));
             }
             
@@ -56,7 +54,7 @@ public class ApplicationSpecification {
                 Join<Application, Company> companyJoin = root.join("company", JoinType.LEFT);
                 predicates.add(criteriaBuilder.like(
                     criteriaBuilder.lower(companyJoin.get("name")),
-                    "%" + companyName.toLowerCase() + "%"
+                    SearchPattern.contains(companyName), SearchPattern.ESCAPE
                 ));
             }
             
@@ -64,7 +62,7 @@ public class ApplicationSpecification {
             if (roleCategory != null && !roleCategory.trim().isEmpty()) {
                 predicates.add(criteriaBuilder.like(
                     criteriaBuilder.lower(root.get("roleCategory")),
-                    "%" + roleCategory.toLowerCase() + "%"
+                    SearchPattern.contains(roleCategory), SearchPattern.ESCAPE
                 ));
             }
             
@@ -81,4 +79,72 @@ public class ApplicationSpecification {
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
     }
+    
+    public static Specification<Application> idIn(Collection<Long> ids) {
+        return (root, query, criteriaBuilder) -> root.get("id").in(ids);
+    }
+    
+    /**
+     * Sort properties that are never null, usable with a {@link KeysetCursor}
+     */
+    public static final Set<String> KEYSET_PROPERTIES = Set.of(
+        "applicationDate", "createdAt", "candidateName", "averageRating", "commentCount", "roleCategory", "status"
+    );
+    
+    /**
+     * Orders by candidateName, by averageRating (counter columns) or by any other
+     * application attribute, then by id. Count queries are left unordered.
+     * Use with an unsorted Pageable.
+     */
+    public static Specification<Application> orderBy(String property, boolean ascending) {
+        return (root, query, criteriaBuilder) -> {
+            if (query == null || Long.class == query.getResultType()) {
+                return null;
+            }
+            
+            Expression<?> sortKey = sortKey(property, root, criteriaBuilder);
+            query.orderBy(
+                ascending ? criteriaBuilder.asc(sortKey) : criteriaBuilder.desc(sortKey),
+                criteriaBuilder.asc(root.get("id"))
+            );
+            return null;
+        };
+    }
+    
+    /**
+     * Applications after the cursor in the order of {@link #orderBy}, every application without cursor
+     */
+    public static Specification<Application> after(KeysetCursor cursor) {
+        return (root, query, criteriaBuilder) -> cursor == null ? null
+            : cursor.seek(criteriaBuilder, sortKey(cursor.getSortBy(), root, criteriaBuilder), root.get("id"));
+    }
+    
+    /**
+     * Value of the sort key of an application, as compared by {@link #after}
+     */
+    public static Object sortValue(Application application, String property) {
+        return switch (property) {
+            case "applicationDate" -> application.getApplicationDate();
+            case "createdAt" -> application.getCreatedAt();
+            case "candidateName" -> application.getCandidate().getFullName().toLowerCase();
+            case "averageRating" -> application.getAverageRating();
+            case "commentCount" -> application.getCommentCount();
+            case "roleCategory" -> application.getRoleCategory();
+            case "status" -> application.getStatus().name();
+            default -> throw new IllegalArgumentException("Unsupported cursor sort: " + property);
+        };
+    }
+    
+    private static Expression<?> sortKey(String property, Root<Application> root, CriteriaBuilder criteriaBuilder) {
+        if ("candidateName".equals(property)) {
+            Path<Candidate> candidate = root.get("candidate");
+            return criteriaBuilder.lower(criteriaBuilder.concat(
+                criteriaBuilder.concat(candidate.get("firstName"), " "),
+                candidate.get("lastName")
+            ));
+        } else if ("averageRating".equals(property)) {
+            return CandidateSpecification.averageRating(root, criteriaBuilder);
+        }
+        return root.get(property);
+    }
 }
@@ -0,0 +1,108 @@
+package com.cvscreen.specification;
+
+import com.cvscreen.entity.Candidate;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Set;
+
+public class CandidateSpecification {
+    
+    /**
+     * Full name ("first last") containing the search term (case-insensitive), every candidate for a blank term
+     */
+    public static Specification<Candidate> searchByName(String searchTerm) {
+        return (root, query, criteriaBuilder) -> {
+            if (searchTerm == null || searchTerm.trim().isEmpty()) {
+                return null;
+            }
+            return criteriaBuilder.like(lowerFullName(root, criteriaBuilder),
+                SearchPattern.contains(searchTerm), SearchPattern.ESCAPE);
+        };
+    }
+    
+    /**
+     * LOWER(first_name || ' ' || last_name), the expression of the candidates trigram index.
+     * Shared with ApplicationSpecification.
+     */
+    static Expression<String> lowerFullName(Path<?> candidate, CriteriaBuilder criteriaBuilder) {
+        // A literal rather than a bound parameter, which would not match the index expression
+        return criteriaBuilder.lower(criteriaBuilder.concat(
+            criteriaBuilder.concat(candidate.get("firstName"), criteriaBuilder.literal(" ")),
+            candidate.get("lastName")
+        ));
+    }
+    
+    /**
+     * Sort properties that are never null, usable with a {@link KeysetCursor}
+     */
+    public static final Set<String> KEYSET_PROPERTIES = Set.of(
+        "lastName", "firstName", "createdAt", "applicationCount", "reviewCount", "averageRating"
+    );
+    
+    /**
+     * Orders by a statistics field (applicationCount, reviewCount, averageRating) using the
+     * counter columns, or by any other candidate attribute, then by id.
+     * Count queries are left unordered. Use with an unsorted Pageable.
+     */
+    public static Specification<Candidate> orderBy(String property, boolean ascending) {
+        return (root, query, criteriaBuilder) -> {
+            if (query == null || Long.class == query.getResultType()) {
+                return null;
+            }
+            
+            Expression<?> sortKey = sortKey(property, root, criteriaBuilder);
+            query.orderBy(
+                ascending ? criteriaBuilder.asc(sortKey) : criteriaBuilder.desc(sortKey),
+                criteriaBuilder.asc(root.get("id"))
+            );
+            return null;
+        };
+    }
+    
+    /**
+     * Candidates after the cursor in the order of {@link #orderBy}, every candidate without cursor
+     */
+    public static Specification<Candidate> after(KeysetCursor cursor) {
+        return (root, query, criteriaBuilder) -> cursor == null ? null
+            : cursor.seek(criteriaBuilder, sortKey(cursor.getSortBy(), root, criteriaBuilder), root.get("id"));
+    }
+    
+    /**
+     * Value of the sort key of a candidate, as compared by {@link #after}
+     */
+    public static Object sortValue(Candidate candidate, String property) {
+        return switch (property) {
+            case "lastName" -> candidate.getLastName();
+            case "firstName" -> candidate.getFirstName();
+            case "createdAt" -> candidate.getCreatedAt();
+            case "applicationCount" -> candidate.getApplicationCount();
+            case "reviewCount" -> candidate.getCommentCount();
+            case "averageRating" -> candidate.getAverageRating();
+            default -> throw new IllegalArgumentException("Unsupported cursor sort: " + property);
+        };
+    }
+    
+    private static Expression<?> sortKey(String property, Root<Candidate> root, CriteriaBuilder criteriaBuilder) {
+        return switch (property) {
+            case "reviewCount" -> root.get("commentCount");
+            case "averageRating" -> averageRating(root, criteriaBuilder);
+            default -> root.get(property);
+        };
+    }
+    
+    /**
+     * rating_sum / rating_count, 0 without rating. Shared with ApplicationSpecification.
+     * Both operands are doubles so that the database computes exactly the value of
+     * getAverageRating(), which cursor positions are compared with.
+     */
+    static Expression<Double> averageRating(Path<?> root, CriteriaBuilder criteriaBuilder) {
+        Path<Long> ratingCount = root.get("ratingCount");
+        return criteriaBuilder.<Double>selectCase()
+            .when(criteriaBuilder.equal(ratingCount, 0L), 0.0)
+            .otherwise(criteriaBuilder.quot(
+                criteriaBuilder.toDouble(root.get("ratingSum")),
+                criteriaBuilder.toDouble(ratingCount)
+            ).as(Double.class));
+    }
+}
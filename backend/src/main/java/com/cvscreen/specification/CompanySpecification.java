@@ -0,0 +1,75 @@
+package com.cvscreen.specification;
+
+import com.cvscreen.entity.Company;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Set;
+
+public class CompanySpecification {
+    
+    /**
+     * Name containing the search term (case-insensitive), every company for a blank term
+     */
+    public static Specification<Company> nameContains(String name) {
+        return (root, query, criteriaBuilder) -> {
+            if (name == null || name.trim().isEmpty()) {
+                return null;
+            }
+            return criteriaBuilder.like(criteriaBuilder.lower(root.get("name")),
+                SearchPattern.contains(name), SearchPattern.ESCAPE);
+        };
+    }
+    
+    /**
+     * Sort properties that are never null, usable with a {@link KeysetCursor}
+     */
+    public static final Set<String> KEYSET_PROPERTIES = Set.of("name", "applicationCount", "createdAt");
+    
+    /**
+     * Orders by name (case-insensitive) or by any other company attribute,
+     * applicationCount included, then by id. Count queries are left unordered.
+     * Use with an unsorted Pageable.
+     */
+    public static Specification<Company> orderBy(String property, boolean ascending) {
+        return (root, query, criteriaBuilder) -> {
+            if (query == null || Long.class == query.getResultType()) {
+                return null;
+            }
+            
+            Expression<?> sortKey = sortKey(property, root, criteriaBuilder);
+            query.orderBy(
+                ascending ? criteriaBuilder.asc(sortKey) : criteriaBuilder.desc(sortKey),
+                criteriaBuilder.asc(root.get("id"))
+            );
+            return null;
+        };
+    }
+    
+    /**
+     * Companies after the cursor in the order of {@link #orderBy}, every company without cursor
+     */
+    public static Specification<Company> after(KeysetCursor cursor) {
+        return (root, query, criteriaBuilder) -> cursor == null ? null
+            : cursor.seek(criteriaBuilder, sortKey(cursor.getSortBy(), root, criteriaBuilder), root.get("id"));
+    }
+    
+    /**
+     * Value of the sort key of a company, as compared by {@link #after}
+     */
+    public static Object sortValue(Company company, String property) {
+        return switch (property) {
+            case "name" -> company.getName().toLowerCase();
+            case "applicationCount" -> company.getApplicationCount();
+            case "createdAt" -> company.getCreatedAt();
+            default -> throw new IllegalArgumentException("Unsupported cursor sort: " + property);
+        };
+    }
+    
+    private static Expression<?> sortKey(String property, Root<Company> root, CriteriaBuilder criteriaBuilder) {
+        if ("name".equals(property)) {
+            return criteriaBuilder.lower(root.get("name"));
+        }
+        return root.get(property);
+    }
+}
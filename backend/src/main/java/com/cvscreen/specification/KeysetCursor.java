@@ -0,0 +1,100 @@
+package com.cvscreen.specification;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by (sort key, id), as used by the orderBy specifications.
+ * Sent to clients as an opaque token; the next page is read with a seek predicate
+ * instead of an offset, so deep pages cost the same as the first one.
+ */
+@Getter
+@RequiredArgsConstructor
+public class KeysetCursor {
+    
+    /** Largest page read at once; larger requested sizes are capped to it */
+    public static final int MAX_PAGE_SIZE = 1000;
+    
+    private final String sortBy;
+    private final boolean ascending;
+    private final String value;
+    private final long id;
+    
+    public static KeysetCursor of(String sortBy, boolean ascending, Object value, long id) {
+        return new KeysetCursor(sortBy, ascending, String.valueOf(value), id);
+    }
+    
+    /**
+     * Decodes a token returned by {@link #encode()}, null for the first page
+     *
+     * @throws IllegalArgumentException if the token is malformed or was issued for another sort
+     */
+    public static KeysetCursor decode(String token, String sortBy, boolean ascending) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        KeysetCursor cursor;
+        try {
+            // sortBy|direction|id|value, the value last since it may contain separators
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", 4);
+            cursor = new KeysetCursor(parts[0], "asc".equals(parts[1]), parts[3], Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (!cursor.sortBy.equals(sortBy) || cursor.ascending != ascending) {
+            throw new IllegalArgumentException("Cursor was issued for another sort order");
+        }
+        return cursor;
+    }
+    
+    public String encode() {
+        String raw = sortBy + "|" + (ascending ? "asc" : "desc") + "|" + id + "|" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Rows after this position: (sortKey, id) beyond (value, id), ids always ascending
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Predicate seek(CriteriaBuilder criteriaBuilder, Expression<?> sortKey, Expression<Long> idPath) {
+        Expression<Comparable> key = (Expression<Comparable>) sortKey;
+        Comparable typedValue = parse(sortKey.getJavaType());
+        Predicate beyond = ascending
+            ? criteriaBuilder.greaterThan(key, typedValue)
+            : criteriaBuilder.lessThan(key, typedValue);
+        return criteriaBuilder.or(
+            beyond,
+            criteriaBuilder.and(criteriaBuilder.equal(key, typedValue), criteriaBuilder.greaterThan(idPath, id))
+        );
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Comparable<?> parse(Class<?> type) {
+        try {
+            if (type == Long.class) {
+                return Long.valueOf(value);
+            } else if (type == Integer.class) {
+                return Integer.valueOf(value);
+            } else if (type == Double.class) {
+                return Double.valueOf(value);
+            } else if (type == LocalDate.class) {
+                return LocalDate.parse(value);
+            } else if (type == LocalDateTime.class) {
+                return LocalDateTime.parse(value);
+            } else if (type != null && type.isEnum()) {
+                return Enum.valueOf((Class<Enum>) type, value);
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,40 @@
+package com.cvscreen.specification;
+
+import java.util.Locale;
+
+/**
+ * LIKE patterns of the substring searches. The term is lowercased here rather than in SQL, so
+ * that every search predicate reads LOWER(expression) LIKE :pattern, the shape the pg_trgm
+ * indexes of data-postgresql.sql are built for.
+ */
+public final class SearchPattern {
+
+    /** Escape character of the patterns, pass it to LIKE ... ESCAPE */
+    public static final char ESCAPE = '\\';
+
+    private SearchPattern() {
+    }
+
+    /**
+     * Pattern of the values containing the term, ignoring case. % and _ in the term match literally.
+     */
+    public static String contains(String term) {
+        String lowered = term.toLowerCase(Locale.ROOT);
+        StringBuilder pattern = new StringBuilder(lowered.length() + 2).append('%');
+        for (int i = 0; i < lowered.length(); i++) {
+            char c = lowered.charAt(i);
+            if (c == '%' || c == '_' || c == ESCAPE) {
+                pattern.append(ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+    /**
+     * Like {@link #contains}, null for a blank term
+     */
+    public static String containsOrNull(String term) {
+        return term == null || term.trim().isEmpty() ? null : contains(term);
+    }
+}
@@ -0,0 +1,29 @@
+-- Applications, candidates and companies take their ids from pooled sequences (allocation 50)
+-- instead of identity columns. Move each sequence past the existing rows; never moves one back,
+-- so it is safe at every startup.
+SELECT setval('applications_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM applications), (SELECT last_value FROM applications_seq)));
+SELECT setval('candidates_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM candidates), (SELECT last_value FROM candidates_seq)));
+SELECT setval('companies_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM companies), (SELECT last_value FROM companies_seq)));
+
+-- Substring searches compare LOWER(expression) LIKE '%term%' (see SearchPattern), which only
+-- trigram indexes can serve. Each index is on the exact expression the queries produce:
+-- Hibernate renders CONCAT as ||. pg_trgm ships with PostgreSQL, but creating the extension
+-- needs the CREATE privilege on the database: without it the searches run unindexed until a DBA
+-- runs CREATE EXTENSION pg_trgm, and the indexes are created at the next startup. The blocks are
+-- single-quoted, not dollar-quoted, so the script splitter keeps each one a single statement.
+DO '
+BEGIN
+    CREATE EXTENSION IF NOT EXISTS pg_trgm;
+EXCEPTION WHEN insufficient_privilege THEN
+    RAISE WARNING ''pg_trgm is not installed and this role may not create it; substring searches are not indexed'';
+END';
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = ''pg_trgm'') THEN
+        CREATE INDEX IF NOT EXISTS idx_candidates_full_name_trgm ON candidates USING gin (lower(first_name || '' '' || last_name) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_companies_name_trgm ON companies USING gin (lower(name) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_jobs_reference_trgm ON jobs USING gin (lower(reference) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_jobs_title_trgm ON jobs USING gin (lower(title) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_jobs_category_trgm ON jobs USING gin (lower(category) gin_trgm_ops);
+    END IF;
+END';
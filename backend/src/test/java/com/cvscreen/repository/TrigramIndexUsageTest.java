@@ -0,0 +1,187 @@
+package com.cvscreen.repository;
+
+import com.cvscreen.specification.ApplicationSpecification;
+import com.cvscreen.specification.SearchPattern;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The substring searches are served by the trigram indexes of data-postgresql.sql: the SQL
+ * Hibernate generates for each query is explained against PostgreSQL, sequential scans off,
+ * and its plan must use the index on the expression it filters on.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.sql.init.mode=always",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.cvscreen.repository.TrigramIndexUsageTest$RecordingInspector"
+})
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+class TrigramIndexUsageTest {
+
+    private static final int ROWS = 2000;
+
+    @Container
+    static final PostgreSQLContainer POSTGRES = new PostgreSQLContainer("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+    }
+
+    /**
+     * Keeps the SQL of the statements Hibernate prepares
+     */
+    public static class RecordingInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private CandidateRepository candidateRepository;
+    @Autowired
+    private CompanyRepository companyRepository;
+    @Autowired
+    private JobRepository jobRepository;
+    @Autowired
+    private ApplicationRepository applicationRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        Integer candidates = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM candidates", Integer.class);
+        if (candidates != null && candidates > 0) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO candidates (id, first_name, last_name, created_at) " +
+                "SELECT n, 'First' || n, 'Last' || md5(n::text), now() FROM generate_series(1, ?) n", ROWS);
+        jdbcTemplate.update("INSERT INTO companies (id, name, created_at) " +
+                "SELECT n, 'Company ' || md5(n::text), now() FROM generate_series(1, ?) n", ROWS);
+        jdbcTemplate.update("INSERT INTO jobs (reference, title, category, status, source, created_at) " +
+                "SELECT 'REF-' || n, 'Title ' || md5(n::text), 'Category ' || (n % 50), 'OPEN', 'Pro-Unity', now() " +
+                "FROM generate_series(1, ?) n", ROWS);
+        jdbcTemplate.update("INSERT INTO applications (id, candidate_id, role_category, application_date, status, created_at) " +
+                "SELECT n, n, 'Category ' || (n % 50), current_date, 'CV_RECEIVED', now() " +
+                "FROM generate_series(1, ?) n", ROWS);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void candidateNameSearchUsesTrigramIndex() {
+        String plan = explain(() -> candidateRepository.searchByName(SearchPattern.contains("abc")), "candidates");
+
+        assertThat(plan).contains("idx_candidates_full_name_trgm");
+    }
+
+    @Test
+    void companyNameSearchUsesTrigramIndex() {
+        String plan = explain(() -> companyRepository.searchByName(SearchPattern.contains("abc")), "companies");
+
+        assertThat(plan).contains("idx_companies_name_trgm");
+    }
+
+    @Test
+    void jobSearchUsesTrigramIndexes() {
+        String plan = explain(() -> jobRepository.searchJobs(SearchPattern.contains("abc")), "jobs");
+
+        assertThat(plan).contains("idx_jobs_reference_trgm", "idx_jobs_title_trgm", "idx_jobs_category_trgm");
+    }
+
+    @Test
+    void applicationCandidateNameFilterUsesTrigramIndex() {
+        String plan = explain(() -> applicationRepository.findAll(
+                ApplicationSpecification.searchApplications("abc", null, null, null, null)), "applications");
+
+        assertThat(plan).contains("idx_candidates_full_name_trgm");
+    }
+
+    @Test
+    void applicationFiltersQueryUsesTrigramIndex() {
+        // Parameters in order: the candidate name pattern (IS NULL, then LIKE), then the other filters, unset
+        String plan = explain(() -> applicationRepository.findAllWithFilters(
+                SearchPattern.containsOrNull("abc"), null, null, null, null, Pageable.unpaged()), "applications", 2);
+
+        assertThat(plan).contains("idx_candidates_full_name_trgm");
+    }
+
+    /**
+     * Runs the query, then explains the last statement it prepared on the table, every
+     * parameter bound to the pattern of the query
+     */
+    private String explain(Runnable query, String table) {
+        return explain(query, table, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same, only the first {@code patternParameters} parameters bound to the pattern and the
+     * following ones to null, for the queries whose filters are skipped when null
+     */
+    private String explain(Runnable query, String table, int patternParameters) {
+        RecordingInspector.STATEMENTS.clear();
+        query.run();
+        String sql = RecordingInspector.STATEMENTS.stream()
+                .filter(statement -> statement.contains("from " + table))
+                .reduce((first, second) -> second)
+                .orElseThrow(() -> new AssertionError("No statement on " + table));
+        String pattern = SearchPattern.contains("abc");
+
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement settings = connection.createStatement()) {
+                // The tables are small enough for a sequential scan to win otherwise
+                settings.execute("SET enable_seqscan = off");
+            }
+            StringBuilder plan = new StringBuilder();
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+                long parameters = sql.chars().filter(c -> c == '?').count();
+                for (int i = 1; i <= parameters; i++) {
+                    if (i <= patternParameters) {
+                        explain.setString(i, pattern);
+                    } else {
+                        explain.setNull(i, Types.VARCHAR);
+                    }
+                }
+                try (ResultSet rows = explain.executeQuery()) {
+                    while (rows.next()) {
+                        plan.append(rows.getString(1)).append('\n');
+                    }
+                }
+            } finally {
+                try (Statement settings = connection.createStatement()) {
+                    settings.execute("RESET enable_seqscan");
+                }
+            }
+            return plan.toString();
+        });
+    }
+}
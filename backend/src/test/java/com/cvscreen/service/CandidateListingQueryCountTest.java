@@ -0,0 +1,139 @@
+package com.cvscreen.service;
+
+import com.cvscreen.dto.CandidateDTO;
+import com.cvscreen.entity.Application;
+import com.cvscreen.entity.ApplicationComment;
+import com.cvscreen.entity.Candidate;
+import com.cvscreen.entity.User;
+import com.cvscreen.repository.ApplicationCommentRepository;
+import com.cvscreen.repository.ApplicationRepository;
+import com.cvscreen.repository.CandidateRepository;
+import com.cvscreen.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The candidate listings cost a constant number of statements per page, whatever the page
+ * size and however many applications and comments the candidates have: the statistics of
+ * a candidate are read from its counter columns, which must match its applications and
+ * comments.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CandidateListingQueryCountTest {
+
+    private static final int CANDIDATES = 60;
+
+    @Autowired
+    private CandidateService candidateService;
+    @Autowired
+    private CandidateRepository candidateRepository;
+    @Autowired
+    private ApplicationRepository applicationRepository;
+    @Autowired
+    private ApplicationCommentRepository commentRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CounterService counterService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (candidateRepository.count() > 0) {
+            return;
+        }
+        User reviewer = new User();
+        reviewer.setUsername("reviewer");
+        reviewer.setDisplayName("Reviewer");
+        reviewer.setPassword("-");
+        userRepository.save(reviewer);
+        for (int i = 0; i < CANDIDATES; i++) {
+            Candidate candidate = new Candidate();
+            candidate.setFirstName("First" + i);
+            candidate.setLastName("Listed" + i);
+            candidateRepository.save(candidate);
+            for (int a = 0; a < 2; a++) {
+                Application application = new Application();
+                application.setCandidate(candidate);
+                application.setRoleCategory("Developer");
+                application.setApplicationDate(LocalDate.of(2024, 1, 1 + a));
+                applicationRepository.save(application);
+
+                ApplicationComment comment = new ApplicationComment();
+                comment.setApplication(application);
+                comment.setUser(reviewer);
+                comment.setComment("Reviewed");
+                comment.setRating(1 + (i + a) % 5);
+                commentRepository.save(comment);
+            }
+        }
+        // Saved through the repositories, which leave the counters to the services
+        counterService.rebuild();
+    }
+
+    @Test
+    void paginatedListingIsConstantPerPage() {
+        long small = statements(() -> candidateService.getAllCandidatesPaginated(page(5)));
+        long large = statements(() -> candidateService.getAllCandidatesPaginated(page(50)));
+
+        assertEquals(small, large);
+        // The page, its total and the statistics of its candidates
+        assertTrue(large <= 3, "statements per page: " + large);
+    }
+
+    @Test
+    void paginatedSearchIsConstantPerPage() {
+        long small = statements(() -> candidateService.searchCandidatesPaginated("Listed", page(5)));
+        long large = statements(() -> candidateService.searchCandidatesPaginated("Listed", page(50)));
+
+        assertEquals(small, large);
+        assertTrue(large <= 3, "statements per page: " + large);
+    }
+
+    @Test
+    void fullListingIsConstant() {
+        long all = statements(() -> assertEquals(CANDIDATES, candidateService.getAllCandidates().size()));
+
+        assertTrue(all <= 2, "statements for " + CANDIDATES + " candidates: " + all);
+    }
+
+    @Test
+    void listingReadsTheCounters() {
+        for (CandidateDTO candidate : candidateService.getAllCandidatesPaginated(page(CANDIDATES)).getContent()) {
+            int i = Integer.parseInt(candidate.getLastName().substring("Listed".length()));
+            double expectedAverage = ((1 + i % 5) + (1 + (i + 1) % 5)) / 2.0;
+
+            assertEquals(2, candidate.getApplicationCount(), candidate.getFullName());
+            assertEquals(2L, candidate.getReviewCount(), candidate.getFullName());
+            assertEquals(expectedAverage, candidate.getAverageRating(), 1e-9, candidate.getFullName());
+        }
+    }
+
+    private static PageRequest page(int size) {
+        return PageRequest.of(0, size, Sort.by("lastName"));
+    }
+
+    private long statements(Runnable listing) {
+        statistics.clear();
+        listing.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,180 @@
+package com.cvscreen.service.duplicate;
+
+import org.apache.commons.text.similarity.LevenshteinDistance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name similarity, before and after the bit-parallel kernel: the unbounded commons-text
+ * distance against {@link NameSimilarityKernel} on name pairs, and the blocked scan of
+ * {@link DuplicateBlockingEngine} against comparing every pair with the kernel.
+ *
+ * Not a test: run it from the test classpath, for instance
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.cvscreen.service.duplicate.NameSimilarityBenchmark \
+ *     -Dexec.args="-prof gc"
+ * </pre>
+ * where exec.args takes JMH options, -prof gc giving the allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameSimilarityBenchmark {
+
+    private static final double THRESHOLD = 0.85;
+    private static final int PAIR_COUNT = 1024;
+
+    private static final String[] FIRST_NAMES = {
+            "jean", "marie", "pierre", "sophie", "thomas", "julie", "nicolas", "isabelle", "laurent", "nathalie",
+            "jan", "anna", "pieter", "els", "bart", "katrien", "michael", "sarah", "david", "emma",
+            "françois", "hélène", "jérôme", "zoë", "mohamed", "fatima", "alexandre", "catherine"
+    };
+    private static final String[] LAST_NAMES = {
+            "dubois", "lambert", "martin", "peeters", "janssens", "maes", "jacobs", "mertens", "willems", "claes",
+            "goossens", "wouters", "de smet", "van den broeck", "vermeulen", "dupont", "leroy", "lefèvre",
+            "van de velde", "de backer", "smith", "johnson", "el amrani", "van der meulen", "desmedt", "dumont"
+    };
+
+    /**
+     * Pairs of full names: a name and a misspelling of it (similar), or two unrelated names (random)
+     */
+    @State(Scope.Thread)
+    public static class NamePairs {
+        @Param({"similar", "random"})
+        public String pairs;
+
+        String[] left;
+        String[] right;
+        int cutoff;
+        final NameSimilarityKernel kernel = new NameSimilarityKernel();
+        final LevenshteinDistance unbounded = LevenshteinDistance.getDefaultInstance();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(42);
+            left = new String[PAIR_COUNT];
+            right = new String[PAIR_COUNT];
+            int longest = 0;
+            for (int i = 0; i < PAIR_COUNT; i++) {
+                left[i] = fullName(random);
+                right[i] = "similar".equals(pairs) ? misspell(left[i], random) : fullName(random);
+                longest = Math.max(longest, Math.max(left[i].length(), right[i].length()));
+            }
+            // The scan derives the cutoff from the longer name of each pair; the longest is the loosest
+            cutoff = NameSimilarityKernel.maxDistance(longest, THRESHOLD);
+        }
+    }
+
+    /**
+     * Normalized names with some near duplicates, as in the candidates table
+     */
+    @State(Scope.Benchmark)
+    public static class NameSet {
+        @Param({"5000"})
+        public int size;
+
+        String[] names;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(7);
+            names = new String[size];
+            for (int i = 0; i < size; i++) {
+                // One name in ten is a misspelling of an earlier one
+                names[i] = i > 0 && random.nextInt(10) == 0 ? misspell(names[random.nextInt(i)], random) : fullName(random);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIR_COUNT)
+    public void commonsTextUnbounded(NamePairs state, Blackhole blackhole) {
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            blackhole.consume(state.unbounded.apply(state.left[i], state.right[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIR_COUNT)
+    public void bitParallelBounded(NamePairs state, Blackhole blackhole) {
+        for (int i = 0; i < PAIR_COUNT; i++) {
+            blackhole.consume(state.kernel.distance(state.left[i], state.right[i], state.cutoff));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long blockedScan(NameSet state) {
+        long[] found = new long[1];
+        new DuplicateBlockingEngine(state.names).scan(THRESHOLD, (first, second, distance, score) -> found[0]++);
+        return found[0];
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long allPairsScan(NameSet state) {
+        NameSimilarityKernel kernel = new NameSimilarityKernel();
+        String[] names = state.names;
+        long found = 0;
+        for (int i = 1; i < names.length; i++) {
+            for (int j = 0; j < i; j++) {
+                int maxLength = Math.max(names[i].length(), names[j].length());
+                if (kernel.distance(names[i], names[j], NameSimilarityKernel.maxDistance(maxLength, THRESHOLD)) >= 0) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static String fullName(Random random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    /**
+     * One or two typos: a character replaced, dropped or doubled
+     */
+    private static String misspell(String name, Random random) {
+        StringBuilder misspelled = new StringBuilder(name);
+        int typos = 1 + random.nextInt(2);
+        for (int t = 0; t < typos && misspelled.length() > 1; t++) {
+            int at = random.nextInt(misspelled.length());
+            switch (random.nextInt(3)) {
+                case 0 -> misspelled.setCharAt(at, (char) ('a' + random.nextInt(26)));
+                case 1 -> misspelled.deleteCharAt(at);
+                default -> misspelled.insert(at, misspelled.charAt(at));
+            }
+        }
+        return misspelled.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(NameSimilarityBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
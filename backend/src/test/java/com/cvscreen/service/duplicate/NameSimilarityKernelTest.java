@@ -0,0 +1,116 @@
+package com.cvscreen.service.duplicate;
+
+import org.apache.commons.text.similarity.LevenshteinDistance;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link NameSimilarityKernel} returns the bounded distance of commons-text
+ * {@link LevenshteinDistance}: on random names around the 64-character limit of the
+ * bit-parallel algorithm, with the cutoff below, at and above the actual distance.
+ */
+class NameSimilarityKernelTest {
+
+    private static final long SEED = 20240517L;
+    private static final int PAIRS_PER_LENGTH = 300;
+    // ASCII letters, a space and non-ASCII letters, which take the other mask table
+    private static final String ALPHABET = "abcdeijlmnorstuv -éèëçöñ";
+
+    private final NameSimilarityKernel kernel = new NameSimilarityKernel();
+    private final LevenshteinDistance unbounded = LevenshteinDistance.getDefaultInstance();
+
+    @Test
+    void matchesCommonsTextAroundTheBitParallelLimit() {
+        Random random = new Random(SEED);
+        for (int length : new int[] {1, 2, 10, 31, 63, 64, 65, 80}) {
+            for (int i = 0; i < PAIRS_PER_LENGTH; i++) {
+                String pattern = randomName(random, length);
+                String text = mutate(random, pattern, random.nextInt(6));
+                // Either side may be the shorter one
+                if (random.nextBoolean()) {
+                    assertMatchesAroundDistance(pattern, text);
+                } else {
+                    assertMatchesAroundDistance(text, pattern);
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesCommonsTextOnUnrelatedNames() {
+        Random random = new Random(SEED + 1);
+        for (int i = 0; i < PAIRS_PER_LENGTH; i++) {
+            String left = randomName(random, 60 + random.nextInt(8));
+            String right = randomName(random, 60 + random.nextInt(8));
+            assertMatchesAroundDistance(left, right);
+        }
+    }
+
+    @Test
+    void handlesEmptyNames() {
+        assertThat(kernel.distance("", "", 0)).isZero();
+        assertThat(kernel.distance("", "abc", 3)).isEqualTo(3);
+        assertThat(kernel.distance("abc", "", 3)).isEqualTo(3);
+        assertThat(kernel.distance("", "abc", 2)).isEqualTo(-1);
+        assertThat(kernel.distance("abc", "", 2)).isEqualTo(-1);
+        assertThat(kernel.distance("", "", -1)).isEqualTo(-1);
+    }
+
+    @Test
+    void handlesIdenticalNamesOfEveryLength() {
+        Random random = new Random(SEED + 2);
+        for (int length = 1; length <= 70; length++) {
+            String name = randomName(random, length);
+            assertThat(kernel.distance(name, new String(name), 0)).as("length %d", length).isZero();
+        }
+    }
+
+    /**
+     * Compares both implementations with the cutoff at the distance and one either side
+     */
+    private void assertMatchesAroundDistance(String left, String right) {
+        int distance = unbounded.apply(left, right);
+        for (int maxDistance = Math.max(0, distance - 1); maxDistance <= distance + 1; maxDistance++) {
+            int expected = new LevenshteinDistance(maxDistance).apply(left, right);
+            assertThat(kernel.distance(left, right, maxDistance))
+                    .as("distance(\"%s\", \"%s\", %d)", left, right, maxDistance)
+                    .isEqualTo(expected);
+        }
+    }
+
+    private static String randomName(Random random, int length) {
+        StringBuilder name = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            name.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return name.toString();
+    }
+
+    /**
+     * Applies random insertions, deletions and substitutions
+     */
+    private static String mutate(Random random, String name, int edits) {
+        StringBuilder mutated = new StringBuilder(name);
+        for (int e = 0; e < edits; e++) {
+            int position = random.nextInt(mutated.length() + 1);
+            char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            switch (random.nextInt(3)) {
+                case 0 -> mutated.insert(position, c);
+                case 1 -> {
+                    if (position < mutated.length()) {
+                        mutated.deleteCharAt(position);
+                    }
+                }
+                default -> {
+                    if (position < mutated.length()) {
+                        mutated.setCharAt(position, c);
+                    }
+                }
+            }
+        }
+        return mutated.toString();
+    }
+}
@@ -0,0 +1,377 @@
+package com.cvscreen.service.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.awscore.retry.AwsRetryStrategy;
+import software.amazon.awssdk.core.checksums.RequestChecksumCalculation;
+import software.amazon.awssdk.core.checksums.ResponseChecksumValidation;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * S3CvStorage against an in-process stand-in of the S3 API (path-style objects, ranges and
+ * multipart uploads over the JDK HTTP server), which records the requests it serves.
+ */
+class S3CvStorageTest {
+
+    private static final String BUCKET = "cvs";
+    private static final String PREFIX = "cv/";
+    private static final int PART_SIZE = 64 * 1024;
+
+    private S3Stub stub;
+    private S3Client client;
+    private S3CvStorage storage;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = new S3Stub();
+        client = S3Client.builder()
+                .region(Region.EU_WEST_1)
+                .endpointOverride(URI.create("http://127.0.0.1:" + stub.port()))
+                .forcePathStyle(true)
+                .requestChecksumCalculation(RequestChecksumCalculation.WHEN_REQUIRED)
+                .responseChecksumValidation(ResponseChecksumValidation.WHEN_REQUIRED)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+                .overrideConfiguration(configuration -> configuration.retryStrategy(AwsRetryStrategy.doNotRetry()))
+                .build();
+        // Below the S3 minimum, which the stub does not enforce, to keep the files small
+        storage = new S3CvStorage(client, BUCKET, PREFIX, PART_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        stub.stop();
+    }
+
+    @Test
+    void smallFileIsOnePut() throws IOException {
+        byte[] content = content(1000);
+
+        storage.put("ab/cd/small", file(content));
+
+        assertThat(stub.requests).containsExactly("PUT cv/ab/cd/small");
+        assertThat(stub.objects.get("cv/ab/cd/small")).isEqualTo(content);
+        assertThat(storage.size("ab/cd/small")).isEqualTo(1000);
+        assertThat(storage.size("ab/cd/missing")).isEqualTo(-1);
+    }
+
+    @Test
+    void largeFileIsUploadedInParts() throws IOException {
+        byte[] content = content(PART_SIZE * 2 + 100);
+
+        storage.put("ab/cd/large", file(content));
+
+        assertThat(stub.requests).containsExactly("INITIATE cv/ab/cd/large", "PART cv/ab/cd/large 1",
+                "PART cv/ab/cd/large 2", "PART cv/ab/cd/large 3", "COMPLETE cv/ab/cd/large");
+        assertThat(stub.objects.get("cv/ab/cd/large")).isEqualTo(content);
+        assertThat(stub.uploads).isEmpty();
+    }
+
+    @Test
+    void failedUploadIsAborted() throws IOException {
+        stub.failingPart = 2;
+
+        assertThatThrownBy(() -> storage.put("ab/cd/large", file(content(PART_SIZE * 3))))
+                .isInstanceOf(S3Exception.class);
+
+        assertThat(stub.requests).containsExactly("INITIATE cv/ab/cd/large", "PART cv/ab/cd/large 1",
+                "PART cv/ab/cd/large 2", "ABORT cv/ab/cd/large");
+        assertThat(stub.objects).doesNotContainKey("cv/ab/cd/large");
+        assertThat(stub.uploads).isEmpty();
+    }
+
+    @Test
+    void openAtOffsetIsRangedGet() throws IOException {
+        byte[] content = content(5000);
+        stub.objects.put("cv/ab/cd/file", content);
+
+        try (InputStream input = storage.open("ab/cd/file", 1234)) {
+            assertThat(input.readAllBytes()).isEqualTo(Arrays.copyOfRange(content, 1234, 5000));
+        }
+        try (InputStream input = storage.open("ab/cd/file", 5000)) {
+            assertThat(input.readAllBytes()).isEmpty();
+        }
+
+        assertThat(stub.requests).containsExactly("GET cv/ab/cd/file bytes=1234-", "GET cv/ab/cd/file bytes=5000-");
+    }
+
+    @Test
+    void resourceSkipsBeforeReadingWithOneRangedGet() throws IOException {
+        byte[] content = content(400 * 1024);
+        stub.objects.put("cv/ab/cd/file", content);
+
+        try (InputStream input = storage.resource("ab/cd/file", content.length).getInputStream()) {
+            // A range request: skip to its start, then read it
+            assertThat(input.skip(1000)).isEqualTo(1000);
+            assertThat(stub.requests).isEmpty();
+            assertThat(input.readNBytes(10)).isEqualTo(Arrays.copyOfRange(content, 1000, 1010));
+        }
+
+        assertThat(stub.requests).containsExactly("GET cv/ab/cd/file bytes=1000-");
+    }
+
+    @Test
+    void resourceReadsThroughShortSkipsAndReopensPastLongOnes() throws IOException {
+        byte[] content = content(400 * 1024);
+        stub.objects.put("cv/ab/cd/file", content);
+
+        int position;
+        try (InputStream input = storage.resource("ab/cd/file", content.length).getInputStream()) {
+            assertThat(input.readNBytes(10)).isEqualTo(Arrays.copyOfRange(content, 0, 10));
+            position = 10 + (int) input.skip(100);
+            assertThat(input.readNBytes(10)).isEqualTo(Arrays.copyOfRange(content, position, position + 10));
+            position += 10;
+
+            assertThat(input.skip(300 * 1024)).isEqualTo(300 * 1024);
+            position += 300 * 1024;
+            assertThat(input.readAllBytes()).isEqualTo(Arrays.copyOfRange(content, position, content.length));
+        }
+
+        assertThat(stub.requests).containsExactly("GET cv/ab/cd/file", "GET cv/ab/cd/file bytes=" + position + "-");
+    }
+
+    @Test
+    void skipPastTheEndReadsNothing() throws IOException {
+        stub.objects.put("cv/ab/cd/file", content(100));
+
+        try (InputStream input = storage.resource("ab/cd/file", 100).getInputStream()) {
+            assertThat(input.skip(1000)).isEqualTo(100);
+            assertThat(input.read()).isEqualTo(-1);
+        }
+    }
+
+    private Path file(byte[] content) throws IOException {
+        return Files.write(Files.createTempFile(directory, "cv", null), content);
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    /**
+     * Path-style S3 subset: PUT, HEAD, GET with ranges, DELETE, and multipart uploads. Requests
+     * are recorded as "METHOD key [detail]", the part number failing with a 500 is configurable.
+     */
+    private static final class S3Stub {
+        private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+        final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+        final List<String> requests = new CopyOnWriteArrayList<>();
+        volatile int failingPart;
+
+        private final HttpServer server;
+        private int uploadCount;
+
+        S3Stub() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/", exchange -> {
+                try (exchange) {
+                    handle(exchange);
+                }
+            });
+            server.start();
+        }
+
+        int port() {
+            return server.getAddress().getPort();
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            String path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), StandardCharsets.UTF_8);
+            String key = path.substring(("/" + BUCKET + "/").length());
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            byte[] body = body(exchange);
+            String uploadId = query.get("uploadId");
+
+            switch (exchange.getRequestMethod()) {
+                case "PUT" -> {
+                    if (uploadId != null) {
+                        int part = Integer.parseInt(query.get("partNumber"));
+                        requests.add("PART " + key + " " + part);
+                        if (part == failingPart) {
+                            error(exchange, 500, "InternalError");
+                            return;
+                        }
+                        uploads.get(uploadId).put(part, body);
+                    } else {
+                        requests.add("PUT " + key);
+                        objects.put(key, body);
+                    }
+                    exchange.getResponseHeaders().add("ETag", "\"" + Arrays.hashCode(body) + "\"");
+                    send(exchange, 200, new byte[0]);
+                }
+                case "POST" -> {
+                    if (query.containsKey("uploads")) {
+                        requests.add("INITIATE " + key);
+                        String id = "upload-" + (++uploadCount);
+                        uploads.put(id, new TreeMap<>());
+                        xml(exchange, 200, "<InitiateMultipartUploadResult><Bucket>" + BUCKET + "</Bucket><Key>"
+                                + key + "</Key><UploadId>" + id + "</UploadId></InitiateMultipartUploadResult>");
+                    } else {
+                        requests.add("COMPLETE " + key);
+                        ByteArrayOutputStream content = new ByteArrayOutputStream();
+                        for (byte[] part : uploads.remove(uploadId).values()) {
+                            content.write(part);
+                        }
+                        objects.put(key, content.toByteArray());
+                        xml(exchange, 200, "<CompleteMultipartUploadResult><Bucket>" + BUCKET + "</Bucket><Key>"
+                                + key + "</Key><ETag>\"complete\"</ETag></CompleteMultipartUploadResult>");
+                    }
+                }
+                case "DELETE" -> {
+                    if (uploadId != null) {
+                        requests.add("ABORT " + key);
+                        uploads.remove(uploadId);
+                    } else {
+                        requests.add("DELETE " + key);
+                        objects.remove(key);
+                    }
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                case "HEAD" -> {
+                    byte[] content = objects.get(key);
+                    if (content == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                    } else {
+                        exchange.getResponseHeaders().add("Content-Length", String.valueOf(content.length));
+                        exchange.sendResponseHeaders(200, -1);
+                    }
+                }
+                case "GET" -> get(exchange, key);
+                default -> error(exchange, 405, "MethodNotAllowed");
+            }
+        }
+
+        private void get(HttpExchange exchange, String key) throws IOException {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            requests.add("GET " + key + (range != null ? " " + range : ""));
+            byte[] content = objects.get(key);
+            if (content == null) {
+                error(exchange, 404, "NoSuchKey");
+                return;
+            }
+            if (range == null) {
+                send(exchange, 200, content);
+                return;
+            }
+            Matcher matcher = RANGE.matcher(range);
+            if (!matcher.matches()) {
+                error(exchange, 400, "InvalidArgument");
+                return;
+            }
+            int start = Integer.parseInt(matcher.group(1));
+            int end = matcher.group(2).isEmpty() ? content.length - 1
+                    : Math.min(Integer.parseInt(matcher.group(2)), content.length - 1);
+            if (start >= content.length) {
+                error(exchange, 416, "InvalidRange");
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            send(exchange, 206, Arrays.copyOfRange(content, start, end + 1));
+        }
+
+        /**
+         * The request body, decoded when the SDK sent it in signed aws-chunked form
+         */
+        private static byte[] body(HttpExchange exchange) throws IOException {
+            byte[] raw = exchange.getRequestBody().readAllBytes();
+            String sha256 = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+            if (sha256 == null || !sha256.startsWith("STREAMING")) {
+                return raw;
+            }
+            ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+            int position = 0;
+            while (true) {
+                int lineEnd = indexOfCrLf(raw, position);
+                String header = new String(raw, position, lineEnd - position, StandardCharsets.US_ASCII);
+                int size = Integer.parseInt(header.split(";")[0], 16);
+                position = lineEnd + 2;
+                if (size == 0) {
+                    return decoded.toByteArray();
+                }
+                decoded.write(raw, position, size);
+                position += size + 2;
+            }
+        }
+
+        private static int indexOfCrLf(byte[] bytes, int from) {
+            for (int i = from; i < bytes.length - 1; i++) {
+                if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Malformed chunked body");
+        }
+
+        private static Map<String, String> query(String rawQuery) {
+            Map<String, String> query = new HashMap<>();
+            if (rawQuery == null) {
+                return query;
+            }
+            for (String parameter : rawQuery.split("&")) {
+                int equals = parameter.indexOf('=');
+                String name = equals < 0 ? parameter : parameter.substring(0, equals);
+                String value = equals < 0 ? "" : parameter.substring(equals + 1);
+                query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+            return query;
+        }
+
+        private static void xml(HttpExchange exchange, int status, String body) throws IOException {
+            exchange.getResponseHeaders().add("Content-Type", "application/xml");
+            send(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static void error(HttpExchange exchange, int status, String code) throws IOException {
+            xml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + code + "</Message></Error>");
+        }
+
+        private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                exchange.getResponseBody().write(body);
+            }
+        }
+    }
+}
@@ -60,8 +60,8 @@ export class ProunityImportComponent {
       this.selectedFile = input.files[0];
       this.importResult = null;
       
-      if (this.selectedFile.size > 20000000) {
-        this.snackBar.open('File exceeds 20MB limit!', 'Close', { duration: 5000 });
+      if (this.selectedFile.size > 500000000) {
+        this.snackBar.open('File exceeds 500MB limit!', 'Close', { duration: 5000 });
       }
     }
   }
@@ -72,7 +72,7 @@ export class ProunityImportComponent {
   }
 
   uploadFile(): void {
-    if (!this.selectedFile || this.selectedFile.size > 20000000) {
+    if (!this.selectedFile || this.selectedFile.size > 500000000) {
       return;
     }
 